@@ -0,0 +1,332 @@
+/*
+ * Copyright (C) 2015 Clifford Errickson
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.cyberninjas.invoice.pdf;
+
+import com.cyberninjas.pdf.PdfSource;
+import com.cyberninjas.pdf.TextContentParser;
+import com.itextpdf.text.DocumentException;
+import com.itextpdf.text.pdf.PdfReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures, on generated invoices, parsing every page with {@link PdfInvoiceEditor#parseContent(java.util.concurrent.Executor)}
+ * sequentially and concurrently, locating invoice content with {@link InvoiceTextExtractionStrategy#parse(PdfInvoiceProfile)}, stamping
+ * amounts with {@link PdfInvoiceEditor#writeCumulativeCost(String, double)} and serializing the document with
+ * {@link PdfInvoiceEditor#writeTo(OutputStream)}, as well as editing an invoice end to end with and without a
+ * {@link PdfInvoiceWorkspace} reused from invoice to invoice.
+ *
+ * <p>
+ * Stamping and serializing need a fresh editor for every invocation, which is created and parsed outside the
+ * measurement.</p>
+ *
+ * <p>
+ * Run with {@code mvn -P benchmarks test-compile exec:exec -Djmh.args=InvoiceEditorBenchmark}.</p>
+ *
+ * @author Clifford Errickson
+ * @since 1.1
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InvoiceEditorBenchmark {
+
+    /**
+     * The font amounts are written in.
+     */
+    static final String FONT = "src/test/resources/calibri.ttf";
+
+    /**
+     * A generated invoice and the amounts to write to it.
+     */
+    @State(Scope.Benchmark)
+    public static class Invoice {
+
+        /**
+         * The number of pages of the invoice.
+         */
+        @Param({"2", "16", "128"})
+        public int pageCount;
+
+        /**
+         * The number of items on each page, each of which has an amount written.
+         */
+        @Param({"1", "20"})
+        public int itemsPerPage;
+
+        byte[] src;
+
+        /**
+         * The ItemIds to write amounts to.
+         */
+        List<String> itemIds;
+
+        @Setup(Level.Trial)
+        public void setUp()
+                throws IOException, DocumentException {
+            InvoiceGenerator generator = new InvoiceGenerator();
+
+            generator.setPageCount(pageCount);
+            generator.setItemCount(pageCount * itemsPerPage);
+
+            InvoiceGenerator.GeneratedInvoice invoice = generator.generate();
+
+            src = invoice.getBytes();
+            itemIds = invoice.getItemIds();
+        }
+
+        /**
+         * Opens an editor with the content parsed.
+         *
+         * @return the editor.
+         * @throws IOException on I/O error.
+         */
+        PdfInvoiceEditor openEditor()
+                throws IOException {
+            PdfInvoiceEditor pdfInvoiceEditor = new PdfInvoiceEditor(PdfSource.of(src));
+
+            pdfInvoiceEditor.setFontAndSize(FONT, 9);
+            pdfInvoiceEditor.parseContent();
+
+            return pdfInvoiceEditor;
+        }
+
+    }
+
+    /**
+     * The extracted text of each page, ready to be parsed.
+     */
+    @State(Scope.Thread)
+    public static class Extracted {
+
+        InvoiceTextExtractionStrategy[] strategies;
+
+        @Setup(Level.Trial)
+        public void setUp(final Invoice invoice)
+                throws IOException {
+            PdfReader reader = new PdfReader(invoice.src);
+
+            try {
+                strategies = new InvoiceTextExtractionStrategy[invoice.pageCount];
+
+                for (int pageNum = 1; pageNum <= invoice.pageCount; pageNum++) {
+                    strategies[pageNum - 1] = new TextContentParser(reader).processContent(pageNum, new InvoiceTextExtractionStrategy());
+                }
+            } finally {
+                reader.close();
+            }
+        }
+
+    }
+
+    /**
+     * A parsed editor to stamp amounts with.
+     */
+    @State(Scope.Thread)
+    public static class Parsed {
+
+        PdfInvoiceEditor pdfInvoiceEditor;
+
+        @Setup(Level.Invocation)
+        public void setUp(final Invoice invoice)
+                throws IOException {
+            pdfInvoiceEditor = invoice.openEditor();
+        }
+
+        @TearDown(Level.Invocation)
+        public void tearDown()
+                throws IOException {
+            pdfInvoiceEditor.close();
+        }
+
+    }
+
+    /**
+     * A parsed editor with amounts stamped, ready to be serialized.
+     */
+    @State(Scope.Thread)
+    public static class Stamped {
+
+        PdfInvoiceEditor pdfInvoiceEditor;
+
+        @Setup(Level.Invocation)
+        public void setUp(final Invoice invoice)
+                throws IOException {
+            pdfInvoiceEditor = invoice.openEditor();
+
+            for (String itemId : invoice.itemIds) {
+                pdfInvoiceEditor.writeCumulativeCost(itemId, 1234.56);
+            }
+        }
+
+        @TearDown(Level.Invocation)
+        public void tearDown()
+                throws IOException {
+            pdfInvoiceEditor.close();
+        }
+
+    }
+
+    /**
+     * The working state reused from invoice to invoice, if any.
+     */
+    @State(Scope.Thread)
+    public static class Workspace {
+
+        /**
+         * Whether editors reuse a workspace.
+         */
+        @Param({"false", "true"})
+        public boolean reuse;
+
+        PdfInvoiceWorkspace workspace;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            workspace = reuse ? new PdfInvoiceWorkspace() : null;
+        }
+
+    }
+
+    /**
+     * Whether pages are parsed concurrently.
+     */
+    @State(Scope.Thread)
+    public static class Parallelism {
+
+        /**
+         * Whether pages are parsed concurrently on the common pool.
+         */
+        @Param({"false", "true"})
+        public boolean parallel;
+
+    }
+
+    /**
+     * Opens an invoice and parses every page.
+     *
+     * @param invoice the invoice.
+     * @param parallelism whether to parse pages concurrently.
+     * @param blackhole consumes the results.
+     * @throws IOException on I/O error.
+     */
+    @Benchmark
+    public void parseContent(final Invoice invoice, final Parallelism parallelism, final Blackhole blackhole)
+            throws IOException {
+        try (PdfInvoiceEditor pdfInvoiceEditor = new PdfInvoiceEditor(PdfSource.of(invoice.src))) {
+            pdfInvoiceEditor.parseContent(parallelism.parallel ? ForkJoinPool.commonPool() : null);
+
+            blackhole.consume(pdfInvoiceEditor.listItemIds());
+        }
+    }
+
+    /**
+     * Locates the labels and ItemId rows of every page.
+     *
+     * @param extracted the extracted text.
+     * @param blackhole consumes the results.
+     */
+    @Benchmark
+    public void parse(final Extracted extracted, final Blackhole blackhole) {
+        for (InvoiceTextExtractionStrategy strategy : extracted.strategies) {
+            strategy.parse(PdfInvoiceProfile.getDefault());
+
+            blackhole.consume(strategy.getCumulativeCostLocationMap());
+        }
+    }
+
+    /**
+     * Opens, parses and writes the cumulative cost of each item to an invoice, discarding the output.
+     *
+     * @param invoice the invoice and the amounts to write.
+     * @param workspace the working state to reuse, if any.
+     * @throws IOException on I/O error.
+     */
+    @Benchmark
+    public void editInvoice(final Invoice invoice, final Workspace workspace)
+            throws IOException {
+        try (PdfInvoiceEditor pdfInvoiceEditor = new PdfInvoiceEditor(PdfSource.of(invoice.src))) {
+            if (workspace.workspace != null) {
+                pdfInvoiceEditor.setWorkspace(workspace.workspace);
+            }
+
+            pdfInvoiceEditor.setFontAndSize(FONT, 9);
+
+            for (String itemId : invoice.itemIds) {
+                pdfInvoiceEditor.writeCumulativeCost(itemId, 1234.56);
+            }
+        }
+    }
+
+    /**
+     * Writes the cumulative cost of each item.
+     *
+     * @param invoice the amounts to write.
+     * @param parsed the editor.
+     */
+    @Benchmark
+    public void writeCumulativeCost(final Invoice invoice, final Parsed parsed) {
+        for (String itemId : invoice.itemIds) {
+            parsed.pdfInvoiceEditor.writeCumulativeCost(itemId, 1234.56);
+        }
+    }
+
+    /**
+     * Serializes the stamped document.
+     *
+     * @param stamped the editor.
+     * @param blackhole receives the output.
+     * @throws IOException on I/O error.
+     */
+    @Benchmark
+    public void writeTo(final Stamped stamped, final Blackhole blackhole)
+            throws IOException {
+        stamped.pdfInvoiceEditor.writeTo(new OutputStream() {
+
+            @Override
+            public void write(final int b) {
+                blackhole.consume(b);
+            }
+
+            @Override
+            public void write(final byte[] b, final int off, final int len) {
+                blackhole.consume(b);
+            }
+
+        });
+    }
+
+}
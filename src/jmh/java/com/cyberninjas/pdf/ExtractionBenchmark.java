@@ -0,0 +1,211 @@
+/*
+ * Copyright (C) 2015 Clifford Errickson
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.cyberninjas.pdf;
+
+import com.cyberninjas.invoice.pdf.InvoiceGenerator;
+import com.cyberninjas.pdf.TextChunkExtractionStrategy.TextChunk;
+import com.itextpdf.text.DocumentException;
+import com.itextpdf.text.pdf.PdfReader;
+import com.itextpdf.text.pdf.parser.PdfReaderContentParser;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures extracting the text of a generated invoice with {@link TextChunkExtractionStrategy} and matching the
+ * ItemIds of each page against it with {@link TextChunkExtractionStrategy#matchText(String)} and
+ * {@link TextChunkExtractionStrategy#matchAllText(java.util.Collection)}. Extraction is compared with iText's
+ * {@link PdfReaderContentParser}, which processes every operator, and with sorting the chunks at the end of every text
+ * block.
+ *
+ * <p>
+ * Run with {@code mvn -P benchmarks test-compile exec:exec -Djmh.args=ExtractionBenchmark}.</p>
+ *
+ * @author Clifford Errickson
+ * @since 1.1
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExtractionBenchmark {
+
+    /**
+     * The number of pages of the invoice.
+     */
+    @Param({"2", "16", "128"})
+    public int pageCount;
+
+    /**
+     * The number of items on each page.
+     */
+    @Param({"1", "20"})
+    public int itemsPerPage;
+
+    /**
+     * The maximum number of characters of a text block, or 0 for a text block per line.
+     */
+    @Param({"0", "1"})
+    public int fragmentLength;
+
+    private PdfReader reader;
+
+    /**
+     * The extracted text of each page.
+     */
+    private TextChunkExtractionStrategy[] strategies;
+
+    /**
+     * The ItemIds of each page.
+     */
+    private List<String>[] itemIds;
+
+    @Setup(Level.Trial)
+    public void setUp()
+            throws IOException, DocumentException {
+        InvoiceGenerator generator = new InvoiceGenerator();
+
+        generator.setPageCount(pageCount);
+        generator.setItemCount(pageCount * itemsPerPage);
+        generator.setFragmentLength(fragmentLength);
+
+        InvoiceGenerator.GeneratedInvoice invoice = generator.generate();
+
+        reader = new PdfReader(invoice.getBytes());
+
+        strategies = new TextChunkExtractionStrategy[pageCount];
+        itemIds = new List[pageCount];
+
+        for (int pageNum = 1; pageNum <= pageCount; pageNum++) {
+            strategies[pageNum - 1] = new TextContentParser(reader).processContent(pageNum, new TextChunkExtractionStrategy());
+            itemIds[pageNum - 1] = new ArrayList();
+        }
+
+        for (Map.Entry<String, PageVector> entry : invoice.getCumulativeCostLocations().entrySet()) {
+            itemIds[entry.getValue().getPageNum() - 1].add(entry.getKey());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        reader.close();
+    }
+
+    /**
+     * Extracts the text of every page and groups it into lines.
+     *
+     * @param blackhole consumes the results.
+     * @throws IOException on I/O error.
+     */
+    @Benchmark
+    public void extract(final Blackhole blackhole)
+            throws IOException {
+        for (int pageNum = 1; pageNum <= pageCount; pageNum++) {
+            blackhole.consume(new TextContentParser(reader).processContent(pageNum, new TextChunkExtractionStrategy()).getPageTextIndex());
+        }
+    }
+
+    /**
+     * Extracts the text of every page with {@link PdfReaderContentParser} and groups it into lines.
+     *
+     * @param blackhole consumes the results.
+     * @throws IOException on I/O error.
+     */
+    @Benchmark
+    public void extractAllOperators(final Blackhole blackhole)
+            throws IOException {
+        for (int pageNum = 1; pageNum <= pageCount; pageNum++) {
+            blackhole.consume(new PdfReaderContentParser(reader).processContent(pageNum, new TextChunkExtractionStrategy()).getPageTextIndex());
+        }
+    }
+
+    /**
+     * Extracts the text of every page, sorting the chunks found so far at the end of every text block, and groups it
+     * into lines.
+     *
+     * @param blackhole consumes the results.
+     * @throws IOException on I/O error.
+     */
+    @Benchmark
+    public void extractSortPerBlock(final Blackhole blackhole)
+            throws IOException {
+        for (int pageNum = 1; pageNum <= pageCount; pageNum++) {
+            blackhole.consume(new TextContentParser(reader).processContent(pageNum, new PerBlockSortStrategy()).getPageTextIndex());
+        }
+    }
+
+    /**
+     * Finds the first match of each ItemId of every page, one ItemId at a time.
+     *
+     * @param blackhole consumes the results.
+     */
+    @Benchmark
+    public void matchText(final Blackhole blackhole) {
+        for (int i = 0; i < pageCount; i++) {
+            for (String itemId : itemIds[i]) {
+                blackhole.consume(strategies[i].matchText(itemId));
+            }
+        }
+    }
+
+    /**
+     * Finds every match of all ItemIds of every page in a single pass per page.
+     *
+     * @param blackhole consumes the results.
+     */
+    @Benchmark
+    public void matchAllText(final Blackhole blackhole) {
+        for (int i = 0; i < pageCount; i++) {
+            Map<String, List<TextChunk>> matches = strategies[i].matchAllText(itemIds[i]);
+
+            blackhole.consume(matches);
+        }
+    }
+
+    /**
+     * Sorts the chunks found so far at the end of every text block.
+     */
+    static class PerBlockSortStrategy extends TextChunkExtractionStrategy {
+
+        @Override
+        public void endTextBlock() {
+            super.endTextBlock();
+
+            getTextChunkStore();
+        }
+
+    }
+
+}
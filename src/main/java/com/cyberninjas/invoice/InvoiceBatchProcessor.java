@@ -0,0 +1,545 @@
+/*
+ * Copyright (C) 2015 Clifford Errickson
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.cyberninjas.invoice;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Runs a batch of invoice jobs on a pool of workers.
+ *
+ * <p>
+ * Reader threads take jobs from the batch in order and prepare their input ahead of the workers, handing them over
+ * through a bounded queue: once the queue is full, readers wait for the workers, so no more than the queue capacity of
+ * inputs are held at once. Each job's result or failure is reported as it completes, and a failed job does not stop
+ * the batch.</p>
+ *
+ * <p>
+ * On Java 21 and later, {@link #withVirtualThreads(InvoiceJobHandler, int, int)} instead runs each job on its own
+ * virtual thread, so jobs blocked reading their input or writing their output do not hold a platform thread. The number
+ * of jobs in progress bounds memory and I/O, while a separate, smaller number of jobs may be processed at once, which
+ * bounds the CPU-bound parsing and stamping. Jobs are filled in with {@link InvoiceJobHandler#fill(InvoiceJob, Object)}
+ * and their output written once they no longer count against the jobs processed at once.</p>
+ *
+ * @param <P> the type of a prepared input.
+ * @author Clifford Errickson
+ * @since 1.1
+ */
+public class InvoiceBatchProcessor<P> {
+
+    private static final Log log = LogFactory.getLog(InvoiceBatchProcessor.class);
+
+    /**
+     * Carries out each job.
+     */
+    private final InvoiceJobHandler<P> handler;
+
+    /**
+     * The number of jobs processed at once.
+     */
+    private final int workers;
+
+    /**
+     * The number of reader threads preparing jobs, or with virtual threads the number of jobs in progress at once.
+     */
+    private final int readers;
+
+    /**
+     * The number of prepared jobs that may wait for a worker, or 0 with virtual threads.
+     */
+    private final int queueCapacity;
+
+    /**
+     * Whether each job runs on its own virtual thread.
+     */
+    private final boolean virtualThreads;
+
+    /**
+     * Constructs an instance of {@code InvoiceBatchProcessor} with a worker per processor, one reader and room for two
+     * prepared jobs per worker.
+     *
+     * @param handler carries out each job.
+     */
+    public InvoiceBatchProcessor(final InvoiceJobHandler<P> handler) {
+        this(handler, Runtime.getRuntime().availableProcessors(), 1, 2 * Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructs an instance of {@code InvoiceBatchProcessor}.
+     *
+     * @param handler carries out each job.
+     * @param workers the number of worker threads processing jobs.
+     * @param readers the number of reader threads preparing jobs.
+     * @param queueCapacity the number of prepared jobs that may wait for a worker.
+     */
+    public InvoiceBatchProcessor(final InvoiceJobHandler<P> handler, final int workers, final int readers, final int queueCapacity) {
+        if (workers < 1 || readers < 1 || queueCapacity < 1) {
+            throw new IllegalArgumentException("Workers, readers and queue capacity must be at least 1");
+        }
+
+        this.handler = handler;
+        this.workers = workers;
+        this.readers = readers;
+        this.queueCapacity = queueCapacity;
+        this.virtualThreads = false;
+    }
+
+    /**
+     * Constructs an instance of {@code InvoiceBatchProcessor} running each job on its own virtual thread.
+     *
+     * @param handler carries out each job.
+     * @param processors the number of jobs processed at once.
+     * @param maxJobs the number of jobs in progress at once.
+     */
+    private InvoiceBatchProcessor(final InvoiceJobHandler<P> handler, final int processors, final int maxJobs) {
+        this.handler = handler;
+        this.workers = processors;
+        this.readers = maxJobs;
+        this.queueCapacity = 0;
+        this.virtualThreads = true;
+    }
+
+    /**
+     * Creates an {@code InvoiceBatchProcessor} that runs each job on its own virtual thread. A job holds one of
+     * {@code maxJobs} permits from reading its input until it is reported, and one of {@code processors} permits while
+     * it is filled in, but not while its output is written, so jobs waiting on I/O do not limit how many are parsed and
+     * stamped at once.
+     *
+     * @param <P> the type of a prepared input.
+     * @param handler carries out each job.
+     * @param processors the number of jobs processed at once, typically the number of processors.
+     * @param maxJobs the number of jobs in progress at once, which bounds memory and I/O.
+     * @return the batch processor.
+     * @throws UnsupportedOperationException if virtual threads are not supported by the running JVM.
+     * @see #isVirtualThreadsSupported()
+     */
+    public static <P> InvoiceBatchProcessor<P> withVirtualThreads(final InvoiceJobHandler<P> handler, final int processors, final int maxJobs) {
+        if (!isVirtualThreadsSupported()) {
+            throw new UnsupportedOperationException("Virtual threads require Java 21 or later");
+        }
+
+        if (processors < 1 || maxJobs < processors) {
+            throw new IllegalArgumentException("Processors must be at least 1 and no more than the jobs in progress");
+        }
+
+        return new InvoiceBatchProcessor(handler, processors, maxJobs);
+    }
+
+    /**
+     * Determine if {@link #withVirtualThreads(InvoiceJobHandler, int, int)} is supported, which requires Java 21 or
+     * later.
+     *
+     * @return true if virtual threads are supported, false otherwise.
+     */
+    public static boolean isVirtualThreadsSupported() {
+        return VirtualThreads.isSupported();
+    }
+
+    /**
+     * Runs a batch and collects the results.
+     *
+     * @param jobs the jobs.
+     * @return the result of every job, in the order of the jobs.
+     * @throws InterruptedException if interrupted while waiting for the batch.
+     */
+    public List<InvoiceJobResult> process(final Iterable<InvoiceJob> jobs)
+            throws InterruptedException {
+        List<InvoiceJobResult> results = Collections.synchronizedList(new ArrayList());
+
+        process(jobs, results::add);
+
+        results.sort(Comparator.comparingLong(InvoiceJobResult::getSequence));
+
+        return results;
+    }
+
+    /**
+     * Runs a batch, reporting the result of each job as it completes. Jobs are taken from the batch as readers become
+     * free, so the batch may be produced lazily.
+     *
+     * @param jobs the jobs.
+     * @param listener notified of each result, from the worker threads.
+     * @throws InterruptedException if interrupted while waiting for the batch.
+     */
+    public void process(final Iterable<InvoiceJob> jobs, final Consumer<InvoiceJobResult> listener)
+            throws InterruptedException {
+        Iterator<InvoiceJob> iterator = jobs.iterator();
+
+        if (virtualThreads) {
+            processVirtual(iterator, listener);
+
+            return;
+        }
+
+        BlockingQueue<Prepared<P>> queue = new ArrayBlockingQueue(queueCapacity);
+
+        AtomicInteger sequence = new AtomicInteger();
+        AtomicReference<RuntimeException> batchFailure = new AtomicReference();
+
+        CountDownLatch readersDone = new CountDownLatch(readers);
+
+        AtomicInteger threadNumber = new AtomicInteger();
+
+        ExecutorService executor = Executors.newFixedThreadPool(readers + workers, (runnable) -> {
+            Thread thread = new Thread(runnable, "invoice-batch-" + threadNumber.incrementAndGet());
+
+            thread.setDaemon(true);
+
+            return thread;
+        });
+
+        try {
+            for (int i = 0; i < readers; i++) {
+                executor.execute(() -> {
+                    try {
+                        read(iterator, sequence, queue);
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                    } catch (RuntimeException ex) {
+                        // the batch itself failed, for example its iterator - stop reading
+                        batchFailure.compareAndSet(null, ex);
+                    } finally {
+                        readersDone.countDown();
+                    }
+                });
+            }
+
+            for (int i = 0; i < workers; i++) {
+                executor.execute(() -> {
+                    try {
+                        work(queue, listener);
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+            }
+
+            readersDone.await();
+
+            for (int i = 0; i < workers; i++) {
+                queue.put(Prepared.<P>end());
+            }
+
+            executor.shutdown();
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        if (batchFailure.get() != null) {
+            throw batchFailure.get();
+        }
+    }
+
+    /**
+     * Prepares jobs until the batch is exhausted.
+     *
+     * @param iterator the jobs, shared by the readers.
+     * @param sequence the position of the next job.
+     * @param queue where to hand prepared jobs to the workers.
+     * @throws InterruptedException if interrupted while waiting for room in the queue.
+     */
+    private void read(final Iterator<InvoiceJob> iterator, final AtomicInteger sequence, final BlockingQueue<Prepared<P>> queue)
+            throws InterruptedException {
+        while (true) {
+            InvoiceJob job;
+
+            long position;
+
+            synchronized (iterator) {
+                if (!iterator.hasNext()) {
+                    return;
+                }
+
+                job = iterator.next();
+
+                position = sequence.getAndIncrement();
+            }
+
+            queue.put(prepare(position, job));
+        }
+    }
+
+    /**
+     * Processes prepared jobs until the end of the batch.
+     *
+     * @param queue where prepared jobs are handed over.
+     * @param listener notified of each result.
+     * @throws InterruptedException if interrupted while waiting for a job.
+     */
+    private void work(final BlockingQueue<Prepared<P>> queue, final Consumer<InvoiceJobResult> listener)
+            throws InterruptedException {
+        while (true) {
+            Prepared<P> prepared = queue.take();
+
+            if (prepared.job == null) {
+                return;
+            }
+
+            report(complete(prepared), listener);
+        }
+    }
+
+    /**
+     * Runs each job on its own virtual thread until the batch is exhausted, then waits for the jobs to complete.
+     *
+     * @param iterator the jobs.
+     * @param listener notified of each result.
+     * @throws InterruptedException if interrupted while waiting for the batch.
+     */
+    private void processVirtual(final Iterator<InvoiceJob> iterator, final Consumer<InvoiceJobResult> listener)
+            throws InterruptedException {
+        Semaphore jobPermits = new Semaphore(readers);
+        Semaphore processPermits = new Semaphore(workers);
+
+        RuntimeException batchFailure = null;
+
+        ExecutorService executor = VirtualThreads.newExecutor("invoice-batch-");
+
+        try {
+            long sequence = 0;
+
+            while (true) {
+                InvoiceJob job;
+
+                try {
+                    if (!iterator.hasNext()) {
+                        break;
+                    }
+
+                    job = iterator.next();
+                } catch (RuntimeException ex) {
+                    // the batch itself failed - let the jobs started so far complete
+                    batchFailure = ex;
+
+                    break;
+                }
+
+                long position = sequence++;
+
+                jobPermits.acquire();
+
+                executor.execute(() -> {
+                    try {
+                        Prepared<P> prepared = prepare(position, job);
+
+                        Supplier<InvoiceJobResult> output;
+
+                        try {
+                            processPermits.acquire();
+                        } catch (InterruptedException ex) {
+                            Thread.currentThread().interrupt();
+
+                            report(new InvoiceJobResult(position, job, null, ex), listener);
+
+                            return;
+                        }
+
+                        try {
+                            output = fill(prepared);
+                        } finally {
+                            processPermits.release();
+                        }
+
+                        // the output is written without holding a processing permit
+                        report(output.get(), listener);
+                    } finally {
+                        jobPermits.release();
+                    }
+                });
+            }
+
+            executor.shutdown();
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        if (batchFailure != null) {
+            throw batchFailure;
+        }
+    }
+
+    /**
+     * Prepares the input of a job.
+     *
+     * @param sequence the position of the job in the batch.
+     * @param job the job.
+     * @return the prepared job, carrying the failure if its input could not be prepared.
+     */
+    private Prepared<P> prepare(final long sequence, final InvoiceJob job) {
+        try {
+            return new Prepared(sequence, job, handler.prepare(job), null);
+        } catch (Exception ex) {
+            return new Prepared(sequence, job, null, ex);
+        }
+    }
+
+    /**
+     * Processes a prepared job.
+     *
+     * @param prepared the prepared job.
+     * @return the result of the job.
+     */
+    private InvoiceJobResult complete(final Prepared<P> prepared) {
+        if (prepared.failure != null) {
+            return new InvoiceJobResult(prepared.sequence, prepared.job, null, prepared.failure);
+        }
+
+        try {
+            return new InvoiceJobResult(prepared.sequence, prepared.job, handler.process(prepared.job, prepared.input), null);
+        } catch (Exception ex) {
+            return new InvoiceJobResult(prepared.sequence, prepared.job, null, ex);
+        }
+    }
+
+    /**
+     * Fills in the invoice of a prepared job, leaving its output to be written.
+     *
+     * @param prepared the prepared job.
+     * @return writes the output of the job and returns its result.
+     */
+    private Supplier<InvoiceJobResult> fill(final Prepared<P> prepared) {
+        if (prepared.failure != null) {
+            InvoiceJobResult result = new InvoiceJobResult(prepared.sequence, prepared.job, null, prepared.failure);
+
+            return () -> result;
+        }
+
+        InvoiceJobHandler.FilledInvoice filledInvoice;
+
+        try {
+            filledInvoice = handler.fill(prepared.job, prepared.input);
+        } catch (Exception ex) {
+            InvoiceJobResult result = new InvoiceJobResult(prepared.sequence, prepared.job, null, ex);
+
+            return () -> result;
+        }
+
+        return () -> {
+            try {
+                return new InvoiceJobResult(prepared.sequence, prepared.job, filledInvoice.write(), null);
+            } catch (Exception ex) {
+                return new InvoiceJobResult(prepared.sequence, prepared.job, null, ex);
+            }
+        };
+    }
+
+    /**
+     * Reports the result of a job to the listener, logging rather than propagating any failure of the listener.
+     *
+     * @param result the result.
+     * @param listener notified of the result.
+     */
+    private void report(final InvoiceJobResult result, final Consumer<InvoiceJobResult> listener) {
+        try {
+            listener.accept(result);
+        } catch (RuntimeException ex) {
+            log.warn("Failed to report the result of job [" + result.getJob() + "]", ex);
+        }
+    }
+
+    /**
+     * Get the number of jobs processed at once: the worker threads, or with virtual threads the processing permits.
+     *
+     * @return the number of workers.
+     */
+    public int getWorkers() {
+        return workers;
+    }
+
+    /**
+     * Get the number of reader threads preparing jobs, or with virtual threads the number of jobs in progress at once.
+     *
+     * @return the number of readers.
+     */
+    public int getReaders() {
+        return readers;
+    }
+
+    /**
+     * Get the number of prepared jobs that may wait for a worker.
+     *
+     * @return the queue capacity, or 0 with virtual threads.
+     */
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    /**
+     * Determine if each job runs on its own virtual thread.
+     *
+     * @return true if jobs run on virtual threads, false if on a pool of platform threads.
+     */
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * A job whose input has been prepared, or failed to be.
+     *
+     * @param <P> the type of a prepared input.
+     */
+    private static class Prepared<P> {
+
+        private final long sequence;
+
+        /**
+         * The job, or null to mark the end of the batch.
+         */
+        private final InvoiceJob job;
+
+        private final P input;
+
+        private final Exception failure;
+
+        Prepared(final long sequence, final InvoiceJob job, final P input, final Exception failure) {
+            this.sequence = sequence;
+            this.job = job;
+            this.input = input;
+            this.failure = failure;
+        }
+
+        /**
+         * Marks the end of the batch for one worker.
+         *
+         * @param <P> the type of a prepared input.
+         * @return the end marker.
+         */
+        static <P> Prepared<P> end() {
+            return new Prepared(-1, null, null, null);
+        }
+
+    }
+
+}
@@ -17,6 +17,7 @@
 package com.cyberninjas.invoice;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * An interface for editing invoices.
@@ -55,4 +56,17 @@ public interface InvoiceEditor {
      */
     void writeTotalFundedAmount(double amount);
 
+    /**
+     * Writes several amounts on an invoice at once. Amounts whose location is not identified are reported in the
+     * result rather than logged.
+     *
+     * @param cumulativeCosts the cumulative cost amounts to write, by ItemId
+     * @param subtotal the cumulative cost subtotal to write, or null to leave it unwritten
+     * @param totalFundedAmount the total funded amount to write, or null to leave it unwritten
+     * @return the amounts that could not be written
+     * @throws IllegalArgumentException if a cumulative cost amount is null
+     * @since 1.1
+     */
+    InvoiceWriteResult writeAmounts(Map<String, Double> cumulativeCosts, Double subtotal, Double totalFundedAmount);
+
 }
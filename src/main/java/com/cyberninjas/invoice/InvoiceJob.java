@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2015 Clifford Errickson
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.cyberninjas.invoice;
+
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * An invoice to fill in as part of a batch: where to read it, the amounts to write and where to write the result.
+ *
+ * @author Clifford Errickson
+ * @since 1.1
+ */
+public class InvoiceJob {
+
+    /**
+     * The invoice to read.
+     */
+    private final Path input;
+
+    /**
+     * Where to write the filled in invoice.
+     */
+    private final Path output;
+
+    /**
+     * The cumulative cost amounts to write, by ItemId.
+     */
+    private final Map<String, Double> cumulativeCosts;
+
+    /**
+     * The cumulative cost subtotal to write, or null.
+     */
+    private final Double subtotal;
+
+    /**
+     * The total funded amount to write, or null.
+     */
+    private final Double totalFundedAmount;
+
+    /**
+     * Constructs an instance of {@code InvoiceJob}.
+     *
+     * @param input the invoice to read.
+     * @param output where to write the filled in invoice.
+     * @param cumulativeCosts the cumulative cost amounts to write, by ItemId.
+     * @param subtotal the cumulative cost subtotal to write, or null to leave it unwritten.
+     * @param totalFundedAmount the total funded amount to write, or null to leave it unwritten.
+     */
+    public InvoiceJob(final Path input, final Path output, final Map<String, Double> cumulativeCosts, final Double subtotal, final Double totalFundedAmount) {
+        this.input = input;
+        this.output = output;
+        this.cumulativeCosts = Collections.unmodifiableMap(cumulativeCosts);
+        this.subtotal = subtotal;
+        this.totalFundedAmount = totalFundedAmount;
+    }
+
+    /**
+     * Get the invoice to read.
+     *
+     * @return the invoice to read.
+     */
+    public Path getInput() {
+        return input;
+    }
+
+    /**
+     * Get where to write the filled in invoice.
+     *
+     * @return where to write the filled in invoice.
+     */
+    public Path getOutput() {
+        return output;
+    }
+
+    /**
+     * Get the cumulative cost amounts to write.
+     *
+     * @return the cumulative cost amounts to write, by ItemId.
+     */
+    public Map<String, Double> getCumulativeCosts() {
+        return cumulativeCosts;
+    }
+
+    /**
+     * Get the cumulative cost subtotal to write.
+     *
+     * @return the cumulative cost subtotal to write, or null.
+     */
+    public Double getSubtotal() {
+        return subtotal;
+    }
+
+    /**
+     * Get the total funded amount to write.
+     *
+     * @return the total funded amount to write, or null.
+     */
+    public Double getTotalFundedAmount() {
+        return totalFundedAmount;
+    }
+
+    @Override
+    public String toString() {
+        return input + " -> " + output;
+    }
+
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2015 Clifford Errickson
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.cyberninjas.invoice;
+
+import java.io.IOException;
+
+/**
+ * Carries out the jobs of an {@link InvoiceBatchProcessor} in two stages: preparing reads the input, and processing
+ * fills in the invoice and writes it. Processing may instead be split in two with {@link #fill(InvoiceJob, Object)},
+ * so the output is written after the CPU-bound work is done. Implementations are called from several threads at once.
+ *
+ * @param <P> the type of a prepared input.
+ * @author Clifford Errickson
+ * @since 1.1
+ */
+public interface InvoiceJobHandler<P> {
+
+    /**
+     * Reads the input of a job. Called ahead of processing, on threads that do I/O.
+     *
+     * @param job the job.
+     * @return the prepared input.
+     * @throws IOException on I/O error reading the input.
+     */
+    P prepare(InvoiceJob job)
+            throws IOException;
+
+    /**
+     * Fills in an invoice and writes it. Called on the worker threads.
+     *
+     * @param job the job.
+     * @param input the input prepared for the job.
+     * @return the amounts that could not be written.
+     * @throws IOException on I/O error writing the output.
+     */
+    InvoiceWriteResult process(InvoiceJob job, P input)
+            throws IOException;
+
+    /**
+     * Fills in an invoice, leaving its output to be written by {@link FilledInvoice#write()}. Called on the worker
+     * threads of processors that bound processing apart from I/O, which write the output without holding a worker.
+     *
+     * <p>
+     * The default processes the job, writing the output at once, so implementations that stream their output should
+     * override this to hold it until it is written.</p>
+     *
+     * @param job the job.
+     * @param input the input prepared for the job.
+     * @return the filled-in invoice.
+     * @throws IOException on I/O error.
+     */
+    default FilledInvoice fill(InvoiceJob job, P input)
+            throws IOException {
+        InvoiceWriteResult writeResult = process(job, input);
+
+        return () -> writeResult;
+    }
+
+    /**
+     * An invoice that has been filled in and is waiting to be written.
+     */
+    interface FilledInvoice {
+
+        /**
+         * Writes the invoice to the output of its job.
+         *
+         * @return the amounts that could not be written.
+         * @throws IOException on I/O error writing the output.
+         */
+        InvoiceWriteResult write()
+                throws IOException;
+
+    }
+
+}
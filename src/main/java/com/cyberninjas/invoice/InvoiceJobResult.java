@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2015 Clifford Errickson
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.cyberninjas.invoice;
+
+/**
+ * The outcome of one job of a batch: either the result of writing its amounts or the failure that stopped it.
+ *
+ * @author Clifford Errickson
+ * @since 1.1
+ */
+public class InvoiceJobResult {
+
+    /**
+     * The position of the job in the batch, from 0.
+     */
+    private final long sequence;
+
+    /**
+     * The job.
+     */
+    private final InvoiceJob job;
+
+    /**
+     * The result of writing the amounts, or null if the job failed.
+     */
+    private final InvoiceWriteResult writeResult;
+
+    /**
+     * The failure, or null if the job succeeded.
+     */
+    private final Exception failure;
+
+    /**
+     * Constructs an instance of {@code InvoiceJobResult}.
+     *
+     * @param sequence the position of the job in the batch.
+     * @param job the job.
+     * @param writeResult the result of writing the amounts, or null if the job failed.
+     * @param failure the failure, or null if the job succeeded.
+     */
+    public InvoiceJobResult(final long sequence, final InvoiceJob job, final InvoiceWriteResult writeResult, final Exception failure) {
+        this.sequence = sequence;
+        this.job = job;
+        this.writeResult = writeResult;
+        this.failure = failure;
+    }
+
+    /**
+     * Get the position of the job in the batch.
+     *
+     * @return the position of the job, from 0.
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Get the job.
+     *
+     * @return the job.
+     */
+    public InvoiceJob getJob() {
+        return job;
+    }
+
+    /**
+     * Get the result of writing the amounts.
+     *
+     * @return the result of writing the amounts, or null if the job failed.
+     */
+    public InvoiceWriteResult getWriteResult() {
+        return writeResult;
+    }
+
+    /**
+     * Get the failure.
+     *
+     * @return the failure, or null if the job succeeded.
+     */
+    public Exception getFailure() {
+        return failure;
+    }
+
+    /**
+     * Determine if the job succeeded. A job succeeds even if some amounts could not be written.
+     *
+     * @return true if the invoice was written, false otherwise.
+     */
+    public boolean isSuccess() {
+        return failure == null;
+    }
+
+}
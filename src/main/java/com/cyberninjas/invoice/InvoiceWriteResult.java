@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2015 Clifford Errickson
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.cyberninjas.invoice;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The outcome of writing several amounts to an invoice at once.
+ *
+ * @author Clifford Errickson
+ * @since 1.1
+ */
+public class InvoiceWriteResult {
+
+    /**
+     * The ItemIds whose location was not identified.
+     */
+    private final List<String> unresolvedItemIds;
+
+    /**
+     * Whether the location of a requested cumulative cost subtotal was not identified.
+     */
+    private final boolean subtotalUnresolved;
+
+    /**
+     * Whether the location of a requested total funded amount was not identified.
+     */
+    private final boolean totalFundedAmountUnresolved;
+
+    /**
+     * Constructs an instance of {@code InvoiceWriteResult}.
+     *
+     * @param unresolvedItemIds the ItemIds whose location was not identified.
+     * @param subtotalUnresolved true if a subtotal was requested and its location was not identified.
+     * @param totalFundedAmountUnresolved true if a total funded amount was requested and its location was not
+     * identified.
+     */
+    public InvoiceWriteResult(final List<String> unresolvedItemIds, final boolean subtotalUnresolved, final boolean totalFundedAmountUnresolved) {
+        this.unresolvedItemIds = Collections.unmodifiableList(unresolvedItemIds);
+        this.subtotalUnresolved = subtotalUnresolved;
+        this.totalFundedAmountUnresolved = totalFundedAmountUnresolved;
+    }
+
+    /**
+     * Get the ItemIds that were not written because their location was not identified.
+     *
+     * @return the unresolved ItemIds, in the order they were given.
+     */
+    public List<String> getUnresolvedItemIds() {
+        return unresolvedItemIds;
+    }
+
+    /**
+     * Determine if a requested cumulative cost subtotal was not written because its location was not identified.
+     *
+     * @return true if the subtotal was not written, false otherwise.
+     */
+    public boolean isSubtotalUnresolved() {
+        return subtotalUnresolved;
+    }
+
+    /**
+     * Determine if a requested total funded amount was not written because its location was not identified.
+     *
+     * @return true if the total funded amount was not written, false otherwise.
+     */
+    public boolean isTotalFundedAmountUnresolved() {
+        return totalFundedAmountUnresolved;
+    }
+
+    /**
+     * Determine if every requested amount was written.
+     *
+     * @return true if every location was identified, false otherwise.
+     */
+    public boolean isComplete() {
+        return unresolvedItemIds.isEmpty() && !subtotalUnresolved && !totalFundedAmountUnresolved;
+    }
+
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2015 Clifford Errickson
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.cyberninjas.invoice;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Access to virtual threads, which are not available before Java 21.
+ *
+ * <p>
+ * This is the version for Java 8 to 20. The multi-release JAR carries a Java 21 version, built from
+ * {@code src/main/java21} by the {@code java21} profile, that creates virtual threads.</p>
+ *
+ * @author Clifford Errickson
+ * @since 1.1
+ */
+final class VirtualThreads {
+
+    /**
+     * Constructs an instance of {@code VirtualThreads}.
+     */
+    private VirtualThreads() {
+    }
+
+    /**
+     * Determine if virtual threads are supported.
+     *
+     * @return false.
+     */
+    static boolean isSupported() {
+        return false;
+    }
+
+    /**
+     * Creates an executor that runs each task on a new virtual thread.
+     *
+     * @param prefix the prefix of the names of the threads.
+     * @return never.
+     * @throws UnsupportedOperationException always.
+     */
+    static ExecutorService newExecutor(final String prefix) {
+        throw new UnsupportedOperationException("Virtual threads require Java 21 or later");
+    }
+
+}
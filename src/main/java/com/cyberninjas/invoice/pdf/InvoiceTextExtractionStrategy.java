@@ -16,10 +16,20 @@
  */
 package com.cyberninjas.invoice.pdf;
 
+import com.cyberninjas.pdf.PageTextIndex;
 import com.cyberninjas.pdf.TextChunkExtractionStrategy;
+import com.itextpdf.text.pdf.parser.FilteredRenderListener;
+import com.itextpdf.text.pdf.parser.LineSegment;
+import com.itextpdf.text.pdf.parser.RenderFilter;
+import com.itextpdf.text.pdf.parser.RenderListener;
+import com.itextpdf.text.pdf.parser.TextRenderInfo;
 import com.itextpdf.text.pdf.parser.Vector;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.TreeSet;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
@@ -38,6 +48,11 @@ public class InvoiceTextExtractionStrategy extends TextChunkExtractionStrategy {
      */
     private Map<String, Vector> cumulativeCostLocationMap;
 
+    /**
+     * The x-coordinate of the cumulative cost column.
+     */
+    private Float cumulativeCostColumn;
+
     /**
      * The location to write the cumulative cost subtotal.
      */
@@ -48,100 +63,308 @@ public class InvoiceTextExtractionStrategy extends TextChunkExtractionStrategy {
      */
     private Vector totalFundedAmountLocation;
 
+    /**
+     * The end location of each label found, reused across parses.
+     */
+    private final Map<String, Vector> labelLocationMap = new HashMap();
+
+    /**
+     * The baseline of the row of each ItemId, reused across parses.
+     */
+    private final Map<String, Float> itemRowMap = new LinkedHashMap();
+
+    /**
+     * The labels and ItemIds to match, reused across parses.
+     */
+    private final List<String> labels = new ArrayList();
+
+    /**
+     * Whether only the text of the item row region was extracted, rather than the whole page.
+     */
+    private boolean rowRegionOnly;
+
     /**
      * Constructs an instance of {@code ItemIdExtractorStrategy}.
      */
     public InvoiceTextExtractionStrategy() {
     }
 
+    /**
+     * Discards the chunks of text and locations found so far so the strategy can extract and parse another page. The
+     * storage grown for them is kept for reuse.
+     *
+     * @since 1.1
+     */
+    @Override
+    public void reset() {
+        super.reset();
+
+        if (cumulativeCostLocationMap != null) {
+            cumulativeCostLocationMap.clear();
+        }
+
+        labelLocationMap.clear();
+        cumulativeCostColumn = null;
+        cumulativeCostSubtotalLocation = null;
+        totalFundedAmountLocation = null;
+        rowRegionOnly = false;
+    }
+
     /**
      * Parses the text with a PDF based on the given settings.
      *
      * @param settings settings used to parse the document.
      */
     public void parse(PdfInvoiceSettings settings) {
-        cumulativeCostLocationMap = new HashMap();
-        cumulativeCostSubtotalLocation = null;
-        totalFundedAmountLocation = null;
+        parse(PdfInvoiceProfile.compile(settings));
+    }
 
-        // locate the cumulative cost heading for aligning cumulative cost amounts
-        TextChunk cumulativeCostHeadingTextChunk = matchText(settings.getCumulativeCostHeadingText());
+    /**
+     * Parses the text with a PDF based on the given compiled settings.
+     *
+     * @param profile compiled settings used to parse the document.
+     */
+    public void parse(PdfInvoiceProfile profile) {
+        parse(profile, null);
+    }
 
-        if (cumulativeCostHeadingTextChunk == null) {
-            log.warn("Failed to locate the cumulative cost heading based on the text [" + settings.getCumulativeCostHeadingText() + "]");
+    /**
+     * Determine if the labels of a known layout are found at their locations on the page.
+     *
+     * @param labelLocations the end location of each label, as returned by {@link #getLabelLocationMap()}.
+     * @return true if every label is found at its location, false otherwise.
+     */
+    public boolean isLabelsAt(Map<String, Vector> labelLocations) {
+        for (Map.Entry<String, Vector> entry : labelLocations.entrySet()) {
+            if (!isTextAt(entry.getKey(), entry.getValue())) {
+                return false;
+            }
         }
 
-        // locate the ItemIds and their containing rows
+        return true;
+    }
+
+    /**
+     * Get the static text of the labels of a known layout: for each label, in label order, the text of its line up to
+     * the end of the label. Text following a label on its line, such as the subtotal amount, is not included.
+     *
+     * @param labelLocations the end location of each label, as returned by {@link #getLabelLocationMap()}.
+     * @return the static text or {@code null} if a label is not found at its location.
+     * @since 1.1
+     */
+    public String getStaticText(Map<String, Vector> labelLocations) {
         StringBuilder sb = new StringBuilder();
 
-        TextChunk lastChunk = null;
+        for (String label : new TreeSet<>(labelLocations.keySet())) {
+            String lineText = getLineTextTo(label, labelLocations.get(label));
 
-        String lastItemId = null;
+            if (lineText == null) {
+                return null;
+            }
+
+            sb.append(lineText).append('\n');
+        }
+
+        return sb.toString();
+    }
+
+    /**
+     * Get a listener that extracts only the item row region of a page of a known layout into this strategy: the text
+     * level with the labels or between them, from the cumulative cost heading down to the lowest of the subtotal and
+     * total funded amount labels. A page without the heading is extracted from its top, and a page without either
+     * label to its bottom. This is the text that {@link #getStaticText(Map)} and
+     * {@link #parseItemRows(PdfInvoiceProfile, Map)} read, since ItemId rows lie below the heading and above the
+     * totals.
+     *
+     * @param profile compiled settings used to parse the document.
+     * @param labelLocations the end location of each label on the page.
+     * @return the listener.
+     * @since 1.1
+     */
+    public RenderListener getRowRegionListener(PdfInvoiceProfile profile, Map<String, Vector> labelLocations) {
+        float bottom = Float.MAX_VALUE;
+        float top = Float.MAX_VALUE;
+
+        for (Map.Entry<String, Vector> entry : labelLocations.entrySet()) {
+            float y = entry.getValue().get(Vector.I2);
 
-        for (TextChunk chunk : getTextChunks()) {
-            if (lastChunk == null) {
-                sb.append(chunk.getText());
+            if (entry.getKey().equals(profile.getCumulativeCostHeadingText())) {
+                top = y + 1;
             } else {
-                if (chunk.sameLine(lastChunk)) {
-                    // we only insert a blank space if the trailing character of the previous string wasn't a space, and the leading character of the current string isn't a space
-                    if (isChunkAtWordBoundary(chunk, lastChunk)
-                            && !startsWithSpace(chunk.getText())
-                            && !endsWithSpace(lastChunk.getText())) {
-                        sb.append(' ');
-                    }
-
-                    sb.append(chunk.getText());
-                } else {
-                    if (sb.indexOf(settings.getItemIdSeparator()) > 0) {
-                        String itemId = sb.substring(0, sb.indexOf(settings.getItemIdSeparator()));
+                bottom = Math.min(bottom, y - 1);
+            }
+        }
+
+        final float lly = bottom != Float.MAX_VALUE ? bottom : -Float.MAX_VALUE;
+        final float ury = top;
+
+        rowRegionOnly = true;
+
+        return new FilteredRenderListener(this, new RenderFilter() {
+
+            @Override
+            public boolean allowText(TextRenderInfo renderInfo) {
+                LineSegment segment = getBaseline(renderInfo);
 
-                        cumulativeCostLocationMap.put(itemId, null);
+                float startY = segment.getStartPoint().get(Vector.I2);
+                float endY = segment.getEndPoint().get(Vector.I2);
 
-                        lastItemId = itemId;
-                    }
+                return (startY >= lly && startY <= ury) || (endY >= lly && endY <= ury);
+            }
+
+        });
+    }
+
+    /**
+     * Determine if only the item row region of the page was extracted, through
+     * {@link #getRowRegionListener(PdfInvoiceProfile, Map)}.
+     *
+     * @return true if only the item row region was extracted, false if the whole page was.
+     * @since 1.1
+     */
+    public boolean isRowRegionOnly() {
+        return rowRegionOnly;
+    }
+
+    /**
+     * Parses only the ItemId rows of the text, using label locations already known for this layout. The heading,
+     * subtotal and total funded amount labels are not located; verify them with {@link #isLabelsAt(Map)} or
+     * {@link #getStaticText(Map)} first.
+     *
+     * @param profile compiled settings used to parse the document.
+     * @param labelLocations the end location of each label on the page.
+     */
+    public void parseItemRows(PdfInvoiceProfile profile, Map<String, Vector> labelLocations) {
+        parse(profile, labelLocations);
+    }
+
+    /**
+     * Parses the text with a PDF.
+     *
+     * @param profile compiled settings used to parse the document.
+     * @param labelLocations the known end location of each label or {@code null} to locate the labels.
+     */
+    private void parse(PdfInvoiceProfile profile, Map<String, Vector> labelLocations) {
+        if (cumulativeCostLocationMap == null) {
+            cumulativeCostLocationMap = new HashMap();
+        } else {
+            cumulativeCostLocationMap.clear();
+        }
+
+        boolean locateLabels = labelLocations == null;
+
+        labelLocationMap.clear();
+        cumulativeCostColumn = null;
+        cumulativeCostSubtotalLocation = null;
+        totalFundedAmountLocation = null;
+
+        // locate the ItemIds and the baseline of their containing rows
+        itemRowMap.clear();
+
+        String lastItemId = null;
+
+        for (PageTextIndex.Line line : getPageTextIndex().getLines()) {
+            int separatorIndex = profile.indexOfItemIdSeparator(line.getText());
+
+            if (separatorIndex > 0) {
+                String itemId = line.getText().substring(0, separatorIndex);
+
+                itemRowMap.put(itemId, null);
+
+                lastItemId = itemId;
+            }
+
+            if (lastItemId != null
+                    && profile.isItemRow(line.getText())) {
+                itemRowMap.put(lastItemId, line.getEndY());
+
+                lastItemId = null;
+            }
+        }
+
+        // locate the labels and any ItemIds whose rows were not identified in a single pass over the text
+        labels.clear();
+
+        if (locateLabels) {
+            labels.add(profile.getCumulativeCostHeadingText());
+            labels.add(profile.getSubtotalLabelText());
+            labels.add(profile.getTotalFundedAmountLabelText());
+        }
 
-                    if (lastItemId != null
-                            && sb.toString().matches(settings.getItemRowPattern())) {
-                        cumulativeCostLocationMap.put(lastItemId, new Vector(cumulativeCostHeadingTextChunk.getEndLocation().get(Vector.I1), lastChunk.getEndLocation().get(Vector.I2), 0));
+        itemRowMap.keySet().stream().filter((itemId) -> (itemRowMap.get(itemId) == null)).forEach(labels::add);
 
-                        lastItemId = null;
-                    }
+        Map<String, TextChunk> labelMap = matchText(labels);
 
-                    sb = new StringBuilder();
+        if (locateLabels) {
+            // the labels lead the list, followed by any ItemIds
+            for (String label : labels.subList(0, 3)) {
+                TextChunk labelTextChunk = labelMap.get(label);
 
-                    sb.append(chunk.getText());
+                if (labelTextChunk != null) {
+                    labelLocationMap.put(label, labelTextChunk.getEndLocation());
                 }
             }
+        } else {
+            labelLocationMap.putAll(labelLocations);
+        }
+
+        // locate the cumulative cost heading for aligning cumulative cost amounts
+        Vector cumulativeCostHeadingLocation = labelLocationMap.get(profile.getCumulativeCostHeadingText());
 
-            lastChunk = chunk;
+        if (cumulativeCostHeadingLocation != null) {
+            cumulativeCostColumn = cumulativeCostHeadingLocation.get(Vector.I1);
+        } else if (locateLabels) {
+            log.warn("Failed to locate the cumulative cost heading based on the text [" + profile.getCumulativeCostHeadingText() + "]");
         }
 
-        // check if all the ItemId rows have been located - if not, position based on the location of the ItemId text
-        cumulativeCostLocationMap.keySet().stream().filter((itemId) -> (cumulativeCostLocationMap.get(itemId) == null)).forEach((itemId) -> {
-            TextChunk itemIdTextChunk = this.matchText(itemId);
-            
-            if (itemIdTextChunk != null) {
-                cumulativeCostLocationMap.replace(itemId, new Vector(cumulativeCostHeadingTextChunk.getEndLocation().get(Vector.I1), itemIdTextChunk.getEndLocation().get(Vector.I2), 0));
+        // position each ItemId row - if the row was not located, position based on the location of the ItemId text
+        for (Map.Entry<String, Float> entry : itemRowMap.entrySet()) {
+            String itemId = entry.getKey();
+
+            Float rowY = entry.getValue();
+
+            if (rowY == null) {
+                TextChunk itemIdTextChunk = labelMap.get(itemId);
+
+                if (itemIdTextChunk != null) {
+                    rowY = itemIdTextChunk.getEndLocation().get(Vector.I2);
+                } else {
+                    log.warn("Failed to locate row for itemId [" + itemId + "]");
+                }
+            }
+
+            if (rowY != null && cumulativeCostColumn != null) {
+                cumulativeCostLocationMap.put(itemId, new Vector(cumulativeCostColumn, rowY, 0));
             } else {
-                log.warn("Failed to locate row for itemId [" + itemId + "]");
+                cumulativeCostLocationMap.put(itemId, null);
             }
-        });
+        }
 
         // locate where to write the cumulative cost subtotal
-        TextChunk subTotalLabel = matchText(settings.getSubtotalLabelText());
+        Vector subTotalLabelLocation = labelLocationMap.get(profile.getSubtotalLabelText());
 
-        if (subTotalLabel != null) {
-            cumulativeCostSubtotalLocation = new Vector(cumulativeCostHeadingTextChunk.getEndLocation().get(Vector.I1), subTotalLabel.getEndLocation().get(Vector.I2), 0);
+        if (subTotalLabelLocation != null && cumulativeCostColumn != null) {
+            cumulativeCostSubtotalLocation = new Vector(cumulativeCostColumn, subTotalLabelLocation.get(Vector.I2), 0);
         }
 
         // locate where to write the total funded amount
-        TextChunk totalFundedAmountLabel = matchText(settings.getTotalFundedAmountLabelText());
+        Vector totalFundedAmountLabelLocation = labelLocationMap.get(profile.getTotalFundedAmountLabelText());
 
-        if (totalFundedAmountLabel != null) {
-            totalFundedAmountLocation = new Vector(totalFundedAmountLabel.getEndLocation().get(Vector.I1) + settings.getTotalFundedAmountOffset(), totalFundedAmountLabel.getEndLocation().get(Vector.I2), 0);
+        if (totalFundedAmountLabelLocation != null) {
+            totalFundedAmountLocation = new Vector(totalFundedAmountLabelLocation.get(Vector.I1) + profile.getTotalFundedAmountOffset(), totalFundedAmountLabelLocation.get(Vector.I2), 0);
         }
     }
 
+    /**
+     * Get the end location of each label on the page: the cumulative cost heading, the subtotal label and the total
+     * funded amount label.
+     *
+     * @return a map of each label found to its end location.
+     */
+    public Map<String, Vector> getLabelLocationMap() {
+        return labelLocationMap;
+    }
+
     /**
      * Get a map containing the cumulative cost location for each ItemId on the page.
      *
@@ -151,6 +374,15 @@ public class InvoiceTextExtractionStrategy extends TextChunkExtractionStrategy {
         return cumulativeCostLocationMap;
     }
 
+    /**
+     * Get the x-coordinate of the cumulative cost column on the page.
+     *
+     * @return the x-coordinate of the cumulative cost column or {@code null} if the heading was not found.
+     */
+    public Float getCumulativeCostColumn() {
+        return cumulativeCostColumn;
+    }
+
     /**
      * Get the cumulative cost subtotal location on the page.
      *
@@ -0,0 +1,389 @@
+/*
+ * Copyright (C) 2015 Clifford Errickson
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.cyberninjas.invoice.pdf;
+
+import com.cyberninjas.pdf.PdfException;
+import com.itextpdf.text.Rectangle;
+import com.itextpdf.text.pdf.PdfDictionary;
+import com.itextpdf.text.pdf.PdfName;
+import com.itextpdf.text.pdf.PdfObject;
+import com.itextpdf.text.pdf.PdfReader;
+import com.itextpdf.text.pdf.PdfStream;
+import com.itextpdf.text.pdf.PRStream;
+import com.itextpdf.text.pdf.parser.Vector;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * A bounded, least-recently-used cache of invoice layouts keyed by a structural fingerprint of the document.
+ *
+ * <p>
+ * Documents produced by the same generator template share page sizes, font resources and static form content, and so
+ * share a fingerprint. The fingerprint does not cover page content, so on a cache hit each page is still checked
+ * against the layout, but only the text of its item row region is extracted: the band from the cumulative cost
+ * heading down to the subtotal and total funded amount labels. The layout records the static text of each page, the
+ * text of the lines of its labels up to the end of each label, and a page whose static text is found where the layout
+ * recorded it reuses the label locations and only its ItemId rows are located. Any other page is extracted and parsed
+ * fully, and the layout is replaced once the document is complete.</p>
+ *
+ * <p>
+ * In fixed-rows mode, documents that share a fingerprint are taken to have the same ItemIds in the same places, as
+ * when the rows are drawn in form XObjects, which the fingerprint covers. The layout then also records every location
+ * of the document, and a cache hit resolves them all without extracting any text. Nothing on the page is checked, so
+ * only use this mode when the fingerprint determines the rows.</p>
+ *
+ * <p>
+ * Instances are safe to share between editors and threads.</p>
+ *
+ * @author Clifford Errickson
+ * @since 1.1
+ */
+public class LayoutCache {
+
+    /**
+     * The maximum number of layouts to keep.
+     */
+    private final int maxSize;
+
+    /**
+     * Whether documents that share a fingerprint have the same rows, so that a hit needs no text extracted.
+     */
+    private final boolean fixedRows;
+
+    /**
+     * The cached layouts in access order.
+     */
+    private final Map<List<Object>, Layout> layouts;
+
+    /**
+     * The number of lookups that found a layout.
+     */
+    private long hits;
+
+    /**
+     * The number of lookups that did not find a layout.
+     */
+    private long misses;
+
+    /**
+     * Constructs an instance of {@code LayoutCache} that checks each page on a hit.
+     *
+     * @param maxSize the maximum number of layouts to keep.
+     */
+    public LayoutCache(final int maxSize) {
+        this(maxSize, false);
+    }
+
+    /**
+     * Constructs an instance of {@code LayoutCache}.
+     *
+     * @param maxSize the maximum number of layouts to keep.
+     * @param fixedRows true if documents that share a fingerprint have the same rows, so a hit resolves every location
+     * without extracting text, false to check each page on a hit.
+     */
+    public LayoutCache(final int maxSize, final boolean fixedRows) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("The maximum size must be at least 1");
+        }
+
+        this.maxSize = maxSize;
+        this.fixedRows = fixedRows;
+
+        layouts = new LinkedHashMap<List<Object>, Layout>(16, 0.75f, true) {
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<List<Object>, Layout> eldest) {
+                return size() > LayoutCache.this.maxSize;
+            }
+
+        };
+    }
+
+    /**
+     * Computes the structural fingerprint of a document: its page sizes and rotations, the fonts and XObjects each
+     * page uses, and the content of its form XObjects. Page content streams are not read.
+     *
+     * @param reader the document.
+     * @return the fingerprint.
+     * @throws IOException on I/O error reading the document.
+     */
+    public static String fingerprint(final PdfReader reader)
+            throws IOException {
+        MessageDigest digest;
+
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new PdfException("SHA-256 is not available", ex);
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(24);
+
+        buffer.putInt(reader.getNumberOfPages());
+
+        digest.update(buffer.array(), 0, buffer.position());
+
+        for (int pageNum = 1; pageNum <= reader.getNumberOfPages(); pageNum++) {
+            Rectangle pageSize = reader.getPageSize(pageNum);
+
+            ((Buffer) buffer).clear();
+            buffer.putFloat(pageSize.getLeft()).putFloat(pageSize.getBottom()).putFloat(pageSize.getRight()).putFloat(pageSize.getTop()).putInt(reader.getPageRotation(pageNum));
+
+            digest.update(buffer.array(), 0, buffer.position());
+
+            PdfDictionary resources = reader.getPageN(pageNum).getAsDict(PdfName.RESOURCES);
+
+            if (resources == null) {
+                continue;
+            }
+
+            PdfDictionary fonts = resources.getAsDict(PdfName.FONT);
+
+            if (fonts != null) {
+                for (PdfName key : new TreeSet<>(fonts.getKeys())) {
+                    PdfDictionary font = fonts.getAsDict(key);
+
+                    update(digest, key);
+                    update(digest, font != null ? font.get(PdfName.BASEFONT) : null);
+                }
+            }
+
+            PdfDictionary xobjects = resources.getAsDict(PdfName.XOBJECT);
+
+            if (xobjects != null) {
+                for (PdfName key : new TreeSet<>(xobjects.getKeys())) {
+                    PdfObject xobject = PdfReader.getPdfObject(xobjects.get(key));
+
+                    update(digest, key);
+
+                    if (xobject instanceof PdfStream) {
+                        PdfObject subtype = ((PdfStream) xobject).get(PdfName.SUBTYPE);
+
+                        update(digest, subtype);
+
+                        // static text is typically drawn in forms - include their content
+                        if (PdfName.FORM.equals(subtype) && xobject instanceof PRStream) {
+                            digest.update(PdfReader.getStreamBytesRaw((PRStream) xobject));
+                        }
+                    }
+                }
+            }
+        }
+
+        StringBuilder sb = new StringBuilder();
+
+        for (byte b : digest.digest()) {
+            sb.append(String.format("%02x", b));
+        }
+
+        return sb.toString();
+    }
+
+    /**
+     * Adds an object to a digest.
+     *
+     * @param digest the digest.
+     * @param object the object, may be {@code null}.
+     */
+    private static void update(final MessageDigest digest, final PdfObject object) {
+        digest.update(String.valueOf(object).getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+    }
+
+    /**
+     * Get the layout cached for a document.
+     *
+     * @param profile the profile the document is parsed with.
+     * @param fingerprint the fingerprint of the document.
+     * @return the layout or {@code null} if none is cached.
+     */
+    synchronized Layout get(final PdfInvoiceProfile profile, final String fingerprint) {
+        Layout layout = layouts.get(Arrays.asList(profile, fingerprint));
+
+        if (layout != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+
+        return layout;
+    }
+
+    /**
+     * Caches the layout of a document.
+     *
+     * @param profile the profile the document was parsed with.
+     * @param fingerprint the fingerprint of the document.
+     * @param layout the layout.
+     */
+    synchronized void put(final PdfInvoiceProfile profile, final String fingerprint, final Layout layout) {
+        layouts.put(Arrays.asList(profile, fingerprint), layout);
+    }
+
+    /**
+     * Get the maximum number of layouts kept.
+     *
+     * @return the maximum number of layouts kept.
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Determine if the cache is in fixed-rows mode, where a hit resolves every location without extracting text.
+     *
+     * @return true if in fixed-rows mode, false if each page is checked on a hit.
+     */
+    public boolean isFixedRows() {
+        return fixedRows;
+    }
+
+    /**
+     * Get the number of layouts cached.
+     *
+     * @return the number of layouts cached.
+     */
+    public synchronized int size() {
+        return layouts.size();
+    }
+
+    /**
+     * Get the number of lookups that found a layout.
+     *
+     * @return the number of lookups that found a layout.
+     */
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    /**
+     * Get the number of lookups that did not find a layout.
+     *
+     * @return the number of lookups that did not find a layout.
+     */
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    /**
+     * Removes all cached layouts.
+     */
+    public synchronized void clear() {
+        layouts.clear();
+    }
+
+    /**
+     * The label locations and static text of a document layout.
+     */
+    static class Layout {
+
+        /**
+         * The end location of each label on each page, for pages where a label was found.
+         */
+        private final Map<Integer, Map<String, Vector>> labelLocations = new TreeMap();
+
+        /**
+         * The static text of each page where a label was found.
+         */
+        private final Map<Integer, String> staticTexts = new TreeMap();
+
+        /**
+         * Every location of the document in fixed-rows mode, or {@code null} if each page is checked.
+         */
+        private LocationStore.Locations locations;
+
+        /**
+         * Adds the labels found on a page. A page whose static text was not found is not added, so it is always
+         * parsed fully.
+         *
+         * @param pageNum the page number.
+         * @param labelLocationMap the end location of each label found on the page.
+         * @param staticText the static text of the labels on the page or {@code null} if not found.
+         */
+        void addPage(final int pageNum, final Map<String, Vector> labelLocationMap, final String staticText) {
+            if (!labelLocationMap.isEmpty() && staticText != null) {
+                labelLocations.put(pageNum, Collections.unmodifiableMap(new HashMap(labelLocationMap)));
+                staticTexts.put(pageNum, staticText);
+            }
+        }
+
+        /**
+         * Get the end location of each label on a page.
+         *
+         * @param pageNum the page number.
+         * @return the label locations or {@code null} if no label was found on the page.
+         */
+        Map<String, Vector> getLabelLocationMap(final int pageNum) {
+            return labelLocations.get(pageNum);
+        }
+
+        /**
+         * Get the static text of the labels on a page, as returned by
+         * {@link InvoiceTextExtractionStrategy#getStaticText(Map)}.
+         *
+         * @param pageNum the page number.
+         * @return the static text or {@code null} if no label was found on the page.
+         */
+        String getStaticText(final int pageNum) {
+            return staticTexts.get(pageNum);
+        }
+
+        /**
+         * Get every location of the document, recorded in fixed-rows mode.
+         *
+         * @return the locations or {@code null} if not recorded.
+         */
+        LocationStore.Locations getLocations() {
+            return locations;
+        }
+
+        /**
+         * Records every location of the document, for fixed-rows mode. Must be called before the layout is cached.
+         *
+         * @param locations the locations.
+         */
+        void setLocations(final LocationStore.Locations locations) {
+            this.locations = locations;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            return obj instanceof Layout
+                    && labelLocations.equals(((Layout) obj).labelLocations)
+                    && staticTexts.equals(((Layout) obj).staticTexts);
+        }
+
+        @Override
+        public int hashCode() {
+            return labelLocations.hashCode() * 31 + staticTexts.hashCode();
+        }
+
+    }
+
+}
@@ -0,0 +1,445 @@
+/*
+ * Copyright (C) 2015 Clifford Errickson
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.cyberninjas.invoice.pdf;
+
+import com.cyberninjas.pdf.PageVector;
+import com.cyberninjas.pdf.PdfException;
+import com.itextpdf.text.pdf.parser.Vector;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * A persistent store of parsed invoice locations keyed by a hash of the source PDF content.
+ *
+ * <p>
+ * Each entry is a small file in the store directory. Entries are written to a temporary file and atomically moved into
+ * place, and read through a read-only memory mapping, so any number of processes may read and write the same store
+ * concurrently without seeing partial entries. When the total size of the entries exceeds the limit, the least recently
+ * used entries are removed until the store is down to three quarters of the limit. The directory is only listed when
+ * the store is opened and when entries are removed; in between, the size of each stored entry is added to the total
+ * found by the last listing.</p>
+ *
+ * @author Clifford Errickson
+ * @since 1.1
+ */
+public class LocationStore {
+
+    private static final Log log = LogFactory.getLog(LocationStore.class);
+
+    /**
+     * Identifies an entry file and the version of its format.
+     */
+    private static final int MAGIC = 0x43494c31;
+
+    /**
+     * The file name extension of entries.
+     */
+    private static final String EXTENSION = ".loc";
+
+    /**
+     * The fraction of the size limit that removing entries brings the store down to.
+     */
+    private static final double LOW_WATER_MARK = 0.75;
+
+    /**
+     * The directory containing the entries.
+     */
+    private final Path directory;
+
+    /**
+     * The maximum total size of the entries in bytes.
+     */
+    private final long maxBytes;
+
+    /**
+     * The total size of the entries in bytes found by the last listing, plus the size of each entry stored since.
+     */
+    private long totalBytes;
+
+    /**
+     * Constructs an instance of {@code LocationStore}.
+     *
+     * @param directory the directory containing the entries; created if it does not exist.
+     * @param maxBytes the maximum total size of the entries in bytes.
+     * @throws IOException on I/O error creating or listing the directory.
+     */
+    public LocationStore(final Path directory, final long maxBytes)
+            throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.maxBytes = maxBytes;
+
+        totalBytes = evict();
+    }
+
+    /**
+     * Get the directory containing the entries.
+     *
+     * @return the directory containing the entries.
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Get the maximum total size of the entries in bytes.
+     *
+     * @return the maximum total size of the entries in bytes.
+     */
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Retrieves the locations stored for a document.
+     *
+     * @param profile the profile the document is parsed with.
+     * @param sourceHash the hash of the document content.
+     * @return the stored locations or {@code null} if none are stored or the entry cannot be read.
+     */
+    Locations get(final PdfInvoiceProfile profile, final String sourceHash) {
+        Path path = entryPath(profile, sourceHash);
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            Locations locations = read(buffer);
+
+            touch(path);
+
+            return locations;
+        } catch (NoSuchFileException ex) {
+            return null;
+        } catch (IOException | BufferUnderflowException | IllegalArgumentException ex) {
+            log.warn("Failed to read stored locations [" + path + "]", ex);
+
+            return null;
+        }
+    }
+
+    /**
+     * Stores the locations for a document, then removes the least recently used entries if the store is over its
+     * size limit.
+     *
+     * @param profile the profile the document was parsed with.
+     * @param sourceHash the hash of the document content.
+     * @param locations the locations.
+     */
+    void put(final PdfInvoiceProfile profile, final String sourceHash, final Locations locations) {
+        Path path = entryPath(profile, sourceHash);
+
+        try {
+            Path temp = Files.createTempFile(directory, "entry", ".tmp");
+
+            long size;
+
+            try {
+                try (DataOutputStream os = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                    write(os, locations);
+
+                    size = os.size();
+                }
+
+                Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+
+            synchronized (this) {
+                totalBytes += size;
+
+                if (totalBytes > maxBytes) {
+                    totalBytes = evict();
+                }
+            }
+        } catch (IOException ex) {
+            log.warn("Failed to store locations [" + path + "]", ex);
+        }
+    }
+
+    /**
+     * Lists the entries and, if they exceed the size limit, removes the least recently used entries until the store is
+     * down to the low-water mark.
+     *
+     * @return the total size of the remaining entries in bytes.
+     * @throws IOException on I/O error listing the store.
+     */
+    private long evict()
+            throws IOException {
+        List<Path> entries = new ArrayList();
+
+        final Map<Path, FileTime> lastModified = new HashMap();
+
+        long totalBytes = 0;
+
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + EXTENSION)) {
+            for (Path entry : stream) {
+                try {
+                    totalBytes += Files.size(entry);
+
+                    lastModified.put(entry, Files.getLastModifiedTime(entry));
+
+                    entries.add(entry);
+                } catch (NoSuchFileException ex) {
+                    // removed by another process
+                }
+            }
+        }
+
+        if (totalBytes <= maxBytes) {
+            return totalBytes;
+        }
+
+        Collections.sort(entries, Comparator.comparing(lastModified::get));
+
+        long lowWaterMark = (long) (maxBytes * LOW_WATER_MARK);
+
+        for (Path entry : entries) {
+            if (totalBytes <= lowWaterMark) {
+                break;
+            }
+
+            try {
+                long size = Files.size(entry);
+
+                if (Files.deleteIfExists(entry)) {
+                    totalBytes -= size;
+                }
+            } catch (IOException ex) {
+                // removed or still in use by another process
+            }
+        }
+
+        return totalBytes;
+    }
+
+    /**
+     * Marks an entry as recently used.
+     *
+     * @param path the entry.
+     */
+    private void touch(final Path path) {
+        try {
+            Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException ex) {
+            // best effort only - the entry may have been evicted by another process
+        }
+    }
+
+    /**
+     * Get the path of the entry for a document.
+     *
+     * @param profile the profile the document is parsed with.
+     * @param sourceHash the hash of the document content.
+     * @return the path of the entry.
+     */
+    private Path entryPath(final PdfInvoiceProfile profile, final String sourceHash) {
+        MessageDigest digest;
+
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new PdfException("SHA-256 is not available", ex);
+        }
+
+        digest.update(sourceHash.getBytes(StandardCharsets.UTF_8));
+        digest.update(profile.describe().getBytes(StandardCharsets.UTF_8));
+
+        StringBuilder sb = new StringBuilder();
+
+        for (byte b : digest.digest()) {
+            sb.append(String.format("%02x", b));
+        }
+
+        return directory.resolve(sb.append(EXTENSION).toString());
+    }
+
+    /**
+     * Writes locations in the entry format.
+     *
+     * @param os the stream to write to.
+     * @param locations the locations.
+     * @throws IOException on I/O error.
+     */
+    private static void write(final DataOutputStream os, final Locations locations)
+            throws IOException {
+        os.writeInt(MAGIC);
+
+        write(os, locations.getCumulativeCostSubtotalLocation());
+        write(os, locations.getTotalFundedAmountLocation());
+
+        os.writeInt(locations.getCumulativeCostLocationMap().size());
+
+        for (Map.Entry<String, PageVector> entry : locations.getCumulativeCostLocationMap().entrySet()) {
+            byte[] itemId = entry.getKey().getBytes(StandardCharsets.UTF_8);
+
+            os.writeInt(itemId.length);
+            os.write(itemId);
+
+            write(os, entry.getValue());
+        }
+    }
+
+    /**
+     * Writes a location in the entry format.
+     *
+     * @param os the stream to write to.
+     * @param location the location, may be {@code null}.
+     * @throws IOException on I/O error.
+     */
+    private static void write(final DataOutputStream os, final PageVector location)
+            throws IOException {
+        if (location == null) {
+            os.writeInt(0);
+        } else {
+            os.writeInt(location.getPageNum());
+            os.writeFloat(location.get(Vector.I1));
+            os.writeFloat(location.get(Vector.I2));
+        }
+    }
+
+    /**
+     * Reads locations in the entry format.
+     *
+     * @param buffer the entry content.
+     * @return the locations.
+     * @throws IllegalArgumentException if the entry is not in the expected format.
+     */
+    private static Locations read(final ByteBuffer buffer) {
+        if (buffer.getInt() != MAGIC) {
+            throw new IllegalArgumentException("Unrecognized entry format");
+        }
+
+        PageVector cumulativeCostSubtotalLocation = readLocation(buffer);
+        PageVector totalFundedAmountLocation = readLocation(buffer);
+
+        int count = buffer.getInt();
+
+        Map<String, PageVector> cumulativeCostLocationMap = new HashMap();
+
+        for (int i = 0; i < count; i++) {
+            byte[] itemId = new byte[buffer.getInt()];
+
+            buffer.get(itemId);
+
+            cumulativeCostLocationMap.put(new String(itemId, StandardCharsets.UTF_8), readLocation(buffer));
+        }
+
+        return new Locations(cumulativeCostLocationMap, cumulativeCostSubtotalLocation, totalFundedAmountLocation);
+    }
+
+    /**
+     * Reads a location in the entry format.
+     *
+     * @param buffer the entry content.
+     * @return the location or {@code null} if none was stored.
+     */
+    private static PageVector readLocation(final ByteBuffer buffer) {
+        int pageNum = buffer.getInt();
+
+        if (pageNum == 0) {
+            return null;
+        }
+
+        return new PageVector(pageNum, buffer.getFloat(), buffer.getFloat());
+    }
+
+    /**
+     * The parsed locations of a document.
+     */
+    static class Locations {
+
+        /**
+         * A map containing the page and locations to write the cumulative cost amounts.
+         */
+        private final Map<String, PageVector> cumulativeCostLocationMap;
+
+        /**
+         * The page and location to write the cumulative cost subtotal or {@code null} if not found.
+         */
+        private final PageVector cumulativeCostSubtotalLocation;
+
+        /**
+         * The page and location to write the total funded amount or {@code null} if not found.
+         */
+        private final PageVector totalFundedAmountLocation;
+
+        /**
+         * Create a new instance.
+         *
+         * @param cumulativeCostLocationMap the locations to write the cumulative cost amounts keyed by item id.
+         * @param cumulativeCostSubtotalLocation the location to write the cumulative cost subtotal or {@code null} if not found.
+         * @param totalFundedAmountLocation the location to write the total funded amount or {@code null} if not found.
+         */
+        Locations(final Map<String, PageVector> cumulativeCostLocationMap, final PageVector cumulativeCostSubtotalLocation, final PageVector totalFundedAmountLocation) {
+            this.cumulativeCostLocationMap = cumulativeCostLocationMap;
+            this.cumulativeCostSubtotalLocation = cumulativeCostSubtotalLocation;
+            this.totalFundedAmountLocation = totalFundedAmountLocation;
+        }
+
+        /**
+         * Get the locations to write the cumulative cost amounts.
+         *
+         * @return the locations keyed by item id.
+         */
+        Map<String, PageVector> getCumulativeCostLocationMap() {
+            return cumulativeCostLocationMap;
+        }
+
+        /**
+         * Get the location to write the cumulative cost subtotal.
+         *
+         * @return the location or {@code null} if not found.
+         */
+        PageVector getCumulativeCostSubtotalLocation() {
+            return cumulativeCostSubtotalLocation;
+        }
+
+        /**
+         * Get the location to write the total funded amount.
+         *
+         * @return the location or {@code null} if not found.
+         */
+        PageVector getTotalFundedAmountLocation() {
+            return totalFundedAmountLocation;
+        }
+
+    }
+
+}
@@ -17,23 +17,41 @@
 package com.cyberninjas.invoice.pdf;
 
 import com.cyberninjas.invoice.InvoiceEditor;
+import com.cyberninjas.invoice.InvoiceWriteResult;
 import com.cyberninjas.pdf.Alignment;
+import com.cyberninjas.pdf.CurrencyFormatter;
+import com.cyberninjas.pdf.FlightRecorderEvents;
+import com.cyberninjas.pdf.FontRegistry;
+import com.cyberninjas.pdf.MetricsListener;
 import com.cyberninjas.pdf.PageVector;
+import com.cyberninjas.pdf.PdfDestination;
 import com.cyberninjas.pdf.PdfEditor;
 import com.cyberninjas.pdf.PdfException;
+import com.cyberninjas.pdf.PdfSource;
+import com.cyberninjas.pdf.PdfTemplate;
+import com.cyberninjas.pdf.PlacedText;
 import com.cyberninjas.pdf.TextChunkExtractionStrategy;
 import com.cyberninjas.pdf.TextChunkExtractionStrategy.TextChunk;
-import com.itextpdf.text.DocumentException;
+import com.cyberninjas.pdf.TextContentParser;
 import com.itextpdf.text.pdf.BaseFont;
 import com.itextpdf.text.pdf.PdfReader;
-import com.itextpdf.text.pdf.parser.PdfReaderContentParser;
+import com.itextpdf.text.pdf.parser.RenderListener;
 import com.itextpdf.text.pdf.parser.Vector;
 import java.io.IOException;
-import java.text.NumberFormat;
+import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
@@ -47,15 +65,30 @@ public class PdfInvoiceEditor extends PdfEditor implements InvoiceEditor {
 
     private static final Log log = LogFactory.getLog(PdfInvoiceEditor.class);
 
+    /**
+     * The currency formatter used when none is set.
+     */
+    private static final CurrencyFormatter DEFAULT_CURRENCY_FORMATTER = new CurrencyFormatter(Locale.US);
+
     /**
      * For formatting currency amounts.
      */
-    private final NumberFormat numberFormat = NumberFormat.getCurrencyInstance();
+    private CurrencyFormatter currencyFormatter = DEFAULT_CURRENCY_FORMATTER;
+
+    /**
+     * Reused to format each amount.
+     */
+    private char[] amountBuffer = new char[DEFAULT_CURRENCY_FORMATTER.getMaxLength()];
+
+    /**
+     * The widths of formatted amounts in the default font, looked up on first use.
+     */
+    private CurrencyFormatter.Widths amountWidths;
 
     /**
      * A map containing the page and locations to write the cumulative cost amounts.
      */
-    private final Map<String, PageVector> cumulativeCostLocationMap = new HashMap();
+    private Map<String, PageVector> cumulativeCostLocationMap = new HashMap();
 
     /**
      * The page and location to write the cumulative cost subtotal.
@@ -67,6 +100,46 @@ public class PdfInvoiceEditor extends PdfEditor implements InvoiceEditor {
      */
     private PageVector totalFundedAmountLocation;
 
+    /**
+     * A cache of document layouts or {@code null} if layouts are not cached.
+     */
+    private LayoutCache layoutCache;
+
+    /**
+     * A persistent store of parsed locations or {@code null} if locations are not stored.
+     */
+    private LocationStore locationStore;
+
+    /**
+     * Provides reusable working state or {@code null} if working state is allocated by this editor.
+     */
+    private PdfInvoiceWorkspace workspace;
+
+    /**
+     * The extracted text of each page, indexed by page number, or {@code null} if no page has been extracted.
+     */
+    private TextChunkExtractionStrategy[] pageText;
+
+    /**
+     * Whether the location store and layout cache have been consulted.
+     */
+    private boolean cachesConsulted;
+
+    /**
+     * The structural fingerprint of the document or {@code null} if not computed.
+     */
+    private String fingerprint;
+
+    /**
+     * The cached layout of the document or {@code null} if not known.
+     */
+    private LayoutCache.Layout layout;
+
+    /**
+     * The number of leading pages whose locations have been added.
+     */
+    private int parsedPages;
+
     /**
      * The default font used.
      */
@@ -78,9 +151,9 @@ public class PdfInvoiceEditor extends PdfEditor implements InvoiceEditor {
     private int defaultSize;
 
     /**
-     * Settings used for parsing and writing content.
+     * Compiled settings used for parsing and writing content.
      */
-    private final PdfInvoiceSettings settings;
+    private final PdfInvoiceProfile profile;
 
     /**
      * Constructs an instance of {@code PdfInvoiceEditor}.
@@ -90,25 +163,160 @@ public class PdfInvoiceEditor extends PdfEditor implements InvoiceEditor {
      */
     public PdfInvoiceEditor(String src)
             throws IOException {
-        this(src, new PdfInvoiceSettings());
+        this(src, PdfInvoiceProfile.getDefault());
     }
 
     /**
      * Constructs an instance of {@code PdfInvoiceEditor}.
      *
+     * <p>
+     * The settings are compiled into a {@link PdfInvoiceProfile} here; changes made to them after the editor is
+     * constructed have no effect on it.</p>
+     *
      * @param src the source PDF file location.
      * @param settings for overriding some used for parsing and writing content.
      * @throws IOException on I/O error reading source file.
      */
     public PdfInvoiceEditor(String src, PdfInvoiceSettings settings)
             throws IOException {
-        super(src);
+        this(src, PdfInvoiceProfile.compile(settings));
+    }
+
+    /**
+     * Constructs an instance of {@code PdfInvoiceEditor}.
+     *
+     * @param src the source PDF file location.
+     * @param profile compiled settings used for parsing and writing content.
+     * @throws IOException on I/O error reading source file.
+     */
+    public PdfInvoiceEditor(String src, PdfInvoiceProfile profile)
+            throws IOException {
+        this(src, profile, null);
+    }
 
-        this.settings = settings;
+    /**
+     * Constructs an instance of {@code PdfInvoiceEditor} that writes content to a destination as it is stamped, with
+     * default settings.
+     *
+     * @param src the source PDF file location.
+     * @param destination where to write content; the document is completed by {@link #close()}.
+     * @throws IOException on I/O error reading source file or opening the destination.
+     * @since 1.1
+     */
+    public PdfInvoiceEditor(String src, PdfDestination destination)
+            throws IOException {
+        this(src, PdfInvoiceProfile.getDefault(), destination);
     }
 
     /**
-     * Set the default font and size.
+     * Constructs an instance of {@code PdfInvoiceEditor} that writes content to a destination as it is stamped.
+     *
+     * @param src the source PDF file location.
+     * @param profile compiled settings used for parsing and writing content.
+     * @param destination where to write content, or {@code null} to buffer it for {@link #writeTo(OutputStream)}.
+     * @throws IOException on I/O error reading source file or opening the destination.
+     * @since 1.1
+     */
+    public PdfInvoiceEditor(String src, PdfInvoiceProfile profile, PdfDestination destination)
+            throws IOException {
+        super(src, destination);
+
+        this.profile = profile;
+    }
+
+    /**
+     * Constructs an instance of {@code PdfInvoiceEditor} with default settings that buffers its output for
+     * {@link #writeTo(OutputStream)}.
+     *
+     * @param source the PDF source, such as a memory-mapped file from {@link PdfSource#map(java.nio.file.Path)}.
+     * @throws IOException on I/O error reading source.
+     * @since 1.1
+     */
+    public PdfInvoiceEditor(PdfSource source)
+            throws IOException {
+        this(source, PdfInvoiceProfile.getDefault(), null);
+    }
+
+    /**
+     * Constructs an instance of {@code PdfInvoiceEditor} that buffers its output for {@link #writeTo(OutputStream)}.
+     *
+     * <p>
+     * The settings are compiled into a {@link PdfInvoiceProfile} here; changes made to them after the editor is
+     * constructed have no effect on it.</p>
+     *
+     * @param source the PDF source, such as a request body from {@link PdfSource#of(java.io.InputStream)}.
+     * @param settings for overriding some used for parsing and writing content.
+     * @throws IOException on I/O error reading source.
+     * @since 1.1
+     */
+    public PdfInvoiceEditor(PdfSource source, PdfInvoiceSettings settings)
+            throws IOException {
+        this(source, PdfInvoiceProfile.compile(settings), null);
+    }
+
+    /**
+     * Constructs an instance of {@code PdfInvoiceEditor}.
+     *
+     * @param source the PDF source.
+     * @param profile compiled settings used for parsing and writing content.
+     * @param destination where to write content, or {@code null} to buffer it for {@link #writeTo(OutputStream)}.
+     * @throws IOException on I/O error reading source or opening the destination.
+     * @since 1.1
+     */
+    public PdfInvoiceEditor(PdfSource source, PdfInvoiceProfile profile, PdfDestination destination)
+            throws IOException {
+        super(source, destination);
+
+        this.profile = profile;
+    }
+
+    /**
+     * Constructs an instance of {@code PdfInvoiceEditor} over a copy of a template's document, which is not read
+     * again. Content is parsed as usual.
+     *
+     * @param template the template.
+     * @param profile compiled settings used for parsing and writing content.
+     * @param destination where to write content, or {@code null} to buffer it for {@link #writeTo(OutputStream)}.
+     * @throws IOException on I/O error opening the destination.
+     * @since 1.1
+     */
+    public PdfInvoiceEditor(PdfTemplate template, PdfInvoiceProfile profile, PdfDestination destination)
+            throws IOException {
+        super(template, destination);
+
+        this.profile = profile;
+    }
+
+    /**
+     * Constructs an instance of {@code PdfInvoiceEditor} for writing one set of amounts to a compiled invoice
+     * template. The document is not read and its content is not parsed again; every location is taken from the
+     * template.
+     *
+     * @param template the compiled invoice template.
+     * @param destination where to write content, or {@code null} to buffer it for {@link #writeTo(OutputStream)}.
+     * @throws IOException on I/O error opening the destination.
+     * @since 1.1
+     */
+    public PdfInvoiceEditor(PdfInvoiceTemplate template, PdfDestination destination)
+            throws IOException {
+        super(template.getTemplate(), destination);
+
+        this.profile = template.getProfile();
+
+        LocationStore.Locations locations = template.getLocations();
+
+        cumulativeCostLocationMap.putAll(locations.getCumulativeCostLocationMap());
+        cumulativeCostSubtotalLocation = locations.getCumulativeCostSubtotalLocation();
+        totalFundedAmountLocation = locations.getTotalFundedAmountLocation();
+
+        parsedPages = getReader().getNumberOfPages();
+
+        cachesConsulted = true;
+    }
+
+    /**
+     * Set the default font and size. The font is loaded through {@link FontRegistry#getDefault()}, so each font file
+     * is only read once per JVM.
      *
      * @param font path to the .ttf of the default font.
      * @param size default font size
@@ -116,15 +324,80 @@ public class PdfInvoiceEditor extends PdfEditor implements InvoiceEditor {
      */
     public void setFontAndSize(final String font, final int size)
             throws IOException {
-        try {
-            defaultFont = BaseFont.createFont(font, BaseFont.WINANSI, BaseFont.EMBEDDED);
-        } catch (DocumentException ex) {
-            throw new PdfException("Failed to configure font", ex);
+        setFontAndSize(FontRegistry.getDefault().getFont(font, BaseFont.WINANSI), size);
+    }
+
+    /**
+     * Set the default font and size.
+     *
+     * @param font the default font, for example from a {@link FontRegistry}.
+     * @param size default font size
+     * @since 1.1
+     */
+    public void setFontAndSize(final BaseFont font, final int size) {
+        defaultFont = font;
+        defaultSize = size;
+
+        amountWidths = null;
+    }
+
+    /**
+     * Set the formatter for currency amounts. Defaults to the currency format of {@link Locale#US}.
+     *
+     * @param currencyFormatter the currency formatter.
+     * @since 1.1
+     */
+    public void setCurrencyFormatter(final CurrencyFormatter currencyFormatter) {
+        this.currencyFormatter = currencyFormatter;
+
+        amountBuffer = new char[currencyFormatter.getMaxLength()];
+        amountWidths = null;
+    }
+
+    /**
+     * Set the cache of document layouts to consult before parsing and to populate afterwards.
+     *
+     * <p>
+     * Pages whose text is only partly extracted on a cache hit are extracted again in full if their text is needed to
+     * write text at offsets.</p>
+     *
+     * @param layoutCache the layout cache or {@code null} to always parse fully.
+     */
+    public void setLayoutCache(final LayoutCache layoutCache) {
+        this.layoutCache = layoutCache;
+    }
+
+    /**
+     * Set the persistent store of parsed locations to consult before parsing and to populate afterwards.
+     *
+     * <p>
+     * Unlike the {@link LayoutCache}, the store is keyed by the exact content of the source, so a document is only
+     * parsed once no matter how many times or by how many processes it is edited.</p>
+     *
+     * @param locationStore the location store or {@code null} to always parse.
+     */
+    public void setLocationStore(final LocationStore locationStore) {
+        this.locationStore = locationStore;
+    }
+
+    /**
+     * Set the workspace to take working state from, such as the strategies pages are extracted with, instead of
+     * allocating it. The workspace is reset, so any editor it was attached to before must no longer be used.
+     *
+     * @param workspace the workspace, for example from a {@link PdfInvoiceWorkspacePool}.
+     * @throws IllegalStateException if content has already been parsed.
+     * @since 1.1
+     */
+    public void setWorkspace(final PdfInvoiceWorkspace workspace) {
+        if (cachesConsulted || pageText != null) {
+            throw new IllegalStateException("The workspace must be set before content is parsed");
         }
 
-        defaultFont.setSubset(true);
+        workspace.reset();
 
-        defaultSize = size;
+        this.workspace = workspace;
+
+        cumulativeCostLocationMap = workspace.getCumulativeCostLocationMap();
     }
 
     /**
@@ -134,33 +407,415 @@ public class PdfInvoiceEditor extends PdfEditor implements InvoiceEditor {
      */
     public void parseContent()
             throws IOException {
-        PdfReader reader = getReader();
+        parseContent(null);
+    }
+
+    /**
+     * Parses PDF to determine location of text, processing pages concurrently.
+     *
+     * <p>
+     * Pages are divided into contiguous ranges, one per available processor, and each range is parsed by a task on
+     * the given executor with its own reader over the source bytes. Results are combined in page order, so the outcome
+     * is the same as {@link #parseContent()}. Pages already parsed on demand are not parsed again.</p>
+     *
+     * @param executor runs the parsing tasks, e.g. {@link java.util.concurrent.ForkJoinPool#commonPool()}, or
+     * {@code null} to parse on the calling thread.
+     * @throws IOException on I/O error parsing PDF.
+     */
+    public void parseContent(final Executor executor)
+            throws IOException {
+        if (resolveCached()) {
+            return;
+        }
 
-        PdfReaderContentParser parser = new PdfReaderContentParser(reader);
+        InvoiceTextExtractionStrategy[] strategies = parsePages(executor, parsedPages + 1);
 
-        InvoiceTextExtractionStrategy strategy;
+        for (int pageNum = parsedPages + 1; pageNum < strategies.length; pageNum++) {
+            addPageLocations(pageNum, strategies[pageNum]);
 
-        for (int pageNum = 1; pageNum <= getReader().getNumberOfPages(); pageNum++) {
-            strategy = parser.processContent(pageNum, new InvoiceTextExtractionStrategy());
+            // only the item row region of a page may have been extracted on a layout cache hit
+            if (!strategies[pageNum].isRowRegionOnly()) {
+                setPageText(pageNum, strategies[pageNum]);
+            }
 
-            strategy.parse(settings);
+            parsedPages = pageNum;
+        }
 
-            for (String itemId : strategy.getCumulativeCostLocationMap().keySet()) {
-                cumulativeCostLocationMap.put(itemId, new PageVector(pageNum, strategy.getCumulativeCostLocationMap().get(itemId)));
+        completeParse(strategies);
+    }
+
+    /**
+     * Parses PDF page by page until the given locations are resolved.
+     *
+     * <p>
+     * Pages are parsed in order and parsing stops after the first page that resolves the last outstanding target, so
+     * the subtotal, total funded amount and ItemIds are found without reading the pages that follow them. Later calls
+     * continue from the first unparsed page, and the write methods call this method themselves for locations not yet
+     * resolved.</p>
+     *
+     * <p>
+     * The subtotal and total funded amount resolved are the first found, as with {@link #parseContent()}. An ItemId is
+     * resolved at its first occurrence, while {@link #parseContent()} takes its last: if an ItemId appears on more than
+     * one page, its location is the one on the last page parsed so far, and moves if a later page is parsed, by another
+     * call or by {@link #parseContent()}. Call {@link #parseContent()} first to write ItemIds repeated on later pages at
+     * their last occurrence.</p>
+     *
+     * @param itemIds the ItemIds to locate, may be empty.
+     * @param subtotal true to locate the cumulative cost subtotal.
+     * @param totalFundedAmount true to locate the total funded amount.
+     * @return true if every target was located, false if the whole document was parsed without locating them all.
+     * @throws IOException on I/O error parsing PDF.
+     */
+    public boolean parseContent(final Collection<String> itemIds, final boolean subtotal, final boolean totalFundedAmount)
+            throws IOException {
+        resolveCached();
+
+        TextContentParser parser = null;
+
+        while (!isResolved(itemIds, subtotal, totalFundedAmount)) {
+            if (parsedPages >= getReader().getNumberOfPages()) {
+                return false;
             }
 
-            //set the location to write the cumulative cost subtotal
-            if (cumulativeCostSubtotalLocation == null
-                    && strategy.getCumulativeCostSubtotalLocation() != null) {
-                cumulativeCostSubtotalLocation = new PageVector(pageNum, strategy.getCumulativeCostSubtotalLocation());
+            if (parser == null) {
+                parser = new TextContentParser(getReader());
             }
 
-            // set the location to write the total funded amount
-            if (totalFundedAmountLocation == null
-                    && strategy.getTotalFundedAmountLocation() != null) {
-                totalFundedAmountLocation = new PageVector(pageNum, strategy.getTotalFundedAmountLocation());
+            int pageNum = parsedPages + 1;
+
+            InvoiceTextExtractionStrategy strategy = parsePage(parser, pageNum, newInvoiceStrategy());
+
+            addPageLocations(pageNum, strategy);
+
+            if (!strategy.isRowRegionOnly()) {
+                setPageText(pageNum, strategy);
+            }
+
+            parsedPages = pageNum;
+
+            if (parsedPages == getReader().getNumberOfPages()) {
+                completeParse(null);
             }
         }
+
+        return true;
+    }
+
+    /**
+     * Get the number of leading pages parsed so far.
+     *
+     * @return the number of leading pages parsed so far.
+     */
+    public int getParsedPageCount() {
+        return parsedPages;
+    }
+
+    /**
+     * Determine if the given locations are resolved.
+     *
+     * @param itemIds the ItemIds.
+     * @param subtotal true to require the cumulative cost subtotal.
+     * @param totalFundedAmount true to require the total funded amount.
+     * @return true if every location is resolved, false otherwise.
+     */
+    private boolean isResolved(final Collection<String> itemIds, final boolean subtotal, final boolean totalFundedAmount) {
+        if (subtotal && cumulativeCostSubtotalLocation == null) {
+            return false;
+        }
+
+        if (totalFundedAmount && totalFundedAmountLocation == null) {
+            return false;
+        }
+
+        for (String itemId : itemIds) {
+            if (cumulativeCostLocationMap.get(itemId) == null) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Resolves locations from the location store and layout cache. Only the first call consults them.
+     *
+     * @return true if every page is resolved and no parsing is needed, false otherwise.
+     * @throws IOException on I/O error reading PDF.
+     */
+    private boolean resolveCached()
+            throws IOException {
+        if (cachesConsulted) {
+            return parsedPages >= getReader().getNumberOfPages();
+        }
+
+        cachesConsulted = true;
+
+        if (locationStore != null) {
+            LocationStore.Locations locations = locationStore.get(profile, getSourceHash());
+
+            if (locations != null) {
+                setLocations(locations);
+
+                return true;
+            }
+        }
+
+        if (layoutCache != null) {
+            fingerprint = LayoutCache.fingerprint(getReader());
+
+            layout = layoutCache.get(profile, fingerprint);
+
+            // in fixed-rows mode the layout holds every location, so no page is extracted
+            if (layout != null && layout.getLocations() != null) {
+                setLocations(layout.getLocations());
+
+                return true;
+            }
+        }
+
+        return parsedPages >= getReader().getNumberOfPages();
+    }
+
+    /**
+     * Resolves every location from a previous parse of the document, or of a document with the same rows.
+     *
+     * @param locations the locations.
+     */
+    private void setLocations(final LocationStore.Locations locations) {
+        cumulativeCostLocationMap.putAll(locations.getCumulativeCostLocationMap());
+        cumulativeCostSubtotalLocation = locations.getCumulativeCostSubtotalLocation();
+        totalFundedAmountLocation = locations.getTotalFundedAmountLocation();
+
+        parsedPages = getReader().getNumberOfPages();
+    }
+
+    /**
+     * Populates the layout cache and location store once every page has been parsed.
+     *
+     * @param strategies the parsed strategy of each page, indexed by page number, or {@code null} if pages were parsed
+     * on demand. The layout is only cached if every page is present, and replaces a cached layout that differs.
+     */
+    private void completeParse(final InvoiceTextExtractionStrategy[] strategies) {
+        if (layoutCache != null && strategies != null && strategies.length > 1 && strategies[1] != null) {
+            LayoutCache.Layout parsedLayout = new LayoutCache.Layout();
+
+            for (int pageNum = 1; pageNum < strategies.length; pageNum++) {
+                Map<String, Vector> labelLocationMap = strategies[pageNum].getLabelLocationMap();
+
+                parsedLayout.addPage(pageNum, labelLocationMap, strategies[pageNum].getStaticText(labelLocationMap));
+            }
+
+            if (layoutCache.isFixedRows()) {
+                parsedLayout.setLocations(getLocations());
+            }
+
+            if (!parsedLayout.equals(layout)) {
+                layoutCache.put(profile, fingerprint, parsedLayout);
+            }
+        }
+
+        storeLocations();
+    }
+
+    /**
+     * Saves the parsed locations to the location store, if any.
+     */
+    private void storeLocations() {
+        if (locationStore != null) {
+            locationStore.put(profile, getSourceHash(), new LocationStore.Locations(cumulativeCostLocationMap, cumulativeCostSubtotalLocation, totalFundedAmountLocation));
+        }
+    }
+
+    /**
+     * Parses the remaining pages, concurrently if an executor is given.
+     *
+     * @param executor runs the parsing tasks or {@code null} to parse on the calling thread.
+     * @param firstPage the first page to parse.
+     * @return the parsed strategy of each page from the first page on, indexed by page number.
+     * @throws IOException on I/O error parsing PDF.
+     */
+    private InvoiceTextExtractionStrategy[] parsePages(final Executor executor, final int firstPage)
+            throws IOException {
+        final int numberOfPages = getReader().getNumberOfPages();
+
+        final InvoiceTextExtractionStrategy[] strategies = new InvoiceTextExtractionStrategy[numberOfPages + 1];
+
+        final int remainingPages = numberOfPages - firstPage + 1;
+
+        final int tasks = executor != null ? Math.min(remainingPages, Runtime.getRuntime().availableProcessors()) : 1;
+
+        // strategies are taken from the workspace on this thread, before any task runs
+        for (int pageNum = firstPage; pageNum <= numberOfPages; pageNum++) {
+            strategies[pageNum] = newInvoiceStrategy();
+        }
+
+        if (tasks <= 1) {
+            parsePages(getReader(), firstPage, numberOfPages, strategies);
+
+            return strategies;
+        }
+
+        List<CompletableFuture<Void>> futures = new ArrayList();
+
+        for (int task = 0; task < tasks; task++) {
+            final int rangeFirstPage = firstPage + (int) ((long) remainingPages * task / tasks);
+            final int rangeLastPage = firstPage - 1 + (int) ((long) remainingPages * (task + 1) / tasks);
+
+            futures.add(CompletableFuture.runAsync(() -> {
+                try {
+                    PdfReader reader = openReader();
+
+                    try {
+                        parsePages(reader, rangeFirstPage, rangeLastPage, strategies);
+                    } finally {
+                        reader.close();
+                    }
+                } catch (IOException ex) {
+                    throw new CompletionException(ex);
+                }
+            }, executor));
+        }
+
+        try {
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[futures.size()])).join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof IOException) {
+                throw (IOException) ex.getCause();
+            } else if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+
+            throw new PdfException("Failed to parse content", ex.getCause());
+        }
+
+        return strategies;
+    }
+
+    /**
+     * Parses a range of pages.
+     *
+     * @param reader the reader to parse with.
+     * @param firstPage the first page to parse.
+     * @param lastPage the last page to parse.
+     * @param strategies the strategy to parse each page with, indexed by page number.
+     * @throws IOException on I/O error parsing PDF.
+     */
+    private void parsePages(final PdfReader reader, final int firstPage, final int lastPage, final InvoiceTextExtractionStrategy[] strategies)
+            throws IOException {
+        TextContentParser parser = new TextContentParser(reader);
+
+        for (int pageNum = firstPage; pageNum <= lastPage; pageNum++) {
+            parsePage(parser, pageNum, strategies[pageNum]);
+        }
+    }
+
+    /**
+     * Parses a page, using the cached layout of the document if known. With a cached layout, only the item row region
+     * of the page is extracted at first, and the rest only if the static text of the page does not match the layout.
+     *
+     * @param parser the parser of the document.
+     * @param pageNum the page to parse.
+     * @param strategy the reset strategy to parse the page with.
+     * @return the parsed page.
+     * @throws IOException on I/O error parsing PDF.
+     */
+    private InvoiceTextExtractionStrategy parsePage(final TextContentParser parser, final int pageNum, final InvoiceTextExtractionStrategy strategy)
+            throws IOException {
+        Object event = FlightRecorderEvents.beginParsePage();
+
+        Map<String, Vector> labelLocations = layout != null ? layout.getLabelLocationMap(pageNum) : null;
+
+        if (labelLocations != null) {
+            extractPage(parser, pageNum, strategy.getRowRegionListener(profile, labelLocations), strategy);
+
+            // reuse the cached label locations only if the static text of the labels is found where it was recorded
+            if (!layout.getStaticText(pageNum).equals(strategy.getStaticText(labelLocations))) {
+                strategy.reset();
+
+                labelLocations = null;
+            }
+        }
+
+        if (labelLocations == null) {
+            extractPage(parser, pageNum, strategy, strategy);
+        }
+
+        long start = startPhase();
+
+        if (labelLocations != null) {
+            strategy.parseItemRows(profile, labelLocations);
+        } else {
+            strategy.parse(profile);
+        }
+
+        endPhase(MetricsListener.Phase.LOCATE, pageNum, start);
+
+        FlightRecorderEvents.commitParsePage(event, getSource(), pageNum, strategy.getTextChunkCount());
+
+        return strategy;
+    }
+
+    /**
+     * Extracts the text of a page.
+     *
+     * @param parser the parser of the document.
+     * @param pageNum the page to extract.
+     * @param renderListener the listener to extract the text with, the strategy itself or a listener filtering for it.
+     * @param strategy the strategy the text is extracted into.
+     * @throws IOException on I/O error parsing PDF.
+     */
+    private void extractPage(final TextContentParser parser, final int pageNum, final RenderListener renderListener, final InvoiceTextExtractionStrategy strategy)
+            throws IOException {
+        long start = startPhase();
+
+        parser.processContent(pageNum, renderListener);
+
+        endPhase(MetricsListener.Phase.EXTRACT, pageNum, start);
+
+        count(MetricsListener.Count.TEXT_CHUNKS, strategy.getTextChunkCount());
+    }
+
+    /**
+     * Get a reset strategy for parsing a page, from the workspace if one is set.
+     *
+     * @return the strategy.
+     */
+    private InvoiceTextExtractionStrategy newInvoiceStrategy() {
+        return workspace != null ? workspace.nextInvoiceStrategy() : new InvoiceTextExtractionStrategy();
+    }
+
+    /**
+     * Adds the locations found on a page. Pages must be added in order; the first subtotal and total funded amount
+     * locations found are kept.
+     *
+     * @param pageNum the page number.
+     * @param strategy the parsed page.
+     */
+    private void addPageLocations(final int pageNum, final InvoiceTextExtractionStrategy strategy) {
+        for (Map.Entry<String, Vector> entry : strategy.getCumulativeCostLocationMap().entrySet()) {
+            cumulativeCostLocationMap.put(entry.getKey(), entry.getValue() != null ? new PageVector(pageNum, entry.getValue()) : null);
+        }
+
+        //set the location to write the cumulative cost subtotal
+        if (cumulativeCostSubtotalLocation == null
+                && strategy.getCumulativeCostSubtotalLocation() != null) {
+            cumulativeCostSubtotalLocation = new PageVector(pageNum, strategy.getCumulativeCostSubtotalLocation());
+        }
+
+        // set the location to write the total funded amount
+        if (totalFundedAmountLocation == null
+                && strategy.getTotalFundedAmountLocation() != null) {
+            totalFundedAmountLocation = new PageVector(pageNum, strategy.getTotalFundedAmountLocation());
+        }
+    }
+
+    /**
+     * Get the locations resolved so far.
+     *
+     * @return a copy of the locations.
+     */
+    LocationStore.Locations getLocations() {
+        return new LocationStore.Locations(new HashMap(cumulativeCostLocationMap), cumulativeCostSubtotalLocation, totalFundedAmountLocation);
     }
 
     @Override
@@ -169,19 +824,26 @@ public class PdfInvoiceEditor extends PdfEditor implements InvoiceEditor {
     }
 
     /**
-     * Writes the cumulative cost amount to the given ItemId row.
+     * Writes the cumulative cost amount to the given ItemId row, parsing further pages if the ItemId has not been
+     * located yet.
      *
      * @param itemId the ItemId.
      * @param amount the amount to write.
      */
     @Override
     public void writeCumulativeCost(String itemId, double amount) {
+        resolve(Collections.singleton(itemId), false, false);
+
         PageVector cumulativeCostLocation = cumulativeCostLocationMap.get(itemId);
 
         if (cumulativeCostLocation != null) {
-            writeText(cumulativeCostLocation.getPageNum(), numberFormat.format(amount), settings.getCumulativeCostAlignment(), cumulativeCostLocation.get(Vector.I1), cumulativeCostLocation.get(Vector.I2));
+            writeTexts(Collections.singletonList(placeAmount(cumulativeCostLocation, amount, profile.getCumulativeCostAlignment())), defaultFont, defaultSize);
+
+            count(MetricsListener.Count.RESOLVED_ITEM_IDS, 1);
         } else {
             log.warn("Failed to write the cumulative cost for item id [" + itemId + "]. Location not identified.");
+
+            count(MetricsListener.Count.UNRESOLVED_ITEM_IDS, 1);
         }
     }
 
@@ -192,8 +854,10 @@ public class PdfInvoiceEditor extends PdfEditor implements InvoiceEditor {
      */
     @Override
     public void writeCumulativeCostSubtotal(final double amount) {
+        resolve(Collections.<String>emptySet(), true, false);
+
         if (cumulativeCostSubtotalLocation != null) {
-            writeText(cumulativeCostSubtotalLocation.getPageNum(), numberFormat.format(amount), settings.getCumulativeCostSubtotalAlignment(), cumulativeCostSubtotalLocation.get(Vector.I1), cumulativeCostSubtotalLocation.get(Vector.I2));
+            writeTexts(Collections.singletonList(placeAmount(cumulativeCostSubtotalLocation, amount, profile.getCumulativeCostSubtotalAlignment())), defaultFont, defaultSize);
         } else {
             log.warn("Failed to write the cumulative cost subtotal. Location not identified.");
         }
@@ -206,13 +870,102 @@ public class PdfInvoiceEditor extends PdfEditor implements InvoiceEditor {
      */
     @Override
     public void writeTotalFundedAmount(final double amount) {
+        resolve(Collections.<String>emptySet(), false, true);
+
         if (totalFundedAmountLocation != null) {
-            writeText(totalFundedAmountLocation.getPageNum(), numberFormat.format(amount), settings.getTotalFundedAmountAlignment(), totalFundedAmountLocation.get(Vector.I1), totalFundedAmountLocation.get(Vector.I2));
+            writeTexts(Collections.singletonList(placeAmount(totalFundedAmountLocation, amount, profile.getTotalFundedAmountAlignment())), defaultFont, defaultSize);
         } else {
             log.warn("Failed to write the total funded amount. Location not identified.");
         }
     }
 
+    /**
+     * Writes several amounts at once, parsing pages only until every location is resolved. The amounts on each page
+     * are written in a single text object with the font set once.
+     *
+     * @param cumulativeCosts the cumulative cost amounts to write, by ItemId.
+     * @param subtotal the cumulative cost subtotal to write, or null.
+     * @param totalFundedAmount the total funded amount to write, or null.
+     * @return the amounts that could not be written.
+     * @throws IllegalArgumentException if a cumulative cost amount is null.
+     */
+    @Override
+    public InvoiceWriteResult writeAmounts(final Map<String, Double> cumulativeCosts, final Double subtotal, final Double totalFundedAmount) {
+        for (Map.Entry<String, Double> entry : cumulativeCosts.entrySet()) {
+            if (entry.getValue() == null) {
+                throw new IllegalArgumentException("The cumulative cost for item id [" + entry.getKey() + "] must not be null");
+            }
+        }
+
+        resolve(cumulativeCosts.keySet(), subtotal != null, totalFundedAmount != null);
+
+        List<PlacedText> texts = new ArrayList();
+        List<String> unresolvedItemIds = new ArrayList();
+
+        for (Map.Entry<String, Double> entry : cumulativeCosts.entrySet()) {
+            PageVector cumulativeCostLocation = cumulativeCostLocationMap.get(entry.getKey());
+
+            if (cumulativeCostLocation != null) {
+                texts.add(placeAmount(cumulativeCostLocation, entry.getValue(), profile.getCumulativeCostAlignment()));
+            } else {
+                unresolvedItemIds.add(entry.getKey());
+            }
+        }
+
+        if (subtotal != null && cumulativeCostSubtotalLocation != null) {
+            texts.add(placeAmount(cumulativeCostSubtotalLocation, subtotal, profile.getCumulativeCostSubtotalAlignment()));
+        }
+
+        if (totalFundedAmount != null && totalFundedAmountLocation != null) {
+            texts.add(placeAmount(totalFundedAmountLocation, totalFundedAmount, profile.getTotalFundedAmountAlignment()));
+        }
+
+        writeTexts(texts, defaultFont, defaultSize);
+
+        count(MetricsListener.Count.RESOLVED_ITEM_IDS, cumulativeCosts.size() - unresolvedItemIds.size());
+        count(MetricsListener.Count.UNRESOLVED_ITEM_IDS, unresolvedItemIds.size());
+
+        return new InvoiceWriteResult(unresolvedItemIds,
+                subtotal != null && cumulativeCostSubtotalLocation == null,
+                totalFundedAmount != null && totalFundedAmountLocation == null);
+    }
+
+    /**
+     * Formats an amount to write at a location. Right and center alignment are resolved here from the formatter's
+     * width table, so the formatted text is not measured again when it is written.
+     *
+     * @param location the location.
+     * @param amount the amount.
+     * @param align the alignment.
+     * @return the text to write, left aligned.
+     */
+    private PlacedText placeAmount(final PageVector location, final double amount, final Alignment align) {
+        int length = currencyFormatter.format(amount, amountBuffer);
+
+        if (amountWidths == null) {
+            amountWidths = currencyFormatter.getWidths(defaultFont);
+        }
+
+        float x = amountWidths.getStartX(amountBuffer, length, defaultSize, align, location.get(Vector.I1));
+
+        return new PlacedText(location.getPageNum(), new String(amountBuffer, 0, length), Alignment.LEFT, x, location.get(Vector.I2), 0);
+    }
+
+    /**
+     * Parses pages on demand until the given locations are resolved or the document is exhausted.
+     *
+     * @param itemIds the ItemIds to locate.
+     * @param subtotal true to locate the cumulative cost subtotal.
+     * @param totalFundedAmount true to locate the total funded amount.
+     */
+    private void resolve(final Collection<String> itemIds, final boolean subtotal, final boolean totalFundedAmount) {
+        try {
+            parseContent(itemIds, subtotal, totalFundedAmount);
+        } catch (IOException ex) {
+            throw new PdfException("Failed to parse content", ex);
+        }
+    }
+
     /**
      * Write text to a PDF in given format and location.
      *
@@ -262,27 +1015,132 @@ public class PdfInvoiceEditor extends PdfEditor implements InvoiceEditor {
      */
     public final void writeTextAtOffset(String text, String referenceText, float offset, final Alignment align, boolean findAll)
             throws IOException {
-        PdfReader reader = getReader();
+        writeTextAtOffsets(Collections.singletonList(new TextAtOffset(text, referenceText, offset, align, findAll)));
+    }
+
+    /**
+     * Write several texts relative to their reference texts, locating every reference text in a single pass over the
+     * text of each page.
+     *
+     * <p>
+     * Texts are written in the order given, on every page where their reference text is found. Texts with a
+     * {@link TextAtOffset#getRegion() region} have their reference text located in that region only, by searching the
+     * lines with text in the region rather than the whole page.</p>
+     *
+     * @param texts the texts to write.
+     * @throws IOException on I/O error.
+     * @see #writeTextAtOffset(String, String, float, Alignment, boolean)
+     */
+    public final void writeTextAtOffsets(final Collection<TextAtOffset> texts)
+            throws IOException {
+        Set<String> firstReferenceTexts = new HashSet();
+        Set<String> allReferenceTexts = new HashSet();
+
+        for (TextAtOffset textAtOffset : texts) {
+            if (textAtOffset.getRegion() == null) {
+                (textAtOffset.isFindAll() ? allReferenceTexts : firstReferenceTexts).add(textAtOffset.getReferenceText());
+            }
+        }
+
+        for (int pageNum = 1; pageNum <= getReader().getNumberOfPages(); pageNum++) {
+            TextChunkExtractionStrategy strategy = getPageText(pageNum);
+
+            long start = startPhase();
 
-        PdfReaderContentParser parser = new PdfReaderContentParser(reader);
+            Map<String, TextChunk> firstMatches = strategy.matchText(firstReferenceTexts);
+            Map<String, List<TextChunk>> allMatches = strategy.matchAllText(allReferenceTexts);
 
-        TextChunkExtractionStrategy strategy;
+            // texts with a region are located individually, within their region
+            Map<TextAtOffset, List<TextChunk>> regionMatches = new IdentityHashMap();
 
-        for (int pageNum = 1; pageNum <= reader.getNumberOfPages(); pageNum++) {
-            strategy = parser.processContent(pageNum, new TextChunkExtractionStrategy());
+            for (TextAtOffset textAtOffset : texts) {
+                if (textAtOffset.getRegion() != null) {
+                    Set<String> referenceText = Collections.singleton(textAtOffset.getReferenceText());
 
-            if (findAll) {
-                for (TextChunk textChunk : strategy.matchAllText(referenceText)) {
-                    this.writeText(pageNum, text, align, textChunk.getEndLocation().get(Vector.I1) + offset, textChunk.getEndLocation().get(Vector.I2));
+                    if (textAtOffset.isFindAll()) {
+                        regionMatches.put(textAtOffset, strategy.matchAllText(referenceText, textAtOffset.getRegion()).get(textAtOffset.getReferenceText()));
+                    } else {
+                        TextChunk textChunk = strategy.matchText(referenceText, textAtOffset.getRegion()).get(textAtOffset.getReferenceText());
+
+                        regionMatches.put(textAtOffset, textChunk != null ? Collections.singletonList(textChunk) : null);
+                    }
                 }
-            } else {
-                TextChunk textChunk = strategy.matchText(referenceText);
+            }
 
-                if (textChunk != null) {
-                    this.writeText(pageNum, text, align, textChunk.getEndLocation().get(Vector.I1) + offset, textChunk.getEndLocation().get(Vector.I2));
+            endPhase(MetricsListener.Phase.LOCATE, pageNum, start);
+
+            for (TextAtOffset textAtOffset : texts) {
+                if (textAtOffset.getRegion() != null || textAtOffset.isFindAll()) {
+                    List<TextChunk> textChunks = textAtOffset.getRegion() != null ? regionMatches.get(textAtOffset) : allMatches.get(textAtOffset.getReferenceText());
+
+                    if (textChunks != null) {
+                        for (TextChunk textChunk : textChunks) {
+                            writeTextAtOffset(pageNum, textAtOffset, textChunk);
+                        }
+                    }
+                } else {
+                    TextChunk textChunk = firstMatches.get(textAtOffset.getReferenceText());
+
+                    if (textChunk != null) {
+                        writeTextAtOffset(pageNum, textAtOffset, textChunk);
+                    }
                 }
             }
         }
     }
 
+    /**
+     * Write text relative to a match of its reference text.
+     *
+     * @param pageNum the page to write to.
+     * @param textAtOffset the text to write.
+     * @param textChunk the match of the reference text.
+     */
+    private void writeTextAtOffset(final int pageNum, final TextAtOffset textAtOffset, final TextChunk textChunk) {
+        this.writeText(pageNum, textAtOffset.getText(), textAtOffset.getAlign(), textChunk.getEndLocation().get(Vector.I1) + textAtOffset.getOffset(), textChunk.getEndLocation().get(Vector.I2));
+    }
+
+    /**
+     * Get the extracted text of a page, extracting it on first use. Pages parsed by {@link #parseContent()} are not
+     * extracted again.
+     *
+     * @param pageNum the page.
+     * @return the extracted text of the page.
+     * @throws IOException on I/O error parsing PDF.
+     */
+    protected TextChunkExtractionStrategy getPageText(final int pageNum)
+            throws IOException {
+        if (pageText == null || pageText[pageNum] == null) {
+            long start = startPhase();
+
+            Object event = FlightRecorderEvents.beginParsePage();
+
+            TextChunkExtractionStrategy strategy = new TextContentParser(getReader()).processContent(pageNum, workspace != null ? workspace.nextTextStrategy() : new TextChunkExtractionStrategy());
+
+            endPhase(MetricsListener.Phase.EXTRACT, pageNum, start);
+
+            count(MetricsListener.Count.TEXT_CHUNKS, strategy.getTextChunkCount());
+
+            FlightRecorderEvents.commitParsePage(event, getSource(), pageNum, strategy.getTextChunkCount());
+
+            setPageText(pageNum, strategy);
+        }
+
+        return pageText[pageNum];
+    }
+
+    /**
+     * Keeps the extracted text of a page for reuse.
+     *
+     * @param pageNum the page.
+     * @param strategy the extracted text of the page.
+     */
+    private void setPageText(final int pageNum, final TextChunkExtractionStrategy strategy) {
+        if (pageText == null) {
+            pageText = new TextChunkExtractionStrategy[getReader().getNumberOfPages() + 1];
+        }
+
+        pageText[pageNum] = strategy;
+    }
+
 }
@@ -0,0 +1,179 @@
+/*
+ * Copyright (C) 2015 Clifford Errickson
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.cyberninjas.invoice.pdf;
+
+import com.cyberninjas.invoice.InvoiceBatchProcessor;
+import com.cyberninjas.invoice.InvoiceJob;
+import com.cyberninjas.invoice.InvoiceJobHandler;
+import com.cyberninjas.invoice.InvoiceWriteResult;
+import com.cyberninjas.pdf.FontRegistry;
+import com.cyberninjas.pdf.PdfDestination;
+import com.cyberninjas.pdf.PdfSource;
+import com.itextpdf.text.pdf.BaseFont;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+
+/**
+ * Carries out the jobs of an {@link InvoiceBatchProcessor} with a {@link PdfInvoiceEditor} per job.
+ *
+ * <p>
+ * Preparing a job reads its input into memory, so workers never wait on the disk; processing parses the invoice as far
+ * as the amounts require and streams the filled-in invoice to the output file. Filling a job in instead keeps the
+ * invoice in memory until it is written. Each editor takes its working state from a {@link PdfInvoiceWorkspacePool}, so
+ * workers reuse it from job to job.</p>
+ *
+ * @author Clifford Errickson
+ * @since 1.1
+ */
+public class PdfInvoiceJobHandler implements InvoiceJobHandler<PdfSource> {
+
+    /**
+     * Compiled settings used for parsing and writing content.
+     */
+    private final PdfInvoiceProfile profile;
+
+    /**
+     * The font amounts are written in.
+     */
+    private final BaseFont font;
+
+    /**
+     * The size amounts are written in.
+     */
+    private final int size;
+
+    /**
+     * The cache of document layouts shared by the editors, or {@code null}.
+     */
+    private LayoutCache layoutCache;
+
+    /**
+     * The persistent store of parsed locations shared by the editors, or {@code null}.
+     */
+    private LocationStore locationStore;
+
+    /**
+     * The workspaces of the editors, or {@code null}.
+     */
+    private PdfInvoiceWorkspacePool workspacePool = new PdfInvoiceWorkspacePool();
+
+    /**
+     * Constructs an instance of {@code PdfInvoiceJobHandler}.
+     *
+     * @param profile compiled settings used for parsing and writing content.
+     * @param font path to the .ttf of the font amounts are written in.
+     * @param size the size amounts are written in.
+     * @throws IOException on I/O error reading font file.
+     */
+    public PdfInvoiceJobHandler(final PdfInvoiceProfile profile, final String font, final int size)
+            throws IOException {
+        this.profile = profile;
+        this.font = FontRegistry.getDefault().getFont(font, BaseFont.WINANSI);
+        this.size = size;
+    }
+
+    /**
+     * Set the cache of document layouts shared by the editors.
+     *
+     * @param layoutCache the layout cache or {@code null} to always parse fully.
+     */
+    public void setLayoutCache(final LayoutCache layoutCache) {
+        this.layoutCache = layoutCache;
+    }
+
+    /**
+     * Set the persistent store of parsed locations shared by the editors.
+     *
+     * @param locationStore the location store or {@code null} to always parse.
+     */
+    public void setLocationStore(final LocationStore locationStore) {
+        this.locationStore = locationStore;
+    }
+
+    /**
+     * Set the pool the editors take their working state from. Defaults to a pool keeping one idle workspace per
+     * available processor.
+     *
+     * @param workspacePool the workspace pool or {@code null} for each editor to allocate its own working state.
+     */
+    public void setWorkspacePool(final PdfInvoiceWorkspacePool workspacePool) {
+        this.workspacePool = workspacePool;
+    }
+
+    @Override
+    public PdfSource prepare(final InvoiceJob job)
+            throws IOException {
+        return PdfSource.of(job.getInput());
+    }
+
+    @Override
+    public InvoiceWriteResult process(final InvoiceJob job, final PdfSource input)
+            throws IOException {
+        return process(job, input, PdfDestination.of(job.getOutput()));
+    }
+
+    @Override
+    public FilledInvoice fill(final InvoiceJob job, final PdfSource input)
+            throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        InvoiceWriteResult writeResult = process(job, input, PdfDestination.of(bytes));
+
+        return () -> {
+            try (OutputStream os = Files.newOutputStream(job.getOutput())) {
+                bytes.writeTo(os);
+            }
+
+            return writeResult;
+        };
+    }
+
+    /**
+     * Fills in an invoice and writes it to a destination.
+     *
+     * @param job the job.
+     * @param input the input prepared for the job.
+     * @param destination where to write the invoice.
+     * @return the amounts that could not be written.
+     * @throws IOException on I/O error writing the invoice.
+     */
+    private InvoiceWriteResult process(final InvoiceJob job, final PdfSource input, final PdfDestination destination)
+            throws IOException {
+        PdfInvoiceWorkspacePool pool = workspacePool;
+
+        PdfInvoiceWorkspace workspace = pool != null ? pool.acquire() : null;
+
+        try (PdfInvoiceEditor pdfInvoiceEditor = new PdfInvoiceEditor(input, profile, destination)) {
+            pdfInvoiceEditor.setFontAndSize(font, size);
+            pdfInvoiceEditor.setLayoutCache(layoutCache);
+            pdfInvoiceEditor.setLocationStore(locationStore);
+
+            if (workspace != null) {
+                pdfInvoiceEditor.setWorkspace(workspace);
+            }
+
+            return pdfInvoiceEditor.writeAmounts(job.getCumulativeCosts(), job.getSubtotal(), job.getTotalFundedAmount());
+        } finally {
+            if (workspace != null) {
+                pool.release(workspace);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,307 @@
+/*
+ * Copyright (C) 2015 Clifford Errickson
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.cyberninjas.invoice.pdf;
+
+import com.cyberninjas.pdf.Alignment;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * An immutable, compiled form of {@link PdfInvoiceSettings}.
+ *
+ * <p>
+ * Profiles are validated and their patterns compiled once, after which they are safe to share between any number of
+ * {@link PdfInvoiceEditor}s and threads. Use {@link #compile(PdfInvoiceSettings)} to obtain the shared profile for a
+ * set of settings.</p>
+ *
+ * @author Clifford Errickson
+ * @since 1.1
+ */
+public final class PdfInvoiceProfile {
+
+    /**
+     * The maximum number of compiled profiles kept for sharing.
+     */
+    private static final int MAX_SHARED_PROFILES = 64;
+
+    /**
+     * The most recently compiled profiles, keyed by the values of the settings they were compiled from. Bounded so
+     * that services compiling many distinct settings do not retain every one of them.
+     */
+    private static final Map<List<Object>, PdfInvoiceProfile> profiles = new LinkedHashMap<List<Object>, PdfInvoiceProfile>(16, 0.75f, true) {
+
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<List<Object>, PdfInvoiceProfile> eldest) {
+            return size() > MAX_SHARED_PROFILES;
+        }
+
+    };
+
+    /**
+     * The profile for the default settings.
+     */
+    private static final PdfInvoiceProfile defaultProfile = compile(new PdfInvoiceSettings());
+
+    private final String cumulativeCostHeadingText;
+
+    private final String subtotalLabelText;
+
+    private final String totalFundedAmountLabelText;
+
+    private final Pattern itemRowPattern;
+
+    private final String itemIdSeparator;
+
+    /**
+     * The ItemId separator as a single character or {@code 0} if the separator is longer than one character.
+     */
+    private final char itemIdSeparatorChar;
+
+    private final Alignment cumulativeCostAlignment;
+
+    private final Alignment cumulativeCostSubtotalAlignment;
+
+    private final Alignment totalFundedAmountAlignment;
+
+    private final float totalFundedAmountOffset;
+
+    /**
+     * Constructs an instance of {@code PdfInvoiceProfile}.
+     *
+     * @param settings the settings to compile.
+     */
+    private PdfInvoiceProfile(final PdfInvoiceSettings settings) {
+        cumulativeCostHeadingText = requireText(settings.getCumulativeCostHeadingText(), "cumulative cost heading text");
+        subtotalLabelText = requireText(settings.getSubtotalLabelText(), "subtotal label text");
+        totalFundedAmountLabelText = requireText(settings.getTotalFundedAmountLabelText(), "total funded amount label text");
+        itemRowPattern = Pattern.compile(requireText(settings.getItemRowPattern(), "item row pattern"));
+        itemIdSeparator = requireText(settings.getItemIdSeparator(), "ItemId separator");
+        itemIdSeparatorChar = itemIdSeparator.length() == 1 ? itemIdSeparator.charAt(0) : 0;
+        cumulativeCostAlignment = requireAlignment(settings.getCumulativeCostAlignment(), "cumulative cost alignment");
+        cumulativeCostSubtotalAlignment = requireAlignment(settings.getCumulativeCostSubtotalAlignment(), "cumulative cost subtotal alignment");
+        totalFundedAmountAlignment = requireAlignment(settings.getTotalFundedAmountAlignment(), "total funded amount alignment");
+        totalFundedAmountOffset = settings.getTotalFundedAmountOffset();
+    }
+
+    /**
+     * Get the profile for the default settings.
+     *
+     * @return the profile for the default settings.
+     */
+    public static PdfInvoiceProfile getDefault() {
+        return defaultProfile;
+    }
+
+    /**
+     * Compiles the given settings, returning the shared profile if the same values have been compiled recently.
+     *
+     * <p>
+     * The profile is a snapshot; later changes to the settings are not reflected in it.</p>
+     *
+     * @param settings the settings to compile.
+     * @return the compiled profile.
+     * @throws IllegalArgumentException if a setting is missing or the item row pattern is invalid.
+     */
+    public static PdfInvoiceProfile compile(final PdfInvoiceSettings settings) {
+        List<Object> key = Arrays.asList(
+                settings.getCumulativeCostHeadingText(),
+                settings.getSubtotalLabelText(),
+                settings.getTotalFundedAmountLabelText(),
+                settings.getItemRowPattern(),
+                settings.getItemIdSeparator(),
+                settings.getCumulativeCostAlignment(),
+                settings.getCumulativeCostSubtotalAlignment(),
+                settings.getTotalFundedAmountAlignment(),
+                settings.getTotalFundedAmountOffset());
+
+        synchronized (profiles) {
+            PdfInvoiceProfile profile = profiles.get(key);
+
+            if (profile == null) {
+                profile = new PdfInvoiceProfile(settings);
+
+                profiles.put(key, profile);
+            }
+
+            return profile;
+        }
+    }
+
+    /**
+     * Describes the settings of this profile in a form that is stable between runs, for keying persisted results.
+     *
+     * @return a description of the settings of this profile.
+     */
+    String describe() {
+        return new StringBuilder()
+                .append(cumulativeCostHeadingText).append('\u0000')
+                .append(subtotalLabelText).append('\u0000')
+                .append(totalFundedAmountLabelText).append('\u0000')
+                .append(itemRowPattern.pattern()).append('\u0000')
+                .append(itemIdSeparator).append('\u0000')
+                .append(totalFundedAmountOffset)
+                .toString();
+    }
+
+    /**
+     * Find the first ItemId separator in a line of text.
+     *
+     * @param text the line of text.
+     * @return the index of the first ItemId separator or -1 if not found.
+     */
+    public int indexOfItemIdSeparator(final CharSequence text) {
+        if (itemIdSeparatorChar != 0) {
+            for (int i = 0; i < text.length(); i++) {
+                if (text.charAt(i) == itemIdSeparatorChar) {
+                    return i;
+                }
+            }
+
+            return -1;
+        }
+
+        return text.toString().indexOf(itemIdSeparator);
+    }
+
+    /**
+     * Determine if a line of text is an item row.
+     *
+     * @param text the line of text.
+     * @return true if the text matches the item row pattern, false otherwise.
+     */
+    public boolean isItemRow(final CharSequence text) {
+        return itemRowPattern.matcher(text).matches();
+    }
+
+    /**
+     * Get the text used to identify the cumulative cost heading.
+     *
+     * @return the text used to identify the cumulative cost heading.
+     */
+    public String getCumulativeCostHeadingText() {
+        return cumulativeCostHeadingText;
+    }
+
+    /**
+     * Get the text used to identify the cumulative cost subtotal label.
+     *
+     * @return the text used to identify the cumulative cost subtotal label.
+     */
+    public String getSubtotalLabelText() {
+        return subtotalLabelText;
+    }
+
+    /**
+     * Get the text to use to identify the total funded amount label.
+     *
+     * @return the text to use to identify the total funded amount label.
+     */
+    public String getTotalFundedAmountLabelText() {
+        return totalFundedAmountLabelText;
+    }
+
+    /**
+     * Get the compiled pattern used to identify ItemId rows.
+     *
+     * @return the compiled pattern used to identify ItemId rows.
+     */
+    public Pattern getItemRowPattern() {
+        return itemRowPattern;
+    }
+
+    /**
+     * Get the text used to identify ItemIds.
+     *
+     * @return the text used to identify ItemIds.
+     */
+    public String getItemIdSeparator() {
+        return itemIdSeparator;
+    }
+
+    /**
+     * Get the alignment for cumulative cost amounts.
+     *
+     * @return the alignment for cumulative cost amounts.
+     */
+    public Alignment getCumulativeCostAlignment() {
+        return cumulativeCostAlignment;
+    }
+
+    /**
+     * Get the alignment for cumulative cost subtotal amount.
+     *
+     * @return the alignment for cumulative cost subtotal amount.
+     */
+    public Alignment getCumulativeCostSubtotalAlignment() {
+        return cumulativeCostSubtotalAlignment;
+    }
+
+    /**
+     * Get the alignment for the total funded amount.
+     *
+     * @return the alignment for the total funded amount.
+     */
+    public Alignment getTotalFundedAmountAlignment() {
+        return totalFundedAmountAlignment;
+    }
+
+    /**
+     * Get the horizontal offset from the total funded amount label.
+     *
+     * @return the horizontal offset from the total funded amount label.
+     */
+    public float getTotalFundedAmountOffset() {
+        return totalFundedAmountOffset;
+    }
+
+    /**
+     * Validates a text setting.
+     *
+     * @param text the text.
+     * @param name the name of the setting.
+     * @return the text.
+     * @throws IllegalArgumentException if the text is {@code null} or empty.
+     */
+    private static String requireText(final String text, final String name) {
+        if (text == null
+                || text.isEmpty()) {
+            throw new IllegalArgumentException("The " + name + " must not be empty");
+        }
+
+        return text;
+    }
+
+    /**
+     * Validates an alignment setting.
+     *
+     * @param align the alignment.
+     * @param name the name of the setting.
+     * @return the alignment.
+     * @throws IllegalArgumentException if the alignment is {@code null}.
+     */
+    private static Alignment requireAlignment(final Alignment align, final String name) {
+        if (align == null) {
+            throw new IllegalArgumentException("The " + name + " must be set");
+        }
+
+        return align;
+    }
+
+}
@@ -21,6 +21,9 @@ import com.cyberninjas.pdf.Alignment;
 /**
  * Settings used to parse and write content to the PDF invoice.
  *
+ * <p>
+ * Settings are compiled into an immutable {@link PdfInvoiceProfile} when used.</p>
+ *
  * @author Clifford Errickson
  * @since 1.0
  */
@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2015 Clifford Errickson
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.cyberninjas.invoice.pdf;
+
+import com.cyberninjas.pdf.PdfSource;
+import com.cyberninjas.pdf.PdfTemplate;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An invoice compiled once to be filled in with many sets of amounts, as in a mail merge.
+ *
+ * <p>
+ * Compiling reads the document and parses its content to resolve where every amount is written. Each
+ * {@link PdfInvoiceEditor#PdfInvoiceEditor(PdfInvoiceTemplate, com.cyberninjas.pdf.PdfDestination)} then edits a copy
+ * of the read document with those locations, so filling in a set of amounts only stamps and serializes:</p>
+ *
+ * <pre>
+ * PdfInvoiceTemplate template = new PdfInvoiceTemplate(PdfSource.of(path));
+ *
+ * try (PdfInvoiceEditor pdfInvoiceEditor = new PdfInvoiceEditor(template, PdfDestination.of(output))) {
+ *     pdfInvoiceEditor.setFontAndSize(font, size);
+ *     pdfInvoiceEditor.writeAmounts(cumulativeCosts, subtotal, totalFundedAmount);
+ * }
+ * </pre>
+ *
+ * <p>
+ * Instances are immutable and safe to share between threads; editors constructed from the same template may write to
+ * separate destinations concurrently.</p>
+ *
+ * @author Clifford Errickson
+ * @since 1.1
+ */
+public class PdfInvoiceTemplate {
+
+    /**
+     * The read document.
+     */
+    private final PdfTemplate template;
+
+    /**
+     * Compiled settings used for parsing and writing content.
+     */
+    private final PdfInvoiceProfile profile;
+
+    /**
+     * The resolved locations.
+     */
+    private final LocationStore.Locations locations;
+
+    /**
+     * Constructs an instance of {@code PdfInvoiceTemplate} with default settings.
+     *
+     * @param source the PDF source.
+     * @throws IOException on I/O error reading or parsing the source.
+     */
+    public PdfInvoiceTemplate(final PdfSource source)
+            throws IOException {
+        this(source, PdfInvoiceProfile.getDefault());
+    }
+
+    /**
+     * Constructs an instance of {@code PdfInvoiceTemplate}.
+     *
+     * @param source the PDF source.
+     * @param profile compiled settings used for parsing and writing content.
+     * @throws IOException on I/O error reading or parsing the source.
+     */
+    public PdfInvoiceTemplate(final PdfSource source, final PdfInvoiceProfile profile)
+            throws IOException {
+        this.template = new PdfTemplate(source);
+        this.profile = profile;
+
+        try (PdfInvoiceEditor pdfInvoiceEditor = new PdfInvoiceEditor(template, profile, null)) {
+            pdfInvoiceEditor.parseContent();
+
+            LocationStore.Locations parsed = pdfInvoiceEditor.getLocations();
+
+            this.locations = new LocationStore.Locations(Collections.unmodifiableMap(parsed.getCumulativeCostLocationMap()), parsed.getCumulativeCostSubtotalLocation(), parsed.getTotalFundedAmountLocation());
+        }
+    }
+
+    /**
+     * Get the read document.
+     *
+     * @return the read document.
+     */
+    public PdfTemplate getTemplate() {
+        return template;
+    }
+
+    /**
+     * Get the compiled settings used for parsing and writing content.
+     *
+     * @return the compiled settings.
+     */
+    public PdfInvoiceProfile getProfile() {
+        return profile;
+    }
+
+    /**
+     * Lists the ItemIds found on the invoice.
+     *
+     * @return the ItemIds.
+     */
+    public List<String> listItemIds() {
+        return new ArrayList(locations.getCumulativeCostLocationMap().keySet());
+    }
+
+    /**
+     * Get the resolved locations.
+     *
+     * @return the resolved locations.
+     */
+    LocationStore.Locations getLocations() {
+        return locations;
+    }
+
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2015 Clifford Errickson
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.cyberninjas.invoice.pdf;
+
+import com.cyberninjas.pdf.PageVector;
+import com.cyberninjas.pdf.TextChunkExtractionStrategy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The working state of a {@link PdfInvoiceEditor}, kept between editors so that processing invoice after invoice
+ * reuses the extraction strategies, chunk storage and location maps grown by earlier invoices instead of allocating
+ * them again.
+ *
+ * <p>
+ * A workspace is used by one editor at a time, on the thread that attached it with
+ * {@link PdfInvoiceEditor#setWorkspace(PdfInvoiceWorkspace)}. Attaching it to another editor reuses its state, so the
+ * earlier editor must not be used afterwards. Instances are not thread-safe; see {@link PdfInvoiceWorkspacePool} for
+ * sharing workspaces between worker threads.</p>
+ *
+ * @author Clifford Errickson
+ * @since 1.1
+ */
+public class PdfInvoiceWorkspace {
+
+    /**
+     * The strategies for parsing invoice pages, in the order they were first handed out.
+     */
+    private final List<InvoiceTextExtractionStrategy> invoiceStrategies = new ArrayList();
+
+    /**
+     * The number of invoice strategies handed out to the current editor.
+     */
+    private int invoiceStrategiesUsed;
+
+    /**
+     * The strategies for extracting the text of pages, in the order they were first handed out.
+     */
+    private final List<TextChunkExtractionStrategy> textStrategies = new ArrayList();
+
+    /**
+     * The number of text strategies handed out to the current editor.
+     */
+    private int textStrategiesUsed;
+
+    /**
+     * The page and locations to write the cumulative cost amounts of the current editor.
+     */
+    private final Map<String, PageVector> cumulativeCostLocationMap = new HashMap();
+
+    /**
+     * Constructs an instance of {@code PdfInvoiceWorkspace}.
+     */
+    public PdfInvoiceWorkspace() {
+    }
+
+    /**
+     * Get the number of extraction strategies kept for reuse.
+     *
+     * @return the number of extraction strategies.
+     */
+    public int getStrategyCount() {
+        return invoiceStrategies.size() + textStrategies.size();
+    }
+
+    /**
+     * Makes all state available to a new editor.
+     */
+    void reset() {
+        invoiceStrategiesUsed = 0;
+        textStrategiesUsed = 0;
+
+        cumulativeCostLocationMap.clear();
+    }
+
+    /**
+     * Get a reset strategy for parsing an invoice page, reusing one handed out to an earlier editor if possible.
+     *
+     * @return the strategy.
+     */
+    InvoiceTextExtractionStrategy nextInvoiceStrategy() {
+        if (invoiceStrategiesUsed == invoiceStrategies.size()) {
+            invoiceStrategies.add(new InvoiceTextExtractionStrategy());
+        }
+
+        InvoiceTextExtractionStrategy strategy = invoiceStrategies.get(invoiceStrategiesUsed++);
+
+        strategy.reset();
+
+        return strategy;
+    }
+
+    /**
+     * Get a reset strategy for extracting the text of a page, reusing one handed out to an earlier editor if possible.
+     *
+     * @return the strategy.
+     */
+    TextChunkExtractionStrategy nextTextStrategy() {
+        if (textStrategiesUsed == textStrategies.size()) {
+            textStrategies.add(new TextChunkExtractionStrategy());
+        }
+
+        TextChunkExtractionStrategy strategy = textStrategies.get(textStrategiesUsed++);
+
+        strategy.reset();
+
+        return strategy;
+    }
+
+    /**
+     * Get the map of the page and locations to write the cumulative cost amounts, emptied by {@link #reset()}.
+     *
+     * @return the map.
+     */
+    Map<String, PageVector> getCumulativeCostLocationMap() {
+        return cumulativeCostLocationMap;
+    }
+
+}
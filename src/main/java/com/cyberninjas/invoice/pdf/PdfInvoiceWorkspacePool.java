@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2015 Clifford Errickson
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.cyberninjas.invoice.pdf;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * A bounded pool of {@link PdfInvoiceWorkspace}s for workers that process invoice after invoice.
+ *
+ * <p>
+ * A workspace is confined to the thread that acquired it until it is released, so workspaces are never shared
+ * between concurrent editors. The most recently released workspace is handed out first, as its storage is the most
+ * likely to still be in cache. Unlike a thread-local, the pool also serves workers that run each invoice on a new
+ * (virtual) thread. Instances are safe to share between threads.</p>
+ *
+ * @author Clifford Errickson
+ * @since 1.1
+ */
+public class PdfInvoiceWorkspacePool {
+
+    /**
+     * The maximum number of idle workspaces to keep.
+     */
+    private final int maxIdle;
+
+    /**
+     * The idle workspaces, most recently released first.
+     */
+    private final Deque<PdfInvoiceWorkspace> idle = new ArrayDeque();
+
+    /**
+     * Constructs an instance of {@code PdfInvoiceWorkspacePool} that keeps one idle workspace per available
+     * processor.
+     */
+    public PdfInvoiceWorkspacePool() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructs an instance of {@code PdfInvoiceWorkspacePool}.
+     *
+     * @param maxIdle the maximum number of idle workspaces to keep; workspaces released beyond it are discarded.
+     */
+    public PdfInvoiceWorkspacePool(final int maxIdle) {
+        if (maxIdle < 0) {
+            throw new IllegalArgumentException("maxIdle must not be negative");
+        }
+
+        this.maxIdle = maxIdle;
+    }
+
+    /**
+     * Takes an idle workspace, or creates one if none is idle.
+     *
+     * @return the workspace, to be given back with {@link #release(PdfInvoiceWorkspace)} once its editor is closed.
+     */
+    public PdfInvoiceWorkspace acquire() {
+        PdfInvoiceWorkspace workspace;
+
+        synchronized (idle) {
+            workspace = idle.pollFirst();
+        }
+
+        return workspace != null ? workspace : new PdfInvoiceWorkspace();
+    }
+
+    /**
+     * Gives back a workspace taken with {@link #acquire()}. Neither the workspace nor the editor it was attached to may
+     * be used afterwards.
+     *
+     * @param workspace the workspace.
+     */
+    public void release(final PdfInvoiceWorkspace workspace) {
+        synchronized (idle) {
+            if (idle.size() < maxIdle) {
+                idle.addFirst(workspace);
+            }
+        }
+    }
+
+    /**
+     * Get the number of idle workspaces.
+     *
+     * @return the number of idle workspaces.
+     */
+    public int getIdleCount() {
+        synchronized (idle) {
+            return idle.size();
+        }
+    }
+
+}
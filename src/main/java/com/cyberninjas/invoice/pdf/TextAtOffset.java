@@ -0,0 +1,161 @@
+/*
+ * Copyright (C) 2015 Clifford Errickson
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.cyberninjas.invoice.pdf;
+
+import com.cyberninjas.pdf.Alignment;
+import com.itextpdf.text.Rectangle;
+
+/**
+ * Text to write relative to reference text, for {@link PdfInvoiceEditor#writeTextAtOffsets(java.util.Collection)}.
+ *
+ * @author Clifford Errickson
+ * @since 1.1
+ */
+public class TextAtOffset {
+
+    /**
+     * The text to write.
+     */
+    private final String text;
+
+    /**
+     * The reference text to write relative to.
+     */
+    private final String referenceText;
+
+    /**
+     * The offset to write relative to the reference text.
+     */
+    private final float offset;
+
+    /**
+     * The alignment.
+     */
+    private final Alignment align;
+
+    /**
+     * Whether to write at every occurrence of the reference text or only the first on each page.
+     */
+    private final boolean findAll;
+
+    /**
+     * The region of each page to search for the reference text, or {@code null} to search the whole page.
+     */
+    private final Rectangle region;
+
+    /**
+     * Constructs an instance of {@code TextAtOffset} written at the first occurrence of the reference text on each
+     * page.
+     *
+     * @param text the text to write.
+     * @param referenceText the reference text to write relative to.
+     * @param offset the offset to write relative to the reference text.
+     * @param align the alignment.
+     */
+    public TextAtOffset(final String text, final String referenceText, final float offset, final Alignment align) {
+        this(text, referenceText, offset, align, false);
+    }
+
+    /**
+     * Constructs an instance of {@code TextAtOffset}.
+     *
+     * @param text the text to write.
+     * @param referenceText the reference text to write relative to.
+     * @param offset the offset to write relative to the reference text.
+     * @param align the alignment.
+     * @param findAll indicates if text should be written at every occurrence or only the first.
+     */
+    public TextAtOffset(final String text, final String referenceText, final float offset, final Alignment align, final boolean findAll) {
+        this(text, referenceText, offset, align, findAll, null);
+    }
+
+    /**
+     * Constructs an instance of {@code TextAtOffset} whose reference text is only searched for within a region of each
+     * page. A small region is searched without a scan of the page.
+     *
+     * @param text the text to write.
+     * @param referenceText the reference text to write relative to.
+     * @param offset the offset to write relative to the reference text.
+     * @param align the alignment.
+     * @param findAll indicates if text should be written at every occurrence or only the first.
+     * @param region the region of each page to search for the reference text, or {@code null} to search the whole
+     * page.
+     */
+    public TextAtOffset(final String text, final String referenceText, final float offset, final Alignment align, final boolean findAll, final Rectangle region) {
+        this.text = text;
+        this.referenceText = referenceText;
+        this.offset = offset;
+        this.align = align;
+        this.findAll = findAll;
+        this.region = region;
+    }
+
+    /**
+     * Get the text to write.
+     *
+     * @return the text to write.
+     */
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * Get the reference text to write relative to.
+     *
+     * @return the reference text to write relative to.
+     */
+    public String getReferenceText() {
+        return referenceText;
+    }
+
+    /**
+     * Get the offset to write relative to the reference text.
+     *
+     * @return the offset to write relative to the reference text.
+     */
+    public float getOffset() {
+        return offset;
+    }
+
+    /**
+     * Get the alignment.
+     *
+     * @return the alignment.
+     */
+    public Alignment getAlign() {
+        return align;
+    }
+
+    /**
+     * Determine if text should be written at every occurrence of the reference text.
+     *
+     * @return true if text is written at every occurrence, false if only at the first on each page.
+     */
+    public boolean isFindAll() {
+        return findAll;
+    }
+
+    /**
+     * Get the region of each page to search for the reference text.
+     *
+     * @return the region or {@code null} if the whole page is searched.
+     */
+    public Rectangle getRegion() {
+        return region;
+    }
+
+}
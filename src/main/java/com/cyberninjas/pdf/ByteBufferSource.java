@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2015 Clifford Errickson
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.cyberninjas.pdf;
+
+import com.itextpdf.text.io.RandomAccessSource;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+
+/**
+ * A {@link RandomAccessSource} over a byte buffer, such as a wrapped byte array or a memory-mapped file, that may be
+ * shared by any number of readers and threads.
+ *
+ * Unlike the sources created by iText, reads hold no state and closing does not release the buffer, so one reader
+ * closing does not affect the others. Reads use absolute positions and never move the buffer's position.
+ *
+ * @author Clifford Errickson
+ * @since 1.1
+ */
+class ByteBufferSource implements RandomAccessSource {
+
+    /**
+     * The bytes of the source, from position 0 to the limit.
+     */
+    private final ByteBuffer buffer;
+
+    /**
+     * Constructs an instance of {@code ByteBufferSource}.
+     *
+     * @param buffer the bytes of the source, from position 0 to the limit.
+     */
+    ByteBufferSource(final ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    @Override
+    public int get(final long position) {
+        if (position >= buffer.limit()) {
+            return -1;
+        }
+
+        return buffer.get((int) position) & 0xff;
+    }
+
+    @Override
+    public int get(final long position, final byte[] bytes, final int off, final int len) {
+        if (position >= buffer.limit()) {
+            return -1;
+        }
+
+        int n = (int) Math.min(len, buffer.limit() - position);
+
+        if (buffer.hasArray()) {
+            System.arraycopy(buffer.array(), buffer.arrayOffset() + (int) position, bytes, off, n);
+        } else {
+            // a duplicate has its own position, so concurrent reads do not interfere
+            ByteBuffer view = buffer.duplicate();
+
+            ((Buffer) view).position((int) position);
+            view.get(bytes, off, n);
+        }
+
+        return n;
+    }
+
+    @Override
+    public long length() {
+        return buffer.limit();
+    }
+
+    @Override
+    public void close() {
+        // the buffer is shared - nothing to release
+    }
+
+}
@@ -0,0 +1,479 @@
+/*
+ * Copyright (C) 2015 Clifford Errickson
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.cyberninjas.pdf;
+
+import com.itextpdf.text.pdf.BaseFont;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.text.AttributedCharacterIterator;
+import java.text.CharacterIterator;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.text.NumberFormat;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Formats currency amounts into reusable character buffers and measures them in a font without re-measuring each
+ * string.
+ *
+ * <p>
+ * The output is the same as {@link DecimalFormat} for the locale and pattern, including its half-even rounding, but no
+ * objects are allocated for {@code double} amounts below 2<sup>48</sup> minor units that are not exactly halfway
+ * between two roundings. Amounts of 10<sup>18</sup> minor units or more are not supported.</p>
+ *
+ * <p>
+ * The widths of the characters the formatter can produce are kept per font by {@link #getWidths(BaseFont)}, in the
+ * font's 1000 unit glyph space, so one table serves every font size and measurements equal
+ * {@link BaseFont#getWidthPoint(String, float)}. Formatters and width tables are safe to share between threads;
+ * buffers are not.</p>
+ *
+ * @author Clifford Errickson
+ * @since 1.1
+ */
+public class CurrencyFormatter {
+
+    /**
+     * Powers of ten that fit in a {@code long}.
+     */
+    private static final long[] POWERS_OF_TEN = new long[19];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    /**
+     * Below this many minor units, a {@code double} is precise enough that rounding its exact value and rounding its
+     * shortest decimal representation agree.
+     */
+    private static final double MAX_FAST_SCALED = 0x1p48;
+
+    /**
+     * The largest number of minor units supported.
+     */
+    private static final long MAX_UNITS = POWERS_OF_TEN[18] - 1;
+
+    private final String positivePrefix;
+
+    private final String positiveSuffix;
+
+    private final String negativePrefix;
+
+    private final String negativeSuffix;
+
+    /**
+     * The digit zero; the other digits follow it.
+     */
+    private final char zeroDigit;
+
+    /**
+     * The grouping separator, used only if the grouping size is positive.
+     */
+    private final char groupingSeparator;
+
+    /**
+     * The number of integer digits in each group or 0 if digits are not grouped.
+     */
+    private final int groupingSize;
+
+    private final char decimalSeparator;
+
+    private final int minimumIntegerDigits;
+
+    private final int minimumFractionDigits;
+
+    private final int maximumFractionDigits;
+
+    /**
+     * Every character this formatter can produce other than digits.
+     */
+    private final char[] symbols;
+
+    /**
+     * The width tables by font.
+     */
+    private final Map<BaseFont, Widths> widthTables = Collections.synchronizedMap(new WeakHashMap());
+
+    /**
+     * Constructs an instance of {@code CurrencyFormatter} using the currency format of a locale.
+     *
+     * @param locale the locale.
+     */
+    public CurrencyFormatter(final Locale locale) {
+        this((DecimalFormat) NumberFormat.getCurrencyInstance(locale));
+    }
+
+    /**
+     * Constructs an instance of {@code CurrencyFormatter} using a {@link DecimalFormat} pattern, such as
+     * {@code "¤#,##0.00"}, with the symbols of a locale.
+     *
+     * @param locale the locale.
+     * @param pattern the pattern.
+     */
+    public CurrencyFormatter(final Locale locale, final String pattern) {
+        this(new DecimalFormat(pattern, DecimalFormatSymbols.getInstance(locale)));
+    }
+
+    /**
+     * Constructs an instance of {@code CurrencyFormatter} equivalent to a {@link DecimalFormat}.
+     *
+     * @param format the format.
+     */
+    private CurrencyFormatter(final DecimalFormat format) {
+        if (format.getMaximumFractionDigits() > 9 || format.getMultiplier() != 1 || format.getRoundingMode() != RoundingMode.HALF_EVEN) {
+            throw new IllegalArgumentException("Unsupported currency format [" + format.toPattern() + "]");
+        }
+
+        positivePrefix = format.getPositivePrefix();
+        positiveSuffix = format.getPositiveSuffix();
+        negativePrefix = format.getNegativePrefix();
+        negativeSuffix = format.getNegativeSuffix();
+        zeroDigit = format.getDecimalFormatSymbols().getZeroDigit();
+        groupingSize = format.isGroupingUsed() ? format.getGroupingSize() : 0;
+        minimumIntegerDigits = Math.min(format.getMinimumIntegerDigits(), 18);
+        minimumFractionDigits = format.getMinimumFractionDigits();
+        maximumFractionDigits = format.getMaximumFractionDigits();
+
+        // the separators depend on whether the pattern is a currency pattern, so take them from formatted output
+        char grouping = format.getDecimalFormatSymbols().getGroupingSeparator();
+        char decimal = format.getDecimalFormatSymbols().getMonetaryDecimalSeparator();
+
+        AttributedCharacterIterator iterator = format.formatToCharacterIterator(1234567.5);
+
+        for (char c = iterator.first(); c != CharacterIterator.DONE; c = iterator.next()) {
+            if (iterator.getAttribute(NumberFormat.Field.GROUPING_SEPARATOR) != null) {
+                grouping = c;
+            } else if (iterator.getAttribute(NumberFormat.Field.DECIMAL_SEPARATOR) != null) {
+                decimal = c;
+            }
+        }
+
+        groupingSeparator = grouping;
+        decimalSeparator = decimal;
+
+        StringBuilder sb = new StringBuilder();
+
+        for (char c : (positivePrefix + positiveSuffix + negativePrefix + negativeSuffix + groupingSeparator + decimalSeparator).toCharArray()) {
+            if ((c < zeroDigit || c > zeroDigit + 9) && sb.indexOf(String.valueOf(c)) < 0) {
+                sb.append(c);
+            }
+        }
+
+        symbols = sb.toString().toCharArray();
+    }
+
+    /**
+     * Get the largest number of characters an amount is formatted to.
+     *
+     * @return the size of buffer to use.
+     */
+    public int getMaxLength() {
+        return Math.max(positivePrefix.length() + positiveSuffix.length(), negativePrefix.length() + negativeSuffix.length())
+                + 18 + (groupingSize > 0 ? 17 / groupingSize : 0) + 1 + maximumFractionDigits;
+    }
+
+    /**
+     * Formats an amount.
+     *
+     * @param amount the amount.
+     * @return the formatted amount.
+     */
+    public String format(final double amount) {
+        char[] buffer = new char[getMaxLength()];
+
+        return new String(buffer, 0, format(amount, buffer));
+    }
+
+    /**
+     * Formats an amount into a buffer.
+     *
+     * @param amount the amount.
+     * @param buffer the buffer, at least {@link #getMaxLength()} long.
+     * @return the number of characters written to the start of the buffer.
+     */
+    public int format(final double amount, final char[] buffer) {
+        if (Double.isNaN(amount) || Double.isInfinite(amount)) {
+            throw new IllegalArgumentException("The amount must be finite");
+        }
+
+        double scaled = Math.abs(amount) * POWERS_OF_TEN[maximumFractionDigits];
+
+        long units;
+
+        if (scaled < MAX_FAST_SCALED) {
+            double floor = Math.floor(scaled);
+            double fraction = scaled - floor;
+
+            if (fraction == 0.5) {
+                // the product may have been rounded onto the halfway point - round the exact value instead
+                units = round(new BigDecimal(amount));
+            } else {
+                units = (long) floor + (fraction > 0.5 ? 1 : 0);
+            }
+        } else {
+            units = roundShortest(amount);
+        }
+
+        // negative zero is formatted with a sign, as DecimalFormat does
+        return format(units, Double.doubleToRawLongBits(amount) < 0, buffer);
+    }
+
+    /**
+     * Formats an amount into a buffer.
+     *
+     * @param amount the amount.
+     * @param buffer the buffer, at least {@link #getMaxLength()} long.
+     * @return the number of characters written to the start of the buffer.
+     */
+    public int format(final BigDecimal amount, final char[] buffer) {
+        return format(round(amount), amount.signum() < 0, buffer);
+    }
+
+    /**
+     * Rounds the absolute value of an amount to minor units as {@link DecimalFormat} does: its shortest decimal
+     * representation is rounded, and only a representation exactly halfway between two roundings is resolved by the
+     * exact value.
+     *
+     * @param amount the amount.
+     * @return the number of minor units.
+     */
+    private long roundShortest(final double amount) {
+        BigDecimal shortest = new BigDecimal(Double.toString(Math.abs(amount)));
+
+        if (shortest.scale() == maximumFractionDigits + 1 && shortest.unscaledValue().mod(BigInteger.TEN).intValue() == 5) {
+            int comparison = new BigDecimal(Math.abs(amount)).compareTo(shortest);
+
+            if (comparison != 0) {
+                shortest = shortest.setScale(maximumFractionDigits, comparison > 0 ? RoundingMode.UP : RoundingMode.DOWN);
+            }
+        }
+
+        return round(shortest);
+    }
+
+    /**
+     * Rounds the absolute value of an amount to minor units.
+     *
+     * @param amount the amount.
+     * @return the number of minor units.
+     */
+    private long round(final BigDecimal amount) {
+        BigInteger units = amount.abs().setScale(maximumFractionDigits, RoundingMode.HALF_EVEN).unscaledValue();
+
+        if (units.bitLength() > 63 || units.longValue() > MAX_UNITS) {
+            throw new IllegalArgumentException("The amount [" + amount + "] is too large");
+        }
+
+        return units.longValue();
+    }
+
+    /**
+     * Formats a number of minor units into a buffer.
+     *
+     * @param units the number of minor units.
+     * @param negative whether the amount is negative.
+     * @param buffer the buffer.
+     * @return the number of characters written.
+     */
+    private int format(final long units, final boolean negative, final char[] buffer) {
+        String prefix = negative ? negativePrefix : positivePrefix;
+        String suffix = negative ? negativeSuffix : positiveSuffix;
+
+        long integer = units / POWERS_OF_TEN[maximumFractionDigits];
+        long fraction = units % POWERS_OF_TEN[maximumFractionDigits];
+
+        int fractionDigits = maximumFractionDigits;
+
+        while (fractionDigits > minimumFractionDigits && fraction % 10 == 0) {
+            fraction /= 10;
+            fractionDigits--;
+        }
+
+        int integerDigits = Math.max(digitCount(integer), minimumIntegerDigits);
+
+        int length = prefix.length()
+                + integerDigits + (groupingSize > 0 ? (integerDigits - 1) / groupingSize : 0)
+                + (fractionDigits > 0 ? 1 + fractionDigits : 0)
+                + suffix.length();
+
+        prefix.getChars(0, prefix.length(), buffer, 0);
+        suffix.getChars(0, suffix.length(), buffer, length - suffix.length());
+
+        int i = length - suffix.length();
+
+        for (int k = 0; k < fractionDigits; k++) {
+            buffer[--i] = (char) (zeroDigit + fraction % 10);
+            fraction /= 10;
+        }
+
+        if (fractionDigits > 0) {
+            buffer[--i] = decimalSeparator;
+        }
+
+        for (int k = 0; k < integerDigits; k++) {
+            if (groupingSize > 0 && k > 0 && k % groupingSize == 0) {
+                buffer[--i] = groupingSeparator;
+            }
+
+            buffer[--i] = (char) (zeroDigit + integer % 10);
+            integer /= 10;
+        }
+
+        return length;
+    }
+
+    /**
+     * Counts the decimal digits of a number.
+     *
+     * @param value the non-negative number.
+     * @return the number of digits, 0 for zero.
+     */
+    private static int digitCount(final long value) {
+        int count = 0;
+
+        while (count < POWERS_OF_TEN.length && value >= POWERS_OF_TEN[count]) {
+            count++;
+        }
+
+        return count;
+    }
+
+    /**
+     * Get the widths of the characters this formatter produces in a font. The table is computed once per font and
+     * shared by every caller; keep a reference to it rather than looking it up for each amount.
+     *
+     * @param font the font.
+     * @return the width table.
+     */
+    public Widths getWidths(final BaseFont font) {
+        return widthTables.computeIfAbsent(font, Widths::new);
+    }
+
+    /**
+     * The widths of the characters a {@link CurrencyFormatter} produces in a font, in 1000 units, so that one table
+     * serves every font size.
+     */
+    public final class Widths {
+
+        /**
+         * The widths of characters below 256, indexed by character.
+         */
+        private final int[] latinWidths = new int[256];
+
+        /**
+         * The symbols at or above 256.
+         */
+        private final char[] otherSymbols;
+
+        /**
+         * The widths of the symbols at or above 256.
+         */
+        private final int[] otherWidths;
+
+        /**
+         * Constructs an instance of {@code Widths}.
+         *
+         * @param font the font.
+         */
+        private Widths(final BaseFont font) {
+            StringBuilder others = new StringBuilder();
+
+            for (int i = 0; i < 10 + symbols.length; i++) {
+                char c = i < 10 ? (char) (zeroDigit + i) : symbols[i - 10];
+
+                if (c < latinWidths.length) {
+                    latinWidths[c] = font.getWidth(c);
+                } else {
+                    others.append(c);
+                }
+            }
+
+            otherSymbols = others.toString().toCharArray();
+            otherWidths = new int[otherSymbols.length];
+
+            for (int i = 0; i < otherSymbols.length; i++) {
+                otherWidths[i] = font.getWidth(otherSymbols[i]);
+            }
+        }
+
+        /**
+         * Measures formatted text.
+         *
+         * @param buffer the buffer holding text formatted by the enclosing formatter.
+         * @param length the length of the text.
+         * @param fontSize the font size.
+         * @return the width of the text in points, equal to {@link BaseFont#getWidthPoint(String, float)}.
+         */
+        public float getWidthPoint(final char[] buffer, final int length, final float fontSize) {
+            int total = 0;
+
+            for (int i = 0; i < length; i++) {
+                char c = buffer[i];
+
+                total += c < latinWidths.length ? latinWidths[c] : getOtherWidth(c);
+            }
+
+            return total * 0.001f * fontSize;
+        }
+
+        /**
+         * Computes the x-coordinate at which to start writing formatted text for it to be aligned at a location.
+         *
+         * @param buffer the buffer holding text formatted by the enclosing formatter.
+         * @param length the length of the text.
+         * @param fontSize the font size.
+         * @param align the alignment.
+         * @param x the x-coordinate to align the text at.
+         * @return the x-coordinate of the start of the text.
+         */
+        public float getStartX(final char[] buffer, final int length, final float fontSize, final Alignment align, final float x) {
+            switch (align) {
+                case RIGHT:
+                    return x - getWidthPoint(buffer, length, fontSize);
+                case CENTER:
+                    return x - getWidthPoint(buffer, length, fontSize) / 2;
+                default:
+                    return x;
+            }
+        }
+
+        /**
+         * Get the width of a symbol at or above 256.
+         *
+         * @param c the symbol.
+         * @return the width.
+         */
+        private int getOtherWidth(final char c) {
+            for (int i = 0; i < otherSymbols.length; i++) {
+                if (otherSymbols[i] == c) {
+                    return otherWidths[i];
+                }
+            }
+
+            throw new IllegalArgumentException("Character [" + c + "] is not produced by this formatter");
+        }
+
+    }
+
+}
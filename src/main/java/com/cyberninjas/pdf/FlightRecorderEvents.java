@@ -0,0 +1,232 @@
+/*
+ * Copyright (C) 2015 Clifford Errickson
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.cyberninjas.pdf;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Emits JDK Flight Recorder events for opening, parsing, locating text in, stamping and writing documents, so latency
+ * in a recording can be tied to a specific document and page.
+ *
+ * <p>
+ * Each event is started by a {@code begin} method, which returns a handle, and is recorded by passing the handle and
+ * the event's details to the matching {@code commit} method. The events are defined in the
+ * {@code com.cyberninjas} namespace under the "Invoice Editor" category and are enabled with the usual JFR settings.
+ * The event classes are built by the {@code jfr} profile on JDKs that have Flight Recorder. On runtimes without the
+ * {@code jdk.jfr} module, or from builds without the event classes, handles are {@code null} and nothing is
+ * recorded.</p>
+ *
+ * @author Clifford Errickson
+ * @since 1.1
+ */
+public final class FlightRecorderEvents {
+
+    private static final Log log = LogFactory.getLog(FlightRecorderEvents.class);
+
+    /**
+     * Records the events, or {@code null} if Flight Recorder is not available.
+     */
+    private static final Recorder recorder = loadRecorder();
+
+    /**
+     * Not instantiable.
+     */
+    private FlightRecorderEvents() {
+    }
+
+    /**
+     * Determine if Flight Recorder is available to record events.
+     *
+     * @return true if events are recorded when enabled in a recording.
+     */
+    public static boolean isAvailable() {
+        return recorder != null;
+    }
+
+    /**
+     * Starts the event for opening a document.
+     *
+     * @return the handle for {@link #commitOpen(Object, PdfSource, int)}.
+     */
+    public static Object beginOpen() {
+        return recorder != null ? recorder.beginOpen() : null;
+    }
+
+    /**
+     * Records the event for opening a document.
+     *
+     * @param handle the handle returned by {@link #beginOpen()}.
+     * @param source the document.
+     * @param pages the number of pages.
+     */
+    public static void commitOpen(final Object handle, final PdfSource source, final int pages) {
+        if (handle != null) {
+            recorder.commitOpen(handle, source.getName(), pages, source.length());
+        }
+    }
+
+    /**
+     * Starts the event for parsing a page.
+     *
+     * @return the handle for {@link #commitParsePage(Object, PdfSource, int, int)}.
+     */
+    public static Object beginParsePage() {
+        return recorder != null ? recorder.beginParsePage() : null;
+    }
+
+    /**
+     * Records the event for parsing a page.
+     *
+     * @param handle the handle returned by {@link #beginParsePage()}.
+     * @param source the document.
+     * @param pageNum the page.
+     * @param textChunks the number of chunks of text found on the page.
+     */
+    public static void commitParsePage(final Object handle, final PdfSource source, final int pageNum, final int textChunks) {
+        if (handle != null) {
+            recorder.commitParsePage(handle, source.getName(), pageNum, textChunks);
+        }
+    }
+
+    /**
+     * Starts the event for locating text on a page.
+     *
+     * @return the handle for {@link #commitLocate(Object, int, int, int)}.
+     */
+    public static Object beginLocate() {
+        return recorder != null ? recorder.beginLocate() : null;
+    }
+
+    /**
+     * Records the event for locating text on a page.
+     *
+     * @param handle the handle returned by {@link #beginLocate()}.
+     * @param queries the number of strings searched for.
+     * @param matches the number of strings found.
+     * @param textChunks the number of chunks of text searched.
+     */
+    public static void commitLocate(final Object handle, final int queries, final int matches, final int textChunks) {
+        if (handle != null) {
+            recorder.commitLocate(handle, queries, matches, textChunks);
+        }
+    }
+
+    /**
+     * Starts the event for stamping text on a page.
+     *
+     * @return the handle for {@link #commitStamp(Object, PdfSource, int, int)}.
+     */
+    public static Object beginStamp() {
+        return recorder != null ? recorder.beginStamp() : null;
+    }
+
+    /**
+     * Records the event for stamping text on a page.
+     *
+     * @param handle the handle returned by {@link #beginStamp()}.
+     * @param source the document.
+     * @param pageNum the page.
+     * @param texts the number of texts stamped.
+     */
+    public static void commitStamp(final Object handle, final PdfSource source, final int pageNum, final int texts) {
+        if (handle != null) {
+            recorder.commitStamp(handle, source.getName(), pageNum, texts);
+        }
+    }
+
+    /**
+     * Starts the event for writing a document.
+     *
+     * @return the handle for {@link #commitWrite(Object, PdfSource, long)}.
+     */
+    public static Object beginWrite() {
+        return recorder != null ? recorder.beginWrite() : null;
+    }
+
+    /**
+     * Records the event for writing a document.
+     *
+     * @param handle the handle returned by {@link #beginWrite()}.
+     * @param source the document.
+     * @param bytes the number of bytes written.
+     */
+    public static void commitWrite(final Object handle, final PdfSource source, final long bytes) {
+        if (handle != null) {
+            recorder.commitWrite(handle, source.getName(), bytes);
+        }
+    }
+
+    /**
+     * Loads the recorder if the runtime has Flight Recorder. The recorder is loaded reflectively so that the event
+     * classes, which extend {@code jdk.jfr.Event}, are only linked when that class exists. The recorder is absent from
+     * builds made on a JDK without Flight Recorder.
+     *
+     * @return the recorder or {@code null} if Flight Recorder is not available.
+     */
+    private static Recorder loadRecorder() {
+        try {
+            Class.forName("jdk.jfr.Event");
+        } catch (ClassNotFoundException | LinkageError ex) {
+            return null;
+        }
+
+        Class<?> recorderClass;
+
+        try {
+            recorderClass = Class.forName(FlightRecorderEvents.class.getPackage().getName() + ".JfrRecorder");
+        } catch (ClassNotFoundException ex) {
+            return null;
+        }
+
+        try {
+            return (Recorder) recorderClass.getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError ex) {
+            log.warn("Flight Recorder events are disabled", ex);
+
+            return null;
+        }
+    }
+
+    /**
+     * Creates and records the events. Handles are the events themselves.
+     */
+    interface Recorder {
+
+        Object beginOpen();
+
+        void commitOpen(Object handle, String source, int pages, long bytes);
+
+        Object beginParsePage();
+
+        void commitParsePage(Object handle, String source, int pageNum, int textChunks);
+
+        Object beginLocate();
+
+        void commitLocate(Object handle, int queries, int matches, int textChunks);
+
+        Object beginStamp();
+
+        void commitStamp(Object handle, String source, int pageNum, int texts);
+
+        Object beginWrite();
+
+        void commitWrite(Object handle, String source, long bytes);
+
+    }
+
+}
@@ -0,0 +1,279 @@
+/*
+ * Copyright (C) 2015 Clifford Errickson
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.cyberninjas.pdf;
+
+import com.itextpdf.text.DocumentException;
+import com.itextpdf.text.pdf.BaseFont;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * A bounded, least-recently-used registry of embedded, subsetted fonts keyed by font path and encoding.
+ *
+ * <p>
+ * Each font file is read and parsed once, from memory, so writing a document never reopens the file. Names that are
+ * not a readable file, such as the built-in fonts, TrueType collection entries ({@code "file.ttc,1"}) and font
+ * resources on the classpath, are loaded by iText as {@link BaseFont#createFont(String, String, boolean)} would. A font
+ * instance only holds the parsed font program; the glyphs used and the subset prefix are tracked by each document's
+ * writer, so one instance is safe to use from concurrent editors and every document embeds its own subset. Fonts
+ * handed out must not be reconfigured, for example with {@link BaseFont#setSubset(boolean)}.</p>
+ *
+ * <p>
+ * Fonts are not registered in iText's own font cache, which is never evicted. Instances are safe to share between
+ * threads.</p>
+ *
+ * @author Clifford Errickson
+ * @since 1.1
+ */
+public class FontRegistry {
+
+    /**
+     * The default maximum number of fonts to keep.
+     */
+    public static final int DEFAULT_MAX_SIZE = 16;
+
+    /**
+     * The registry used when none is given.
+     */
+    private static volatile FontRegistry defaultRegistry = new FontRegistry(DEFAULT_MAX_SIZE);
+
+    /**
+     * The maximum number of fonts to keep.
+     */
+    private final int maxSize;
+
+    /**
+     * The fonts, loaded or loading, in access order.
+     */
+    private final Map<List<String>, CompletableFuture<BaseFont>> fonts;
+
+    /**
+     * The number of requests answered without loading a font.
+     */
+    private long hits;
+
+    /**
+     * The number of requests that loaded a font.
+     */
+    private long misses;
+
+    /**
+     * Constructs an instance of {@code FontRegistry}.
+     *
+     * @param maxSize the maximum number of fonts to keep.
+     */
+    public FontRegistry(final int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("The maximum size must be at least 1");
+        }
+
+        this.maxSize = maxSize;
+
+        fonts = new LinkedHashMap<List<String>, CompletableFuture<BaseFont>>(16, 0.75f, true) {
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<List<String>, CompletableFuture<BaseFont>> eldest) {
+                return size() > FontRegistry.this.maxSize;
+            }
+
+        };
+    }
+
+    /**
+     * Get the JVM-wide registry.
+     *
+     * @return the default registry.
+     */
+    public static FontRegistry getDefault() {
+        return defaultRegistry;
+    }
+
+    /**
+     * Replace the JVM-wide registry, for example to change how many fonts are kept.
+     *
+     * @param registry the new default registry.
+     */
+    public static void setDefault(final FontRegistry registry) {
+        if (registry == null) {
+            throw new IllegalArgumentException("The registry must not be null");
+        }
+
+        defaultRegistry = registry;
+    }
+
+    /**
+     * Get an embedded, subsetted font, loading it on first use. Concurrent requests for a font that is loading wait
+     * for the one load.
+     *
+     * @param path path to the font file, or the name of a built-in font or font resource.
+     * @param encoding the encoding, such as {@link BaseFont#WINANSI}.
+     * @return the font.
+     * @throws IOException on I/O error reading the font file.
+     */
+    public BaseFont getFont(final String path, final String encoding)
+            throws IOException {
+        List<String> key = Arrays.asList(path, encoding);
+
+        CompletableFuture<BaseFont> font;
+
+        boolean load;
+
+        synchronized (this) {
+            font = fonts.get(key);
+
+            load = font == null;
+
+            if (load) {
+                misses++;
+
+                font = new CompletableFuture();
+
+                fonts.put(key, font);
+            } else {
+                hits++;
+            }
+        }
+
+        if (load) {
+            try {
+                font.complete(load(path, encoding));
+            } catch (IOException | RuntimeException ex) {
+                synchronized (this) {
+                    fonts.remove(key, font);
+                }
+
+                font.completeExceptionally(ex);
+
+                throw ex;
+            }
+        }
+
+        try {
+            return font.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof IOException) {
+                throw (IOException) ex.getCause();
+            }
+
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+
+            throw ex;
+        }
+    }
+
+    /**
+     * Reads and parses a font. Font files are read into memory; anything else is left to iText to find.
+     *
+     * @param path path to the font file, or the name of a built-in font or font resource.
+     * @param encoding the encoding.
+     * @return the font.
+     * @throws IOException on I/O error reading the font file.
+     */
+    private static BaseFont load(final String path, final String encoding)
+            throws IOException {
+        byte[] bytes = null;
+
+        Path file = toFile(path);
+
+        if (file != null) {
+            bytes = Files.readAllBytes(file);
+        }
+
+        BaseFont font;
+
+        try {
+            font = BaseFont.createFont(path, encoding, BaseFont.EMBEDDED, false, bytes, null);
+        } catch (DocumentException ex) {
+            throw new PdfException("Failed to load font [" + path + "]", ex);
+        }
+
+        font.setSubset(true);
+
+        return font;
+    }
+
+    /**
+     * Resolves a font name to a readable regular file.
+     *
+     * @param path the font name.
+     * @return the file or {@code null} if the name is not a readable regular file.
+     */
+    private static Path toFile(final String path) {
+        try {
+            Path file = Paths.get(path);
+
+            return Files.isRegularFile(file) && Files.isReadable(file) ? file : null;
+        } catch (InvalidPathException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Get the maximum number of fonts to keep.
+     *
+     * @return the maximum number of fonts.
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Get the number of fonts kept.
+     *
+     * @return the number of fonts.
+     */
+    public synchronized int size() {
+        return fonts.size();
+    }
+
+    /**
+     * Get the number of requests answered without loading a font.
+     *
+     * @return the hit count.
+     */
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    /**
+     * Get the number of requests that loaded a font.
+     *
+     * @return the miss count.
+     */
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    /**
+     * Removes every font.
+     */
+    public synchronized void clear() {
+        fonts.clear();
+    }
+
+}
@@ -0,0 +1,284 @@
+/*
+ * Copyright (C) 2015 Clifford Errickson
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.cyberninjas.pdf;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A {@link MetricsListener} that keeps a histogram of the durations of each phase and a total of each count, in memory.
+ *
+ * <p>
+ * Durations are recorded in buckets that are 1/16 of a power of two wide, so percentiles are accurate to within about
+ * 6% using a few kilobytes per phase, however many durations are recorded. Recording is lock-free, so one listener may
+ * be shared by every editor in a process.</p>
+ *
+ * @author Clifford Errickson
+ * @since 1.1
+ */
+public class HistogramMetricsListener implements MetricsListener {
+
+    /**
+     * The histogram of each phase.
+     */
+    private final Map<Phase, Histogram> histograms = new EnumMap(Phase.class);
+
+    /**
+     * The total of each count.
+     */
+    private final Map<Count, LongAdder> totals = new EnumMap(Count.class);
+
+    /**
+     * Constructs an instance of {@code HistogramMetricsListener}.
+     */
+    public HistogramMetricsListener() {
+        for (Phase phase : Phase.values()) {
+            histograms.put(phase, new Histogram());
+        }
+
+        for (Count count : Count.values()) {
+            totals.put(count, new LongAdder());
+        }
+    }
+
+    @Override
+    public void onPhase(final Phase phase, final int pageNum, final long nanos) {
+        histograms.get(phase).record(nanos);
+    }
+
+    @Override
+    public void onCount(final Count count, final long value) {
+        totals.get(count).add(value);
+    }
+
+    /**
+     * Get the number of durations recorded for a phase.
+     *
+     * @param phase the phase.
+     * @return the number of durations.
+     */
+    public long getCount(final Phase phase) {
+        return histograms.get(phase).count.get();
+    }
+
+    /**
+     * Get the sum of the durations recorded for a phase.
+     *
+     * @param phase the phase.
+     * @return the sum in nanoseconds.
+     */
+    public long getTotalNanos(final Phase phase) {
+        return histograms.get(phase).sum.get();
+    }
+
+    /**
+     * Get the longest duration recorded for a phase.
+     *
+     * @param phase the phase.
+     * @return the longest duration in nanoseconds, or 0 if none are recorded.
+     */
+    public long getMaxNanos(final Phase phase) {
+        return histograms.get(phase).max.get();
+    }
+
+    /**
+     * Get a percentile of the durations recorded for a phase.
+     *
+     * @param phase the phase.
+     * @param percentile the percentile, from 0 to 100.
+     * @return the duration in nanoseconds that the given percentage of durations do not exceed, rounded up to the end
+     * of its bucket, or 0 if none are recorded.
+     */
+    public long getPercentileNanos(final Phase phase, final double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("Percentile must be from 0 to 100");
+        }
+
+        return histograms.get(phase).percentile(percentile);
+    }
+
+    /**
+     * Get the total of a count.
+     *
+     * @param count what was counted.
+     * @return the total.
+     */
+    public long getTotal(final Count count) {
+        return totals.get(count).sum();
+    }
+
+    /**
+     * Discards everything recorded so far. Durations and counts reported while resetting may be kept or discarded.
+     */
+    public void reset() {
+        for (Histogram histogram : histograms.values()) {
+            histogram.reset();
+        }
+
+        for (LongAdder total : totals.values()) {
+            total.reset();
+        }
+    }
+
+    /**
+     * Summarizes the durations of each phase in milliseconds and the total of each count.
+     *
+     * @return the summary, a line per phase and count.
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(String.format(Locale.US, "%-10s %10s %10s %10s %10s %10s%n", "phase", "count", "p50", "p90", "p99", "max"));
+
+        for (Phase phase : Phase.values()) {
+            sb.append(String.format(Locale.US, "%-10s %10d %10.3f %10.3f %10.3f %10.3f%n", phase, getCount(phase),
+                    getPercentileNanos(phase, 50) / 1e6, getPercentileNanos(phase, 90) / 1e6, getPercentileNanos(phase, 99) / 1e6, getMaxNanos(phase) / 1e6));
+        }
+
+        for (Count count : Count.values()) {
+            sb.append(String.format(Locale.US, "%-20s %10d%n", count, getTotal(count)));
+        }
+
+        return sb.toString();
+    }
+
+    /**
+     * A lock-free histogram of durations with buckets 1/16 of a power of two wide.
+     */
+    private static class Histogram {
+
+        /**
+         * The number of bits of a duration below its highest bit that select its bucket.
+         */
+        private static final int SUB_BUCKET_BITS = 4;
+
+        private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+        /**
+         * The number of durations in each bucket.
+         */
+        private final AtomicLongArray buckets = new AtomicLongArray(SUB_BUCKETS * (64 - SUB_BUCKET_BITS));
+
+        private final AtomicLong count = new AtomicLong();
+
+        private final AtomicLong sum = new AtomicLong();
+
+        private final AtomicLong max = new AtomicLong();
+
+        /**
+         * Records a duration.
+         *
+         * @param nanos the duration in nanoseconds; negative durations are recorded as 0.
+         */
+        void record(final long nanos) {
+            long value = Math.max(0, nanos);
+
+            buckets.incrementAndGet(indexOf(value));
+
+            count.incrementAndGet();
+            sum.addAndGet(value);
+
+            long previous;
+
+            while (value > (previous = max.get()) && !max.compareAndSet(previous, value)) {
+                // retry
+            }
+        }
+
+        /**
+         * Determine the duration a percentage of the recorded durations do not exceed.
+         *
+         * @param percentile the percentile, from 0 to 100.
+         * @return the end of the bucket holding the duration, no more than the maximum, or 0 if none are recorded.
+         */
+        long percentile(final double percentile) {
+            long total = count.get();
+
+            if (total == 0) {
+                return 0;
+            }
+
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+
+            long seen = 0;
+
+            for (int i = 0; i < buckets.length(); i++) {
+                seen += buckets.get(i);
+
+                if (seen >= rank) {
+                    return Math.min(upperBoundOf(i), max.get());
+                }
+            }
+
+            return max.get();
+        }
+
+        /**
+         * Discards the recorded durations.
+         */
+        void reset() {
+            for (int i = 0; i < buckets.length(); i++) {
+                buckets.set(i, 0);
+            }
+
+            count.set(0);
+            sum.set(0);
+            max.set(0);
+        }
+
+        /**
+         * Determine the bucket of a duration.
+         *
+         * @param value the duration, not negative.
+         * @return the index of the bucket.
+         */
+        static int indexOf(final long value) {
+            if (value < SUB_BUCKETS) {
+                return (int) value;
+            }
+
+            int exponent = 63 - Long.numberOfLeadingZeros(value);
+
+            int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+
+            return SUB_BUCKETS + (exponent - SUB_BUCKET_BITS) * SUB_BUCKETS + subBucket;
+        }
+
+        /**
+         * Determine the largest duration of a bucket.
+         *
+         * @param index the index of the bucket.
+         * @return the largest duration.
+         */
+        static long upperBoundOf(final int index) {
+            if (index < SUB_BUCKETS) {
+                return index;
+            }
+
+            int shift = (index - SUB_BUCKETS) / SUB_BUCKETS;
+
+            long lowerBound = (long) (SUB_BUCKETS + (index - SUB_BUCKETS) % SUB_BUCKETS) << shift;
+
+            return lowerBound + (1L << shift) - 1;
+        }
+
+    }
+
+}
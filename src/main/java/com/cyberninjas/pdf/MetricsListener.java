@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2015 Clifford Errickson
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.cyberninjas.pdf;
+
+/**
+ * Receives timings and counts from {@link PdfEditor} and its subclasses as a document is opened, parsed, stamped and
+ * serialized.
+ *
+ * <p>
+ * A listener may be set for all editors with {@link PdfEditor#setDefaultMetricsListener(MetricsListener)} or for one
+ * editor with {@link PdfEditor#setMetricsListener(MetricsListener)}. Without a listener, editors do not read the
+ * clock. A listener may be called from several threads at once, when it is shared by editors or pages are parsed
+ * concurrently, and should return quickly.</p>
+ *
+ * @author Clifford Errickson
+ * @since 1.1
+ * @see HistogramMetricsListener
+ */
+public interface MetricsListener {
+
+    /**
+     * A phase of editing a document.
+     */
+    enum Phase {
+
+        /**
+         * Opening the reader over the source, for the whole document.
+         */
+        OPEN,
+        /**
+         * Extracting the text of a page.
+         */
+        EXTRACT,
+        /**
+         * Locating labels, ItemIds or reference text in the extracted text of a page.
+         */
+        LOCATE,
+        /**
+         * Writing text to a page.
+         */
+        STAMP,
+        /**
+         * Completing the document and writing it out, for the whole document.
+         */
+        SERIALIZE
+
+    }
+
+    /**
+     * A quantity counted while editing a document.
+     */
+    enum Count {
+
+        /**
+         * The pages of a document, reported when it is opened.
+         */
+        PAGES,
+        /**
+         * The text chunks extracted from a page.
+         */
+        TEXT_CHUNKS,
+        /**
+         * The ItemIds whose amounts were written.
+         */
+        RESOLVED_ITEM_IDS,
+        /**
+         * The ItemIds whose amounts could not be written because they were not located.
+         */
+        UNRESOLVED_ITEM_IDS,
+        /**
+         * The bytes of a completed document.
+         */
+        OUTPUT_BYTES
+
+    }
+
+    /**
+     * Reports the duration of a phase.
+     *
+     * @param phase the phase.
+     * @param pageNum the page, or 0 for phases of the whole document.
+     * @param nanos the duration in nanoseconds.
+     */
+    void onPhase(Phase phase, int pageNum, long nanos);
+
+    /**
+     * Reports a count.
+     *
+     * @param count what was counted.
+     * @param value the count.
+     */
+    void onCount(Count count, long value);
+
+}
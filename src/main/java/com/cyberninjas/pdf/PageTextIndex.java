@@ -0,0 +1,521 @@
+/*
+ * Copyright (C) 2015 Clifford Errickson
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.cyberninjas.pdf;
+
+import com.cyberninjas.pdf.TextChunkExtractionStrategy.TextChunk;
+import com.itextpdf.text.pdf.parser.Vector;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * An index over the chunks of a page in a {@link TextChunkStore}, grouping them into lines and supporting location
+ * based lookups.
+ *
+ * <p>
+ * Each line is assembled once, with the offset of every chunk within its text, so text searches and the mapping of a
+ * match back to the chunks containing it do not re-derive lines from neighbouring chunks. Chunks are read from the
+ * store by index; {@link TextChunk} views are only created for callers that ask for them.</p>
+ *
+ * <p>
+ * Horizontal lines are kept sorted by baseline and their chunks by horizontal position so rectangle and nearest-text
+ * lookups are answered with binary searches rather than a scan of the page. Text in any other orientation is kept
+ * aside and checked individually.</p>
+ *
+ * <p>
+ * The index reads the store it was built over, so it is only valid until the store is changed.</p>
+ *
+ * @author Clifford Errickson
+ * @since 1.1
+ */
+public class PageTextIndex {
+
+    /**
+     * The lines of text in chunk order.
+     */
+    private final List<Line> lines;
+
+    /**
+     * The positions in {@link #lines} of the horizontal lines, sorted by baseline.
+     */
+    private final int[] horizontalLines;
+
+    /**
+     * The baseline of each of the {@link #horizontalLines}.
+     */
+    private final float[] baselines;
+
+    /**
+     * The positions in {@link #lines} of the lines in any other orientation.
+     */
+    private final int[] otherLines;
+
+    /**
+     * Constructs an instance of {@code PageTextIndex}.
+     *
+     * @param store the chunks of the page, sorted as by {@link TextChunkStore#sort()}.
+     * @param wordBoundary decides whether a space separates adjacent chunks on a line.
+     */
+    public PageTextIndex(final TextChunkStore store, final WordBoundary wordBoundary) {
+        List<Line> lineList = new ArrayList();
+        List<Line> horizontalList = new ArrayList();
+        List<Line> otherList = new ArrayList();
+
+        // the offset of each chunk's text within the text of its line
+        int[] offsets = new int[store.size()];
+
+        StringBuilder sb = new StringBuilder();
+
+        int lineStart = 0;
+
+        while (lineStart < store.size()) {
+            sb.setLength(0);
+
+            int lineEnd = lineStart;
+
+            do {
+                if (lineEnd > lineStart
+                        && wordBoundary.isSpaceBetween(lineEnd - 1, lineEnd)) {
+                    sb.append(' ');
+                }
+
+                offsets[lineEnd] = sb.length();
+
+                store.appendText(lineEnd, sb);
+
+                lineEnd++;
+            } while (lineEnd < store.size() && store.sameLine(lineEnd, lineEnd - 1));
+
+            Line line = new Line(store, offsets, sb.toString(), lineList.size(), lineStart, lineEnd);
+
+            lineList.add(line);
+
+            (line.isHorizontal() ? horizontalList : otherList).add(line);
+
+            lineStart = lineEnd;
+        }
+
+        lines = Collections.unmodifiableList(lineList);
+
+        horizontalList.sort(Comparator.comparingDouble(Line::getBaseline));
+
+        horizontalLines = new int[horizontalList.size()];
+        baselines = new float[horizontalList.size()];
+
+        for (int i = 0; i < horizontalLines.length; i++) {
+            horizontalLines[i] = horizontalList.get(i).position;
+            baselines[i] = horizontalList.get(i).getBaseline();
+        }
+
+        otherLines = new int[otherList.size()];
+
+        for (int i = 0; i < otherLines.length; i++) {
+            otherLines[i] = otherList.get(i).position;
+        }
+    }
+
+    /**
+     * Get the lines of text in chunk order.
+     *
+     * @return the lines of text in chunk order.
+     */
+    public List<Line> getLines() {
+        return lines;
+    }
+
+    /**
+     * Retrieves the {@link TextChunk}s whose baseline lies within the given rectangle.
+     *
+     * @param llx the lower left x-coordinate.
+     * @param lly the lower left y-coordinate.
+     * @param urx the upper right x-coordinate.
+     * @param ury the upper right y-coordinate.
+     * @return the chunks within the rectangle, ordered by baseline then horizontal position.
+     */
+    public List<TextChunk> findText(final float llx, final float lly, final float urx, final float ury) {
+        List<TextChunk> textChunkList = new ArrayList();
+
+        for (int i = lowerBound(baselines, 0, baselines.length, lly); i < baselines.length && baselines[i] <= ury; i++) {
+            Line line = lines.get(horizontalLines[i]);
+
+            for (int chunk = line.firstRightOf(llx); chunk < line.end && line.store.getStartX(chunk) <= urx; chunk++) {
+                if (line.store.getEndX(chunk) >= llx) {
+                    textChunkList.add(line.store.getTextChunk(chunk));
+                }
+            }
+        }
+
+        for (int position : otherLines) {
+            Line line = lines.get(position);
+
+            for (int chunk = line.first; chunk < line.end; chunk++) {
+                if (line.isWithin(chunk, llx, lly, urx, ury)) {
+                    textChunkList.add(line.store.getTextChunk(chunk));
+                }
+            }
+        }
+
+        return textChunkList;
+    }
+
+    /**
+     * Retrieves the lines with a chunk whose baseline lies within the given rectangle, as {@link #findText} finds
+     * them.
+     *
+     * @param llx the lower left x-coordinate.
+     * @param lly the lower left y-coordinate.
+     * @param urx the upper right x-coordinate.
+     * @param ury the upper right y-coordinate.
+     * @return the lines within the rectangle, in the order of {@link #getLines()}.
+     */
+    public List<Line> findLines(final float llx, final float lly, final float urx, final float ury) {
+        List<Line> lineList = new ArrayList();
+
+        for (int i = lowerBound(baselines, 0, baselines.length, lly); i < baselines.length && baselines[i] <= ury; i++) {
+            Line line = lines.get(horizontalLines[i]);
+
+            int chunk = line.firstRightOf(llx);
+
+            if (chunk < line.end && line.store.getStartX(chunk) <= urx) {
+                lineList.add(line);
+            }
+        }
+
+        for (int position : otherLines) {
+            Line line = lines.get(position);
+
+            for (int chunk = line.first; chunk < line.end; chunk++) {
+                if (line.isWithin(chunk, llx, lly, urx, ury)) {
+                    lineList.add(line);
+
+                    break;
+                }
+            }
+        }
+
+        lineList.sort(Comparator.comparingInt((line) -> line.position));
+
+        return lineList;
+    }
+
+    /**
+     * Retrieves the first {@link TextChunk} starting at or to the right of the given x-coordinate on the horizontal
+     * line whose baseline is closest to the given y-coordinate.
+     *
+     * @param x the x-coordinate.
+     * @param y the y-coordinate.
+     * @param tolerance the maximum vertical distance between the y-coordinate and the baseline.
+     * @return the nearest chunk or {@code null} if there is none.
+     */
+    public TextChunk findNearestRightOf(final float x, final float y, final float tolerance) {
+        Line nearest = null;
+
+        for (int i = lowerBound(baselines, 0, baselines.length, y - tolerance); i < baselines.length && baselines[i] <= y + tolerance; i++) {
+            if (nearest == null
+                    || Math.abs(baselines[i] - y) < Math.abs(nearest.getBaseline() - y)) {
+                nearest = lines.get(horizontalLines[i]);
+            }
+        }
+
+        if (nearest == null) {
+            return null;
+        }
+
+        int low = nearest.first;
+        int high = nearest.end;
+
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+
+            if (nearest.store.getStartX(mid) < x) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+
+        return low < nearest.end ? nearest.store.getTextChunk(low) : null;
+    }
+
+    /**
+     * Find the index of the first value not less than the given key.
+     *
+     * @param values values sorted within the range.
+     * @param from the start of the range (inclusive).
+     * @param to the end of the range (exclusive).
+     * @param key the key.
+     * @return the index of the first value in the range not less than the key, or {@code to} if there is none.
+     */
+    private static int lowerBound(final float[] values, final int from, final int to, final float key) {
+        int low = from;
+        int high = to;
+
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+
+            if (values[mid] < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+
+        return low;
+    }
+
+    /**
+     * Decides whether a space should separate two adjacent chunks on a line.
+     */
+    public interface WordBoundary {
+
+        /**
+         * Determine if a space should be inserted between two adjacent chunks.
+         *
+         * @param previousChunk the index of the earlier chunk in the store.
+         * @param chunk the index of the later chunk in the store.
+         * @return true if a space should be inserted, false otherwise.
+         */
+        boolean isSpaceBetween(int previousChunk, int chunk);
+
+    }
+
+    /**
+     * A line of text: the chunks sharing an orientation and baseline, and the text assembled from them.
+     */
+    public static class Line {
+
+        /**
+         * the store holding the chunks of the line
+         */
+        private final TextChunkStore store;
+
+        /**
+         * the offset of each chunk's text within the assembled text of its line, indexed as the store
+         */
+        private final int[] offsets;
+
+        /**
+         * the assembled text of the line
+         */
+        private final String text;
+
+        /**
+         * the position of the line in the index
+         */
+        private final int position;
+
+        /**
+         * the index of the first chunk of the line in the store
+         */
+        private final int first;
+
+        /**
+         * the index after the last chunk of the line in the store
+         */
+        private final int end;
+
+        /**
+         * the running maximum of the chunk end x-coordinates of a horizontal line, indexed from the first chunk
+         */
+        private final float[] maxEndX;
+
+        private Line(final TextChunkStore store, final int[] offsets, final String text, final int position, final int first, final int end) {
+            this.store = store;
+            this.offsets = offsets;
+            this.text = text;
+            this.position = position;
+            this.first = first;
+            this.end = end;
+
+            if (isHorizontal()) {
+                maxEndX = new float[end - first];
+
+                for (int i = 0; i < maxEndX.length; i++) {
+                    float endX = Math.max(store.getStartX(first + i), store.getEndX(first + i));
+
+                    maxEndX[i] = i > 0 ? Math.max(maxEndX[i - 1], endX) : endX;
+                }
+            } else {
+                maxEndX = null;
+            }
+        }
+
+        /**
+         * @return the assembled text of the line
+         */
+        public String getText() {
+            return text;
+        }
+
+        /**
+         * @return views of the chunks of the line in order
+         */
+        public List<TextChunk> getTextChunks() {
+            return new AbstractList<TextChunk>() {
+
+                @Override
+                public TextChunk get(final int i) {
+                    return getTextChunk(i);
+                }
+
+                @Override
+                public int size() {
+                    return Line.this.size();
+                }
+
+            };
+        }
+
+        /**
+         * @return the number of chunks in the line
+         */
+        public int size() {
+            return end - first;
+        }
+
+        /**
+         * @param i the position of the chunk within the line
+         * @return the index of the chunk in the store
+         */
+        public int getChunkIndex(final int i) {
+            return first + i;
+        }
+
+        /**
+         * @param i the position of the chunk within the line
+         * @return a view of the chunk
+         */
+        public TextChunk getTextChunk(final int i) {
+            return store.getTextChunk(first + i);
+        }
+
+        /**
+         * @param i the position of the chunk within the line
+         * @return the offset of the chunk's text within the assembled text
+         */
+        public int getOffset(final int i) {
+            return offsets[first + i];
+        }
+
+        /**
+         * @return a view of the first chunk of the line
+         */
+        public TextChunk getFirstTextChunk() {
+            return store.getTextChunk(first);
+        }
+
+        /**
+         * @return a view of the last chunk of the line
+         */
+        public TextChunk getLastTextChunk() {
+            return store.getTextChunk(end - 1);
+        }
+
+        /**
+         * @return the y-coordinate of the start of the line
+         */
+        public float getBaseline() {
+            return store.getStartY(first);
+        }
+
+        /**
+         * @return the y-coordinate of the end of the line
+         */
+        public float getEndY() {
+            return store.getEndY(end - 1);
+        }
+
+        /**
+         * @return true if the text of the line runs left to right along the x-axis
+         */
+        public boolean isHorizontal() {
+            return store.getOrientationMagnitude(first) == 0;
+        }
+
+        /**
+         * Find the first chunk of a horizontal line that ends at or to the right of the given x-coordinate.
+         *
+         * @param x the x-coordinate.
+         * @return the index of the chunk in the store, or the index after the line if there is none.
+         */
+        private int firstRightOf(final float x) {
+            return first + lowerBound(maxEndX, 0, maxEndX.length, x);
+        }
+
+        /**
+         * Determine if a chunk of the line lies within a rectangle.
+         *
+         * @param chunk the index of the chunk in the store.
+         * @param llx the lower left x-coordinate.
+         * @param lly the lower left y-coordinate.
+         * @param urx the upper right x-coordinate.
+         * @param ury the upper right y-coordinate.
+         * @return true if the chunk's bounds overlap the rectangle, false otherwise.
+         */
+        private boolean isWithin(final int chunk, final float llx, final float lly, final float urx, final float ury) {
+            return Math.max(store.getStartX(chunk), store.getEndX(chunk)) >= llx
+                    && Math.min(store.getStartX(chunk), store.getEndX(chunk)) <= urx
+                    && Math.max(store.getStartY(chunk), store.getEndY(chunk)) >= lly
+                    && Math.min(store.getStartY(chunk), store.getEndY(chunk)) <= ury;
+        }
+
+        /**
+         * Find the chunk containing the character at the given index of the assembled text.
+         *
+         * @param index the index of the character.
+         * @return the position of the containing chunk within the line.
+         */
+        public int chunkAt(final int index) {
+            int i = Arrays.binarySearch(offsets, first, end, index);
+
+            if (i < 0) {
+                i = -i - 2;
+            }
+
+            // chunks with empty text share an offset with the chunk that follows them
+            while (i + 1 < end && offsets[i + 1] == offsets[i]) {
+                i++;
+            }
+
+            return i - first;
+        }
+
+        /**
+         * Creates a {@link TextChunk} spanning the chunks that contain the given range of the assembled text.
+         *
+         * @param start the start index (inclusive).
+         * @param end the end index (exclusive).
+         * @return a chunk from the start of the first containing chunk to the end of the last.
+         */
+        public TextChunk span(final int start, final int end) {
+            int startChunk = first + chunkAt(start);
+            int endChunk = first + chunkAt(Math.max(start, end - 1));
+
+            int textEnd = endChunk + 1 < this.end ? offsets[endChunk + 1] : text.length();
+
+            return new TextChunk(text.substring(offsets[startChunk], textEnd),
+                    new Vector(store.getStartX(startChunk), store.getStartY(startChunk), store.getStartZ(startChunk)),
+                    new Vector(store.getEndX(endChunk), store.getEndY(endChunk), store.getEndZ(endChunk)),
+                    store.getCharSpaceWidth(endChunk));
+        }
+
+    }
+
+}
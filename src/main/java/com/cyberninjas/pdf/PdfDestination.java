@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2015 Clifford Errickson
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.cyberninjas.pdf;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Where a {@link PdfEditor} writes its output as it stamps, instead of buffering the whole document in memory.
+ *
+ * <p>
+ * Streams and channels supplied by the caller are left open when the editor is closed. Files are opened when the
+ * editor is constructed and closed with it.</p>
+ *
+ * @author Clifford Errickson
+ * @since 1.1
+ */
+public abstract class PdfDestination {
+
+    /**
+     * Constructs an instance of {@code PdfDestination}.
+     */
+    private PdfDestination() {
+    }
+
+    /**
+     * A destination that writes to an output stream, which is not closed.
+     *
+     * @param os the output stream.
+     * @return the destination.
+     */
+    public static PdfDestination of(final OutputStream os) {
+        return new PdfDestination() {
+
+            @Override
+            OutputStream open() {
+                return os;
+            }
+
+            @Override
+            void close() {
+                // owned by the caller
+            }
+
+        };
+    }
+
+    /**
+     * A destination that writes to a channel, which is not closed.
+     *
+     * @param channel the channel.
+     * @return the destination.
+     */
+    public static PdfDestination of(final WritableByteChannel channel) {
+        return new PdfDestination() {
+
+            @Override
+            OutputStream open() {
+                return Channels.newOutputStream(channel);
+            }
+
+            @Override
+            void close() {
+                // owned by the caller
+            }
+
+        };
+    }
+
+    /**
+     * A destination that writes to a file through a {@link FileChannel}, creating or truncating it.
+     *
+     * @param path the file.
+     * @return the destination.
+     */
+    public static PdfDestination of(final Path path) {
+        return new PdfDestination() {
+
+            private FileChannel channel;
+
+            @Override
+            OutputStream open()
+                    throws IOException {
+                channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+
+                return Channels.newOutputStream(channel);
+            }
+
+            @Override
+            void close()
+                    throws IOException {
+                if (channel != null) {
+                    channel.close();
+                }
+            }
+
+        };
+    }
+
+    /**
+     * Opens the destination for writing. Called once.
+     *
+     * @return the stream to write to.
+     * @throws IOException on I/O error opening the destination.
+     */
+    abstract OutputStream open()
+            throws IOException;
+
+    /**
+     * Releases the destination once writing is finished or abandoned.
+     *
+     * @throws IOException on I/O error closing the destination.
+     */
+    abstract void close()
+            throws IOException;
+
+}
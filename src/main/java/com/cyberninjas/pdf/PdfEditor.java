@@ -23,8 +23,16 @@ import com.itextpdf.text.pdf.PdfContentByte;
 import com.itextpdf.text.pdf.PdfReader;
 import com.itextpdf.text.pdf.PdfStamper;
 import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
 /**
  * An base class for parsing and writing content to existing PDF files.
@@ -32,7 +40,22 @@ import java.io.OutputStream;
  * @author Clifford Errickson
  * @since 1.0
  */
-public abstract class PdfEditor {
+public abstract class PdfEditor implements Closeable {
+
+    /**
+     * The metrics listener of editors constructed from now on, or {@code null}.
+     */
+    private static volatile MetricsListener defaultMetricsListener;
+
+    /**
+     * The PDF source.
+     */
+    private final PdfSource source;
+
+    /**
+     * The SHA-256 hash of the source bytes, computed on first use.
+     */
+    private String sourceHash;
 
     /**
      * For reading PDF source file.
@@ -45,27 +68,133 @@ public abstract class PdfEditor {
     private final PdfStamper stamper;
 
     /**
-     * A stream for buffering PDF content before outputting.
+     * A stream for buffering PDF content before outputting, or {@code null} if content is streamed to a destination.
      */
     private final ByteArrayOutputStream baos;
 
     /**
-     * Constructs an instance of {@code PdfEditor}.
+     * The destination content is streamed to, or {@code null} if content is buffered.
+     */
+    private final PdfDestination destination;
+
+    /**
+     * Whether the stamper and reader have been closed.
+     */
+    private boolean closed;
+
+    /**
+     * Receives timings and counts, or {@code null}.
+     */
+    private MetricsListener metricsListener;
+
+    /**
+     * Constructs an instance of {@code PdfEditor} that buffers its output for {@link #writeTo(OutputStream)}.
      *
      * @param src the source PDF file location.
      * @throws IOException on I/O error reading PDF source file.
      */
     public PdfEditor(final String src)
             throws IOException {
-        reader = new PdfReader(src);
+        this(src, null);
+    }
+
+    /**
+     * Constructs an instance of {@code PdfEditor}. The source is read by iText as {@link PdfReader#PdfReader(String)}
+     * does, see {@link PdfSource#location(String)}.
+     *
+     * <p>
+     * With a destination, content is written to it as it is stamped and the document is completed by
+     * {@link #close()}, so the output is never held in memory as a whole.</p>
+     *
+     * @param src the source PDF file location.
+     * @param destination where to write content, or {@code null} to buffer it for {@link #writeTo(OutputStream)}.
+     * @throws IOException on I/O error reading PDF source file or opening the destination.
+     * @since 1.1
+     */
+    public PdfEditor(final String src, final PdfDestination destination)
+            throws IOException {
+        this(PdfSource.location(src), destination);
+    }
+
+    /**
+     * Constructs an instance of {@code PdfEditor}.
+     *
+     * @param source the PDF source.
+     * @param destination where to write content, or {@code null} to buffer it for {@link #writeTo(OutputStream)}.
+     * @throws IOException on I/O error reading PDF source or opening the destination.
+     * @since 1.1
+     */
+    public PdfEditor(final PdfSource source, final PdfDestination destination)
+            throws IOException {
+        this(source, null, destination);
+    }
 
-        baos = new ByteArrayOutputStream();
+    /**
+     * Constructs an instance of {@code PdfEditor} over a copy of a template's reader, so the document is not read
+     * again.
+     *
+     * @param template the template.
+     * @param destination where to write content, or {@code null} to buffer it for {@link #writeTo(OutputStream)}.
+     * @throws IOException on I/O error opening the destination.
+     * @since 1.1
+     */
+    public PdfEditor(final PdfTemplate template, final PdfDestination destination)
+            throws IOException {
+        this(template.getSource(), template, destination);
+    }
+
+    /**
+     * Constructs an instance of {@code PdfEditor}.
+     *
+     * @param source the PDF source.
+     * @param template the template to copy the reader of, or {@code null} to read the source.
+     * @param destination where to write content, or {@code null} to buffer it for {@link #writeTo(OutputStream)}.
+     * @throws IOException on I/O error reading PDF source or opening the destination.
+     */
+    private PdfEditor(final PdfSource source, final PdfTemplate template, final PdfDestination destination)
+            throws IOException {
+        this.source = source;
+
+        metricsListener = defaultMetricsListener;
+
+        long start = startPhase();
+
+        Object event = FlightRecorderEvents.beginOpen();
+
+        reader = template != null ? template.newReader() : source.openReader();
+
+        endPhase(MetricsListener.Phase.OPEN, 0, start);
+
+        FlightRecorderEvents.commitOpen(event, source, reader.getNumberOfPages());
+
+        count(MetricsListener.Count.PAGES, reader.getNumberOfPages());
+
+        this.destination = destination;
+
+        OutputStream os;
+
+        if (destination == null) {
+            baos = new ByteArrayOutputStream();
+
+            os = baos;
+        } else {
+            baos = null;
+
+            os = destination.open();
+        }
 
         try {
-            stamper = new PdfStamper(reader, baos);
+            stamper = new PdfStamper(reader, os);
         } catch (DocumentException ex) {
+            if (destination != null) {
+                destination.close();
+            }
+
             throw new PdfException("Failed to iniatialize PdfStamper", ex);
         }
+
+        // the destination decides whether its stream is closed
+        stamper.getWriter().setCloseStream(false);
     }
 
     /**
@@ -77,6 +206,64 @@ public abstract class PdfEditor {
         return reader;
     }
 
+    /**
+     * Opens a new, independent {@link PdfReader} over the PDF source file.
+     *
+     * <p>
+     * The reader shares the source with this editor but not its state, so it may be used on another thread. It
+     * reads partially, loading objects only as they are needed, and should be closed when no longer needed.</p>
+     *
+     * @return a new {@link PdfReader} for the PDF source file.
+     * @throws IOException on I/O error reading PDF source file.
+     */
+    protected PdfReader openReader()
+            throws IOException {
+        return source.openPartialReader();
+    }
+
+    /**
+     * Get the PDF source.
+     *
+     * @return the PDF source.
+     * @since 1.1
+     */
+    protected PdfSource getSource() {
+        return source;
+    }
+
+    /**
+     * Get a hash of the content of the PDF source file.
+     *
+     * @return the SHA-256 hash of the PDF source file in hexadecimal.
+     */
+    protected String getSourceHash() {
+        if (sourceHash == null) {
+            MessageDigest digest;
+
+            try {
+                digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException ex) {
+                throw new PdfException("SHA-256 is not available", ex);
+            }
+
+            try {
+                source.digest(digest);
+            } catch (IOException ex) {
+                throw new PdfException("Failed to read PDF source", ex);
+            }
+
+            StringBuilder sb = new StringBuilder();
+
+            for (byte b : digest.digest()) {
+                sb.append(String.format("%02x", b));
+            }
+
+            sourceHash = sb.toString();
+        }
+
+        return sourceHash;
+    }
+
     /**
      * Get {@link PdfStamper} for the PDF destination file.
      *
@@ -86,6 +273,88 @@ public abstract class PdfEditor {
         return stamper;
     }
 
+    /**
+     * Set the metrics listener of editors constructed from now on. Each editor keeps the listener it was constructed
+     * with, so opening the reader is reported, until {@link #setMetricsListener(MetricsListener)} is called.
+     *
+     * @param metricsListener the metrics listener or {@code null} to report nothing.
+     * @since 1.1
+     */
+    public static void setDefaultMetricsListener(final MetricsListener metricsListener) {
+        defaultMetricsListener = metricsListener;
+    }
+
+    /**
+     * Get the metrics listener of editors constructed from now on.
+     *
+     * @return the metrics listener or {@code null} if none is set.
+     * @since 1.1
+     */
+    public static MetricsListener getDefaultMetricsListener() {
+        return defaultMetricsListener;
+    }
+
+    /**
+     * Set the metrics listener of this editor.
+     *
+     * @param metricsListener the metrics listener or {@code null} to report nothing.
+     * @since 1.1
+     */
+    public void setMetricsListener(final MetricsListener metricsListener) {
+        this.metricsListener = metricsListener;
+    }
+
+    /**
+     * Get the metrics listener of this editor.
+     *
+     * @return the metrics listener or {@code null} if none is set.
+     * @since 1.1
+     */
+    public MetricsListener getMetricsListener() {
+        return metricsListener;
+    }
+
+    /**
+     * Starts timing a phase, reading the clock only if there is a metrics listener.
+     *
+     * @return the start time for {@link #endPhase(MetricsListener.Phase, int, long)}.
+     * @since 1.1
+     */
+    protected final long startPhase() {
+        return metricsListener != null ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Reports the duration of a phase to the metrics listener, if any.
+     *
+     * @param phase the phase.
+     * @param pageNum the page, or 0 for phases of the whole document.
+     * @param start the time returned by {@link #startPhase()}.
+     * @since 1.1
+     */
+    protected final void endPhase(final MetricsListener.Phase phase, final int pageNum, final long start) {
+        MetricsListener listener = metricsListener;
+
+        if (listener != null && start != 0) {
+            listener.onPhase(phase, pageNum, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Reports a count to the metrics listener, if any.
+     *
+     * @param count what was counted.
+     * @param value the count.
+     * @since 1.1
+     */
+    protected final void count(final MetricsListener.Count count, final long value) {
+        MetricsListener listener = metricsListener;
+
+        if (listener != null) {
+            listener.onCount(count, value);
+        }
+    }
+
     /**
      * Write text to a PDF in given format.
      *
@@ -99,31 +368,139 @@ public abstract class PdfEditor {
      * @param z the rotation.
      */
     protected void writeText(final int pageNum, final String text, final BaseFont font, final int size, final Alignment align, final float x, final float y, final float z) {
+        long start = startPhase();
+
+        Object event = FlightRecorderEvents.beginStamp();
+
         PdfContentByte canvas = stamper.getOverContent(pageNum);
 
         canvas.beginText();
         canvas.setFontAndSize(font, size);
         canvas.showTextAligned(convertHorizontalAlignment(align), text, x, y, z);
         canvas.endText();
+
+        endPhase(MetricsListener.Phase.STAMP, pageNum, start);
+
+        FlightRecorderEvents.commitStamp(event, source, pageNum, 1);
     }
 
     /**
-     * Write the PDF bytes to an output stream.
+     * Write texts to a PDF in the given font, emitting a single text object per page with the font set once.
+     *
+     * @param texts the texts to write, in any page order.
+     * @param font to use.
+     * @param size the size of font.
+     */
+    protected void writeTexts(final Collection<PlacedText> texts, final BaseFont font, final int size) {
+        Map<Integer, List<PlacedText>> pageTexts = new TreeMap();
+
+        for (PlacedText text : texts) {
+            pageTexts.computeIfAbsent(text.getPageNum(), (pageNum) -> new ArrayList()).add(text);
+        }
+
+        for (Map.Entry<Integer, List<PlacedText>> entry : pageTexts.entrySet()) {
+            long start = startPhase();
+
+            Object event = FlightRecorderEvents.beginStamp();
+
+            PdfContentByte canvas = stamper.getOverContent(entry.getKey());
+
+            canvas.beginText();
+            canvas.setFontAndSize(font, size);
+
+            for (PlacedText text : entry.getValue()) {
+                canvas.showTextAligned(convertHorizontalAlignment(text.getAlign()), text.getText(), text.getX(), text.getY(), text.getZ());
+            }
+
+            canvas.endText();
+
+            endPhase(MetricsListener.Phase.STAMP, entry.getKey(), start);
+
+            FlightRecorderEvents.commitStamp(event, source, entry.getKey(), entry.getValue().size());
+        }
+    }
+
+    /**
+     * Write the PDF bytes to an output stream. Only for editors constructed without a destination.
      *
      * @param os the {@code OutputStream} to write content to.
      * @throws IOException on I/O error
      */
     public void writeTo(final OutputStream os)
             throws IOException {
+        if (destination != null) {
+            throw new IllegalStateException("Content is written to the destination given at construction; call close()");
+        }
+
+        long start = startPhase();
+
+        Object event = FlightRecorderEvents.beginWrite();
+
+        finish();
+
+        baos.writeTo(os);
+
+        endPhase(MetricsListener.Phase.SERIALIZE, 0, start);
+
+        FlightRecorderEvents.commitWrite(event, source, baos.size());
+    }
+
+    /**
+     * Completes the document and releases the source. If the editor was constructed with a destination, the document
+     * is finished there and the destination is released; otherwise any content not yet written with
+     * {@link #writeTo(OutputStream)} is discarded. Closing more than once has no effect.
+     *
+     * @throws IOException on I/O error writing to the destination.
+     * @since 1.1
+     */
+    @Override
+    public void close()
+            throws IOException {
+        if (closed) {
+            return;
+        }
+
+        if (destination == null) {
+            closed = true;
+
+            reader.close();
+
+            return;
+        }
+
+        long start = startPhase();
+
+        Object event = FlightRecorderEvents.beginWrite();
+
+        try {
+            finish();
+        } finally {
+            destination.close();
+        }
+
+        endPhase(MetricsListener.Phase.SERIALIZE, 0, start);
+
+        FlightRecorderEvents.commitWrite(event, source, stamper.getWriter().getOs().getCounter());
+    }
+
+    /**
+     * Closes the stamper, completing the document, and the reader.
+     *
+     * @throws IOException on I/O error writing content.
+     */
+    private void finish()
+            throws IOException {
+        closed = true;
+
         try {
             stamper.close();
         } catch (DocumentException ex) {
             throw new PdfException("Failed to close PdfStamper", ex);
+        } finally {
+            reader.close();
         }
 
-        reader.close();
-
-        baos.writeTo(os);
+        count(MetricsListener.Count.OUTPUT_BYTES, stamper.getWriter().getOs().getCounter());
     }
 
     /**
@@ -0,0 +1,351 @@
+/*
+ * Copyright (C) 2015 Clifford Errickson
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.cyberninjas.pdf;
+
+import com.itextpdf.text.io.RandomAccessSource;
+import com.itextpdf.text.io.RandomAccessSourceFactory;
+import com.itextpdf.text.pdf.PdfReader;
+import com.itextpdf.text.pdf.RandomAccessFileOrArray;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.Arrays;
+
+/**
+ * The bytes of a PDF document for a {@link PdfEditor} to read.
+ *
+ * <p>
+ * A source is either read fully, parsing every object when the editor is constructed, or partially, loading objects
+ * only when a page is parsed or stamped. A source may also name a location that iText reads itself, as
+ * {@link PdfReader#PdfReader(String)} does. Sources may be shared by any number of editors and threads.</p>
+ *
+ * @author Clifford Errickson
+ * @since 1.1
+ */
+public final class PdfSource {
+
+    /**
+     * The bytes of the document, from position 0 to the limit, or {@code null} for a source read from a location.
+     */
+    private final ByteBuffer buffer;
+
+    /**
+     * The file path or URL the document is read from, or {@code null} for a source over bytes.
+     */
+    private final String location;
+
+    /**
+     * Whether editors read the document partially.
+     */
+    private final boolean partial;
+
+    /**
+     * Identifies the document in diagnostics, or {@code null}.
+     */
+    private final String name;
+
+    /**
+     * Constructs an instance of {@code PdfSource}.
+     *
+     * @param buffer the bytes of the document, from position 0 to the limit.
+     * @param partial whether editors read the document partially.
+     * @param name identifies the document in diagnostics, or {@code null}.
+     */
+    private PdfSource(final ByteBuffer buffer, final boolean partial, final String name) {
+        this(buffer, null, partial, name);
+    }
+
+    /**
+     * Constructs an instance of {@code PdfSource}.
+     *
+     * @param buffer the bytes of the document, from position 0 to the limit, or {@code null}.
+     * @param location the file path or URL of the document, or {@code null}.
+     * @param partial whether editors read the document partially.
+     * @param name identifies the document in diagnostics, or {@code null}.
+     */
+    private PdfSource(final ByteBuffer buffer, final String location, final boolean partial, final String name) {
+        this.buffer = buffer;
+        this.location = location;
+        this.partial = partial;
+        this.name = name;
+    }
+
+    /**
+     * A source read fully from a file path or URL by iText, as {@link PdfReader#PdfReader(String)} does. The bytes of
+     * the document are not held by the source; readers opened for parsing on other threads read the location again,
+     * partially.
+     *
+     * @param location the file path or URL.
+     * @return the source.
+     */
+    public static PdfSource location(final String location) {
+        return new PdfSource(null, location, false, location);
+    }
+
+    /**
+     * A source read fully from a byte array. The array is used directly, without copying, and must not be modified
+     * while in use.
+     *
+     * @param bytes the bytes of the document.
+     * @return the source.
+     */
+    public static PdfSource of(final byte[] bytes) {
+        return new PdfSource(ByteBuffer.wrap(bytes), false, null);
+    }
+
+    /**
+     * A source over the remaining bytes of a buffer, which are used directly, without copying, and must not be
+     * modified while in use. The buffer's position and limit are not changed.
+     *
+     * <p>
+     * A heap buffer that spans its whole backing array is read fully, like a byte array. Any other buffer, such as a
+     * slice or a direct buffer, is read partially, since reading it fully would require a copy.</p>
+     *
+     * @param buffer the bytes of the document, from the buffer's position to its limit.
+     * @return the source.
+     */
+    public static PdfSource of(final ByteBuffer buffer) {
+        ByteBuffer slice = buffer.slice();
+
+        return new PdfSource(slice, !isWholeArray(slice), null);
+    }
+
+    /**
+     * A source read fully from a stream, which is read to its end but not closed.
+     *
+     * @param is the stream.
+     * @return the source.
+     * @throws IOException on I/O error reading the stream.
+     */
+    public static PdfSource of(final InputStream is)
+            throws IOException {
+        byte[] bytes = new byte[Math.max(is.available(), 8192)];
+
+        int length = 0;
+
+        for (int n; (n = is.read(bytes, length, bytes.length - length)) >= 0;) {
+            length += n;
+
+            if (length == bytes.length) {
+                int next = is.read();
+
+                if (next < 0) {
+                    break;
+                }
+
+                bytes = Arrays.copyOf(bytes, bytes.length * 2);
+                bytes[length++] = (byte) next;
+            }
+        }
+
+        return of(length == bytes.length ? bytes : Arrays.copyOf(bytes, length));
+    }
+
+    /**
+     * A source read fully from a file, as by {@link Files#readAllBytes(Path)}. Use {@link #map(Path)} for large files.
+     *
+     * @param path the file.
+     * @return the source.
+     * @throws IOException on I/O error reading the file.
+     */
+    public static PdfSource of(final Path path)
+            throws IOException {
+        return new PdfSource(ByteBuffer.wrap(Files.readAllBytes(path)), false, path.toString());
+    }
+
+    /**
+     * A source that memory-maps a file and reads it partially. The file is not read into the heap, and only the parts
+     * of it that pages being parsed or stamped refer to are touched. The file must not be modified while in use.
+     *
+     * @param path the file, smaller than 2 GB.
+     * @return the source.
+     * @throws IOException on I/O error mapping the file.
+     */
+    public static PdfSource map(final Path path)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("File [" + path + "] is too large to map");
+            }
+
+            // the mapping stays valid after the channel is closed
+            return new PdfSource(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), true, path.toString());
+        }
+    }
+
+    /**
+     * A source over the same bytes, read the same way, identified by the given name in diagnostics such as Flight
+     * Recorder events.
+     *
+     * @param name the name, for example where the document was loaded from.
+     * @return the source.
+     */
+    public PdfSource withName(final String name) {
+        return new PdfSource(buffer, location, partial, name);
+    }
+
+    /**
+     * Get the name that identifies the document in diagnostics. Sources of files are named by their path.
+     *
+     * @return the name or {@code null} if the source is not named.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Determine if editors read the document partially.
+     *
+     * @return true if objects are loaded when needed, false if the document is read fully.
+     */
+    public boolean isPartial() {
+        return partial;
+    }
+
+    /**
+     * Get the length of the document.
+     *
+     * @return the length in bytes, or -1 if the source is read from a location other than a local file.
+     */
+    public long length() {
+        if (location != null) {
+            File file = new File(location);
+
+            return file.isFile() ? file.length() : -1;
+        }
+
+        return buffer.limit();
+    }
+
+    /**
+     * Opens a reader over the document, reading it fully or partially according to this source.
+     *
+     * @return a new reader.
+     * @throws IOException on I/O error reading the document.
+     */
+    PdfReader openReader()
+            throws IOException {
+        if (location != null) {
+            return new PdfReader(location);
+        }
+
+        if (!partial && isWholeArray(buffer)) {
+            return new PdfReader(buffer.array());
+        }
+
+        return openPartialReader();
+    }
+
+    /**
+     * Opens a reader over the document that loads every object up front, so that it can be copied with
+     * {@link PdfReader#PdfReader(PdfReader)}. Documents not held in a whole array are copied into one first.
+     *
+     * @return a new reader.
+     * @throws IOException on I/O error reading the document.
+     */
+    PdfReader openFullReader()
+            throws IOException {
+        if (location != null) {
+            return new PdfReader(location);
+        }
+
+        if (isWholeArray(buffer)) {
+            return new PdfReader(buffer.array());
+        }
+
+        byte[] bytes = new byte[buffer.limit()];
+
+        buffer.duplicate().get(bytes);
+
+        return new PdfReader(bytes);
+    }
+
+    /**
+     * Opens a reader over the document that loads objects only as they are needed.
+     *
+     * @return a new reader.
+     * @throws IOException on I/O error reading the document.
+     */
+    PdfReader openPartialReader()
+            throws IOException {
+        if (location != null) {
+            return new PdfReader(new RandomAccessFileOrArray(createLocationSource()), null);
+        }
+
+        return new PdfReader(new RandomAccessFileOrArray(new ByteBufferSource(buffer)), null);
+    }
+
+    /**
+     * Opens the location of the document as {@link PdfReader#PdfReader(String)} does, mapping local files rather than
+     * reading them into the heap.
+     *
+     * @return the source of the document's bytes.
+     * @throws IOException on I/O error opening the location.
+     */
+    private RandomAccessSource createLocationSource()
+            throws IOException {
+        return new RandomAccessSourceFactory().setForceRead(false).createBestSource(location);
+    }
+
+    /**
+     * Determine if a buffer spans the whole of an accessible backing array.
+     *
+     * @param buffer the buffer, from position 0 to the limit.
+     * @return true if the buffer's array holds exactly its bytes, false otherwise.
+     */
+    private static boolean isWholeArray(final ByteBuffer buffer) {
+        return buffer.hasArray() && buffer.arrayOffset() == 0 && buffer.limit() == buffer.array().length;
+    }
+
+    /**
+     * Adds the bytes of the document to a digest.
+     *
+     * @param digest the digest.
+     * @throws IOException on I/O error reading the location of the document.
+     */
+    void digest(final MessageDigest digest)
+            throws IOException {
+        if (location == null) {
+            digest.update(buffer.duplicate());
+
+            return;
+        }
+
+        RandomAccessSource ras = createLocationSource();
+
+        try {
+            byte[] bytes = new byte[8192];
+
+            long position = 0;
+
+            for (int n; (n = ras.get(position, bytes, 0, bytes.length)) > 0;) {
+                digest.update(bytes, 0, n);
+
+                position += n;
+            }
+        } finally {
+            ras.close();
+        }
+    }
+
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2015 Clifford Errickson
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.cyberninjas.pdf;
+
+import com.itextpdf.text.pdf.PdfReader;
+import java.io.IOException;
+
+/**
+ * A document read once to be edited many times, for example a blank form filled with different values for each
+ * output.
+ *
+ * <p>
+ * The document is read fully when the template is constructed. Each {@link PdfEditor} constructed from the template
+ * edits a copy of the parsed object structure, which shares the document bytes but not the cross-reference table
+ * parsing and object tokenizing. The template itself is never edited, so instances are safe to share between threads
+ * and editors may be constructed and used concurrently.</p>
+ *
+ * @author Clifford Errickson
+ * @since 1.1
+ */
+public class PdfTemplate {
+
+    /**
+     * The PDF source.
+     */
+    private final PdfSource source;
+
+    /**
+     * The fully read document, only ever copied.
+     */
+    private final PdfReader reader;
+
+    /**
+     * Constructs an instance of {@code PdfTemplate}. Sources that are read partially, such as memory-mapped files, are
+     * copied into memory.
+     *
+     * @param source the PDF source.
+     * @throws IOException on I/O error reading PDF source.
+     */
+    public PdfTemplate(final PdfSource source)
+            throws IOException {
+        this.source = source;
+        this.reader = source.openFullReader();
+    }
+
+    /**
+     * Get the PDF source.
+     *
+     * @return the PDF source.
+     */
+    public PdfSource getSource() {
+        return source;
+    }
+
+    /**
+     * Get the number of pages of the document.
+     *
+     * @return the number of pages.
+     */
+    public int getNumberOfPages() {
+        return reader.getNumberOfPages();
+    }
+
+    /**
+     * Copies the parsed document for an editor.
+     *
+     * @return a new reader, independent of the template and of other copies.
+     */
+    PdfReader newReader() {
+        return new PdfReader(reader);
+    }
+
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2015 Clifford Errickson
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.cyberninjas.pdf;
+
+/**
+ * Text to write at a location on a page.
+ *
+ * @author Clifford Errickson
+ * @since 1.1
+ */
+public class PlacedText {
+
+    /**
+     * The page to write to.
+     */
+    private final int pageNum;
+
+    /**
+     * The text to write.
+     */
+    private final String text;
+
+    /**
+     * The alignment.
+     */
+    private final Alignment align;
+
+    /**
+     * The x-coordinate.
+     */
+    private final float x;
+
+    /**
+     * The y-coordinate.
+     */
+    private final float y;
+
+    /**
+     * The rotation.
+     */
+    private final float z;
+
+    /**
+     * Constructs an instance of {@code PlacedText}.
+     *
+     * @param pageNum the page to write to.
+     * @param text the text to write.
+     * @param align the alignment.
+     * @param x the x-coordinate.
+     * @param y the y-coordinate.
+     * @param z the rotation.
+     */
+    public PlacedText(final int pageNum, final String text, final Alignment align, final float x, final float y, final float z) {
+        this.pageNum = pageNum;
+        this.text = text;
+        this.align = align;
+        this.x = x;
+        this.y = y;
+        this.z = z;
+    }
+
+    /**
+     * Get the page to write to.
+     *
+     * @return the page to write to.
+     */
+    public int getPageNum() {
+        return pageNum;
+    }
+
+    /**
+     * Get the text to write.
+     *
+     * @return the text to write.
+     */
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * Get the alignment.
+     *
+     * @return the alignment.
+     */
+    public Alignment getAlign() {
+        return align;
+    }
+
+    /**
+     * Get the x-coordinate.
+     *
+     * @return the x-coordinate.
+     */
+    public float getX() {
+        return x;
+    }
+
+    /**
+     * Get the y-coordinate.
+     *
+     * @return the y-coordinate.
+     */
+    public float getY() {
+        return y;
+    }
+
+    /**
+     * Get the rotation.
+     *
+     * @return the rotation.
+     */
+    public float getZ() {
+        return z;
+    }
+
+}
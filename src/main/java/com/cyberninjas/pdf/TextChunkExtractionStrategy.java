@@ -16,6 +16,7 @@
  */
 package com.cyberninjas.pdf;
 
+import com.itextpdf.text.Rectangle;
 import com.itextpdf.text.pdf.parser.ImageRenderInfo;
 import com.itextpdf.text.pdf.parser.LineSegment;
 import com.itextpdf.text.pdf.parser.LocationTextExtractionStrategy;
@@ -24,8 +25,13 @@ import com.itextpdf.text.pdf.parser.RenderListener;
 import com.itextpdf.text.pdf.parser.TextRenderInfo;
 import com.itextpdf.text.pdf.parser.Vector;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * A base class for extracting {@link TextChunk}s (text and its location) from a PDF source file.
@@ -39,9 +45,57 @@ import java.util.List;
 public class TextChunkExtractionStrategy implements RenderListener {
 
     /**
-     * A list of text chunks found in the document.
+     * The names of the word boundary hooks taking text or chunk objects that each class overrides.
      */
-    private final List<TextChunk> textChunks = new ArrayList();
+    private static final ClassValue<Set<String>> OVERRIDDEN_HOOKS = new ClassValue<Set<String>>() {
+
+        @Override
+        protected Set<String> computeValue(final Class<?> type) {
+            Set<String> hooks = new HashSet();
+
+            for (Class<?> c = type; c != TextChunkExtractionStrategy.class; c = c.getSuperclass()) {
+                addIfDeclared(hooks, c, "startsWithSpace", String.class);
+                addIfDeclared(hooks, c, "endsWithSpace", String.class);
+                addIfDeclared(hooks, c, "isChunkAtWordBoundary", TextChunk.class, TextChunk.class);
+            }
+
+            return hooks;
+        }
+
+    };
+
+    /**
+     * The word boundary hooks taking text or chunk objects that this strategy overrides.
+     */
+    private final Set<String> overriddenHooks = OVERRIDDEN_HOOKS.get(getClass());
+
+    /**
+     * The text chunks found in the document.
+     */
+    private final TextChunkStore textChunkStore = new TextChunkStore();
+
+    /**
+     * Views of the text chunks found in the document, created on first use after extraction.
+     */
+    private List<TextChunk> textChunks;
+
+    /**
+     * An index over the text chunks, built on first use after extraction.
+     */
+    private PageTextIndex pageTextIndex;
+
+    /**
+     * Discards the chunks of text found so far so the strategy can extract another page. The storage grown for the
+     * chunks is kept for reuse.
+     *
+     * @since 1.1
+     */
+    public void reset() {
+        textChunkStore.clear();
+
+        textChunks = null;
+        pageTextIndex = null;
+    }
 
     /**
      * @see com.itextpdf.text.pdf.parser.RenderListener#beginTextBlock()
@@ -55,20 +109,87 @@ public class TextChunkExtractionStrategy implements RenderListener {
      */
     @Override
     public void endTextBlock() {
-        Collections.sort(textChunks);
+        // chunks are sorted once, when first retrieved
+    }
+
+    /**
+     * Retrieve the store of the chunks of text that were found, sorted in reading order.
+     *
+     * @return the store of the chunks of text that were found.
+     */
+    protected TextChunkStore getTextChunkStore() {
+        textChunkStore.sort();
+
+        return textChunkStore;
     }
 
     /**
-     * Retrieve the chunks of text that were found.
+     * Retrieve views of the chunks of text that were found, sorted in reading order. The views read the store, so
+     * they are only valid until the strategy is reset.
      *
      * @return the chunks of text that were found.
      */
     protected List<TextChunk> getTextChunks() {
+        if (textChunks == null) {
+            textChunkStore.sort();
+
+            textChunks = new ArrayList(textChunkStore.size());
+
+            for (int i = 0; i < textChunkStore.size(); i++) {
+                textChunks.add(textChunkStore.getTextChunk(i));
+            }
+        }
+
         return textChunks;
     }
 
+    /**
+     * Get the number of chunks of text that were found.
+     *
+     * @return the number of chunks of text.
+     * @since 1.1
+     */
+    public int getTextChunkCount() {
+        return textChunkStore.size();
+    }
+
+    /**
+     * Retrieve an index of the lines of text that were found.
+     *
+     * @return an index of the lines of text that were found.
+     */
+    public PageTextIndex getPageTextIndex() {
+        if (pageTextIndex == null) {
+            // we only insert a blank space if the trailing character of the previous string wasn't a space, and the leading character of the current string isn't a space
+            pageTextIndex = new PageTextIndex(getTextChunkStore(), (previousChunk, chunk) -> isChunkAtWordBoundary(chunk, previousChunk)
+                    && !startsWithSpace(chunk)
+                    && !endsWithSpace(previousChunk));
+        }
+
+        return pageTextIndex;
+    }
+
     @Override
     public void renderText(TextRenderInfo renderInfo) {
+        LineSegment segment = getBaseline(renderInfo);
+
+        Vector start = segment.getStartPoint();
+        Vector end = segment.getEndPoint();
+
+        textChunkStore.add(renderInfo.getText(), start.get(Vector.I1), start.get(Vector.I2), start.get(Vector.I3), end.get(Vector.I1), end.get(Vector.I2), end.get(Vector.I3), renderInfo.getSingleSpaceWidth());
+
+        textChunks = null;
+        pageTextIndex = null;
+    }
+
+    /**
+     * Get the baseline that text is located by, with any rise removed.
+     *
+     * @param renderInfo the text.
+     * @return the baseline of the text.
+     * @since 1.1
+     */
+    protected static LineSegment getBaseline(final TextRenderInfo renderInfo) {
         LineSegment segment = renderInfo.getBaseline();
 
         if (renderInfo.getRise() != 0) {
@@ -76,7 +197,7 @@ public class TextChunkExtractionStrategy implements RenderListener {
             segment = segment.transformBy(new Matrix(0, -renderInfo.getRise()));
         }
 
-        textChunks.add(new TextChunk(renderInfo.getText(), segment.getStartPoint(), segment.getEndPoint(), renderInfo.getSingleSpaceWidth()));
+        return segment;
     }
 
     /**
@@ -90,7 +211,8 @@ public class TextChunkExtractionStrategy implements RenderListener {
     }
 
     /**
-     * Determine if string starts with a space.
+     * Determine if string starts with a space. Lines are assembled from the stored chunks without creating strings; if
+     * a subclass overrides this method it is called with the text of each chunk instead.
      *
      * @param str the string.
      * @return true if the string starts with a space character, false if the string is empty or starts with a non-space
@@ -104,7 +226,8 @@ public class TextChunkExtractionStrategy implements RenderListener {
     }
 
     /**
-     * Determine if string ends with a space.
+     * Determine if string ends with a space. Lines are assembled from the stored chunks without creating strings; if a
+     * subclass overrides this method it is called with the text of each chunk instead.
      *
      * @param str the string.
      * @return true if the string ends with a space character, false if the string is empty or ends with a non-space
@@ -117,6 +240,38 @@ public class TextChunkExtractionStrategy implements RenderListener {
         return str.charAt(str.length() - 1) == ' ';
     }
 
+    /**
+     * Determine if the text of a stored chunk starts with a space.
+     *
+     * @param chunk the index of the chunk.
+     * @return true if the text starts with a space character, false if it is empty or starts with a non-space character
+     */
+    private boolean startsWithSpace(final int chunk) {
+        if (overriddenHooks.contains("startsWithSpace")) {
+            return startsWithSpace(textChunkStore.getText(chunk));
+        }
+
+        return textChunkStore.getTextLength(chunk) > 0
+                && textChunkStore.charAt(chunk, 0) == ' ';
+    }
+
+    /**
+     * Determine if the text of a stored chunk ends with a space.
+     *
+     * @param chunk the index of the chunk.
+     * @return true if the text ends with a space character, false if it is empty or ends with a non-space character
+     */
+    private boolean endsWithSpace(final int chunk) {
+        if (overriddenHooks.contains("endsWithSpace")) {
+            return endsWithSpace(textChunkStore.getText(chunk));
+        }
+
+        int length = textChunkStore.getTextLength(chunk);
+
+        return length > 0
+                && textChunkStore.charAt(chunk, length - 1) == ' ';
+    }
+
     /**
      * Determines if a space character should be inserted between a previous chunk and the current chunk. This method is
      * exposed as a callback so subclasses can fine time the algorithm for determining whether a space should be
@@ -125,6 +280,10 @@ public class TextChunkExtractionStrategy implements RenderListener {
      * indicate that a space is needed if the starting point of the new chunk appears *before* the end of the previous
      * chunk (i.e. overlapping text).
      *
+     * <p>
+     * Lines are assembled with {@link #isChunkAtWordBoundary(int, int)}, which calls this method with views of the
+     * chunks when a subclass overrides it.</p>
+     *
      * @param chunk the new chunk being evaluated
      * @param previousChunk the chunk that appeared immediately before the current chunk
      * @return true if the two chunks represent different words (i.e. should have a space between them). False
@@ -153,76 +312,113 @@ public class TextChunkExtractionStrategy implements RenderListener {
     }
 
     /**
-     * Retrieves all {@link TextChunk}s matching the given text.
+     * Determines if a space character should be inserted between two stored chunks, as
+     * {@link #isChunkAtWordBoundary(TextChunk, TextChunk)} does for chunk objects. Lines are assembled with this method
+     * so that no chunk objects are created. If a subclass overrides
+     * {@link #isChunkAtWordBoundary(TextChunk, TextChunk)} and not this method, that method is called with views of the
+     * chunks.
      *
-     * Note: Because iText has no concept of "words" this may return coordinates that represent a block of text
-     * containing the desired text, not necessarily the text itself.
-     *
-     * @param str the text to match
-     * @return the list of {@link TextChunk}s for the matching text.
+     * @param chunk the index of the new chunk being evaluated
+     * @param previousChunk the index of the chunk that appeared immediately before the current chunk
+     * @return true if the two chunks represent different words (i.e. should have a space between them). False
+     * otherwise.
+     * @since 1.1
      */
-    public List<TextChunk> matchAllText(final String str) {
-        if (str == null
-                || str.isEmpty()) {
-            return null;
+    protected boolean isChunkAtWordBoundary(final int chunk, final int previousChunk) {
+        if (overriddenHooks.contains("isChunkAtWordBoundary")) {
+            return isChunkAtWordBoundary(textChunkStore.getTextChunk(chunk), textChunkStore.getTextChunk(previousChunk));
         }
 
-        List<TextChunk> textChunkList = new ArrayList();
+        float charSpaceWidth = textChunkStore.getCharSpaceWidth(chunk);
 
-        StringBuilder sb = new StringBuilder();
+        // see isChunkAtWordBoundary(TextChunk, TextChunk) for chunks with a character spacing close to zero
+        if (charSpaceWidth < 0.1f) {
+            return false;
+        }
 
-        Vector startLocation = null;
+        float dist = textChunkStore.distanceFromEndOf(chunk, previousChunk);
+
+        return dist < -charSpaceWidth || dist > charSpaceWidth / 2.0f;
+    }
 
-        TextChunk lastChunk = null;
+    /**
+     * Determine if the given text is found ending at the given location. Only lines ending level with the location are
+     * searched, found through the {@link PageTextIndex} rather than by a scan of the page.
+     *
+     * @param str the text.
+     * @param endLocation the end location of a {@link TextChunk} matching the text.
+     * @return true if the text is found ending at the location, false otherwise.
+     * @since 1.1
+     */
+    public boolean isTextAt(final String str, final Vector endLocation) {
+        return getLineTextTo(str, endLocation) != null;
+    }
 
-        for (TextChunk chunk : getTextChunks()) {
-            if (lastChunk == null) {
-                if (eitherContainsText(chunk.getText(), str)) {
-                    sb.append(chunk.getText());
+    /**
+     * Get the text of the line that the given text is found ending at the given location on, from the start of the
+     * line to the end of the text. Only lines ending level with the location are searched, as for
+     * {@link #isTextAt(String, Vector)}.
+     *
+     * @param str the text.
+     * @param endLocation the end location of a {@link TextChunk} matching the text.
+     * @return the text of the line up to and including the text or {@code null} if the text is not found ending at the
+     * location.
+     * @since 1.1
+     */
+    public String getLineTextTo(final String str, final Vector endLocation) {
+        float y = endLocation.get(Vector.I2);
 
-                    startLocation = chunk.getStartLocation();
+        for (PageTextIndex.Line line : getPageTextIndex().findLines(-Float.MAX_VALUE, y - 1, Float.MAX_VALUE, y + 1)) {
+            if (Math.abs(line.getEndY() - y) > 1) {
+                continue;
+            }
 
-                    lastChunk = chunk;
-                }
-            } else {
-                if (chunk.sameLine(lastChunk)) {
-                    // we only insert a blank space if the trailing character of the previous string wasn't a space, and the leading character of the current string isn't a space
-                    if (isChunkAtWordBoundary(chunk, lastChunk) && !startsWithSpace(chunk.getText()) && !endsWithSpace(lastChunk.getText())) {
-                        sb.append(' ');
-                    }
-
-                    sb.append(chunk.getText());
-
-                    if (eitherContainsText(sb.toString(), str)) {
-                        lastChunk = chunk;
-                    } else {
-                        lastChunk = null;
-                        sb.delete(0, sb.length());
-                        startLocation = null;
-                    }
-                } else {
-                    lastChunk = null;
-                    sb.delete(0, sb.length());
-                    startLocation = null;
-
-                    if (eitherContainsText(chunk.getText(), str)) {
-                        sb.append(chunk.getText());
-
-                        startLocation = chunk.getStartLocation();
-                        lastChunk = chunk;
-                    }
+            for (int start = line.getText().indexOf(str); start >= 0; start = line.getText().indexOf(str, start + 1)) {
+                if (endLocation.equals(line.span(start, start + str.length()).getEndLocation())) {
+                    return line.getText().substring(0, start + str.length());
                 }
             }
+        }
 
-            if (sb.toString().contains(str)) {
-                textChunkList.add(new TextChunk(sb.toString(), startLocation, chunk.getEndLocation(), chunk.getCharSpaceWidth()));
+        return null;
+    }
 
-                sb.delete(0, sb.length());
-                startLocation = null;
-            }
+    /**
+     * Adds the name of a method to a set if a class declares it.
+     *
+     * @param names the set of names.
+     * @param type the class.
+     * @param name the name of the method.
+     * @param parameterTypes the parameter types of the method.
+     */
+    private static void addIfDeclared(final Set<String> names, final Class<?> type, final String name, final Class<?>... parameterTypes) {
+        try {
+            type.getDeclaredMethod(name, parameterTypes);
+
+            names.add(name);
+        } catch (NoSuchMethodException ex) {
+            // not overridden here
+        }
+    }
+
+    /**
+     * Retrieves all {@link TextChunk}s matching the given text.
+     *
+     * Note: Because iText has no concept of "words" this may return coordinates that represent a block of text
+     * containing the desired text, not necessarily the text itself.
+     *
+     * @param str the text to match
+     * @return the list of {@link TextChunk}s for the matching text.
+     */
+    public List<TextChunk> matchAllText(final String str) {
+        if (str == null
+                || str.isEmpty()) {
+            return null;
         }
 
-        return textChunkList;
+        List<TextChunk> textChunkList = matchAllText(Collections.singleton(str)).get(str);
+
+        return textChunkList != null ? textChunkList : new ArrayList();
     }
 
     /**
@@ -240,94 +436,200 @@ public class TextChunkExtractionStrategy implements RenderListener {
             return null;
         }
 
-        StringBuilder sb = new StringBuilder();
+        return matchText(Collections.singleton(str)).get(str);
+    }
 
-        Vector startLocation = null;
+    /**
+     * Retrieves the first {@link TextChunk} matching each of the given strings in a single pass over the text.
+     *
+     * Note: Because iText has no concept of "words" this may return coordinates that represent a block of text
+     * containing the desired text, not necessarily the text itself.
+     *
+     * @param strs the strings to match
+     * @return a map of each matched string to the {@link TextChunk} of its first match. Strings that are not found are
+     * not included.
+     */
+    public Map<String, TextChunk> matchText(final Collection<String> strs) {
+        return matchText(strs, null);
+    }
 
-        TextChunk lastChunk = null;
+    /**
+     * Retrieves the first {@link TextChunk} matching each of the given strings within a region of the page. Only the
+     * lines with text in the region, found through the {@link PageTextIndex}, are searched, so a small region is
+     * searched without a scan of the page.
+     *
+     * Note: Because iText has no concept of "words" this may return coordinates that represent a block of text
+     * containing the desired text, not necessarily the text itself.
+     *
+     * @param strs the strings to match
+     * @param region the region to search or {@code null} to search the whole page. Matches are reported if their
+     * baseline overlaps the region.
+     * @return a map of each matched string to the {@link TextChunk} of its first match. Strings that are not found are
+     * not included.
+     * @since 1.1
+     */
+    public Map<String, TextChunk> matchText(final Collection<String> strs, final Rectangle region) {
+        final Map<String, TextChunk> textChunkMap = new HashMap();
 
-        for (TextChunk chunk : getTextChunks()) {
-            if (lastChunk == null) {
-                if (eitherContainsText(chunk.getText(), str)) {
-                    sb.append(chunk.getText());
+        final TextMatcher matcher = new TextMatcher(strs);
 
-                    startLocation = chunk.getStartLocation();
+        if (matcher.isEmpty()) {
+            return textChunkMap;
+        }
 
-                    lastChunk = chunk;
-                }
-            } else {
-                if (chunk.sameLine(lastChunk)) {
-                    // we only insert a blank space if the trailing character of the previous string wasn't a space, and the leading character of the current string isn't a space
-                    if (isChunkAtWordBoundary(chunk, lastChunk) && !startsWithSpace(chunk.getText()) && !endsWithSpace(lastChunk.getText())) {
-                        sb.append(' ');
-                    }
-
-                    sb.append(chunk.getText());
-
-                    if (eitherContainsText(sb.toString(), str)) {
-                        lastChunk = chunk;
-                    } else {
-                        lastChunk = null;
-                        sb.delete(0, sb.length());
-                        startLocation = null;
-                    }
-                } else {
-                    lastChunk = null;
-                    sb.delete(0, sb.length());
-                    startLocation = null;
-
-                    if (eitherContainsText(chunk.getText(), str)) {
-                        sb.append(chunk.getText());
-
-                        startLocation = chunk.getStartLocation();
-                        lastChunk = chunk;
-                    }
-                }
-            }
+        Object event = FlightRecorderEvents.beginLocate();
 
-            if (sb.toString().contains(str)) {
-                return new TextChunk(sb.toString(), startLocation, chunk.getEndLocation(), chunk.getCharSpaceWidth());
-            }
+        matchLines(matcher, region, (pattern, textChunk) -> {
+            textChunkMap.putIfAbsent(matcher.getPatterns().get(pattern), textChunk);
+
+            return textChunkMap.size() < matcher.getPatterns().size();
+        });
+
+        FlightRecorderEvents.commitLocate(event, matcher.getPatterns().size(), textChunkMap.size(), getTextChunkCount());
+
+        return textChunkMap;
+    }
+
+    /**
+     * Retrieves all {@link TextChunk}s matching each of the given strings in a single pass over the text.
+     *
+     * Note: Because iText has no concept of "words" this may return coordinates that represent a block of text
+     * containing the desired text, not necessarily the text itself.
+     *
+     * @param strs the strings to match
+     * @return a map of each matched string to the list of {@link TextChunk}s for its matches. Strings that are not
+     * found are not included.
+     */
+    public Map<String, List<TextChunk>> matchAllText(final Collection<String> strs) {
+        return matchAllText(strs, null);
+    }
+
+    /**
+     * Retrieves all {@link TextChunk}s matching each of the given strings within a region of the page. Only the lines
+     * with text in the region, found through the {@link PageTextIndex}, are searched, so a small region is searched
+     * without a scan of the page.
+     *
+     * Note: Because iText has no concept of "words" this may return coordinates that represent a block of text
+     * containing the desired text, not necessarily the text itself.
+     *
+     * @param strs the strings to match
+     * @param region the region to search or {@code null} to search the whole page. Matches are reported if their
+     * baseline overlaps the region.
+     * @return a map of each matched string to the list of {@link TextChunk}s for its matches. Strings that are not
+     * found are not included.
+     * @since 1.1
+     */
+    public Map<String, List<TextChunk>> matchAllText(final Collection<String> strs, final Rectangle region) {
+        final Map<String, List<TextChunk>> textChunkMap = new HashMap();
+
+        final TextMatcher matcher = new TextMatcher(strs);
+
+        if (matcher.isEmpty()) {
+            return textChunkMap;
         }
 
-        return null;
+        Object event = FlightRecorderEvents.beginLocate();
+
+        matchLines(matcher, region, (pattern, textChunk) -> {
+            textChunkMap.computeIfAbsent(matcher.getPatterns().get(pattern), (str) -> new ArrayList()).add(textChunk);
+
+            return true;
+        });
+
+        FlightRecorderEvents.commitLocate(event, matcher.getPatterns().size(), textChunkMap.size(), getTextChunkCount());
+
+        return textChunkMap;
     }
 
     /**
-     * Determine if either of the given strings contains the text of the other.
+     * Searches each line of text, or each line with text in a region, and reports the patterns found on it.
      *
-     * @param s1 first string
-     * @param s2 second string
-     * @return true if either of the given strings contains the text of the other, false otherwise.
+     * A match is reported as a {@link TextChunk} spanning from the start of the first chunk to the end of the last
+     * chunk containing the matched text.
+     *
+     * @param matcher the patterns to find.
+     * @param region the region to search or {@code null} to search every line.
+     * @param listener notified of each match; returns false to stop matching.
+     */
+    private void matchLines(final TextMatcher matcher, final Rectangle region, final LineMatchListener listener) {
+        List<PageTextIndex.Line> lines = region != null
+                ? getPageTextIndex().findLines(region.getLeft(), region.getBottom(), region.getRight(), region.getTop())
+                : getPageTextIndex().getLines();
+
+        for (PageTextIndex.Line line : lines) {
+            boolean more = matcher.match(line.getText(), (pattern, start, end) -> {
+                TextChunk textChunk = line.span(start, end);
+
+                return region != null && !isWithin(textChunk, region) || listener.onMatch(pattern, textChunk);
+            });
+
+            if (!more) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Determine if a match lies within a region: its baseline overlapping the region.
+     *
+     * @param textChunk the match.
+     * @param region the region.
+     * @return true if the match lies within the region, false otherwise.
+     */
+    private static boolean isWithin(final TextChunk textChunk, final Rectangle region) {
+        float startX = textChunk.getStartLocation().get(Vector.I1);
+        float startY = textChunk.getStartLocation().get(Vector.I2);
+        float endX = textChunk.getEndLocation().get(Vector.I1);
+        float endY = textChunk.getEndLocation().get(Vector.I2);
+
+        return Math.max(startX, endX) >= region.getLeft()
+                && Math.min(startX, endX) <= region.getRight()
+                && Math.max(startY, endY) >= region.getBottom()
+                && Math.min(startY, endY) <= region.getTop();
+    }
+
+    /**
+     * Receives the {@link TextChunk} for each pattern found while matching lines.
      */
-    private boolean eitherContainsText(String s1, String s2) {
-        return s1.contains(s2) || s2.contains(s1);
+    private interface LineMatchListener {
+
+        boolean onMatch(int pattern, TextChunk textChunk);
+
     }
 
     /**
      * Represents a chunk of text, it's orientation, and location relative to the orientation vector.
+     *
+     * <p>
+     * A chunk either holds its own values or is a view of a chunk in a {@link TextChunkStore}, which reads the store
+     * and is only valid until the store is changed.</p>
      */
     public static class TextChunk implements Comparable<TextChunk> {
 
         /**
-         * the text of the chunk
+         * the store holding the chunk, or {@code null} if the chunk holds its own values
          */
-        private final String text;
+        private final TextChunkStore store;
+
+        /**
+         * the index of the chunk in the store
+         */
+        private final int index;
 
         /**
-         * the starting location of the chunk
+         * the text of the chunk
          */
-        private final Vector startLocation;
+        private final String text;
 
         /**
-         * the ending location of the chunk
+         * the starting location of the chunk, created on first use for chunks viewed from a {@link TextChunkStore}
          */
-        private final Vector endLocation;
+        private Vector startLocation;
 
         /**
-         * unit vector in the orientation of the chunk
+         * the ending location of the chunk, created on first use for chunks viewed from a {@link TextChunkStore}
          */
-        private final Vector orientationVector;
+        private Vector endLocation;
 
         /**
          * the orientation as a scalar for quick sorting
@@ -358,32 +660,75 @@ public class TextChunkExtractionStrategy implements RenderListener {
         private final float charSpaceWidth;
 
         public TextChunk(String string, Vector startLocation, Vector endLocation, float charSpaceWidth) {
+            this.store = null;
+            this.index = -1;
             this.text = string;
             this.startLocation = startLocation;
             this.endLocation = endLocation;
             this.charSpaceWidth = charSpaceWidth;
 
-            Vector oVector = endLocation.subtract(startLocation);
-            if (oVector.length() == 0) {
-                oVector = new Vector(1, 0, 0);
+            float startX = startLocation.get(Vector.I1);
+            float startY = startLocation.get(Vector.I2);
+            float startZ = startLocation.get(Vector.I3);
+            float endX = endLocation.get(Vector.I1);
+            float endY = endLocation.get(Vector.I2);
+            float endZ = endLocation.get(Vector.I3);
+
+            // unit vector in the orientation of the chunk
+            float dx = endX - startX;
+            float dy = endY - startY;
+            float dz = endZ - startZ;
+
+            float length = TextChunkStore.length(dx, dy, dz);
+
+            if (length == 0) {
+                dx = 1;
+                dy = 0;
+                dz = 0;
+
+                length = 1;
             }
-            orientationVector = oVector.normalize();
-            orientationMagnitude = (int) (Math.atan2(orientationVector.get(Vector.I2), orientationVector.get(Vector.I1)) * 1000);
+
+            float orientationX = dx / length;
+            float orientationY = dy / length;
+            float orientationZ = dz / length;
+
+            orientationMagnitude = (int) (Math.atan2(orientationY, orientationX) * 1000);
 
             // see http://mathworld.wolfram.com/Point-LineDistance2-Dimensional.html
             // the two vectors we are crossing are in the same plane, so the result will be purely
-            // in the z-axis (out of plane) direction, so we just take the I3 component of the result
-            Vector origin = new Vector(0, 0, 1);
-            distPerpendicular = (int) (startLocation.subtract(origin)).cross(orientationVector).get(Vector.I3);
+            // in the z-axis (out of plane) direction, so we just take that component of the result
+            distPerpendicular = (int) (startX * orientationY - startY * orientationX);
 
-            distParallelStart = orientationVector.dot(startLocation);
-            distParallelEnd = orientationVector.dot(endLocation);
+            distParallelStart = orientationX * startX + orientationY * startY + orientationZ * startZ;
+            distParallelEnd = orientationX * endX + orientationY * endY + orientationZ * endZ;
+        }
+
+        /**
+         * Constructs a view of a chunk in a {@link TextChunkStore}.
+         *
+         * @param store the store.
+         * @param i the index of the chunk.
+         */
+        TextChunk(final TextChunkStore store, final int i) {
+            this.store = store;
+            this.index = i;
+            this.text = null;
+            this.charSpaceWidth = 0;
+            this.orientationMagnitude = 0;
+            this.distPerpendicular = 0;
+            this.distParallelStart = 0;
+            this.distParallelEnd = 0;
         }
 
         /**
          * @return the start location of the text
          */
         public Vector getStartLocation() {
+            if (startLocation == null) {
+                startLocation = new Vector(store.getStartX(index), store.getStartY(index), store.getStartZ(index));
+            }
+
             return startLocation;
         }
 
@@ -391,6 +736,10 @@ public class TextChunkExtractionStrategy implements RenderListener {
          * @return the end location of the text
          */
         public Vector getEndLocation() {
+            if (endLocation == null) {
+                endLocation = new Vector(store.getEndX(index), store.getEndY(index), store.getEndZ(index));
+            }
+
             return endLocation;
         }
 
@@ -398,14 +747,42 @@ public class TextChunkExtractionStrategy implements RenderListener {
          * @return the text captured by this chunk
          */
         public String getText() {
-            return text;
+            return store != null ? store.getText(index) : text;
         }
 
         /**
          * @return the width of a single space character as rendered by this chunk
          */
         public float getCharSpaceWidth() {
-            return charSpaceWidth;
+            return store != null ? store.getCharSpaceWidth(index) : charSpaceWidth;
+        }
+
+        /**
+         * @return the orientation of the chunk as a scalar, zero for text running left to right
+         */
+        public int getOrientationMagnitude() {
+            return store != null ? store.getOrientationMagnitude(index) : orientationMagnitude;
+        }
+
+        /**
+         * @return the perpendicular distance of the chunk from the origin
+         */
+        private int getDistPerpendicular() {
+            return store != null ? store.getDistPerpendicular(index) : distPerpendicular;
+        }
+
+        /**
+         * @return the distance of the start of the chunk parallel to its orientation
+         */
+        private float getDistParallelStart() {
+            return store != null ? store.getDistParallelStart(index) : distParallelStart;
+        }
+
+        /**
+         * @return the distance of the end of the chunk parallel to its orientation
+         */
+        private float getDistParallelEnd() {
+            return store != null ? store.getDistParallelEnd(index) : distParallelEnd;
         }
 
         /**
@@ -413,11 +790,11 @@ public class TextChunkExtractionStrategy implements RenderListener {
          * @return true is this location is on the the same line as the other
          */
         public boolean sameLine(TextChunk as) {
-            if (orientationMagnitude != as.orientationMagnitude) {
+            if (getOrientationMagnitude() != as.getOrientationMagnitude()) {
                 return false;
             }
 
-            if (distPerpendicular != as.distPerpendicular) {
+            if (getDistPerpendicular() != as.getDistPerpendicular()) {
                 return false;
             }
 
@@ -433,7 +810,7 @@ public class TextChunkExtractionStrategy implements RenderListener {
          * @return the number of spaces between the end of 'other' and the beginning of this chunk
          */
         public float distanceFromEndOf(TextChunk other) {
-            return distParallelStart - other.distParallelEnd;
+            return getDistParallelStart() - other.getDistParallelEnd();
         }
 
         /**
@@ -448,17 +825,17 @@ public class TextChunkExtractionStrategy implements RenderListener {
                 return 0; // not really needed, but just in case
             }
             int rslt;
-            rslt = compareInts(orientationMagnitude, rhs.orientationMagnitude);
+            rslt = compareInts(getOrientationMagnitude(), rhs.getOrientationMagnitude());
             if (rslt != 0) {
                 return rslt;
             }
 
-            rslt = compareInts(distPerpendicular, rhs.distPerpendicular);
+            rslt = compareInts(getDistPerpendicular(), rhs.getDistPerpendicular());
             if (rslt != 0) {
                 return rslt;
             }
 
-            return Float.compare(distParallelStart, rhs.distParallelStart);
+            return Float.compare(getDistParallelStart(), rhs.getDistParallelStart());
         }
 
         /**
@@ -0,0 +1,656 @@
+/*
+ * Copyright (C) 2015 Clifford Errickson
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.cyberninjas.pdf;
+
+import com.cyberninjas.pdf.TextChunkExtractionStrategy.TextChunk;
+import java.util.Arrays;
+
+/**
+ * A growable store of text chunks kept in primitive arrays, one array per field.
+ *
+ * <p>
+ * The text of every chunk is appended to a single character buffer and its geometry is computed with float arithmetic
+ * directly into the arrays, so adding a chunk allocates nothing beyond occasional array growth. Chunks are addressed
+ * by index; {@link #getTextChunk(int)} provides a {@link TextChunk} view for code that works with chunk objects.</p>
+ *
+ * <p>
+ * Sorting reorders the arrays through scratch arrays kept with the store, so a store reused across pages stops
+ * allocating once it has grown to the largest page.</p>
+ *
+ * <p>
+ * Instances are not thread-safe.</p>
+ *
+ * @author Clifford Errickson
+ * @since 1.1
+ */
+public class TextChunkStore {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    /**
+     * The text of all chunks, back to back.
+     */
+    private char[] chars = new char[INITIAL_CAPACITY * 8];
+
+    /**
+     * The number of characters used in {@link #chars}.
+     */
+    private int charCount;
+
+    /**
+     * The offset of the text of each chunk in {@link #chars}; the text of chunk {@code i} ends at offset {@code i + 1}.
+     */
+    private int[] textOffsets = new int[INITIAL_CAPACITY + 1];
+
+    private float[] startX = new float[INITIAL_CAPACITY];
+
+    private float[] startY = new float[INITIAL_CAPACITY];
+
+    private float[] startZ = new float[INITIAL_CAPACITY];
+
+    private float[] endX = new float[INITIAL_CAPACITY];
+
+    private float[] endY = new float[INITIAL_CAPACITY];
+
+    private float[] endZ = new float[INITIAL_CAPACITY];
+
+    private float[] charSpaceWidth = new float[INITIAL_CAPACITY];
+
+    private int[] orientationMagnitude = new int[INITIAL_CAPACITY];
+
+    private int[] distPerpendicular = new int[INITIAL_CAPACITY];
+
+    private float[] distParallelStart = new float[INITIAL_CAPACITY];
+
+    private float[] distParallelEnd = new float[INITIAL_CAPACITY];
+
+    /**
+     * The number of chunks stored.
+     */
+    private int size;
+
+    /**
+     * Whether the chunks are known to be in reading order.
+     */
+    private boolean sorted = true;
+
+    /**
+     * The chunk indices being sorted, reused across sorts.
+     */
+    private int[] order = new int[0];
+
+    /**
+     * Scratch space for sorting chunk indices, reused across sorts.
+     */
+    private int[] work = new int[0];
+
+    /**
+     * The counts of each radix sort digit, reused across sorts.
+     */
+    private final int[] counts = new int[257];
+
+    /**
+     * Scratch arrays the chunk values are reordered into, then swapped with; allocated on first sort.
+     */
+    private char[] charScratch;
+
+    private int[] offsetScratch;
+
+    private float[] floatScratch;
+
+    private int[] intScratch;
+
+    /**
+     * Adds a chunk.
+     *
+     * @param text the text of the chunk.
+     * @param startX the x-coordinate of the start of the chunk.
+     * @param startY the y-coordinate of the start of the chunk.
+     * @param startZ the z-coordinate of the start of the chunk.
+     * @param endX the x-coordinate of the end of the chunk.
+     * @param endY the y-coordinate of the end of the chunk.
+     * @param endZ the z-coordinate of the end of the chunk.
+     * @param charSpaceWidth the width of a single space character in the font of the chunk.
+     * @return the index of the chunk.
+     */
+    public int add(final CharSequence text, final float startX, final float startY, final float startZ, final float endX, final float endY, final float endZ, final float charSpaceWidth) {
+        ensureCapacity(size + 1, charCount + text.length());
+
+        for (int i = 0; i < text.length(); i++) {
+            chars[charCount++] = text.charAt(i);
+        }
+
+        textOffsets[size + 1] = charCount;
+
+        this.startX[size] = startX;
+        this.startY[size] = startY;
+        this.startZ[size] = startZ;
+        this.endX[size] = endX;
+        this.endY[size] = endY;
+        this.endZ[size] = endZ;
+        this.charSpaceWidth[size] = charSpaceWidth;
+
+        // unit vector in the orientation of the chunk
+        float dx = endX - startX;
+        float dy = endY - startY;
+        float dz = endZ - startZ;
+
+        float length = length(dx, dy, dz);
+
+        if (length == 0) {
+            dx = 1;
+            dy = 0;
+            dz = 0;
+
+            length = 1;
+        }
+
+        float orientationX = dx / length;
+        float orientationY = dy / length;
+        float orientationZ = dz / length;
+
+        orientationMagnitude[size] = (int) (Math.atan2(orientationY, orientationX) * 1000);
+
+        // the cross product of the start (relative to the origin) with the orientation lies entirely on the z-axis
+        distPerpendicular[size] = (int) (startX * orientationY - startY * orientationX);
+
+        distParallelStart[size] = orientationX * startX + orientationY * startY + orientationZ * startZ;
+        distParallelEnd[size] = orientationX * endX + orientationY * endY + orientationZ * endZ;
+
+        if (sorted && size > 0 && compare(size - 1, size) > 0) {
+            sorted = false;
+        }
+
+        return size++;
+    }
+
+    /**
+     * Computes the length of a vector as iText does.
+     *
+     * @param x the x-component.
+     * @param y the y-component.
+     * @param z the z-component.
+     * @return the length.
+     */
+    static float length(final float x, final float y, final float z) {
+        return (float) Math.sqrt(x * x + y * y + z * z);
+    }
+
+    /**
+     * Get the number of chunks stored.
+     *
+     * @return the number of chunks stored.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Removes all chunks, keeping the allocated arrays for reuse.
+     */
+    public void clear() {
+        size = 0;
+        charCount = 0;
+        sorted = true;
+    }
+
+    /**
+     * Get the text of a chunk. A new string is created on every call; use {@link #appendText(int, StringBuilder)} or
+     * {@link #charAt(int, int)} to read the text without one.
+     *
+     * @param i the index of the chunk.
+     * @return the text of the chunk.
+     */
+    public String getText(final int i) {
+        return new String(chars, textOffsets[i], textOffsets[i + 1] - textOffsets[i]);
+    }
+
+    /**
+     * Get the length of the text of a chunk.
+     *
+     * @param i the index of the chunk.
+     * @return the length of the text of the chunk.
+     */
+    public int getTextLength(final int i) {
+        return textOffsets[i + 1] - textOffsets[i];
+    }
+
+    /**
+     * Get a character of the text of a chunk.
+     *
+     * @param i the index of the chunk.
+     * @param index the index of the character within the text of the chunk.
+     * @return the character.
+     */
+    public char charAt(final int i, final int index) {
+        return chars[textOffsets[i] + index];
+    }
+
+    /**
+     * Appends the text of a chunk.
+     *
+     * @param i the index of the chunk.
+     * @param sb the builder to append to.
+     */
+    public void appendText(final int i, final StringBuilder sb) {
+        sb.append(chars, textOffsets[i], textOffsets[i + 1] - textOffsets[i]);
+    }
+
+    /**
+     * @param i the index of the chunk.
+     * @return the x-coordinate of the start of the chunk.
+     */
+    public float getStartX(final int i) {
+        return startX[i];
+    }
+
+    /**
+     * @param i the index of the chunk.
+     * @return the y-coordinate of the start of the chunk.
+     */
+    public float getStartY(final int i) {
+        return startY[i];
+    }
+
+    /**
+     * @param i the index of the chunk.
+     * @return the z-coordinate of the start of the chunk.
+     */
+    public float getStartZ(final int i) {
+        return startZ[i];
+    }
+
+    /**
+     * @param i the index of the chunk.
+     * @return the x-coordinate of the end of the chunk.
+     */
+    public float getEndX(final int i) {
+        return endX[i];
+    }
+
+    /**
+     * @param i the index of the chunk.
+     * @return the y-coordinate of the end of the chunk.
+     */
+    public float getEndY(final int i) {
+        return endY[i];
+    }
+
+    /**
+     * @param i the index of the chunk.
+     * @return the z-coordinate of the end of the chunk.
+     */
+    public float getEndZ(final int i) {
+        return endZ[i];
+    }
+
+    /**
+     * @param i the index of the chunk.
+     * @return the width of a single space character in the font of the chunk.
+     */
+    public float getCharSpaceWidth(final int i) {
+        return charSpaceWidth[i];
+    }
+
+    /**
+     * @param i the index of the chunk.
+     * @return the orientation of the chunk as a scalar, zero for text running left to right.
+     */
+    public int getOrientationMagnitude(final int i) {
+        return orientationMagnitude[i];
+    }
+
+    /**
+     * @param i the index of the chunk.
+     * @return the perpendicular distance of the chunk from the origin, i.e. the rounded y-coordinate in an unrotated
+     * coordinate system.
+     */
+    public int getDistPerpendicular(final int i) {
+        return distPerpendicular[i];
+    }
+
+    /**
+     * @param i the index of the chunk.
+     * @return the distance of the start of the chunk parallel to its orientation, i.e. the x-coordinate in an unrotated
+     * coordinate system.
+     */
+    public float getDistParallelStart(final int i) {
+        return distParallelStart[i];
+    }
+
+    /**
+     * @param i the index of the chunk.
+     * @return the distance of the end of the chunk parallel to its orientation, i.e. the x-coordinate in an unrotated
+     * coordinate system.
+     */
+    public float getDistParallelEnd(final int i) {
+        return distParallelEnd[i];
+    }
+
+    /**
+     * Determine if two chunks are on the same line.
+     *
+     * @param i the index of the first chunk.
+     * @param j the index of the second chunk.
+     * @return true if the chunks have the same orientation and perpendicular distance, false otherwise.
+     */
+    public boolean sameLine(final int i, final int j) {
+        return orientationMagnitude[i] == orientationMagnitude[j]
+                && distPerpendicular[i] == distPerpendicular[j];
+    }
+
+    /**
+     * Computes the distance between the end of one chunk and the start of another in the direction of the latter's
+     * orientation.
+     *
+     * @param i the index of the chunk whose start is measured.
+     * @param other the index of the chunk whose end is measured from.
+     * @return the distance between the end of {@code other} and the start of {@code i}.
+     */
+    public float distanceFromEndOf(final int i, final int other) {
+        return distParallelStart[i] - distParallelEnd[other];
+    }
+
+    /**
+     * Compares two chunks based on orientation, perpendicular distance, then parallel distance, as
+     * {@link TextChunk#compareTo(TextChunk)} does.
+     *
+     * @param i the index of the first chunk.
+     * @param j the index of the second chunk.
+     * @return a negative integer, zero, or a positive integer as the first chunk is before, level with, or after the
+     * second.
+     */
+    public int compare(final int i, final int j) {
+        int rslt = Integer.compare(orientationMagnitude[i], orientationMagnitude[j]);
+
+        if (rslt != 0) {
+            return rslt;
+        }
+
+        rslt = Integer.compare(distPerpendicular[i], distPerpendicular[j]);
+
+        if (rslt != 0) {
+            return rslt;
+        }
+
+        return Float.compare(distParallelStart[i], distParallelStart[j]);
+    }
+
+    /**
+     * Sorts the chunks in reading order using {@link #compare(int, int)}. The sort is stable, so chunks that compare
+     * equal keep the order they were added in. Chunks added in order are not sorted again.
+     *
+     * <p>
+     * Chunks are first bucketed by orientation and perpendicular distance with a stable radix sort on the integer
+     * keys, then each line is sorted by parallel distance. Lines are usually short and added mostly in order, so the
+     * work is close to linear in the number of chunks.</p>
+     */
+    public void sort() {
+        if (sorted) {
+            return;
+        }
+
+        if (order.length < size) {
+            order = new int[startX.length];
+            work = new int[startX.length];
+        }
+
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+
+        // least significant key first, so each pass keeps the order of the previous one
+        radixSort(distPerpendicular);
+        radixSort(orientationMagnitude);
+
+        for (int from = 0; from < size;) {
+            int to = from + 1;
+
+            while (to < size && sameLine(order[from], order[to])) {
+                to++;
+            }
+
+            mergeSort(from, to);
+
+            from = to;
+        }
+
+        reorder();
+
+        sorted = true;
+    }
+
+    /**
+     * Stable least-significant-digit radix sort of the chunk indices in {@link #order} by an integer key, one byte at
+     * a time. Passes in which every key has the same byte are skipped.
+     *
+     * @param keys the key of each chunk.
+     */
+    private void radixSort(final int[] keys) {
+        for (int shift = 0; shift < 32; shift += 8) {
+            Arrays.fill(counts, 0);
+
+            for (int i = 0; i < size; i++) {
+                counts[digit(keys[order[i]], shift) + 1]++;
+            }
+
+            if (counts[digit(keys[order[0]], shift) + 1] == size) {
+                continue;
+            }
+
+            for (int i = 1; i < counts.length; i++) {
+                counts[i] += counts[i - 1];
+            }
+
+            for (int i = 0; i < size; i++) {
+                work[counts[digit(keys[order[i]], shift)]++] = order[i];
+            }
+
+            System.arraycopy(work, 0, order, 0, size);
+        }
+    }
+
+    /**
+     * Get a byte of an integer key such that the bytes order signed keys correctly.
+     *
+     * @param key the key.
+     * @param shift the position of the byte.
+     * @return the byte, from 0 to 255.
+     */
+    private static int digit(final int key, final int shift) {
+        return ((key ^ Integer.MIN_VALUE) >>> shift) & 0xff;
+    }
+
+    /**
+     * Stable merge sort of a range of the chunk indices in {@link #order}.
+     *
+     * @param from the first position of the range, inclusive.
+     * @param to the last position of the range, exclusive.
+     */
+    private void mergeSort(final int from, final int to) {
+        if (to - from < 2) {
+            return;
+        }
+
+        if (to - from <= 16) {
+            // insertion sort small ranges
+            for (int i = from + 1; i < to; i++) {
+                int chunk = order[i];
+
+                int j = i;
+
+                while (j > from && compare(order[j - 1], chunk) > 0) {
+                    order[j] = order[j - 1];
+
+                    j--;
+                }
+
+                order[j] = chunk;
+            }
+
+            return;
+        }
+
+        int middle = (from + to) >>> 1;
+
+        mergeSort(from, middle);
+        mergeSort(middle, to);
+
+        if (compare(order[middle - 1], order[middle]) <= 0) {
+            // already in order
+            return;
+        }
+
+        System.arraycopy(order, from, work, from, to - from);
+
+        int left = from;
+        int right = middle;
+
+        for (int i = from; i < to; i++) {
+            if (right >= to || (left < middle && compare(work[left], work[right]) <= 0)) {
+                order[i] = work[left++];
+            } else {
+                order[i] = work[right++];
+            }
+        }
+    }
+
+    /**
+     * Rearranges the chunks so that the chunk at position {@code i} is the one previously at {@code order[i]}. Each
+     * array is reordered into a scratch array of the same capacity, which then takes its place.
+     */
+    private void reorder() {
+        if (charScratch == null || charScratch.length != chars.length) {
+            charScratch = new char[chars.length];
+        }
+
+        if (floatScratch == null || floatScratch.length != startX.length) {
+            offsetScratch = new int[textOffsets.length];
+            floatScratch = new float[startX.length];
+            intScratch = new int[startX.length];
+        }
+
+        int offset = 0;
+
+        for (int i = 0; i < size; i++) {
+            int length = textOffsets[order[i] + 1] - textOffsets[order[i]];
+
+            System.arraycopy(chars, textOffsets[order[i]], charScratch, offset, length);
+
+            offset += length;
+
+            offsetScratch[i + 1] = offset;
+        }
+
+        char[] swapChars = chars;
+        chars = charScratch;
+        charScratch = swapChars;
+
+        int[] swapOffsets = textOffsets;
+        textOffsets = offsetScratch;
+        offsetScratch = swapOffsets;
+
+        startX = reorder(startX);
+        startY = reorder(startY);
+        startZ = reorder(startZ);
+        endX = reorder(endX);
+        endY = reorder(endY);
+        endZ = reorder(endZ);
+        charSpaceWidth = reorder(charSpaceWidth);
+        orientationMagnitude = reorder(orientationMagnitude);
+        distPerpendicular = reorder(distPerpendicular);
+        distParallelStart = reorder(distParallelStart);
+        distParallelEnd = reorder(distParallelEnd);
+    }
+
+    /**
+     * Rearranges an array of chunk values into the float scratch array, which the given array then replaces.
+     *
+     * @param values the values.
+     * @return the rearranged values.
+     */
+    private float[] reorder(final float[] values) {
+        float[] reordered = floatScratch;
+
+        for (int i = 0; i < size; i++) {
+            reordered[i] = values[order[i]];
+        }
+
+        floatScratch = values;
+
+        return reordered;
+    }
+
+    /**
+     * Rearranges an array of chunk values into the integer scratch array, which the given array then replaces.
+     *
+     * @param values the values.
+     * @return the rearranged values.
+     */
+    private int[] reorder(final int[] values) {
+        int[] reordered = intScratch;
+
+        for (int i = 0; i < size; i++) {
+            reordered[i] = values[order[i]];
+        }
+
+        intScratch = values;
+
+        return reordered;
+    }
+
+    /**
+     * Get a {@link TextChunk} view of a chunk. The view reads the store, so it is only valid until the store is
+     * cleared or sorted again.
+     *
+     * @param i the index of the chunk.
+     * @return the chunk.
+     */
+    public TextChunk getTextChunk(final int i) {
+        return new TextChunk(this, i);
+    }
+
+    /**
+     * Grows the arrays to hold at least the given number of chunks and characters.
+     *
+     * @param chunks the number of chunks.
+     * @param characters the number of characters.
+     */
+    private void ensureCapacity(final int chunks, final int characters) {
+        if (characters > chars.length) {
+            chars = Arrays.copyOf(chars, Math.max(characters, chars.length * 2));
+        }
+
+        if (chunks > startX.length) {
+            int capacity = Math.max(chunks, startX.length * 2);
+
+            textOffsets = Arrays.copyOf(textOffsets, capacity + 1);
+            startX = Arrays.copyOf(startX, capacity);
+            startY = Arrays.copyOf(startY, capacity);
+            startZ = Arrays.copyOf(startZ, capacity);
+            endX = Arrays.copyOf(endX, capacity);
+            endY = Arrays.copyOf(endY, capacity);
+            endZ = Arrays.copyOf(endZ, capacity);
+            charSpaceWidth = Arrays.copyOf(charSpaceWidth, capacity);
+            orientationMagnitude = Arrays.copyOf(orientationMagnitude, capacity);
+            distPerpendicular = Arrays.copyOf(distPerpendicular, capacity);
+            distParallelStart = Arrays.copyOf(distParallelStart, capacity);
+            distParallelEnd = Arrays.copyOf(distParallelEnd, capacity);
+        }
+    }
+
+}
@@ -0,0 +1,370 @@
+/*
+ * Copyright (C) 2015 Clifford Errickson
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.cyberninjas.pdf;
+
+import java.util.Arrays;
+
+/**
+ * Removes the operators that do not affect the position of text from a content stream.
+ *
+ * <p>
+ * The content stream is scanned once at the byte level, recognizing just enough syntax (strings, comments, names,
+ * arrays and dictionaries) to find each operator and the operands that precede it. Operators that affect text and
+ * their operands are copied to the result; everything else is dropped without being tokenized or converted to
+ * objects. Graphics state groups ({@code q ... Q}) that neither show text, begin or end a text object, nor paint an
+ * XObject are dropped as a whole, since everything they set is restored at their end. If an inline image is found,
+ * the rest of the stream is copied unchanged.</p>
+ *
+ * @author Clifford Errickson
+ * @since 1.1
+ */
+final class TextContentFilter {
+
+    /**
+     * Operators that affect the graphics state, text state or position of text, or that draw text.
+     */
+    private static final String[] TEXT_OPERATORS = {
+        "q", "Q", "cm", "gs", "Do",
+        "BT", "ET", "Tc", "Tw", "Tz", "TL", "Tf", "Tr", "Ts",
+        "Td", "TD", "Tm", "T*", "Tj", "TJ", "'", "\""
+    };
+
+    /**
+     * Operators that must be kept along with the graphics state groups enclosing them.
+     */
+    private static final String[] DRAWING_OPERATORS = {
+        "Do", "BT", "ET", "Tj", "TJ", "'", "\""
+    };
+
+    /**
+     * The operator beginning an inline image.
+     */
+    private static final byte[] BEGIN_INLINE_IMAGE = {'B', 'I'};
+
+    /**
+     * Whether each byte is whitespace or a delimiter.
+     */
+    private static final boolean[] SEPARATOR = new boolean[256];
+
+    static {
+        for (char c : "\u0000\t\n\f\r ()<>[]{}/%".toCharArray()) {
+            SEPARATOR[c] = true;
+        }
+    }
+
+    /**
+     * Constructs an instance of {@code TextContentFilter}.
+     */
+    private TextContentFilter() {
+    }
+
+    /**
+     * Filters a content stream.
+     *
+     * @param content the content stream.
+     * @return the operators of the content stream that affect text, with their operands.
+     */
+    static byte[] filter(final byte[] content) {
+        byte[] result = new byte[content.length];
+
+        int length = 0;
+
+        // the start of the operands of the next operator
+        int operandsStart = 0;
+
+        // the nesting depth of arrays and dictionaries
+        int depth = 0;
+
+        // for each open graphics state group, where it starts in the result and whether it draws
+        int[] groupStarts = new int[16];
+        boolean[] groupDraws = new boolean[16];
+        int groups = 0;
+
+        int i = 0;
+
+        while (i < content.length) {
+            int b = content[i] & 0xff;
+
+            switch (b) {
+                case '(':
+                    i = skipLiteralString(content, i);
+                    break;
+
+                case '<':
+                    if (i + 1 < content.length && content[i + 1] == '<') {
+                        depth++;
+                        i += 2;
+                    } else {
+                        i = skipHexString(content, i);
+                    }
+                    break;
+
+                case '>':
+                    if (i + 1 < content.length && content[i + 1] == '>') {
+                        depth--;
+                        i += 2;
+                    } else {
+                        i++;
+                    }
+                    break;
+
+                case '[':
+                    depth++;
+                    i++;
+                    break;
+
+                case ']':
+                    depth--;
+                    i++;
+                    break;
+
+                case '%':
+                    // comments are dropped along with skipped operators, and copied harmlessly otherwise
+                    while (i < content.length && content[i] != '\n' && content[i] != '\r') {
+                        i++;
+                    }
+                    break;
+
+                case '/':
+                    i = skipRegular(content, i + 1);
+                    break;
+
+                default:
+                    if (SEPARATOR[b]) {
+                        i++;
+                        break;
+                    }
+
+                    int start = i;
+
+                    i = skipRegular(content, i);
+
+                    if (depth > 0 || isOperand(content, start)) {
+                        break;
+                    }
+
+                    if (matches(content, start, i, BEGIN_INLINE_IMAGE)) {
+                        // inline image data cannot be skipped reliably without parsing its dictionary
+                        result = ensureCapacity(result, length + content.length - operandsStart);
+
+                        System.arraycopy(content, operandsStart, result, length, content.length - operandsStart);
+
+                        return Arrays.copyOf(result, length + content.length - operandsStart);
+                    }
+
+                    if (isOperator(content, start, i, TEXT_OPERATORS)) {
+                        int groupStart = length;
+
+                        // the separator after each operator is added, so content without separators to drop grows
+                        result = ensureCapacity(result, length + i - operandsStart + 1);
+
+                        System.arraycopy(content, operandsStart, result, length, i - operandsStart);
+
+                        length += i - operandsStart;
+
+                        result[length++] = '\n';
+
+                        if (i - start == 1 && content[start] == 'q') {
+                            if (groups == groupStarts.length) {
+                                groupStarts = Arrays.copyOf(groupStarts, groups * 2);
+                                groupDraws = Arrays.copyOf(groupDraws, groups * 2);
+                            }
+
+                            groupStarts[groups] = groupStart;
+                            groupDraws[groups] = false;
+                            groups++;
+                        } else if (i - start == 1 && content[start] == 'Q') {
+                            if (groups > 0) {
+                                groups--;
+
+                                if (!groupDraws[groups]) {
+                                    length = groupStarts[groups];
+                                } else if (groups > 0) {
+                                    groupDraws[groups - 1] = true;
+                                }
+                            }
+                        } else if (groups > 0 && isOperator(content, start, i, DRAWING_OPERATORS)) {
+                            groupDraws[groups - 1] = true;
+                        }
+                    }
+
+                    operandsStart = i;
+
+                    // unbalanced arrays or dictionaries end with the operator
+                    depth = 0;
+            }
+        }
+
+        return Arrays.copyOf(result, length);
+    }
+
+    /**
+     * Ensures that the result has room for a number of bytes.
+     *
+     * @param result the result.
+     * @param capacity the number of bytes.
+     * @return the result, or a larger copy of it.
+     */
+    private static byte[] ensureCapacity(final byte[] result, final int capacity) {
+        if (capacity <= result.length) {
+            return result;
+        }
+
+        return Arrays.copyOf(result, Math.max(capacity, result.length + (result.length >> 3)));
+    }
+
+    /**
+     * Skips a sequence of regular characters.
+     *
+     * @param content the content stream.
+     * @param i the position of the first character.
+     * @return the position after the last character.
+     */
+    private static int skipRegular(final byte[] content, int i) {
+        while (i < content.length && !SEPARATOR[content[i] & 0xff]) {
+            i++;
+        }
+
+        return i;
+    }
+
+    /**
+     * Skips a literal string, including nested parentheses and escaped characters.
+     *
+     * @param content the content stream.
+     * @param i the position of the opening parenthesis.
+     * @return the position after the closing parenthesis.
+     */
+    private static int skipLiteralString(final byte[] content, int i) {
+        int nesting = 0;
+
+        while (i < content.length) {
+            byte b = content[i++];
+
+            if (b == '\\') {
+                i++;
+            } else if (b == '(') {
+                nesting++;
+            } else if (b == ')' && --nesting == 0) {
+                break;
+            }
+        }
+
+        return i;
+    }
+
+    /**
+     * Skips a hexadecimal string.
+     *
+     * @param content the content stream.
+     * @param i the position of the opening angle bracket.
+     * @return the position after the closing angle bracket.
+     */
+    private static int skipHexString(final byte[] content, int i) {
+        while (i < content.length && content[i] != '>') {
+            i++;
+        }
+
+        return i + 1;
+    }
+
+    /**
+     * Determine if a sequence of regular characters is an operand: a number, boolean or null.
+     *
+     * @param content the content stream.
+     * @param start the position of the first character.
+     * @return true if the token is an operand, false if it is an operator.
+     */
+    private static boolean isOperand(final byte[] content, final int start) {
+        byte b = content[start];
+
+        return (b >= '0' && b <= '9') || b == '-' || b == '+' || b == '.'
+                || b == 't' && isKeyword(content, start, "true")
+                || b == 'f' && isKeyword(content, start, "false")
+                || b == 'n' && isKeyword(content, start, "null");
+    }
+
+    /**
+     * Determine if the keyword is at a position and is followed by a separator or the end of the stream.
+     *
+     * @param content the content stream.
+     * @param start the position.
+     * @param keyword the keyword.
+     * @return true if the keyword is at the position, false otherwise.
+     */
+    private static boolean isKeyword(final byte[] content, final int start, final String keyword) {
+        int end = start + keyword.length();
+
+        if (end > content.length
+                || (end < content.length && !SEPARATOR[content[end] & 0xff])) {
+            return false;
+        }
+
+        for (int i = 0; i < keyword.length(); i++) {
+            if (content[start + i] != keyword.charAt(i)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Determine if an operator is one of the given operators.
+     *
+     * @param content the content stream.
+     * @param start the position of the operator.
+     * @param end the position after the operator.
+     * @param operators the operators, each one or two characters long.
+     * @return true if the operator is one of the given operators, false otherwise.
+     */
+    private static boolean isOperator(final byte[] content, final int start, final int end, final String[] operators) {
+        for (String operator : operators) {
+            if (operator.length() == end - start
+                    && operator.charAt(0) == content[start]
+                    && (operator.length() == 1 || operator.charAt(1) == content[start + 1])) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Determine if a token is the given operator.
+     *
+     * @param content the content stream.
+     * @param start the position of the token.
+     * @param end the position after the token.
+     * @param operator the operator.
+     * @return true if the token is the operator, false otherwise.
+     */
+    private static boolean matches(final byte[] content, final int start, final int end, final byte[] operator) {
+        if (end - start != operator.length) {
+            return false;
+        }
+
+        for (int i = 0; i < operator.length; i++) {
+            if (content[start + i] != operator[i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright (C) 2015 Clifford Errickson
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.cyberninjas.pdf;
+
+import com.itextpdf.text.pdf.PdfDictionary;
+import com.itextpdf.text.pdf.PdfName;
+import com.itextpdf.text.pdf.PdfReader;
+import com.itextpdf.text.pdf.parser.ContentByteUtils;
+import com.itextpdf.text.pdf.parser.ContentOperator;
+import com.itextpdf.text.pdf.parser.InlineImageInfo;
+import com.itextpdf.text.pdf.parser.PdfContentStreamProcessor;
+import com.itextpdf.text.pdf.parser.PdfReaderContentParser;
+import com.itextpdf.text.pdf.parser.RenderListener;
+import com.itextpdf.text.pdf.parser.XObjectDoHandler;
+import java.io.IOException;
+
+/**
+ * Processes the text of pages of a {@link PdfReader} through a {@link RenderListener}, skipping everything that does
+ * not affect where text is drawn.
+ *
+ * <p>
+ * This is a drop-in replacement for {@link PdfReaderContentParser} for listeners that only handle text. The text
+ * state, text matrices, CTM, graphics state stack, fonts and text showing operators are processed exactly as iText
+ * does, so the same text is reported at the same locations. Page and form content streams are first passed through
+ * {@link TextContentFilter}, so color, line style, marked content and path operators are dropped before iText
+ * tokenizes the stream, and their operands are never parsed. Images are not reported, so {@link RenderListener#renderImage} is never
+ * called: image XObject data is never read, and inline images are only scanned to find where they end. Form XObjects
+ * are still processed since they may contain text.</p>
+ *
+ * @author Clifford Errickson
+ * @since 1.1
+ */
+public class TextContentParser {
+
+    /**
+     * Operators that do not affect the position of text.
+     */
+    private static final String[] SKIPPED_OPERATORS = {
+        // color
+        "g", "G", "rg", "RG", "k", "K", "cs", "CS", "sc", "SC", "scn", "SCN",
+        // line style
+        "w", "J", "j", "M", "d",
+        // marked content
+        "BMC", "BDC", "EMC",
+        // path construction, painting and clipping
+        "m", "l", "c", "v", "y", "h", "re", "S", "s", "f", "F", "f*", "B", "B*", "b", "b*", "n", "W", "W*",
+        // type 3 glyph metrics
+        "d0", "d1"
+    };
+
+    /**
+     * Does nothing.
+     */
+    private static final ContentOperator SKIP_OPERATOR = (processor, operator, operands) -> {
+        // skipped
+    };
+
+    /**
+     * Does nothing.
+     */
+    private static final XObjectDoHandler SKIP_XOBJECT = (processor, stream, ref) -> {
+        // skipped
+    };
+
+    /**
+     * The reader to process.
+     */
+    private final PdfReader reader;
+
+    /**
+     * Constructs an instance of {@code TextContentParser}.
+     *
+     * @param reader the reader to process.
+     */
+    public TextContentParser(final PdfReader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * Processes the text of a page.
+     *
+     * @param <E> the type of the listener.
+     * @param pageNum the page to process.
+     * @param renderListener the listener notified of the text of the page.
+     * @return the listener.
+     * @throws IOException on I/O error reading the page.
+     */
+    public <E extends RenderListener> E processContent(final int pageNum, final E renderListener)
+            throws IOException {
+        PdfDictionary resources = reader.getPageN(pageNum).getAsDict(PdfName.RESOURCES);
+
+        new TextContentStreamProcessor(renderListener).processContent(ContentByteUtils.getContentBytesForPage(reader, pageNum), resources);
+
+        return renderListener;
+    }
+
+    /**
+     * A content stream processor that only processes what affects the position of text.
+     */
+    private static class TextContentStreamProcessor extends PdfContentStreamProcessor {
+
+        /**
+         * Constructs an instance of {@code TextContentStreamProcessor}.
+         *
+         * @param renderListener the listener notified of text.
+         */
+        TextContentStreamProcessor(final RenderListener renderListener) {
+            super(renderListener);
+
+            for (String operator : SKIPPED_OPERATORS) {
+                registerContentOperator(operator, SKIP_OPERATOR);
+            }
+
+            registerXObjectDoHandler(PdfName.IMAGE, SKIP_XOBJECT);
+            registerXObjectDoHandler(PdfName.PS, SKIP_XOBJECT);
+        }
+
+        /**
+         * Processes the operators of a page or form content stream that affect text.
+         *
+         * @param contentBytes the content stream.
+         * @param resources the resources of the content stream.
+         */
+        @Override
+        public void processContent(final byte[] contentBytes, final PdfDictionary resources) {
+            super.processContent(TextContentFilter.filter(contentBytes), resources);
+        }
+
+        @Override
+        protected void handleInlineImage(final InlineImageInfo info, final PdfDictionary colorSpaceDic) {
+            // skipped
+        }
+
+    }
+
+}
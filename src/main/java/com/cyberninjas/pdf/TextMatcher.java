@@ -0,0 +1,268 @@
+/*
+ * Copyright (C) 2015 Clifford Errickson
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.cyberninjas.pdf;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Matches a fixed set of strings against text in a single pass (Aho-Corasick).
+ *
+ * <p>
+ * Instances are immutable once constructed and may be shared between threads.</p>
+ *
+ * @author Clifford Errickson
+ * @since 1.1
+ */
+public class TextMatcher {
+
+    /**
+     * The distinct, non-empty patterns in the order given.
+     */
+    private final List<String> patterns;
+
+    /**
+     * Transition characters for each state, sorted for binary search.
+     */
+    private final char[][] transitionChars;
+
+    /**
+     * Target state of each transition, aligned with {@link #transitionChars}.
+     */
+    private final int[][] transitionTargets;
+
+    /**
+     * The failure link of each state.
+     */
+    private final int[] failure;
+
+    /**
+     * The pattern ending at each state or -1 if none.
+     */
+    private final int[] output;
+
+    /**
+     * The nearest state reachable through failure links that ends a pattern or -1 if none.
+     */
+    private final int[] outputLink;
+
+    /**
+     * Constructs an instance of {@code TextMatcher}.
+     *
+     * @param patterns the strings to match. {@code null}, empty and duplicate strings are ignored.
+     */
+    public TextMatcher(final Collection<String> patterns) {
+        Map<String, Integer> distinct = new LinkedHashMap();
+
+        for (String pattern : patterns) {
+            if (pattern != null
+                    && !pattern.isEmpty()
+                    && !distinct.containsKey(pattern)) {
+                distinct.put(pattern, distinct.size());
+            }
+        }
+
+        this.patterns = Collections.unmodifiableList(new ArrayList(distinct.keySet()));
+
+        // build the trie
+        List<Map<Character, Integer>> trie = new ArrayList();
+        List<Integer> ends = new ArrayList();
+
+        trie.add(new LinkedHashMap());
+        ends.add(-1);
+
+        for (int i = 0; i < this.patterns.size(); i++) {
+            String pattern = this.patterns.get(i);
+
+            int state = 0;
+
+            for (int j = 0; j < pattern.length(); j++) {
+                Integer next = trie.get(state).get(pattern.charAt(j));
+
+                if (next == null) {
+                    next = trie.size();
+
+                    trie.add(new LinkedHashMap());
+                    ends.add(-1);
+
+                    trie.get(state).put(pattern.charAt(j), next);
+                }
+
+                state = next;
+            }
+
+            ends.set(state, i);
+        }
+
+        int size = trie.size();
+
+        transitionChars = new char[size][];
+        transitionTargets = new int[size][];
+        failure = new int[size];
+        output = new int[size];
+        outputLink = new int[size];
+
+        for (int state = 0; state < size; state++) {
+            Map<Character, Integer> transitions = trie.get(state);
+
+            char[] chars = new char[transitions.size()];
+
+            int k = 0;
+
+            for (Character c : transitions.keySet()) {
+                chars[k++] = c;
+            }
+
+            Arrays.sort(chars);
+
+            int[] targets = new int[chars.length];
+
+            for (k = 0; k < chars.length; k++) {
+                targets[k] = transitions.get(chars[k]);
+            }
+
+            transitionChars[state] = chars;
+            transitionTargets[state] = targets;
+            output[state] = ends.get(state);
+        }
+
+        // compute the failure and output links breadth first
+        outputLink[0] = -1;
+
+        Deque<Integer> queue = new ArrayDeque();
+
+        for (int target : transitionTargets[0]) {
+            failure[target] = 0;
+            outputLink[target] = -1;
+
+            queue.add(target);
+        }
+
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+
+            for (int k = 0; k < transitionChars[state].length; k++) {
+                char c = transitionChars[state][k];
+                int target = transitionTargets[state][k];
+
+                int fallback = failure[state];
+
+                while (fallback > 0 && transition(fallback, c) < 0) {
+                    fallback = failure[fallback];
+                }
+
+                int next = transition(fallback, c);
+
+                failure[target] = next < 0 || next == target ? 0 : next;
+                outputLink[target] = output[failure[target]] >= 0 ? failure[target] : outputLink[failure[target]];
+
+                queue.add(target);
+            }
+        }
+    }
+
+    /**
+     * Get the distinct patterns matched by this instance. Pattern indexes reported to {@link MatchListener}s refer to
+     * positions in this list.
+     *
+     * @return the distinct patterns matched by this instance.
+     */
+    public List<String> getPatterns() {
+        return patterns;
+    }
+
+    /**
+     * Determine if there are no patterns to match.
+     *
+     * @return true if there are no patterns to match, false otherwise.
+     */
+    public boolean isEmpty() {
+        return patterns.isEmpty();
+    }
+
+    /**
+     * Reports every occurrence of every pattern in the given text, ordered by end position.
+     *
+     * @param text the text to search.
+     * @param listener notified of each match.
+     * @return false if the listener stopped the search, true otherwise.
+     */
+    public boolean match(final CharSequence text, final MatchListener listener) {
+        int state = 0;
+
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+
+            int next = transition(state, c);
+
+            while (next < 0 && state > 0) {
+                state = failure[state];
+                next = transition(state, c);
+            }
+
+            state = next < 0 ? 0 : next;
+
+            for (int s = output[state] >= 0 ? state : outputLink[state]; s >= 0; s = outputLink[s]) {
+                int pattern = output[s];
+
+                if (!listener.onMatch(pattern, i + 1 - patterns.get(pattern).length(), i + 1)) {
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Looks up the transition from a state on a character.
+     *
+     * @param state the current state.
+     * @param c the next character.
+     * @return the next state or -1 if there is no transition.
+     */
+    private int transition(final int state, final char c) {
+        int k = Arrays.binarySearch(transitionChars[state], c);
+
+        return k < 0 ? -1 : transitionTargets[state][k];
+    }
+
+    /**
+     * Receives matches found by {@link TextMatcher#match(CharSequence, MatchListener)}.
+     */
+    public interface MatchListener {
+
+        /**
+         * Called for each match.
+         *
+         * @param pattern the index of the matching pattern in {@link TextMatcher#getPatterns()}.
+         * @param start the start index of the match (inclusive).
+         * @param end the end index of the match (exclusive).
+         * @return true to continue searching, false to stop.
+         */
+        boolean onMatch(int pattern, int start, int end);
+
+    }
+
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2015 Clifford Errickson
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.cyberninjas.invoice;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Access to virtual threads.
+ *
+ * <p>
+ * This is the version for Java 21 and later, packaged under {@code META-INF/versions/21} of the multi-release
+ * JAR.</p>
+ *
+ * @author Clifford Errickson
+ * @since 1.1
+ */
+final class VirtualThreads {
+
+    /**
+     * Constructs an instance of {@code VirtualThreads}.
+     */
+    private VirtualThreads() {
+    }
+
+    /**
+     * Determine if virtual threads are supported.
+     *
+     * @return true.
+     */
+    static boolean isSupported() {
+        return true;
+    }
+
+    /**
+     * Creates an executor that runs each task on a new virtual thread.
+     *
+     * @param prefix the prefix of the names of the threads.
+     * @return the executor.
+     */
+    static ExecutorService newExecutor(final String prefix) {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(prefix, 1).factory());
+    }
+
+}
@@ -0,0 +1,243 @@
+/*
+ * Copyright (C) 2015 Clifford Errickson
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.cyberninjas.pdf;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Records {@link FlightRecorderEvents} with JDK Flight Recorder. Only loaded, reflectively, when {@code jdk.jfr} is
+ * available, and only built, from {@code src/main/jfr}, by the {@code jfr} profile on JDKs that have it.
+ *
+ * @author Clifford Errickson
+ * @since 1.1
+ */
+class JfrRecorder implements FlightRecorderEvents.Recorder {
+
+    @Override
+    public Object beginOpen() {
+        OpenEvent event = new OpenEvent();
+
+        event.begin();
+
+        return event;
+    }
+
+    @Override
+    public void commitOpen(final Object handle, final String source, final int pages, final long bytes) {
+        OpenEvent event = (OpenEvent) handle;
+
+        if (event.shouldCommit()) {
+            event.source = source;
+            event.pages = pages;
+            event.bytes = bytes;
+
+            event.commit();
+        }
+    }
+
+    @Override
+    public Object beginParsePage() {
+        ParsePageEvent event = new ParsePageEvent();
+
+        event.begin();
+
+        return event;
+    }
+
+    @Override
+    public void commitParsePage(final Object handle, final String source, final int pageNum, final int textChunks) {
+        ParsePageEvent event = (ParsePageEvent) handle;
+
+        if (event.shouldCommit()) {
+            event.source = source;
+            event.page = pageNum;
+            event.textChunks = textChunks;
+
+            event.commit();
+        }
+    }
+
+    @Override
+    public Object beginLocate() {
+        LocateEvent event = new LocateEvent();
+
+        event.begin();
+
+        return event;
+    }
+
+    @Override
+    public void commitLocate(final Object handle, final int queries, final int matches, final int textChunks) {
+        LocateEvent event = (LocateEvent) handle;
+
+        if (event.shouldCommit()) {
+            event.queries = queries;
+            event.matches = matches;
+            event.textChunks = textChunks;
+
+            event.commit();
+        }
+    }
+
+    @Override
+    public Object beginStamp() {
+        StampEvent event = new StampEvent();
+
+        event.begin();
+
+        return event;
+    }
+
+    @Override
+    public void commitStamp(final Object handle, final String source, final int pageNum, final int texts) {
+        StampEvent event = (StampEvent) handle;
+
+        if (event.shouldCommit()) {
+            event.source = source;
+            event.page = pageNum;
+            event.texts = texts;
+
+            event.commit();
+        }
+    }
+
+    @Override
+    public Object beginWrite() {
+        WriteEvent event = new WriteEvent();
+
+        event.begin();
+
+        return event;
+    }
+
+    @Override
+    public void commitWrite(final Object handle, final String source, final long bytes) {
+        WriteEvent event = (WriteEvent) handle;
+
+        if (event.shouldCommit()) {
+            event.source = source;
+            event.bytes = bytes;
+
+            event.commit();
+        }
+    }
+
+    /**
+     * Opening a document.
+     */
+    @Name("com.cyberninjas.DocumentOpen")
+    @Label("Document Open")
+    @Category("Invoice Editor")
+    @Description("Reading the cross-reference table and trailer of a document")
+    static class OpenEvent extends Event {
+
+        @Label("Source")
+        String source;
+
+        @Label("Pages")
+        int pages;
+
+        @Label("Size")
+        @DataAmount
+        long bytes;
+
+    }
+
+    /**
+     * Parsing a page.
+     */
+    @Name("com.cyberninjas.PageParse")
+    @Label("Page Parse")
+    @Category("Invoice Editor")
+    @Description("Extracting the text of a page and finding the invoice fields on it")
+    static class ParsePageEvent extends Event {
+
+        @Label("Source")
+        String source;
+
+        @Label("Page")
+        int page;
+
+        @Label("Text Chunks")
+        int textChunks;
+
+    }
+
+    /**
+     * Locating text on a page.
+     */
+    @Name("com.cyberninjas.TextLocate")
+    @Label("Text Locate")
+    @Category("Invoice Editor")
+    @Description("Searching the extracted text of a page for strings")
+    static class LocateEvent extends Event {
+
+        @Label("Queries")
+        int queries;
+
+        @Label("Matches")
+        int matches;
+
+        @Label("Text Chunks")
+        int textChunks;
+
+    }
+
+    /**
+     * Stamping text on a page.
+     */
+    @Name("com.cyberninjas.PageStamp")
+    @Label("Page Stamp")
+    @Category("Invoice Editor")
+    @Description("Writing text over the content of a page")
+    static class StampEvent extends Event {
+
+        @Label("Source")
+        String source;
+
+        @Label("Page")
+        int page;
+
+        @Label("Texts")
+        int texts;
+
+    }
+
+    /**
+     * Writing a document.
+     */
+    @Name("com.cyberninjas.DocumentWrite")
+    @Label("Document Write")
+    @Category("Invoice Editor")
+    @Description("Completing the edited document and writing it out")
+    static class WriteEvent extends Event {
+
+        @Label("Source")
+        String source;
+
+        @Label("Size")
+        @DataAmount
+        long bytes;
+
+    }
+
+}
@@ -0,0 +1,225 @@
+/*
+ * Copyright (C) 2015 Clifford Errickson
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.cyberninjas.invoice;
+
+import com.cyberninjas.invoice.pdf.PdfInvoiceJobHandler;
+import com.cyberninjas.invoice.pdf.PdfInvoiceProfile;
+import com.cyberninjas.pdf.PdfSource;
+import com.itextpdf.text.pdf.PdfReader;
+import com.itextpdf.text.pdf.parser.PdfTextExtractor;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for {@code InvoiceBatchProcessor}.
+ *
+ * @author Clifford Errickson
+ * @since 1.1
+ */
+public class InvoiceBatchProcessorTest {
+
+    final String font = "src/test/resources/calibri.ttf";
+    final int size = 9;
+    final String src_sample2 = "src/test/resources/samples/sample2.pdf";
+
+    public InvoiceBatchProcessorTest() {
+    }
+
+    @org.junit.Test
+    public void testProcess()
+            throws IOException, InterruptedException {
+        Map<String, Double> amounts = new LinkedHashMap();
+
+        amounts.put("BOOK", 3245.04);
+        amounts.put("NO-SUCH-ITEM", 1.00);
+
+        Path dir = Files.createTempDirectory("batch");
+
+        try {
+            List<InvoiceJob> jobs = new ArrayList();
+
+            for (int i = 0; i < 6; i++) {
+                jobs.add(new InvoiceJob(Paths.get(i == 3 ? "src/test/resources/samples/missing.pdf" : src_sample2), dir.resolve(i + ".pdf"), amounts, 6514.71, null));
+            }
+
+            InvoiceBatchProcessor<PdfSource> processor = new InvoiceBatchProcessor(new PdfInvoiceJobHandler(PdfInvoiceProfile.getDefault(), font, size), 3, 2, 2);
+
+            List<InvoiceJobResult> results = processor.process(jobs);
+
+            assertEquals(jobs.size(), results.size());
+
+            for (int i = 0; i < jobs.size(); i++) {
+                InvoiceJobResult result = results.get(i);
+
+                assertEquals(i, result.getSequence());
+                assertSame(jobs.get(i), result.getJob());
+
+                if (i == 3) {
+                    assertFalse(result.isSuccess());
+                    assertTrue(result.getFailure() instanceof IOException);
+                } else {
+                    assertTrue(result.isSuccess());
+                    assertEquals(Arrays.asList("NO-SUCH-ITEM"), result.getWriteResult().getUnresolvedItemIds());
+
+                    PdfReader reader = new PdfReader(Files.readAllBytes(result.getJob().getOutput()));
+
+                    StringBuilder text = new StringBuilder();
+
+                    for (int page = 1; page <= reader.getNumberOfPages(); page++) {
+                        text.append(PdfTextExtractor.getTextFromPage(reader, page));
+                    }
+
+                    assertTrue(text.indexOf("3,245.04") >= 0);
+
+                    reader.close();
+                }
+            }
+        } finally {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+                for (Path file : files) {
+                    Files.delete(file);
+                }
+            }
+
+            Files.delete(dir);
+        }
+    }
+
+    @org.junit.Test
+    public void testWithVirtualThreads()
+            throws IOException, InterruptedException {
+        PdfInvoiceJobHandler handler = new PdfInvoiceJobHandler(PdfInvoiceProfile.getDefault(), font, size);
+
+        // set when run on the packaged multi-release JAR, which must load the Java 21 classes
+        if (Boolean.getBoolean("invoice.virtualThreads")) {
+            assertTrue(InvoiceBatchProcessor.isVirtualThreadsSupported());
+        }
+
+        // filling in a job leaves its output to be written
+        Path output = Files.createTempFile("batch", ".pdf");
+
+        Files.delete(output);
+
+        InvoiceJob job = new InvoiceJob(Paths.get(src_sample2), output, Collections.singletonMap("BOOK", 3245.04), null, null);
+
+        InvoiceJobHandler.FilledInvoice filledInvoice = handler.fill(job, handler.prepare(job));
+
+        assertFalse(Files.exists(output));
+        assertTrue(filledInvoice.write().isComplete());
+        assertTrue(Files.size(output) > 0);
+
+        Files.delete(output);
+
+        if (!InvoiceBatchProcessor.isVirtualThreadsSupported()) {
+            try {
+                InvoiceBatchProcessor.withVirtualThreads(handler, 1, 4);
+                fail("virtual threads must not be used before Java 21");
+            } catch (UnsupportedOperationException ex) {
+                // expected
+            }
+
+            return;
+        }
+
+        Path dir = Files.createTempDirectory("batch");
+
+        try {
+            List<InvoiceJob> jobs = new ArrayList();
+
+            for (int i = 0; i < 8; i++) {
+                jobs.add(new InvoiceJob(Paths.get(src_sample2), dir.resolve(i + ".pdf"), Collections.singletonMap("BOOK", 3245.04), null, null));
+            }
+
+            List<InvoiceJobResult> results = InvoiceBatchProcessor.withVirtualThreads(handler, 1, 4).process(jobs);
+
+            assertEquals(jobs.size(), results.size());
+
+            for (InvoiceJobResult result : results) {
+                assertTrue(result.isSuccess());
+                assertTrue(result.getWriteResult().isComplete());
+                assertTrue(Files.size(result.getJob().getOutput()) > 0);
+            }
+
+            // with one job processed at once, outputs waiting to be written must not hold up filling in the others
+            CountDownLatch filled = new CountDownLatch(4);
+
+            InvoiceJobHandler<PdfSource> waitingHandler = new InvoiceJobHandler<PdfSource>() {
+
+                @Override
+                public PdfSource prepare(final InvoiceJob job)
+                        throws IOException {
+                    return handler.prepare(job);
+                }
+
+                @Override
+                public InvoiceWriteResult process(final InvoiceJob job, final PdfSource input)
+                        throws IOException {
+                    return handler.process(job, input);
+                }
+
+                @Override
+                public InvoiceJobHandler.FilledInvoice fill(final InvoiceJob job, final PdfSource input)
+                        throws IOException {
+                    InvoiceJobHandler.FilledInvoice filledInvoice = handler.fill(job, input);
+
+                    filled.countDown();
+
+                    return () -> {
+                        try {
+                            if (!filled.await(30, TimeUnit.SECONDS)) {
+                                throw new IOException("Jobs were not filled in while an output waited to be written");
+                            }
+                        } catch (InterruptedException ex) {
+                            throw new InterruptedIOException();
+                        }
+
+                        return filledInvoice.write();
+                    };
+                }
+
+            };
+
+            results = InvoiceBatchProcessor.withVirtualThreads(waitingHandler, 1, 4).process(jobs.subList(0, 4));
+
+            for (InvoiceJobResult result : results) {
+                assertTrue(String.valueOf(result.getFailure()), result.isSuccess());
+            }
+        } finally {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+                for (Path file : files) {
+                    Files.delete(file);
+                }
+            }
+
+            Files.delete(dir);
+        }
+    }
+
+}
@@ -0,0 +1,588 @@
+/*
+ * Copyright (C) 2015 Clifford Errickson
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.cyberninjas.invoice.pdf;
+
+import com.cyberninjas.pdf.PageVector;
+import com.itextpdf.text.Document;
+import com.itextpdf.text.DocumentException;
+import com.itextpdf.text.Image;
+import com.itextpdf.text.PageSize;
+import com.itextpdf.text.pdf.BaseFont;
+import com.itextpdf.text.pdf.PdfContentByte;
+import com.itextpdf.text.pdf.PdfWriter;
+import com.itextpdf.text.pdf.parser.Vector;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Generates invoices in the layout of the sample invoices, at any scale, along with the locations
+ * {@link PdfInvoiceEditor} is expected to find in them.
+ *
+ * <p>
+ * Each page carries the table heading ending with the default cumulative cost heading, followed by the item rows: an
+ * ItemId line ({@code ItemId|name}) and a line ending with the hours, rate and cost this period that the default item
+ * row pattern identifies. The last page carries the default subtotal and total funded amount labels. Text may be
+ * fragmented into many small text blocks and images may be drawn on every page, without changing the extracted text
+ * or the expected locations.</p>
+ *
+ * <p>
+ * Run with {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.cyberninjas.invoice.pdf.InvoiceGenerator -Dexec.args="dir pageCount itemCount [fragmentLength
+ * [imagesPerPage]]"} to write an invoice and its expected locations to a directory.</p>
+ *
+ * @author Clifford Errickson
+ * @since 1.1
+ */
+public class InvoiceGenerator {
+
+    /**
+     * The font size of all text.
+     */
+    static final float FONT_SIZE = 8;
+
+    /**
+     * The distance between the two lines of an item row.
+     */
+    static final float LINE_HEIGHT = 10;
+
+    /**
+     * The distance between item rows.
+     */
+    static final float ROW_HEIGHT = 24;
+
+    /**
+     * The baseline of the table heading on the first page, below the invoice header.
+     */
+    static final float FIRST_HEADING_Y = 640;
+
+    /**
+     * The baseline of the table heading on the following pages.
+     */
+    static final float HEADING_Y = 740;
+
+    /**
+     * The lowest baseline of an item row, leaving room for the totals.
+     */
+    static final float MIN_ROW_Y = 100;
+
+    /**
+     * The left of the text columns: description, hours, rate, cost this period and cumulative cost.
+     */
+    static final float[] COLUMNS = {40, 330, 380, 430, 510};
+
+    /**
+     * The text of the table heading, a column each.
+     */
+    static final String[] HEADINGS = {"Task", "Hours", "Rate", "Cost this Period", null};
+
+    /**
+     * The number of pages.
+     */
+    private int pageCount = 2;
+
+    /**
+     * The highest baseline of the subtotal label, which is otherwise written a row below the last item.
+     */
+    private float totalsY = MIN_ROW_Y - 20;
+
+    /**
+     * The number of items, spread evenly over the pages.
+     */
+    private int itemCount = 18;
+
+    /**
+     * The maximum number of characters of a text block, or 0 for a text block per line.
+     */
+    private int fragmentLength;
+
+    /**
+     * The number of images drawn on each page.
+     */
+    private int imagesPerPage;
+
+    /**
+     * The width and height in pixels of each image.
+     */
+    private int imageSize = 64;
+
+    /**
+     * Seeds the amounts, descriptions and image content.
+     */
+    private long seed;
+
+    /**
+     * The settings whose labels are written.
+     */
+    private final PdfInvoiceSettings settings = new PdfInvoiceSettings();
+
+    /**
+     * Constructs an instance of {@code InvoiceGenerator} for two pages with 18 items, like {@code sample2.pdf}.
+     */
+    public InvoiceGenerator() {
+    }
+
+    /**
+     * Writes an invoice and its expected locations to a directory.
+     *
+     * @param args the directory, page count, item count and optionally fragment length and images per page.
+     * @throws IOException on I/O error.
+     * @throws DocumentException on error creating the document.
+     */
+    public static void main(String[] args)
+            throws IOException, DocumentException {
+        InvoiceGenerator generator = new InvoiceGenerator();
+
+        generator.setPageCount(Integer.parseInt(args[1]));
+        generator.setItemCount(Integer.parseInt(args[2]));
+
+        if (args.length > 3) {
+            generator.setFragmentLength(Integer.parseInt(args[3]));
+        }
+
+        if (args.length > 4) {
+            generator.setImagesPerPage(Integer.parseInt(args[4]));
+        }
+
+        Path pdf = Paths.get(args[0]).resolve("invoice_" + generator.getPageCount() + "p_" + generator.getItemCount() + "i.pdf");
+
+        Files.createDirectories(pdf.getParent());
+
+        generator.generate().write(pdf);
+
+        System.out.println(pdf);
+    }
+
+    /**
+     * Get the maximum number of items on a page.
+     *
+     * @param first whether the page is the first, which has the invoice header.
+     * @return the maximum number of items.
+     */
+    static int getMaxItemsPerPage(final boolean first) {
+        return (int) (((first ? FIRST_HEADING_Y : HEADING_Y) - ROW_HEIGHT - MIN_ROW_Y) / ROW_HEIGHT) + 1;
+    }
+
+    /**
+     * Generates an invoice.
+     *
+     * @return the invoice and its expected locations.
+     * @throws IOException on I/O error.
+     * @throws DocumentException on error creating the document.
+     * @throws IllegalArgumentException if the items do not fit on the pages.
+     */
+    public GeneratedInvoice generate()
+            throws IOException, DocumentException {
+        int itemsPerPage = (itemCount + pageCount - 1) / pageCount;
+
+        if (itemsPerPage > getMaxItemsPerPage(pageCount == 1)) {
+            throw new IllegalArgumentException(itemCount + " items do not fit on " + pageCount + " pages");
+        }
+
+        Random random = new Random(seed);
+
+        BaseFont font = BaseFont.createFont(BaseFont.HELVETICA, BaseFont.WINANSI, BaseFont.NOT_EMBEDDED);
+
+        Image image = imagesPerPage > 0 ? createImage(random) : null;
+
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+
+        Document document = new Document(PageSize.LETTER);
+
+        PdfWriter writer = PdfWriter.getInstance(document, os);
+
+        document.open();
+
+        PdfContentByte canvas = writer.getDirectContent();
+
+        Map<String, PageVector> cumulativeCostLocations = new LinkedHashMap();
+
+        float column = COLUMNS[4] + font.getWidthPoint(settings.getCumulativeCostHeadingText(), FONT_SIZE);
+
+        double subtotal = 0;
+
+        int item = 0;
+
+        for (int pageNum = 1; pageNum <= pageCount; pageNum++) {
+            if (pageNum > 1) {
+                document.newPage();
+            }
+
+            for (int i = 0; i < imagesPerPage; i++) {
+                canvas.addImage(image, imageSize, 0, 0, imageSize, 40 + (i % 6) * (imageSize + 10), 750 - (i / 6) * (imageSize + 10) - imageSize);
+            }
+
+            float y;
+
+            if (pageNum == 1) {
+                writeLine(canvas, font, 40, 760, "INVOICE");
+                writeLine(canvas, font, 40, 745, "Invoice Number: INV-" + seed);
+                writeLine(canvas, font, 40, 730, "Invoice Date: 06 Oct 2015");
+                writeLine(canvas, font, 40, 715, "Direct Labor Costs:");
+
+                y = FIRST_HEADING_Y;
+            } else {
+                y = HEADING_Y;
+            }
+
+            for (int c = 0; c < COLUMNS.length; c++) {
+                writeLine(canvas, font, COLUMNS[c], y, HEADINGS[c] != null ? HEADINGS[c] : settings.getCumulativeCostHeadingText());
+            }
+
+            int pageItems = Math.min(itemsPerPage, itemCount - item);
+
+            for (int i = 0; i < pageItems; i++, item++) {
+                String itemId = String.format(Locale.US, "ITEM-%06d", item);
+
+                String description = "Item " + item + " description " + Long.toString(random.nextLong() & Long.MAX_VALUE, 36);
+
+                double hours = 1 + random.nextInt(40) * 0.25;
+                double rate = 10 + random.nextInt(20000) / 100.0;
+                double cost = Math.round(hours * rate * 100) / 100.0;
+
+                subtotal += cost;
+
+                y -= ROW_HEIGHT;
+
+                writeLine(canvas, font, COLUMNS[0], y, itemId + settings.getItemIdSeparator() + description);
+
+                float rowY = y - LINE_HEIGHT;
+
+                writeLine(canvas, font, COLUMNS[0], rowY, description);
+                writeLine(canvas, font, COLUMNS[1], rowY, String.format(Locale.US, "%.2f", hours));
+                writeLine(canvas, font, COLUMNS[2], rowY, String.format(Locale.US, "$%,.2f", rate));
+                writeLine(canvas, font, COLUMNS[3], rowY, String.format(Locale.US, "$%,.2f", cost));
+
+                cumulativeCostLocations.put(itemId, new PageVector(pageNum, column, rowY));
+            }
+
+            if (pageNum == pageCount) {
+                float subtotalY = Math.min(y - ROW_HEIGHT, totalsY);
+
+                writeLine(canvas, font, COLUMNS[2], subtotalY, settings.getSubtotalLabelText());
+                writeLine(canvas, font, COLUMNS[3], subtotalY, String.format(Locale.US, "$%,.2f", subtotal));
+
+                float totalFundedAmountY = subtotalY - 30;
+
+                writeLine(canvas, font, COLUMNS[0], totalFundedAmountY, settings.getTotalFundedAmountLabelText());
+
+                PageVector cumulativeCostSubtotalLocation = new PageVector(pageNum, column, subtotalY);
+
+                PageVector totalFundedAmountLocation = new PageVector(pageNum, COLUMNS[0] + font.getWidthPoint(settings.getTotalFundedAmountLabelText(), FONT_SIZE) + settings.getTotalFundedAmountOffset(), totalFundedAmountY);
+
+                document.close();
+
+                return new GeneratedInvoice(os.toByteArray(), cumulativeCostLocations, cumulativeCostSubtotalLocation, totalFundedAmountLocation);
+            }
+        }
+
+        throw new IllegalStateException("No pages generated");
+    }
+
+    /**
+     * Writes a line of text, in text blocks of at most {@link #fragmentLength} characters placed end to end.
+     *
+     * @param canvas the page content.
+     * @param font the font.
+     * @param x the left of the text.
+     * @param y the baseline of the text.
+     * @param text the text.
+     */
+    private void writeLine(final PdfContentByte canvas, final BaseFont font, final float x, final float y, final String text) {
+        int length = fragmentLength > 0 ? fragmentLength : text.length();
+
+        float fragmentX = x;
+
+        for (int start = 0; start < text.length(); start += length) {
+            String fragment = text.substring(start, Math.min(text.length(), start + length));
+
+            canvas.beginText();
+            canvas.setFontAndSize(font, FONT_SIZE);
+            canvas.setTextMatrix(fragmentX, y);
+            canvas.showText(fragment);
+            canvas.endText();
+
+            fragmentX += font.getWidthPoint(fragment, FONT_SIZE);
+        }
+    }
+
+    /**
+     * Creates an RGB image of random pixels, which does not compress.
+     *
+     * @param random the source of the pixels.
+     * @return the image.
+     * @throws DocumentException on error creating the image.
+     */
+    private Image createImage(final Random random)
+            throws DocumentException {
+        byte[] pixels = new byte[imageSize * imageSize * 3];
+
+        random.nextBytes(pixels);
+
+        return Image.getInstance(imageSize, imageSize, 3, 8, pixels);
+    }
+
+    /**
+     * Get the number of pages.
+     *
+     * @return the number of pages.
+     */
+    public int getPageCount() {
+        return pageCount;
+    }
+
+    /**
+     * Set the number of pages.
+     *
+     * @param pageCount the number of pages.
+     */
+    public void setPageCount(final int pageCount) {
+        if (pageCount < 1) {
+            throw new IllegalArgumentException("Page count must be at least 1");
+        }
+
+        this.pageCount = pageCount;
+    }
+
+    /**
+     * Get the number of items.
+     *
+     * @return the number of items.
+     */
+    public int getItemCount() {
+        return itemCount;
+    }
+
+    /**
+     * Set the number of items, spread evenly over the pages. The first page has room for
+     * {@code getMaxItemsPerPage(true)} items and the others for {@code getMaxItemsPerPage(false)}.
+     *
+     * @param itemCount the number of items.
+     */
+    public void setItemCount(final int itemCount) {
+        this.itemCount = itemCount;
+    }
+
+    /**
+     * Get the maximum number of characters of a text block.
+     *
+     * @return the maximum number of characters, or 0 for a text block per line.
+     */
+    public int getFragmentLength() {
+        return fragmentLength;
+    }
+
+    /**
+     * Set the maximum number of characters of a text block. Invoice generators often write each word or character in
+     * its own text block, which multiplies the work of extracting text.
+     *
+     * @param fragmentLength the maximum number of characters, or 0 for a text block per line.
+     */
+    public void setFragmentLength(final int fragmentLength) {
+        this.fragmentLength = fragmentLength;
+    }
+
+    /**
+     * Get the number of images drawn on each page.
+     *
+     * @return the number of images.
+     */
+    public int getImagesPerPage() {
+        return imagesPerPage;
+    }
+
+    /**
+     * Set the number of images drawn on each page. The same image is drawn each time, so it is embedded once.
+     *
+     * @param imagesPerPage the number of images.
+     */
+    public void setImagesPerPage(final int imagesPerPage) {
+        this.imagesPerPage = imagesPerPage;
+    }
+
+    /**
+     * Get the width and height in pixels of each image.
+     *
+     * @return the image size.
+     */
+    public int getImageSize() {
+        return imageSize;
+    }
+
+    /**
+     * Set the width and height in pixels of each image.
+     *
+     * @param imageSize the image size.
+     */
+    public void setImageSize(final int imageSize) {
+        this.imageSize = imageSize;
+    }
+
+    /**
+     * Get the highest baseline of the subtotal label.
+     *
+     * @return the highest baseline of the subtotal label.
+     */
+    public float getTotalsY() {
+        return totalsY;
+    }
+
+    /**
+     * Set the highest baseline of the subtotal label. The total funded amount label is written below it. Moving the
+     * totals changes the layout without changing the structure of the invoice.
+     *
+     * @param totalsY the highest baseline of the subtotal label.
+     */
+    public void setTotalsY(final float totalsY) {
+        this.totalsY = totalsY;
+    }
+
+    /**
+     * Get the seed of the amounts, descriptions and image content.
+     *
+     * @return the seed.
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Set the seed of the amounts, descriptions and image content. The same settings and seed generate the same
+     * invoice.
+     *
+     * @param seed the seed.
+     */
+    public void setSeed(final long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * A generated invoice and the locations {@link PdfInvoiceEditor} is expected to find in it.
+     */
+    public static class GeneratedInvoice {
+
+        private final byte[] bytes;
+
+        private final Map<String, PageVector> cumulativeCostLocations;
+
+        private final PageVector cumulativeCostSubtotalLocation;
+
+        private final PageVector totalFundedAmountLocation;
+
+        GeneratedInvoice(final byte[] bytes, final Map<String, PageVector> cumulativeCostLocations, final PageVector cumulativeCostSubtotalLocation, final PageVector totalFundedAmountLocation) {
+            this.bytes = bytes;
+            this.cumulativeCostLocations = Collections.unmodifiableMap(cumulativeCostLocations);
+            this.cumulativeCostSubtotalLocation = cumulativeCostSubtotalLocation;
+            this.totalFundedAmountLocation = totalFundedAmountLocation;
+        }
+
+        /**
+         * Get the PDF content.
+         *
+         * @return the PDF content.
+         */
+        public byte[] getBytes() {
+            return bytes;
+        }
+
+        /**
+         * Get the ItemIds in the order they appear.
+         *
+         * @return the ItemIds.
+         */
+        public List<String> getItemIds() {
+            return new ArrayList(cumulativeCostLocations.keySet());
+        }
+
+        /**
+         * Get the expected cumulative cost location of each ItemId.
+         *
+         * @return the expected location of each ItemId, in the order they appear.
+         */
+        public Map<String, PageVector> getCumulativeCostLocations() {
+            return cumulativeCostLocations;
+        }
+
+        /**
+         * Get the expected cumulative cost subtotal location.
+         *
+         * @return the expected cumulative cost subtotal location.
+         */
+        public PageVector getCumulativeCostSubtotalLocation() {
+            return cumulativeCostSubtotalLocation;
+        }
+
+        /**
+         * Get the expected total funded amount location.
+         *
+         * @return the expected total funded amount location.
+         */
+        public PageVector getTotalFundedAmountLocation() {
+            return totalFundedAmountLocation;
+        }
+
+        /**
+         * Writes the PDF to a file and the expected locations next to it, in a file with the extension
+         * {@code .locations}. Each line of the locations file holds tab separated what is located (an ItemId,
+         * {@code [Subtotal]} or {@code [Total Funded Amount]}), the page number, and the x and y coordinates.
+         *
+         * @param pdf the PDF file.
+         * @throws IOException on I/O error.
+         */
+        public void write(final Path pdf)
+                throws IOException {
+            Files.write(pdf, bytes);
+
+            String name = pdf.getFileName().toString();
+
+            Path locations = pdf.resolveSibling((name.endsWith(".pdf") ? name.substring(0, name.length() - 4) : name) + ".locations");
+
+            try (PrintWriter pw = new PrintWriter(Files.newBufferedWriter(locations, StandardCharsets.UTF_8))) {
+                for (Map.Entry<String, PageVector> entry : cumulativeCostLocations.entrySet()) {
+                    writeLocation(pw, entry.getKey(), entry.getValue());
+                }
+
+                writeLocation(pw, "[Subtotal]", cumulativeCostSubtotalLocation);
+                writeLocation(pw, "[Total Funded Amount]", totalFundedAmountLocation);
+            }
+        }
+
+        /**
+         * Writes a line of the locations file.
+         *
+         * @param pw the locations file.
+         * @param name what is located.
+         * @param location the location.
+         */
+        private static void writeLocation(final PrintWriter pw, final String name, final PageVector location) {
+            pw.println(name + "\t" + location.getPageNum() + "\t" + location.get(Vector.I1) + "\t" + location.get(Vector.I2));
+        }
+
+    }
+
+}
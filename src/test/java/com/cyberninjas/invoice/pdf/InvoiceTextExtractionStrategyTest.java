@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2015 Clifford Errickson
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.cyberninjas.invoice.pdf;
+
+import com.cyberninjas.pdf.TextContentParser;
+import com.itextpdf.text.pdf.PdfReader;
+import java.io.IOException;
+import com.itextpdf.text.pdf.parser.Vector;
+import java.util.Arrays;
+import java.util.Map;
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for {@code InvoiceTextExtractionStrategy}.
+ *
+ * @author Clifford Errickson
+ * @since 1.1
+ */
+public class InvoiceTextExtractionStrategyTest {
+
+    final String src_sample1 = "src/test/resources/samples/sample1.pdf";
+    final String src_sample2 = "src/test/resources/samples/sample2.pdf";
+
+    public InvoiceTextExtractionStrategyTest() {
+    }
+
+    @org.junit.Test
+    public void testReset()
+            throws IOException {
+        InvoiceTextExtractionStrategy reused = new InvoiceTextExtractionStrategy();
+
+        for (String src : Arrays.asList(src_sample2, src_sample1, src_sample2)) {
+            PdfReader reader = new PdfReader(src);
+
+            try {
+                for (int pageNum = 1; pageNum <= reader.getNumberOfPages(); pageNum++) {
+                    InvoiceTextExtractionStrategy expected = new TextContentParser(reader).processContent(pageNum, new InvoiceTextExtractionStrategy());
+
+                    expected.parse(PdfInvoiceProfile.getDefault());
+
+                    reused.reset();
+
+                    assertEquals(0, reused.getTextChunkCount());
+                    assertTrue(reused.getLabelLocationMap().isEmpty());
+                    assertNull(reused.getCumulativeCostSubtotalLocation());
+                    assertNull(reused.getTotalFundedAmountLocation());
+
+                    new TextContentParser(reader).processContent(pageNum, reused);
+
+                    reused.parse(PdfInvoiceProfile.getDefault());
+
+                    assertEquals(expected.getTextChunkCount(), reused.getTextChunkCount());
+                    assertEquals(expected.getPageTextIndex().getLines().size(), reused.getPageTextIndex().getLines().size());
+
+                    for (int i = 0; i < expected.getPageTextIndex().getLines().size(); i++) {
+                        assertEquals(expected.getPageTextIndex().getLines().get(i).getText(), reused.getPageTextIndex().getLines().get(i).getText());
+                    }
+
+                    assertEquals(expected.getCumulativeCostLocationMap(), reused.getCumulativeCostLocationMap());
+                    assertEquals(expected.getLabelLocationMap(), reused.getLabelLocationMap());
+                    assertEquals(expected.getCumulativeCostSubtotalLocation(), reused.getCumulativeCostSubtotalLocation());
+                    assertEquals(expected.getTotalFundedAmountLocation(), reused.getTotalFundedAmountLocation());
+                }
+            } finally {
+                reader.close();
+            }
+        }
+    }
+
+    @org.junit.Test
+    public void testParseItemRows_rowRegion()
+            throws IOException {
+        int partialPages = 0;
+
+        for (String src : Arrays.asList(src_sample1, src_sample2)) {
+            PdfReader reader = new PdfReader(src);
+
+            try {
+                for (int pageNum = 1; pageNum <= reader.getNumberOfPages(); pageNum++) {
+                    InvoiceTextExtractionStrategy expected = new TextContentParser(reader).processContent(pageNum, new InvoiceTextExtractionStrategy());
+
+                    expected.parse(PdfInvoiceProfile.getDefault());
+
+                    Map<String, Vector> labelLocations = expected.getLabelLocationMap();
+
+                    if (labelLocations.isEmpty()) {
+                        continue;
+                    }
+
+                    InvoiceTextExtractionStrategy strategy = new InvoiceTextExtractionStrategy();
+
+                    new TextContentParser(reader).processContent(pageNum, strategy.getRowRegionListener(PdfInvoiceProfile.getDefault(), labelLocations));
+
+                    assertTrue(strategy.isRowRegionOnly());
+                    assertFalse(expected.isRowRegionOnly());
+
+                    // the labels and rows are extracted, but not the text above the heading
+                    assertTrue(strategy.getTextChunkCount() <= expected.getTextChunkCount());
+
+                    if (strategy.getTextChunkCount() < expected.getTextChunkCount()) {
+                        partialPages++;
+                    }
+
+                    assertNotNull(expected.getStaticText(labelLocations));
+                    assertEquals(expected.getStaticText(labelLocations), strategy.getStaticText(labelLocations));
+
+                    strategy.parseItemRows(PdfInvoiceProfile.getDefault(), labelLocations);
+
+                    assertEquals(expected.getCumulativeCostLocationMap(), strategy.getCumulativeCostLocationMap());
+                    assertEquals(expected.getCumulativeCostSubtotalLocation(), strategy.getCumulativeCostSubtotalLocation());
+                    assertEquals(expected.getTotalFundedAmountLocation(), strategy.getTotalFundedAmountLocation());
+
+                    strategy.reset();
+
+                    assertFalse(strategy.isRowRegionOnly());
+                }
+            } finally {
+                reader.close();
+            }
+        }
+
+        assertTrue(partialPages > 0);
+    }
+
+}
@@ -16,18 +16,47 @@
  */
 package com.cyberninjas.invoice.pdf;
 
+import com.cyberninjas.invoice.InvoiceWriteResult;
 import com.cyberninjas.pdf.Alignment;
+import com.cyberninjas.pdf.HistogramMetricsListener;
+import com.cyberninjas.pdf.MetricsListener;
+import com.cyberninjas.pdf.PageVector;
+import com.cyberninjas.pdf.PdfDestination;
+import com.cyberninjas.pdf.PdfSource;
+import com.itextpdf.text.Document;
 import com.itextpdf.text.DocumentException;
+import com.itextpdf.text.Rectangle;
+import com.itextpdf.text.pdf.PdfCopy;
 import com.itextpdf.text.pdf.PdfReader;
 import com.itextpdf.text.pdf.parser.LocationTextExtractionStrategy;
 import com.itextpdf.text.pdf.parser.PdfReaderContentParser;
+import com.itextpdf.text.pdf.parser.PdfTextExtractor;
+import com.itextpdf.text.pdf.parser.Vector;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
 import static org.junit.Assert.*;
 
 /**
@@ -42,12 +71,18 @@ public class PdfInvoiceEditorTest {
     final int size = 9;
     final String src_sample1 = "src/test/resources/samples/sample1.pdf";
     final String src_sample2 = "src/test/resources/samples/sample2.pdf";
-    final String dest_sample1 = "src/test/resources/generated/sample1_filled.pdf";
-    final String dest_sample2 = "src/test/resources/generated/sample2_filled.pdf";
+    final String dest_sample1 = "target/generated/sample1_filled.pdf";
+    final String dest_sample2 = "target/generated/sample2_filled.pdf";
 
     public PdfInvoiceEditorTest() {
     }
 
+    @org.junit.BeforeClass
+    public static void createOutputDirectory()
+            throws IOException {
+        Files.createDirectories(Paths.get("target/generated"));
+    }
+
     @org.junit.Test
     public void testListItemIds_sample1()
             throws IOException, DocumentException {
@@ -82,6 +117,408 @@ public class PdfInvoiceEditorTest {
         assertTrue(itemIdList.containsAll(Arrays.asList("12312312", "112233", "GB3-White", "BOOK", "GB6-White", "PM-BR", "TSS - Black", "TSM - Black", "TSL - Black", "Train-MS", "Support-M", "COOKIE", "GB9-White", "SPX-321-I", "GB1-White", "CIO-SP3-TRACK3", "WAEH", "32-55R32")));
     }
 
+    @org.junit.Test
+    public void testParseContent_parallel()
+            throws IOException {
+        PdfInvoiceEditor pdfInvoiceEditor = new PdfInvoiceEditor(src_sample2);
+
+        pdfInvoiceEditor.parseContent();
+
+        PdfInvoiceEditor parallelPdfInvoiceEditor = new PdfInvoiceEditor(src_sample2);
+
+        parallelPdfInvoiceEditor.parseContent(ForkJoinPool.commonPool());
+
+        assertEquals(new HashSet(pdfInvoiceEditor.listItemIds()), new HashSet(parallelPdfInvoiceEditor.listItemIds()));
+    }
+
+    @org.junit.Test
+    public void testParseContent_url()
+            throws IOException {
+        PdfInvoiceEditor pdfInvoiceEditor = new PdfInvoiceEditor(src_sample2);
+
+        pdfInvoiceEditor.parseContent();
+
+        // locations PdfReader accepts other than local paths are read as before, sequentially or in parallel
+        String url = Paths.get(src_sample2).toUri().toURL().toString();
+
+        PdfInvoiceEditor urlPdfInvoiceEditor = new PdfInvoiceEditor(url);
+
+        urlPdfInvoiceEditor.parseContent();
+
+        assertEquals(pdfInvoiceEditor.listItemIds(), urlPdfInvoiceEditor.listItemIds());
+
+        PdfInvoiceEditor parallelPdfInvoiceEditor = new PdfInvoiceEditor(url);
+
+        parallelPdfInvoiceEditor.parseContent(ForkJoinPool.commonPool());
+
+        assertEquals(new HashSet(pdfInvoiceEditor.listItemIds()), new HashSet(parallelPdfInvoiceEditor.listItemIds()));
+    }
+
+    @org.junit.Test
+    public void testParseContent_onDemand()
+            throws IOException, DocumentException {
+        // the first page of sample2 repeated after the second, so its ItemIds are found again on the last page
+        PdfReader reader = new PdfReader(src_sample2);
+
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+
+        Document document = new Document();
+
+        PdfCopy copy = new PdfCopy(document, os);
+
+        document.open();
+
+        for (int pageNum : new int[]{1, 2, 1}) {
+            copy.addPage(copy.getImportedPage(reader, pageNum));
+        }
+
+        document.close();
+
+        reader.close();
+
+        PdfInvoiceEditor expected = new PdfInvoiceEditor(PdfSource.of(os.toByteArray()));
+
+        expected.parseContent();
+
+        assertEquals(3, expected.getLocations().getCumulativeCostLocationMap().get("BOOK").getPageNum());
+
+        PdfInvoiceEditor pdfInvoiceEditor = new PdfInvoiceEditor(PdfSource.of(os.toByteArray()));
+
+        pdfInvoiceEditor.setFontAndSize(font, size);
+
+        // the subtotal is on the second page, so the third is not parsed
+        assertTrue(pdfInvoiceEditor.parseContent(Collections.<String>emptySet(), true, true));
+        assertEquals(2, pdfInvoiceEditor.getParsedPageCount());
+        assertEquals(expected.getLocations().getCumulativeCostSubtotalLocation(), pdfInvoiceEditor.getLocations().getCumulativeCostSubtotalLocation());
+
+        // BOOK was found on the first page, so it is resolved there without parsing the third
+        assertTrue(pdfInvoiceEditor.parseContent(Arrays.asList("BOOK"), false, false));
+        assertEquals(2, pdfInvoiceEditor.getParsedPageCount());
+        assertEquals(1, pdfInvoiceEditor.getLocations().getCumulativeCostLocationMap().get("BOOK").getPageNum());
+
+        // parsing the rest moves BOOK to its last occurrence, as in a full parse
+        assertFalse(pdfInvoiceEditor.parseContent(Arrays.asList("not an item"), true, true));
+        assertEquals(3, pdfInvoiceEditor.getParsedPageCount());
+        assertEquals(expected.getLocations().getCumulativeCostLocationMap(), pdfInvoiceEditor.getLocations().getCumulativeCostLocationMap());
+
+        // writing to an ItemId parses until its first occurrence
+        pdfInvoiceEditor = new PdfInvoiceEditor(PdfSource.of(os.toByteArray()));
+
+        pdfInvoiceEditor.setFontAndSize(font, size);
+
+        pdfInvoiceEditor.writeCumulativeCost("BOOK", 1);
+
+        assertEquals(1, pdfInvoiceEditor.getParsedPageCount());
+        assertEquals(1, pdfInvoiceEditor.getLocations().getCumulativeCostLocationMap().get("BOOK").getPageNum());
+
+        // after a full parse, ItemIds are written at their last occurrence
+        pdfInvoiceEditor = new PdfInvoiceEditor(PdfSource.of(os.toByteArray()));
+
+        pdfInvoiceEditor.setFontAndSize(font, size);
+
+        pdfInvoiceEditor.parseContent();
+
+        pdfInvoiceEditor.writeCumulativeCost("BOOK", 1);
+
+        assertEquals(expected.getLocations().getCumulativeCostLocationMap().get("BOOK"), pdfInvoiceEditor.getLocations().getCumulativeCostLocationMap().get("BOOK"));
+    }
+
+    @org.junit.Test
+    public void testLayoutCache()
+            throws IOException, DocumentException {
+        LayoutCache layoutCache = new LayoutCache(1);
+
+        for (String src : Arrays.asList(src_sample2, src_sample2, src_sample1, src_sample2)) {
+            PdfInvoiceEditor expected = new PdfInvoiceEditor(src);
+
+            expected.parseContent();
+
+            PdfInvoiceEditor pdfInvoiceEditor = new PdfInvoiceEditor(src);
+
+            pdfInvoiceEditor.setLayoutCache(layoutCache);
+
+            pdfInvoiceEditor.parseContent();
+
+            LocationStore.Locations expectedLocations = expected.getLocations();
+            LocationStore.Locations locations = pdfInvoiceEditor.getLocations();
+
+            assertEquals(expectedLocations.getCumulativeCostLocationMap(), locations.getCumulativeCostLocationMap());
+            assertEquals(expectedLocations.getCumulativeCostSubtotalLocation(), locations.getCumulativeCostSubtotalLocation());
+            assertEquals(expectedLocations.getTotalFundedAmountLocation(), locations.getTotalFundedAmountLocation());
+        }
+
+        // sample1 evicted sample2, so only the second parse of sample2 was a hit
+        assertEquals(1, layoutCache.getHitCount());
+        assertEquals(3, layoutCache.getMissCount());
+        assertEquals(1, layoutCache.size());
+
+        // on a hit each page is extracted once, but only its item row region
+        PdfInvoiceEditor parsed = new PdfInvoiceEditor(src_sample2);
+
+        HistogramMetricsListener parsedMetrics = new HistogramMetricsListener();
+
+        parsed.setMetricsListener(parsedMetrics);
+
+        parsed.parseContent();
+
+        PdfInvoiceEditor cached = new PdfInvoiceEditor(src_sample2);
+
+        HistogramMetricsListener cachedMetrics = new HistogramMetricsListener();
+
+        cached.setMetricsListener(cachedMetrics);
+        cached.setLayoutCache(layoutCache);
+
+        cached.parseContent();
+
+        assertEquals(2, layoutCache.getHitCount());
+        assertEquals(parsedMetrics.getCount(MetricsListener.Phase.EXTRACT), cachedMetrics.getCount(MetricsListener.Phase.EXTRACT));
+        assertTrue(cachedMetrics.getTotal(MetricsListener.Count.TEXT_CHUNKS) < parsedMetrics.getTotal(MetricsListener.Count.TEXT_CHUNKS));
+        assertEquals(parsed.getLocations().getCumulativeCostLocationMap(), cached.getLocations().getCumulativeCostLocationMap());
+
+        // the whole page is extracted when its text is needed
+        assertEquals(parsed.getPageText(1).getTextChunkCount(), cached.getPageText(1).getTextChunkCount());
+
+        // invoices with the same structure but their totals in different places share a fingerprint
+        InvoiceGenerator generator = new InvoiceGenerator();
+
+        List<InvoiceGenerator.GeneratedInvoice> invoices = new ArrayList();
+
+        for (float totalsY : new float[]{80, 40, 40, 80}) {
+            generator.setTotalsY(totalsY);
+
+            invoices.add(generator.generate());
+        }
+
+        assertEquals(LayoutCache.fingerprint(new PdfReader(invoices.get(0).getBytes())), LayoutCache.fingerprint(new PdfReader(invoices.get(1).getBytes())));
+        assertFalse(invoices.get(0).getCumulativeCostSubtotalLocation().equals(invoices.get(1).getCumulativeCostSubtotalLocation()));
+
+        layoutCache = new LayoutCache(1);
+
+        for (InvoiceGenerator.GeneratedInvoice invoice : invoices) {
+            PdfInvoiceEditor pdfInvoiceEditor = new PdfInvoiceEditor(PdfSource.of(invoice.getBytes()));
+
+            pdfInvoiceEditor.setLayoutCache(layoutCache);
+
+            pdfInvoiceEditor.parseContent();
+
+            LocationStore.Locations locations = pdfInvoiceEditor.getLocations();
+
+            assertLocation(invoice.getCumulativeCostSubtotalLocation(), locations.getCumulativeCostSubtotalLocation());
+            assertLocation(invoice.getTotalFundedAmountLocation(), locations.getTotalFundedAmountLocation());
+
+            assertEquals(invoice.getCumulativeCostLocations().keySet(), locations.getCumulativeCostLocationMap().keySet());
+
+            for (Map.Entry<String, PageVector> entry : invoice.getCumulativeCostLocations().entrySet()) {
+                assertLocation(entry.getValue(), locations.getCumulativeCostLocationMap().get(entry.getKey()));
+            }
+
+            pdfInvoiceEditor.close();
+        }
+
+        // every invoice after the first was a hit; the moved totals were found on the page, not taken from the cache
+        assertEquals(3, layoutCache.getHitCount());
+        assertEquals(1, layoutCache.getMissCount());
+    }
+
+    @org.junit.Test
+    public void testLayoutCache_fixedRows()
+            throws IOException {
+        LayoutCache layoutCache = new LayoutCache(1, true);
+
+        assertTrue(layoutCache.isFixedRows());
+
+        PdfInvoiceEditor expected = new PdfInvoiceEditor(src_sample2);
+
+        expected.setLayoutCache(layoutCache);
+
+        expected.parseContent();
+
+        assertEquals(0, layoutCache.getHitCount());
+
+        // a hit resolves every location without extracting any text, whether parsed fully or on demand
+        for (boolean onDemand : new boolean[]{false, true}) {
+            PdfInvoiceEditor pdfInvoiceEditor = new PdfInvoiceEditor(src_sample2);
+
+            HistogramMetricsListener metrics = new HistogramMetricsListener();
+
+            pdfInvoiceEditor.setMetricsListener(metrics);
+            pdfInvoiceEditor.setLayoutCache(layoutCache);
+
+            if (onDemand) {
+                assertTrue(pdfInvoiceEditor.parseContent(expected.listItemIds(), true, true));
+            } else {
+                pdfInvoiceEditor.parseContent();
+            }
+
+            assertEquals(0, metrics.getCount(MetricsListener.Phase.EXTRACT));
+            assertEquals(expected.getParsedPageCount(), pdfInvoiceEditor.getParsedPageCount());
+
+            LocationStore.Locations expectedLocations = expected.getLocations();
+            LocationStore.Locations locations = pdfInvoiceEditor.getLocations();
+
+            assertEquals(expectedLocations.getCumulativeCostLocationMap(), locations.getCumulativeCostLocationMap());
+            assertEquals(expectedLocations.getCumulativeCostSubtotalLocation(), locations.getCumulativeCostSubtotalLocation());
+            assertEquals(expectedLocations.getTotalFundedAmountLocation(), locations.getTotalFundedAmountLocation());
+        }
+
+        assertEquals(2, layoutCache.getHitCount());
+    }
+
+    @org.junit.Test
+    public void testLocationStore()
+            throws IOException {
+        Path directory = Files.createTempDirectory("locations");
+
+        LocationStore locationStore = new LocationStore(directory, 1024 * 1024);
+
+        PdfInvoiceEditor expected = new PdfInvoiceEditor(src_sample2);
+
+        HistogramMetricsListener parsed = new HistogramMetricsListener();
+
+        expected.setMetricsListener(parsed);
+        expected.setLocationStore(locationStore);
+
+        expected.parseContent();
+
+        assertTrue(parsed.getCount(MetricsListener.Phase.EXTRACT) > 0);
+
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+            assertTrue(entries.iterator().hasNext());
+        }
+
+        // the second editor is served from the store, so no page is extracted
+        PdfInvoiceEditor pdfInvoiceEditor = new PdfInvoiceEditor(src_sample2);
+
+        HistogramMetricsListener stored = new HistogramMetricsListener();
+
+        pdfInvoiceEditor.setMetricsListener(stored);
+        pdfInvoiceEditor.setLocationStore(locationStore);
+
+        pdfInvoiceEditor.parseContent();
+
+        assertEquals(new HashSet(expected.listItemIds()), new HashSet(pdfInvoiceEditor.listItemIds()));
+        assertEquals(0, stored.getCount(MetricsListener.Phase.EXTRACT));
+
+        // a store too small for any entry keeps none
+        PdfInvoiceEditor evicted = new PdfInvoiceEditor(src_sample1);
+
+        evicted.setLocationStore(new LocationStore(directory, 0));
+
+        evicted.parseContent();
+
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+            assertFalse(entries.iterator().hasNext());
+        }
+
+        // once over the limit, the least recently used entries are removed down to three quarters of it
+        LocationStore.Locations locations = pdfInvoiceEditor.getLocations();
+
+        locationStore.put(PdfInvoiceProfile.getDefault(), "0", locations);
+
+        List<Path> entryList = listEntries(directory);
+
+        assertEquals(1, entryList.size());
+
+        locationStore = new LocationStore(directory, 4 * Files.size(entryList.get(0)));
+
+        List<Path> entryPaths = new ArrayList(entryList);
+
+        for (int i = 1; i <= 3; i++) {
+            locationStore.put(PdfInvoiceProfile.getDefault(), String.valueOf(i), locations);
+
+            entryList = listEntries(directory);
+            entryList.removeAll(entryPaths);
+
+            assertEquals(1, entryList.size());
+
+            entryPaths.add(entryList.get(0));
+        }
+
+        // entries are used in key order an hour ago, then reading "0" makes it the most recently used
+        long used = System.currentTimeMillis() - 60 * 60 * 1000;
+
+        for (int i = 0; i < entryPaths.size(); i++) {
+            Files.setLastModifiedTime(entryPaths.get(i), FileTime.fromMillis(used + i * 1000));
+        }
+
+        assertNotNull(locationStore.get(PdfInvoiceProfile.getDefault(), "0"));
+
+        locationStore.put(PdfInvoiceProfile.getDefault(), "4", locations);
+
+        entryList = listEntries(directory);
+
+        assertEquals(3, entryList.size());
+        assertTrue(entryList.contains(entryPaths.get(0)));
+        assertFalse(entryList.contains(entryPaths.get(1)));
+        assertFalse(entryList.contains(entryPaths.get(2)));
+        assertTrue(entryList.contains(entryPaths.get(3)));
+
+        assertNull(locationStore.get(PdfInvoiceProfile.getDefault(), "1"));
+        assertNull(locationStore.get(PdfInvoiceProfile.getDefault(), "2"));
+        assertNotNull(locationStore.get(PdfInvoiceProfile.getDefault(), "3"));
+        assertNotNull(locationStore.get(PdfInvoiceProfile.getDefault(), "4"));
+
+        for (Path entry : entryList) {
+            Files.delete(entry);
+        }
+
+        Files.delete(directory);
+    }
+
+    private static List<Path> listEntries(final Path directory)
+            throws IOException {
+        List<Path> entryList = new ArrayList();
+
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+            entries.forEach(entryList::add);
+        }
+
+        return entryList;
+    }
+
+    @org.junit.Test
+    public void testCompileProfile() {
+        assertSame(PdfInvoiceProfile.getDefault(), PdfInvoiceProfile.compile(new PdfInvoiceSettings()));
+
+        PdfInvoiceSettings settings = new PdfInvoiceSettings();
+
+        settings.setSubtotalLabelText("Sub-total");
+
+        PdfInvoiceProfile profile = PdfInvoiceProfile.compile(settings);
+
+        assertNotSame(PdfInvoiceProfile.getDefault(), profile);
+        assertEquals("Sub-total", profile.getSubtotalLabelText());
+        assertSame(profile, PdfInvoiceProfile.compile(settings));
+    }
+
+    @org.junit.Test
+    public void testCompileProfile_bounded() {
+        PdfInvoiceSettings settings = new PdfInvoiceSettings();
+
+        settings.setTotalFundedAmountOffset(-1f);
+
+        PdfInvoiceProfile profile = PdfInvoiceProfile.compile(settings);
+
+        for (int i = 0; i < 100; i++) {
+            PdfInvoiceSettings other = new PdfInvoiceSettings();
+
+            other.setTotalFundedAmountOffset(1000f + i);
+
+            PdfInvoiceProfile.compile(other);
+        }
+
+        assertNotSame(profile, PdfInvoiceProfile.compile(settings));
+    }
+
+    @org.junit.Test(expected = IllegalArgumentException.class)
+    public void testCompileProfile_invalidPattern() {
+        PdfInvoiceSettings settings = new PdfInvoiceSettings();
+
+        settings.setItemRowPattern("[0-9");
+
+        PdfInvoiceProfile.compile(settings);
+    }
+
     @org.junit.Test
     public void testWriteTo_sample1()
             throws IOException, DocumentException {
@@ -140,7 +577,518 @@ public class PdfInvoiceEditorTest {
 
         pdfInvoiceEditor.writeTextAtOffset("Hello World!", "INVOICE", 10, Alignment.LEFT);
 
-        pdfInvoiceEditor.writeTo(new FileOutputStream("src/test/resources/generated/testWriteAtOffset.pdf"));
+        pdfInvoiceEditor.writeTo(new FileOutputStream("target/generated/testWriteAtOffset.pdf"));
+    }
+
+    @org.junit.Test
+    public void testWriteAtOffsets()
+            throws IOException {
+        PdfInvoiceEditor pdfInvoiceEditor = new PdfInvoiceEditor(src_sample2);
+
+        pdfInvoiceEditor.setFontAndSize(font, size);
+
+        pdfInvoiceEditor.parseContent();
+
+        pdfInvoiceEditor.writeTextAtOffsets(Arrays.asList(
+                new TextAtOffset("FIRST-INVOICE", "INVOICE", 10, Alignment.LEFT),
+                new TextAtOffset("EVERY-DOLLAR", "$", 100, Alignment.LEFT, true),
+                new TextAtOffset("NOT-WRITTEN", "not on the page", 10, Alignment.LEFT)));
+
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+
+        pdfInvoiceEditor.writeTo(os);
+
+        PdfReader reader = new PdfReader(os.toByteArray());
+
+        String text = PdfTextExtractor.getTextFromPage(reader, 1);
+
+        assertEquals(1, text.split("FIRST-INVOICE", -1).length - 1);
+        assertEquals(19, text.split("EVERY-DOLLAR", -1).length - 1);
+        assertFalse(text.contains("NOT-WRITTEN"));
+
+        reader.close();
+    }
+
+    @org.junit.Test
+    public void testWriteAtOffsets_region()
+            throws IOException {
+        PdfInvoiceEditor pdfInvoiceEditor = new PdfInvoiceEditor(src_sample2);
+
+        pdfInvoiceEditor.setFontAndSize(font, size);
+
+        // the INVOICE heading ends at (116.134, 658.437) on the first page
+        pdfInvoiceEditor.writeTextAtOffsets(Arrays.asList(
+                new TextAtOffset("IN-REGION", "INVOICE", 10, Alignment.LEFT, false, new Rectangle(0, 600, 300, 700)),
+                new TextAtOffset("BELOW-REGION", "INVOICE", 10, Alignment.LEFT, false, new Rectangle(0, 0, 300, 600)),
+                new TextAtOffset("RIGHT-OF-REGION", "INVOICE", 10, Alignment.LEFT, false, new Rectangle(300, 600, 600, 700))));
+
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+
+        pdfInvoiceEditor.writeTo(os);
+
+        PdfReader reader = new PdfReader(os.toByteArray());
+
+        String text = PdfTextExtractor.getTextFromPage(reader, 1);
+
+        assertEquals(1, text.split("IN-REGION", -1).length - 1);
+        assertFalse(text.contains("BELOW-REGION"));
+        assertFalse(text.contains("RIGHT-OF-REGION"));
+
+        reader.close();
+    }
+
+    @org.junit.Test
+    public void testWriteAmounts()
+            throws IOException {
+        Map<String, Double> amounts = new LinkedHashMap();
+
+        amounts.put("12312312", 99.01);
+        amounts.put("BOOK", 3245.04);
+        amounts.put("NO-SUCH-ITEM", 1.00);
+        amounts.put("32-55R32", 9.18);
+
+        PdfInvoiceEditor bulkEditor = new PdfInvoiceEditor(src_sample2);
+
+        bulkEditor.setFontAndSize(font, size);
+
+        InvoiceWriteResult result = bulkEditor.writeAmounts(amounts, 6514.71, 14573.00);
+
+        assertEquals(Arrays.asList("NO-SUCH-ITEM"), result.getUnresolvedItemIds());
+        assertFalse(result.isSubtotalUnresolved());
+        assertFalse(result.isTotalFundedAmountUnresolved());
+        assertFalse(result.isComplete());
+
+        PdfInvoiceEditor singleEditor = new PdfInvoiceEditor(src_sample2);
+
+        singleEditor.setFontAndSize(font, size);
+
+        for (Map.Entry<String, Double> entry : amounts.entrySet()) {
+            singleEditor.writeCumulativeCost(entry.getKey(), entry.getValue());
+        }
+
+        singleEditor.writeCumulativeCostSubtotal(6514.71);
+        singleEditor.writeTotalFundedAmount(14573.00);
+
+        ByteArrayOutputStream bulk = new ByteArrayOutputStream();
+        ByteArrayOutputStream single = new ByteArrayOutputStream();
+
+        bulkEditor.writeTo(bulk);
+        singleEditor.writeTo(single);
+
+        PdfReader bulkReader = new PdfReader(bulk.toByteArray());
+        PdfReader singleReader = new PdfReader(single.toByteArray());
+
+        assertEquals(singleReader.getNumberOfPages(), bulkReader.getNumberOfPages());
+
+        for (int pageNum = 1; pageNum <= bulkReader.getNumberOfPages(); pageNum++) {
+            assertEquals(PdfTextExtractor.getTextFromPage(singleReader, pageNum), PdfTextExtractor.getTextFromPage(bulkReader, pageNum));
+        }
+
+        bulkReader.close();
+        singleReader.close();
+    }
+
+    @org.junit.Test
+    public void testWriteAmounts_nullAmount()
+            throws IOException {
+        Map<String, Double> amounts = new LinkedHashMap();
+
+        amounts.put("BOOK", 3245.04);
+        amounts.put("32-55R32", null);
+
+        PdfInvoiceEditor pdfInvoiceEditor = new PdfInvoiceEditor(src_sample2);
+
+        pdfInvoiceEditor.setFontAndSize(font, size);
+
+        try {
+            pdfInvoiceEditor.writeAmounts(amounts, 6514.71, null);
+
+            fail("Wrote a null amount");
+        } catch (IllegalArgumentException ex) {
+            assertTrue(ex.getMessage().contains("32-55R32"));
+        }
+
+        // nothing was written
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+
+        pdfInvoiceEditor.writeTo(baos);
+
+        PdfReader reader = new PdfReader(baos.toByteArray());
+
+        assertFalse(PdfTextExtractor.getTextFromPage(reader, 1).contains("3,245.04"));
+
+        reader.close();
+    }
+
+    @org.junit.Test
+    public void testWriteTo_destination()
+            throws IOException {
+        ByteArrayOutputStream buffered = new ByteArrayOutputStream();
+
+        PdfInvoiceEditor pdfInvoiceEditor = new PdfInvoiceEditor(src_sample1);
+
+        pdfInvoiceEditor.setFontAndSize(font, size);
+        pdfInvoiceEditor.writeCumulativeCost("BOOK", 100);
+        pdfInvoiceEditor.writeTo(buffered);
+
+        ByteArrayOutputStream streamed = new ByteArrayOutputStream();
+        ByteArrayOutputStream channeled = new ByteArrayOutputStream();
+        Path file = Files.createTempFile("sample1", ".pdf");
+
+        try {
+            for (PdfDestination destination : Arrays.asList(PdfDestination.of(streamed), PdfDestination.of(Channels.newChannel(channeled)), PdfDestination.of(file))) {
+                try (PdfInvoiceEditor streamingEditor = new PdfInvoiceEditor(src_sample1, destination)) {
+                    streamingEditor.setFontAndSize(font, size);
+                    streamingEditor.writeCumulativeCost("BOOK", 100);
+
+                    try {
+                        streamingEditor.writeTo(new ByteArrayOutputStream());
+                        fail("writeTo must not be used with a destination");
+                    } catch (IllegalStateException ex) {
+                        // expected
+                    }
+                }
+            }
+
+            for (byte[] output : Arrays.asList(streamed.toByteArray(), channeled.toByteArray(), Files.readAllBytes(file))) {
+                PdfReader expected = new PdfReader(buffered.toByteArray());
+                PdfReader actual = new PdfReader(output);
+
+                assertArrayEquals(expected.getPageContent(1), actual.getPageContent(1));
+                assertEquals(PdfTextExtractor.getTextFromPage(expected, 1), PdfTextExtractor.getTextFromPage(actual, 1));
+
+                expected.close();
+                actual.close();
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @org.junit.Test
+    public void testMappedSource()
+            throws IOException {
+        PdfSource source = PdfSource.map(Paths.get(src_sample2));
+
+        assertTrue(source.isPartial());
+        assertEquals(Files.size(Paths.get(src_sample2)), source.length());
+
+        PdfInvoiceEditor fileEditor = new PdfInvoiceEditor(src_sample2);
+        PdfInvoiceEditor mappedEditor = new PdfInvoiceEditor(source);
+
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        ByteArrayOutputStream actual = new ByteArrayOutputStream();
+
+        for (PdfInvoiceEditor pdfInvoiceEditor : Arrays.asList(fileEditor, mappedEditor)) {
+            pdfInvoiceEditor.setFontAndSize(font, size);
+            pdfInvoiceEditor.parseContent(ForkJoinPool.commonPool());
+            pdfInvoiceEditor.writeCumulativeCost("WAEH", 949.17);
+            pdfInvoiceEditor.writeTotalFundedAmount(14573.00);
+        }
+
+        assertEquals(new HashSet(fileEditor.listItemIds()), new HashSet(mappedEditor.listItemIds()));
+
+        fileEditor.writeTo(expected);
+        mappedEditor.writeTo(actual);
+
+        PdfReader expectedReader = new PdfReader(expected.toByteArray());
+        PdfReader actualReader = new PdfReader(actual.toByteArray());
+
+        assertEquals(expectedReader.getNumberOfPages(), actualReader.getNumberOfPages());
+
+        for (int pageNum = 1; pageNum <= expectedReader.getNumberOfPages(); pageNum++) {
+            assertArrayEquals(expectedReader.getPageContent(pageNum), actualReader.getPageContent(pageNum));
+        }
+
+        expectedReader.close();
+        actualReader.close();
+    }
+
+    @org.junit.Test
+    public void testInMemorySources()
+            throws IOException {
+        byte[] bytes = Files.readAllBytes(Paths.get(src_sample2));
+
+        ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+
+        direct.put(bytes).flip();
+
+        byte[] padded = new byte[bytes.length + 20];
+
+        System.arraycopy(bytes, 0, padded, 10, bytes.length);
+
+        ByteBuffer slice = ByteBuffer.wrap(padded, 10, bytes.length);
+
+        List<PdfSource> sources = Arrays.asList(
+                PdfSource.of(bytes),
+                PdfSource.of(ByteBuffer.wrap(bytes)),
+                PdfSource.of(direct),
+                PdfSource.of(slice),
+                PdfSource.of(new ByteArrayInputStream(bytes)),
+                PdfSource.of(Paths.get(src_sample2)));
+
+        assertFalse(sources.get(1).isPartial());
+        assertTrue(sources.get(2).isPartial());
+        assertTrue(sources.get(3).isPartial());
+        assertEquals(0, direct.position());
+        assertEquals(10, slice.position());
+
+        PdfInvoiceEditor fileEditor = new PdfInvoiceEditor(src_sample2);
+
+        fileEditor.parseContent();
+
+        List<String> expected = fileEditor.listItemIds();
+
+        assertFalse(expected.isEmpty());
+
+        for (PdfSource source : sources) {
+            assertEquals(bytes.length, source.length());
+
+            PdfInvoiceEditor pdfInvoiceEditor = new PdfInvoiceEditor(source);
+
+            pdfInvoiceEditor.parseContent();
+
+            assertEquals(new HashSet(expected), new HashSet(pdfInvoiceEditor.listItemIds()));
+
+            pdfInvoiceEditor.close();
+        }
+    }
+
+    @org.junit.Test
+    public void testGeneratedInvoice()
+            throws IOException, DocumentException {
+        InvoiceGenerator generator = new InvoiceGenerator();
+
+        generator.setPageCount(12);
+        generator.setItemCount(250);
+        generator.setFragmentLength(3);
+        generator.setImagesPerPage(2);
+
+        InvoiceGenerator.GeneratedInvoice invoice = generator.generate();
+
+        assertEquals(250, invoice.getItemIds().size());
+
+        PdfReader reader = new PdfReader(invoice.getBytes());
+
+        assertEquals(12, reader.getNumberOfPages());
+
+        Map<String, PageVector> cumulativeCostLocations = new HashMap();
+
+        for (int pageNum = 1; pageNum <= reader.getNumberOfPages(); pageNum++) {
+            InvoiceTextExtractionStrategy strategy = new PdfReaderContentParser(reader).processContent(pageNum, new InvoiceTextExtractionStrategy());
+
+            strategy.parse(PdfInvoiceProfile.getDefault());
+
+            for (Map.Entry<String, Vector> entry : strategy.getCumulativeCostLocationMap().entrySet()) {
+                cumulativeCostLocations.put(entry.getKey(), new PageVector(pageNum, entry.getValue()));
+            }
+
+            if (pageNum == reader.getNumberOfPages()) {
+                assertLocation(invoice.getCumulativeCostSubtotalLocation(), new PageVector(pageNum, strategy.getCumulativeCostSubtotalLocation()));
+                assertLocation(invoice.getTotalFundedAmountLocation(), new PageVector(pageNum, strategy.getTotalFundedAmountLocation()));
+            } else {
+                assertNull(strategy.getCumulativeCostSubtotalLocation());
+                assertNull(strategy.getTotalFundedAmountLocation());
+            }
+        }
+
+        reader.close();
+
+        assertEquals(invoice.getCumulativeCostLocations().keySet(), cumulativeCostLocations.keySet());
+
+        for (Map.Entry<String, PageVector> entry : invoice.getCumulativeCostLocations().entrySet()) {
+            assertLocation(entry.getValue(), cumulativeCostLocations.get(entry.getKey()));
+        }
+
+        PdfInvoiceEditor pdfInvoiceEditor = new PdfInvoiceEditor(PdfSource.of(invoice.getBytes()));
+
+        pdfInvoiceEditor.setFontAndSize(font, size);
+
+        Map<String, Double> amounts = new LinkedHashMap();
+
+        for (String itemId : invoice.getItemIds()) {
+            amounts.put(itemId, 1.0);
+        }
+
+        assertTrue(pdfInvoiceEditor.writeAmounts(amounts, 250.0, 1000.0).isComplete());
+
+        pdfInvoiceEditor.close();
+    }
+
+    /**
+     * Test that editors sharing a workspace produce the same output as editors with their own working state.
+     *
+     * @throws IOException on I/O error
+     */
+    @org.junit.Test
+    public void testWorkspace()
+            throws IOException {
+        Map<String, Double> amounts = new LinkedHashMap();
+
+        amounts.put("BOOK", 3245.04);
+        amounts.put("NO-SUCH-ITEM", 1.00);
+        amounts.put("32-55R32", 9.18);
+
+        PdfInvoiceWorkspacePool pool = new PdfInvoiceWorkspacePool(1);
+
+        PdfInvoiceWorkspace first = null;
+
+        for (String src : Arrays.asList(src_sample2, src_sample1, src_sample2, src_sample1)) {
+            for (boolean concurrent : Arrays.asList(false, true)) {
+                PdfInvoiceEditor expectedEditor = new PdfInvoiceEditor(src);
+
+                expectedEditor.setFontAndSize(font, size);
+
+                InvoiceWriteResult expectedResult = expectedEditor.writeAmounts(amounts, 6514.71, 100.00);
+
+                ByteArrayOutputStream expected = new ByteArrayOutputStream();
+
+                expectedEditor.writeTo(expected);
+
+                PdfInvoiceWorkspace workspace = pool.acquire();
+
+                if (first == null) {
+                    first = workspace;
+                }
+
+                assertSame(first, workspace);
+
+                ByteArrayOutputStream actual = new ByteArrayOutputStream();
+
+                try {
+                    PdfInvoiceEditor pdfInvoiceEditor = new PdfInvoiceEditor(src);
+
+                    pdfInvoiceEditor.setWorkspace(workspace);
+                    pdfInvoiceEditor.setFontAndSize(font, size);
+
+                    if (concurrent) {
+                        pdfInvoiceEditor.parseContent(ForkJoinPool.commonPool());
+                    }
+
+                    InvoiceWriteResult result = pdfInvoiceEditor.writeAmounts(amounts, 6514.71, 100.00);
+
+                    assertEquals(expectedResult.getUnresolvedItemIds(), result.getUnresolvedItemIds());
+
+                    pdfInvoiceEditor.writeTo(actual);
+
+                    try {
+                        pdfInvoiceEditor.setWorkspace(workspace);
+
+                        fail("The workspace must be set before parsing");
+                    } catch (IllegalStateException ex) {
+                        // expected
+                    }
+                } finally {
+                    pool.release(workspace);
+                }
+
+                PdfReader expectedReader = new PdfReader(expected.toByteArray());
+                PdfReader actualReader = new PdfReader(actual.toByteArray());
+
+                for (int pageNum = 1; pageNum <= expectedReader.getNumberOfPages(); pageNum++) {
+                    assertEquals(PdfTextExtractor.getTextFromPage(expectedReader, pageNum), PdfTextExtractor.getTextFromPage(actualReader, pageNum));
+                }
+
+                expectedReader.close();
+                actualReader.close();
+            }
+        }
+
+        // strategies are only added for pages beyond those of earlier documents
+        assertEquals(2, first.getStrategyCount());
+        assertEquals(1, pool.getIdleCount());
+    }
+
+    /**
+     * Test that amounts written to a compiled template, concurrently, match those written by an editor that parses the
+     * invoice itself.
+     *
+     * @throws Exception on error
+     */
+    @org.junit.Test
+    public void testInvoiceTemplate()
+            throws Exception {
+        PdfInvoiceTemplate template = new PdfInvoiceTemplate(PdfSource.of(Paths.get(src_sample2)));
+
+        PdfInvoiceEditor parsedEditor = new PdfInvoiceEditor(src_sample2);
+
+        parsedEditor.parseContent();
+
+        assertEquals(new HashSet(parsedEditor.listItemIds()), new HashSet(template.listItemIds()));
+
+        List<Map<String, Double>> amountSets = new ArrayList();
+
+        for (int i = 0; i < 16; i++) {
+            Map<String, Double> amounts = new LinkedHashMap();
+
+            amounts.put("BOOK", 1000.00 + i);
+            amounts.put("NO-SUCH-ITEM", 1.00);
+            amounts.put("32-55R32", 9.18 * i);
+
+            amountSets.add(amounts);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        try {
+            List<CompletableFuture<byte[]>> outputs = new ArrayList();
+
+            for (Map<String, Double> amounts : amountSets) {
+                outputs.add(CompletableFuture.supplyAsync(() -> {
+                    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+
+                    try (PdfInvoiceEditor pdfInvoiceEditor = new PdfInvoiceEditor(template, PdfDestination.of(baos))) {
+                        pdfInvoiceEditor.setFontAndSize(font, size);
+
+                        InvoiceWriteResult result = pdfInvoiceEditor.writeAmounts(amounts, 6514.71, 100.00);
+
+                        assertEquals(Collections.singletonList("NO-SUCH-ITEM"), result.getUnresolvedItemIds());
+                        assertEquals(template.getTemplate().getNumberOfPages(), pdfInvoiceEditor.getParsedPageCount());
+                    } catch (IOException ex) {
+                        throw new CompletionException(ex);
+                    }
+
+                    return baos.toByteArray();
+                }, executor));
+            }
+
+            for (int i = 0; i < amountSets.size(); i++) {
+                PdfInvoiceEditor expectedEditor = new PdfInvoiceEditor(src_sample2);
+
+                expectedEditor.setFontAndSize(font, size);
+                expectedEditor.writeAmounts(amountSets.get(i), 6514.71, 100.00);
+
+                ByteArrayOutputStream expected = new ByteArrayOutputStream();
+
+                expectedEditor.writeTo(expected);
+
+                PdfReader expectedReader = new PdfReader(expected.toByteArray());
+                PdfReader actualReader = new PdfReader(outputs.get(i).join());
+
+                assertEquals(expectedReader.getNumberOfPages(), actualReader.getNumberOfPages());
+
+                for (int pageNum = 1; pageNum <= expectedReader.getNumberOfPages(); pageNum++) {
+                    assertEquals(PdfTextExtractor.getTextFromPage(expectedReader, pageNum), PdfTextExtractor.getTextFromPage(actualReader, pageNum));
+                }
+
+                expectedReader.close();
+                actualReader.close();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Asserts that a location was found where it was expected.
+     *
+     * @param expected the expected location.
+     * @param actual the location found.
+     */
+    private static void assertLocation(final PageVector expected, final PageVector actual) {
+        assertEquals(expected.getPageNum(), actual.getPageNum());
+        assertEquals(expected.get(Vector.I1), actual.get(Vector.I1), 0.01f);
+        assertEquals(expected.get(Vector.I2), actual.get(Vector.I2), 0.01f);
     }
 
 }
@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2015 Clifford Errickson
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.cyberninjas.pdf;
+
+import com.itextpdf.text.pdf.BaseFont;
+import java.math.BigDecimal;
+import java.text.NumberFormat;
+import java.util.Locale;
+import java.util.Random;
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for {@code CurrencyFormatter}.
+ *
+ * @author Clifford Errickson
+ * @since 1.1
+ */
+public class CurrencyFormatterTest {
+
+    public CurrencyFormatterTest() {
+    }
+
+    @org.junit.Test
+    public void testFormat()
+            throws Exception {
+        BaseFont font = BaseFont.createFont("src/test/resources/calibri.ttf", BaseFont.WINANSI, BaseFont.EMBEDDED);
+
+        Random random = new Random(14);
+
+        for (Locale locale : new Locale[]{Locale.US, Locale.GERMANY, Locale.FRANCE, Locale.JAPAN, new Locale("de", "CH")}) {
+            CurrencyFormatter formatter = new CurrencyFormatter(locale);
+            NumberFormat numberFormat = NumberFormat.getCurrencyInstance(locale);
+
+            char[] buffer = new char[formatter.getMaxLength()];
+
+            for (int i = 0; i < 5000; i++) {
+                double amount;
+
+                switch (i % 4) {
+                    case 0:
+                        // halfway in decimal, rarely in binary
+                        amount = (random.nextInt(2000000) * 2 + 1) / 2000.0 - 1000;
+                        break;
+                    case 1:
+                        amount = random.nextInt(100000000) / 100.0;
+                        break;
+                    case 2:
+                        amount = (random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(16));
+                        break;
+                    default:
+                        amount = Math.scalb(random.nextInt(1 << 20), -random.nextInt(12));
+                }
+
+                String expected = numberFormat.format(amount);
+
+                int length = formatter.format(amount, buffer);
+
+                assertEquals(String.valueOf(amount), expected, new String(buffer, 0, length));
+                assertEquals(expected, numberFormat.format(new BigDecimal(amount)), new String(buffer, 0, formatter.format(new BigDecimal(amount), buffer)));
+
+                if (locale == Locale.US) {
+                    assertEquals(font.getWidthPoint(expected, 9), formatter.getWidths(font).getWidthPoint(buffer, length, 9), 0);
+                    assertEquals(100 - font.getWidthPoint(expected, 9) / 2, formatter.getWidths(font).getStartX(buffer, length, 9, Alignment.CENTER, 100), 0);
+                }
+            }
+
+            assertEquals(numberFormat.format(-0.0), formatter.format(-0.0));
+            assertEquals(numberFormat.format(-0.001), formatter.format(-0.001));
+        }
+
+        CurrencyFormatter pattern = new CurrencyFormatter(Locale.US, "#,##0.00## \u00a4");
+
+        assertEquals("1,234.50 $", pattern.format(1234.5));
+        assertEquals("0.1235 $", pattern.format(0.12345));
+    }
+
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright (C) 2015 Clifford Errickson
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.cyberninjas.pdf;
+
+import com.cyberninjas.invoice.pdf.PdfInvoiceEditor;
+import com.itextpdf.text.pdf.BaseFont;
+import com.itextpdf.text.pdf.PdfDictionary;
+import com.itextpdf.text.pdf.PdfName;
+import com.itextpdf.text.pdf.PdfObject;
+import com.itextpdf.text.pdf.PdfReader;
+import com.itextpdf.text.pdf.parser.PdfTextExtractor;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.text.NumberFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for {@code FontRegistry}.
+ *
+ * @author Clifford Errickson
+ * @since 1.1
+ */
+public class FontRegistryTest {
+
+    final String font = "src/test/resources/calibri.ttf";
+    final int size = 9;
+    final String src_sample2 = "src/test/resources/samples/sample2.pdf";
+
+    public FontRegistryTest() {
+    }
+
+    @org.junit.Test
+    public void testGetFont()
+            throws Exception {
+        FontRegistry registry = new FontRegistry(1);
+
+        BaseFont calibri = registry.getFont(font, BaseFont.WINANSI);
+
+        assertSame(calibri, registry.getFont(font, BaseFont.WINANSI));
+        assertEquals(1, registry.getMissCount());
+        assertEquals(1, registry.getHitCount());
+
+        registry.getFont(font, BaseFont.CP1250);
+
+        assertEquals(1, registry.size());
+        assertNotSame(calibri, registry.getFont(font, BaseFont.WINANSI));
+
+        // concurrent editors sharing one font each embed a subset of their own text
+        List<String> itemIds = Arrays.asList("BOOK", "COOKIE", "WAEH", "GB1-White");
+
+        List<CompletableFuture<byte[]>> outputs = new ArrayList();
+
+        for (int i = 0; i < itemIds.size(); i++) {
+            final double amount = 1111.11 * (i + 1);
+            final String itemId = itemIds.get(i);
+
+            outputs.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    PdfInvoiceEditor pdfInvoiceEditor = new PdfInvoiceEditor(src_sample2);
+
+                    pdfInvoiceEditor.setFontAndSize(calibri, size);
+                    pdfInvoiceEditor.writeCumulativeCost(itemId, amount);
+
+                    ByteArrayOutputStream os = new ByteArrayOutputStream();
+
+                    pdfInvoiceEditor.writeTo(os);
+
+                    return os.toByteArray();
+                } catch (IOException ex) {
+                    throw new CompletionException(ex);
+                }
+            }));
+        }
+
+        PdfReader source = new PdfReader(src_sample2);
+
+        Set<String> sourceFontNames = fontNames(source);
+
+        source.close();
+
+        Set<String> subsetNames = new HashSet();
+
+        for (int i = 0; i < outputs.size(); i++) {
+            PdfReader reader = new PdfReader(outputs.get(i).join());
+
+            String text = "";
+
+            for (int pageNum = 1; pageNum <= reader.getNumberOfPages(); pageNum++) {
+                text += PdfTextExtractor.getTextFromPage(reader, pageNum);
+            }
+
+            assertTrue(text, text.contains(NumberFormat.getCurrencyInstance(Locale.US).format(1111.11 * (i + 1))));
+
+            Set<String> fontNames = fontNames(reader);
+
+            fontNames.removeAll(sourceFontNames);
+
+            assertEquals(1, fontNames.size());
+            assertTrue(fontNames.iterator().next().contains("+Calibri"));
+
+            subsetNames.addAll(fontNames);
+
+            reader.close();
+        }
+
+        assertEquals(outputs.size(), subsetNames.size());
+    }
+
+    @org.junit.Test
+    public void testGetFont_builtIn()
+            throws IOException {
+        FontRegistry registry = new FontRegistry(FontRegistry.DEFAULT_MAX_SIZE);
+
+        BaseFont helvetica = registry.getFont(BaseFont.HELVETICA, BaseFont.WINANSI);
+
+        assertEquals("Helvetica", helvetica.getPostscriptFontName());
+        assertSame(helvetica, registry.getFont(BaseFont.HELVETICA, BaseFont.WINANSI));
+
+        // a name that is neither a file nor a built-in font fails and is not kept
+        try {
+            registry.getFont("src/test/resources/no-such-font.ttf", BaseFont.WINANSI);
+
+            fail("Loaded a font that does not exist");
+        } catch (IOException ex) {
+            // expected
+        }
+
+        assertEquals(1, registry.size());
+
+        // editors still accept the name of a built-in font
+        PdfInvoiceEditor pdfInvoiceEditor = new PdfInvoiceEditor(src_sample2);
+
+        pdfInvoiceEditor.setFontAndSize(BaseFont.HELVETICA, size);
+        pdfInvoiceEditor.writeCumulativeCost("BOOK", 1234.56);
+
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+
+        pdfInvoiceEditor.writeTo(os);
+
+        PdfReader reader = new PdfReader(os.toByteArray());
+
+        assertTrue(PdfTextExtractor.getTextFromPage(reader, 1).contains(NumberFormat.getCurrencyInstance(Locale.US).format(1234.56)));
+
+        reader.close();
+    }
+
+    /**
+     * Lists the names of the fonts described in a document.
+     *
+     * @param reader the document.
+     * @return the font names.
+     */
+    private static Set<String> fontNames(final PdfReader reader) {
+        Set<String> fontNames = new HashSet();
+
+        for (int k = 1; k < reader.getXrefSize(); k++) {
+            PdfObject object = reader.getPdfObject(k);
+
+            if (object != null && object.isDictionary() && PdfName.FONTDESCRIPTOR.equals(((PdfDictionary) object).get(PdfName.TYPE))) {
+                fontNames.add(((PdfDictionary) object).get(PdfName.FONTNAME).toString());
+            }
+        }
+
+        return fontNames;
+    }
+
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2015 Clifford Errickson
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.cyberninjas.pdf;
+
+import com.cyberninjas.invoice.pdf.PdfInvoiceEditor;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for {@code HistogramMetricsListener}.
+ *
+ * @author Clifford Errickson
+ * @since 1.1
+ */
+public class HistogramMetricsListenerTest {
+
+    final String font = "src/test/resources/calibri.ttf";
+    final int size = 9;
+    final String src_sample1 = "src/test/resources/samples/sample1.pdf";
+    final String src_sample2 = "src/test/resources/samples/sample2.pdf";
+
+    public HistogramMetricsListenerTest() {
+    }
+
+    @org.junit.Test
+    public void testEditorMetrics()
+            throws IOException {
+        Map<String, Double> amounts = new LinkedHashMap();
+
+        amounts.put("BOOK", 3245.04);
+        amounts.put("NO-SUCH-ITEM", 1.00);
+        amounts.put("32-55R32", 9.18);
+
+        HistogramMetricsListener metrics = new HistogramMetricsListener();
+
+        PdfInvoiceEditor pdfInvoiceEditor;
+
+        PdfEditor.setDefaultMetricsListener(metrics);
+
+        try {
+            pdfInvoiceEditor = new PdfInvoiceEditor(src_sample2);
+        } finally {
+            PdfEditor.setDefaultMetricsListener(null);
+        }
+
+        assertSame(metrics, pdfInvoiceEditor.getMetricsListener());
+        assertNull(new PdfInvoiceEditor(src_sample1).getMetricsListener());
+
+        pdfInvoiceEditor.setFontAndSize(font, size);
+        pdfInvoiceEditor.writeAmounts(amounts, 6514.71, null);
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+
+        pdfInvoiceEditor.writeTo(baos);
+
+        assertEquals(1, metrics.getCount(MetricsListener.Phase.OPEN));
+        assertEquals(2, metrics.getCount(MetricsListener.Phase.EXTRACT));
+        assertEquals(2, metrics.getCount(MetricsListener.Phase.LOCATE));
+        assertEquals(2, metrics.getCount(MetricsListener.Phase.STAMP));
+        assertEquals(1, metrics.getCount(MetricsListener.Phase.SERIALIZE));
+
+        assertEquals(2, metrics.getTotal(MetricsListener.Count.PAGES));
+        assertTrue(metrics.getTotal(MetricsListener.Count.TEXT_CHUNKS) > 0);
+        assertEquals(2, metrics.getTotal(MetricsListener.Count.RESOLVED_ITEM_IDS));
+        assertEquals(1, metrics.getTotal(MetricsListener.Count.UNRESOLVED_ITEM_IDS));
+        assertEquals(baos.size(), metrics.getTotal(MetricsListener.Count.OUTPUT_BYTES));
+
+        for (MetricsListener.Phase phase : MetricsListener.Phase.values()) {
+            assertTrue(metrics.getPercentileNanos(phase, 50) <= metrics.getPercentileNanos(phase, 99));
+            assertTrue(metrics.getPercentileNanos(phase, 99) <= metrics.getMaxNanos(phase));
+        }
+    }
+
+    @org.junit.Test
+    public void testPercentiles() {
+        HistogramMetricsListener metrics = new HistogramMetricsListener();
+
+        // percentiles are accurate to a bucket
+        for (int i = 1; i <= 1000; i++) {
+            metrics.onPhase(MetricsListener.Phase.STAMP, 1, i * 1000L);
+        }
+
+        assertEquals(1000, metrics.getCount(MetricsListener.Phase.STAMP));
+        assertEquals(500500000L, metrics.getTotalNanos(MetricsListener.Phase.STAMP));
+        assertEquals(1000000L, metrics.getMaxNanos(MetricsListener.Phase.STAMP));
+        assertEquals(500000, metrics.getPercentileNanos(MetricsListener.Phase.STAMP, 50), 500000 / 16);
+        assertEquals(990000, metrics.getPercentileNanos(MetricsListener.Phase.STAMP, 99), 990000 / 16);
+        assertEquals(0, metrics.getCount(MetricsListener.Phase.OPEN));
+
+        metrics.reset();
+
+        assertEquals(0, metrics.getCount(MetricsListener.Phase.STAMP));
+        assertEquals(0, metrics.getMaxNanos(MetricsListener.Phase.STAMP));
+    }
+
+}
@@ -0,0 +1,324 @@
+/*
+ * Copyright (C) 2015 Clifford Errickson
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.cyberninjas.pdf;
+
+import com.cyberninjas.pdf.TextChunkExtractionStrategy.TextChunk;
+import com.itextpdf.text.Rectangle;
+import com.itextpdf.text.pdf.PdfReader;
+import com.itextpdf.text.pdf.parser.PdfReaderContentParser;
+import com.itextpdf.text.pdf.parser.Vector;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for {@code TextChunkExtractionStrategy}.
+ *
+ * @author Clifford Errickson
+ * @since 1.1
+ */
+public class TextChunkExtractionStrategyTest {
+
+    final String src_sample1 = "src/test/resources/samples/sample1.pdf";
+    final String src_sample2 = "src/test/resources/samples/sample2.pdf";
+
+    final List<String> labels = Arrays.asList("Cumulative Cost", "Subtotal", "Total Funded Amount", "INVOICE", "BOOK", "COOKIE", "not on the page");
+
+    public TextChunkExtractionStrategyTest() {
+    }
+
+    @org.junit.Test
+    public void testMatchText_multiple()
+            throws IOException {
+        TextChunkExtractionStrategy strategy = extract(src_sample2, 1);
+
+        Map<String, TextChunk> textChunkMap = strategy.matchText(labels);
+
+        assertEquals(3, textChunkMap.size());
+        assertEquals(581.574f, textChunkMap.get("Cumulative Cost").getEndLocation().get(Vector.I1), 0.01f);
+        assertEquals(521.102f, textChunkMap.get("Cumulative Cost").getEndLocation().get(Vector.I2), 0.01f);
+        assertEquals(116.134f, textChunkMap.get("INVOICE").getEndLocation().get(Vector.I1), 0.01f);
+        assertEquals(658.437f, textChunkMap.get("INVOICE").getEndLocation().get(Vector.I2), 0.01f);
+        assertEquals(76.05f, textChunkMap.get("BOOK").getEndLocation().get(Vector.I1), 0.01f);
+        assertEquals(408.924f, textChunkMap.get("BOOK").getEndLocation().get(Vector.I2), 0.01f);
+        assertFalse(textChunkMap.containsKey("Subtotal"));
+        assertFalse(textChunkMap.containsKey("Total Funded Amount"));
+        assertFalse(textChunkMap.containsKey("COOKIE"));
+        assertFalse(textChunkMap.containsKey("not on the page"));
+    }
+
+    @org.junit.Test
+    public void testMatchAllText_multiple()
+            throws IOException {
+        TextChunkExtractionStrategy strategy = extract(src_sample2, 1);
+
+        Map<String, List<TextChunk>> textChunkMap = strategy.matchAllText(labels);
+
+        assertEquals(3, textChunkMap.size());
+        assertEquals(1, textChunkMap.get("Cumulative Cost").size());
+        assertEquals(1, textChunkMap.get("INVOICE").size());
+        assertEquals(1, textChunkMap.get("BOOK").size());
+
+        TextChunk cumulativeCost = textChunkMap.get("Cumulative Cost").get(0);
+
+        assertEquals(513.973f, cumulativeCost.getStartLocation().get(Vector.I1), 0.01f);
+        assertEquals(581.574f, cumulativeCost.getEndLocation().get(Vector.I1), 0.01f);
+        assertEquals(521.102f, cumulativeCost.getEndLocation().get(Vector.I2), 0.01f);
+
+        TextChunk invoice = textChunkMap.get("INVOICE").get(0);
+
+        assertEquals(41.4f, invoice.getStartLocation().get(Vector.I1), 0.01f);
+        assertEquals(116.134f, invoice.getEndLocation().get(Vector.I1), 0.01f);
+        assertEquals(658.437f, invoice.getEndLocation().get(Vector.I2), 0.01f);
+
+        // the block of text containing the ItemId
+        TextChunk book = textChunkMap.get("BOOK").get(0);
+
+        assertEquals(36.0f, book.getStartLocation().get(Vector.I1), 0.01f);
+        assertEquals(76.05f, book.getEndLocation().get(Vector.I1), 0.01f);
+        assertEquals(408.924f, book.getEndLocation().get(Vector.I2), 0.01f);
+
+        assertEquals(19, strategy.matchAllText("$").size());
+    }
+
+    @org.junit.Test
+    public void testMatchText_region()
+            throws IOException {
+        TextChunkExtractionStrategy strategy = extract(src_sample2, 1);
+
+        // the heading ends at (581.574, 521.102)
+        assertNotNull(strategy.matchText(labels, new Rectangle(500, 500, 600, 540)).get("Cumulative Cost"));
+        assertNull(strategy.matchText(labels, new Rectangle(500, 0, 600, 500)).get("Cumulative Cost"));
+        assertNull(strategy.matchText(labels, new Rectangle(0, 500, 400, 540)).get("Cumulative Cost"));
+        assertEquals(strategy.matchText(labels).keySet(), strategy.matchText(labels, new Rectangle(0, 0, 1000, 1000)).keySet());
+
+        // the matches in a region are the matches on the page that lie in it
+        Rectangle region = new Rectangle(0, 300, 612, 450);
+
+        List<TextChunk> expected = new ArrayList();
+
+        for (TextChunk textChunk : strategy.matchAllText("$")) {
+            float y = textChunk.getStartLocation().get(Vector.I2);
+
+            if (y >= region.getBottom() && y <= region.getTop()) {
+                expected.add(textChunk);
+            }
+        }
+
+        List<TextChunk> found = strategy.matchAllText(Collections.singleton("$"), region).get("$");
+
+        assertTrue(!expected.isEmpty());
+        assertTrue(expected.size() < 19);
+        assertEquals(expected.size(), found.size());
+
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getStartLocation(), found.get(i).getStartLocation());
+            assertEquals(expected.get(i).getEndLocation(), found.get(i).getEndLocation());
+        }
+    }
+
+    @org.junit.Test
+    public void testPageTextIndex()
+            throws IOException {
+        TextChunkExtractionStrategy strategy = extract(src_sample2, 1);
+
+        PageTextIndex index = strategy.getPageTextIndex();
+
+        int chunks = 0;
+
+        // each chunk's text is found at its offset within the text of its line
+        for (PageTextIndex.Line line : index.getLines()) {
+            for (int i = 0; i < line.size(); i++) {
+                TextChunk chunk = line.getTextChunk(i);
+
+                assertTrue(line.getText().startsWith(chunk.getText(), line.getOffset(i)));
+                assertTrue(i == 0 || chunk.sameLine(line.getTextChunk(i - 1)));
+
+                if (!chunk.getText().isEmpty()) {
+                    assertEquals(i, line.chunkAt(line.getOffset(i)));
+                }
+
+                chunks++;
+            }
+        }
+
+        assertEquals(strategy.getTextChunkCount(), chunks);
+
+        TextChunk heading = strategy.matchText("Cumulative Cost");
+
+        float x = heading.getEndLocation().get(Vector.I1);
+        float y = heading.getEndLocation().get(Vector.I2);
+
+        // every chunk found in a rectangle lies within it, and a linear scan finds no others
+        List<TextChunk> found = index.findText(x - 100, y - 50, x, y);
+        List<PageTextIndex.Line> foundLines = index.findLines(x - 100, y - 50, x, y);
+
+        List<String> expected = new ArrayList();
+
+        int expectedLines = 0;
+
+        for (PageTextIndex.Line line : index.getLines()) {
+            boolean inRectangle = false;
+
+            for (TextChunk chunk : line.getTextChunks()) {
+                float startX = chunk.getStartLocation().get(Vector.I1);
+                float endX = chunk.getEndLocation().get(Vector.I1);
+                float baseline = chunk.getStartLocation().get(Vector.I2);
+
+                if (endX >= x - 100 && startX <= x && baseline >= y - 50 && baseline <= y) {
+                    expected.add(describe(chunk));
+
+                    inRectangle = true;
+                }
+            }
+
+            if (inRectangle) {
+                // lines are found in page order
+                assertSame(line, foundLines.get(expectedLines));
+
+                expectedLines++;
+            }
+        }
+
+        List<String> actual = new ArrayList();
+
+        for (TextChunk chunk : found) {
+            actual.add(describe(chunk));
+        }
+
+        Collections.sort(expected);
+        Collections.sort(actual);
+
+        assertEquals(expected, actual);
+        assertEquals(expectedLines, foundLines.size());
+        assertTrue(!found.isEmpty());
+
+        // the nearest text right of the start of a line is its first chunk
+        PageTextIndex.Line firstLine = index.getLines().get(0);
+
+        TextChunk first = firstLine.getFirstTextChunk();
+
+        assertEquals(describe(first), describe(index.findNearestRightOf(first.getStartLocation().get(Vector.I1), firstLine.getBaseline() + 0.5f, 1f)));
+        assertEquals(describe(firstLine.getTextChunk(1)), describe(index.findNearestRightOf(first.getStartLocation().get(Vector.I1) + 0.01f, firstLine.getBaseline(), 1f)));
+        assertNull(index.findNearestRightOf(10000, firstLine.getBaseline(), 1f));
+        assertNull(index.findNearestRightOf(0, 10000, 1f));
+
+        // a span covers the chunks containing the range
+        for (PageTextIndex.Line line : index.getLines()) {
+            int start = line.getText().indexOf("Cumulative Cost");
+
+            if (start >= 0) {
+                TextChunk span = line.span(start, start + "Cumulative Cost".length());
+
+                assertTrue(span.getText().contains("Cumulative Cost"));
+                assertEquals(strategy.matchText("Cumulative Cost").getEndLocation(), span.getEndLocation());
+                assertEquals(line.getTextChunk(line.chunkAt(start)).getStartLocation(), span.getStartLocation());
+            }
+        }
+    }
+
+    @org.junit.Test
+    public void testWordBoundaryHooks()
+            throws IOException {
+        PdfReader reader = new PdfReader(src_sample2);
+
+        // a subclass fine tuning the hooks taking text and chunk objects: a space between every chunk
+        TextChunkExtractionStrategy strategy = new TextChunkExtractionStrategy() {
+
+            @Override
+            protected boolean isChunkAtWordBoundary(TextChunk chunk, TextChunk previousChunk) {
+                return true;
+            }
+
+            @Override
+            protected boolean startsWithSpace(String str) {
+                return false;
+            }
+
+            @Override
+            protected boolean endsWithSpace(String str) {
+                return false;
+            }
+
+        };
+
+        try {
+            new PdfReaderContentParser(reader).processContent(1, strategy);
+        } finally {
+            reader.close();
+        }
+
+        StringBuilder defaultText = new StringBuilder();
+        StringBuilder spacedText = new StringBuilder();
+
+        for (PageTextIndex.Line line : extract(src_sample2, 1).getPageTextIndex().getLines()) {
+            defaultText.append(line.getText()).append('\n');
+        }
+
+        for (PageTextIndex.Line line : strategy.getPageTextIndex().getLines()) {
+            StringBuilder expected = new StringBuilder();
+
+            for (int i = 0; i < line.size(); i++) {
+                if (i > 0) {
+                    expected.append(' ');
+                }
+
+                expected.append(line.getTextChunk(i).getText());
+            }
+
+            assertEquals(expected.toString(), line.getText());
+
+            spacedText.append(line.getText()).append('\n');
+        }
+
+        assertFalse(defaultText.toString().equals(spacedText.toString()));
+    }
+
+    /**
+     * Describes a chunk by its text and location, as chunks viewed from a store are not equal to each other.
+     *
+     * @param chunk the chunk.
+     * @return the description.
+     */
+    private static String describe(final TextChunk chunk) {
+        return chunk.getText() + " " + chunk.getStartLocation() + " " + chunk.getEndLocation();
+    }
+
+    /**
+     * Extract the text chunks from a page.
+     *
+     * @param src the source PDF file location.
+     * @param pageNum the page to extract.
+     * @return the strategy containing the extracted text.
+     * @throws IOException on I/O error reading the source file.
+     */
+    private TextChunkExtractionStrategy extract(final String src, final int pageNum)
+            throws IOException {
+        PdfReader reader = new PdfReader(src);
+
+        try {
+            return new PdfReaderContentParser(reader).processContent(pageNum, new TextChunkExtractionStrategy());
+        } finally {
+            reader.close();
+        }
+    }
+
+}
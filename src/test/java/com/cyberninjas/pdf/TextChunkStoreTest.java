@@ -0,0 +1,182 @@
+/*
+ * Copyright (C) 2015 Clifford Errickson
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.cyberninjas.pdf;
+
+import com.cyberninjas.pdf.TextChunkExtractionStrategy.TextChunk;
+import com.itextpdf.text.pdf.parser.Vector;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for {@code TextChunkStore}.
+ *
+ * @author Clifford Errickson
+ * @since 1.1
+ */
+public class TextChunkStoreTest {
+
+    public TextChunkStoreTest() {
+    }
+
+    @org.junit.Test
+    public void testAdd() {
+        TextChunkStore store = new TextChunkStore();
+
+        float[][] chunks = {
+            {50, 100, 1, 80, 100, 1},
+            {10, 100, 1, 40, 100, 1},
+            {200, 10, 1, 200, 60, 1},
+            {300, 300, 1, 340, 330, 1},
+            {5, 5, 1, 5, 5, 1}
+        };
+
+        for (int i = 0; i < chunks.length; i++) {
+            float[] c = chunks[i];
+
+            assertEquals(i, store.add("chunk" + i, c[0], c[1], c[2], c[3], c[4], c[5], 2));
+        }
+
+        for (int i = 0; i < chunks.length; i++) {
+            Geometry expected = new Geometry(chunks[i]);
+
+            assertEquals("chunk" + i, store.getText(i));
+            assertEquals(expected.orientationMagnitude, store.getOrientationMagnitude(i));
+            assertEquals(expected.distPerpendicular, store.getDistPerpendicular(i));
+            assertEquals(expected.distParallelStart, store.getDistParallelStart(i), 0.001f);
+            assertEquals(expected.distParallelEnd, store.getDistParallelEnd(i), 0.001f);
+
+            // a view reads the same values from the store
+            TextChunk view = store.getTextChunk(i);
+
+            assertEquals("chunk" + i, view.getText());
+            assertEquals(expected.start, view.getStartLocation());
+            assertEquals(expected.end, view.getEndLocation());
+            assertEquals(expected.orientationMagnitude, view.getOrientationMagnitude());
+            assertEquals(2f, view.getCharSpaceWidth(), 0f);
+
+            // and compares as a chunk holding its own values does
+            TextChunk chunk = new TextChunk("chunk" + i, expected.start, expected.end, 2);
+
+            assertEquals(0, chunk.compareTo(view));
+            assertTrue(chunk.sameLine(view));
+            assertEquals(chunk.distanceFromEndOf(chunk), view.distanceFromEndOf(view), 0.001f);
+        }
+    }
+
+    @org.junit.Test
+    public void testSort() {
+        TextChunkStore store = new TextChunkStore();
+
+        store.add("world", 50, 100, 1, 80, 100, 1, 2);
+        store.add("hello", 10, 100, 1, 40, 100, 1, 2);
+        store.add("rotated", 200, 10, 1, 200, 60, 1, 2);
+        store.add("", 5, 5, 1, 5, 5, 1, 2);
+
+        store.sort();
+
+        // top to bottom, then left to right, then other orientations
+        assertEquals("hello", store.getText(0));
+        assertEquals("world", store.getText(1));
+        assertEquals("", store.getText(2));
+        assertEquals("rotated", store.getText(3));
+        assertTrue(store.sameLine(0, 1));
+        assertEquals(10f, store.distanceFromEndOf(1, 0), 0.001f);
+        assertEquals(new Vector(40, 100, 1), store.getTextChunk(0).getEndLocation());
+
+        // the bucketed sort orders chunks as a stable sort by the geometry iText computes does, including when the
+        // store is reused
+        Random random = new Random(42);
+
+        for (int run = 0; run < 3; run++) {
+            store.clear();
+
+            List<Geometry> expected = new ArrayList();
+
+            for (int i = 0; i < 5000 >> run; i++) {
+                float x = random.nextInt(600) - 100;
+                float y = random.nextInt(50) * 12 - 100;
+                float dx = random.nextInt(10) == 0 ? 0 : 20;
+                float dy = random.nextInt(10) == 0 ? -20 : 0;
+
+                store.add(Integer.toString(i), x, y, 1, x + dx, y + dy, 1, 2);
+
+                Geometry geometry = new Geometry(new float[]{x, y, 1, x + dx, y + dy, 1});
+
+                geometry.text = Integer.toString(i);
+
+                expected.add(geometry);
+            }
+
+            expected.sort(Comparator.<Geometry>comparingInt((g) -> g.orientationMagnitude)
+                    .thenComparingInt((g) -> g.distPerpendicular)
+                    .thenComparingDouble((g) -> g.distParallelStart));
+
+            store.sort();
+
+            assertEquals(expected.size(), store.size());
+
+            for (int i = 0; i < store.size(); i++) {
+                assertEquals(expected.get(i).text, store.getText(i));
+                assertEquals(expected.get(i).start, store.getTextChunk(i).getStartLocation());
+            }
+        }
+    }
+
+    /**
+     * The geometry of a chunk, computed with iText's {@link Vector} operations as its
+     * {@code LocationTextExtractionStrategy} does.
+     */
+    private static class Geometry {
+
+        private String text;
+
+        private final Vector start;
+
+        private final Vector end;
+
+        private final int orientationMagnitude;
+
+        private final int distPerpendicular;
+
+        private final float distParallelStart;
+
+        private final float distParallelEnd;
+
+        private Geometry(final float[] c) {
+            start = new Vector(c[0], c[1], c[2]);
+            end = new Vector(c[3], c[4], c[5]);
+
+            Vector orientation = end.subtract(start);
+
+            if (orientation.length() == 0) {
+                orientation = new Vector(1, 0, 0);
+            }
+
+            orientation = orientation.normalize();
+
+            orientationMagnitude = (int) (Math.atan2(orientation.get(Vector.I2), orientation.get(Vector.I1)) * 1000);
+            distPerpendicular = (int) (start.subtract(new Vector(0, 0, 1))).cross(orientation).get(Vector.I3);
+            distParallelStart = orientation.dot(start);
+            distParallelEnd = orientation.dot(end);
+        }
+
+    }
+
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2015 Clifford Errickson
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.cyberninjas.pdf;
+
+import java.nio.charset.StandardCharsets;
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for {@code TextContentFilter}.
+ *
+ * @author Clifford Errickson
+ * @since 1.1
+ */
+public class TextContentFilterTest {
+
+    public TextContentFilterTest() {
+    }
+
+    @org.junit.Test
+    public void testFilter() {
+        String content = "1 0 0 RG 0.5 w q 1 0 0 1 5 5 cm 0 0 10 10 re f Q\n"
+                + "/P <</MCID 0>> BDC q 2 0 0 2 0 0 cm BT /F1 12 Tf (a \\) re f \\(Q\\) [(b)] TJ) Tj [(c) -120 <0064>] TJ ET Q EMC\n"
+                + "% comment with BT\n"
+                + "q 0 0 m 1 1 l S Q true false null 0.5 g";
+
+        assertEquals(" q\n 2 0 0 2 0 0 cm\n BT\n /F1 12 Tf\n (a \\) re f \\(Q\\) [(b)] TJ) Tj\n [(c) -120 <0064>] TJ\n ET\n Q\n", filter(content));
+
+        // everything after an inline image is kept
+        content = "BT (a) Tj ET 1 g BI /W 1 /H 1 ID \u0000\u00ff EI 0 g";
+
+        assertEquals("BT\n (a) Tj\n ET\n BI /W 1 /H 1 ID \u0000\u00ff EI 0 g", filter(content));
+    }
+
+    @org.junit.Test
+    public void testFilter_noSeparators() {
+        // a separator is added after each operator, so content with no separators to drop grows
+        assertEquals("BT\n/F1 8 Tf\n(a)Tj\n(b)Tj\n ET\n", filter("BT/F1 8 Tf(a)Tj(b)Tj ET"));
+
+        StringBuilder content = new StringBuilder("BT");
+        StringBuilder expected = new StringBuilder("BT\n");
+
+        for (int i = 0; i < 1000; i++) {
+            content.append("(a)Tj");
+            expected.append("(a)Tj\n");
+        }
+
+        content.append(" ET");
+        expected.append(" ET\n");
+
+        assertEquals(expected.toString(), filter(content.toString()));
+    }
+
+    private static String filter(final String content) {
+        return new String(TextContentFilter.filter(content.getBytes(StandardCharsets.ISO_8859_1)), StandardCharsets.ISO_8859_1);
+    }
+
+}
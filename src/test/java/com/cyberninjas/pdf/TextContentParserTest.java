@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2015 Clifford Errickson
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.cyberninjas.pdf;
+
+import com.cyberninjas.pdf.TextChunkExtractionStrategy.TextChunk;
+import com.itextpdf.text.pdf.PdfReader;
+import com.itextpdf.text.pdf.parser.PdfReaderContentParser;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for {@code TextContentParser}.
+ *
+ * @author Clifford Errickson
+ * @since 1.1
+ */
+public class TextContentParserTest {
+
+    final String src_sample1 = "src/test/resources/samples/sample1.pdf";
+    final String src_sample2 = "src/test/resources/samples/sample2.pdf";
+
+    public TextContentParserTest() {
+    }
+
+    @org.junit.Test
+    public void testProcessContent()
+            throws IOException {
+        for (String src : Arrays.asList(src_sample1, src_sample2)) {
+            PdfReader reader = new PdfReader(src);
+
+            try {
+                for (int pageNum = 1; pageNum <= reader.getNumberOfPages(); pageNum++) {
+                    List<TextChunk> expected = new PdfReaderContentParser(reader).processContent(pageNum, new TextChunkExtractionStrategy()).getTextChunks();
+                    List<TextChunk> actual = new TextContentParser(reader).processContent(pageNum, new TextChunkExtractionStrategy()).getTextChunks();
+
+                    assertEquals(expected.size(), actual.size());
+
+                    for (int i = 0; i < expected.size(); i++) {
+                        assertEquals(expected.get(i).getText(), actual.get(i).getText());
+                        assertEquals(expected.get(i).getStartLocation(), actual.get(i).getStartLocation());
+                        assertEquals(expected.get(i).getEndLocation(), actual.get(i).getEndLocation());
+                        assertEquals(expected.get(i).getCharSpaceWidth(), actual.get(i).getCharSpaceWidth(), 0f);
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) 2015 Clifford Errickson
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.cyberninjas.pdf;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for {@code TextMatcher}.
+ *
+ * @author Clifford Errickson
+ * @since 1.1
+ */
+public class TextMatcherTest {
+
+    public TextMatcherTest() {
+    }
+
+    @org.junit.Test
+    public void testMatch() {
+        TextMatcher matcher = new TextMatcher(Arrays.asList("he", "she", "his", "hers", "", null, "he"));
+
+        assertEquals(Arrays.asList("he", "she", "his", "hers"), matcher.getPatterns());
+
+        final List<String> matches = new ArrayList();
+
+        matcher.match("ushers", (pattern, start, end) -> {
+            matches.add(matcher.getPatterns().get(pattern) + "@" + start + "-" + end);
+
+            return true;
+        });
+
+        assertEquals(Arrays.asList("she@1-4", "he@2-4", "hers@2-6"), matches);
+    }
+
+}
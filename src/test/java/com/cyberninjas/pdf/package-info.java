@@ -0,0 +1,4 @@
+/**
+ * Contains unit tests.
+ */
+package com.cyberninjas.pdf;
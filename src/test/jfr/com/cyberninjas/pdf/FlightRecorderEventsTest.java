@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2015 Clifford Errickson
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.cyberninjas.pdf;
+
+import com.cyberninjas.invoice.pdf.PdfInvoiceEditor;
+import com.cyberninjas.invoice.pdf.TextAtOffset;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import static org.junit.Assert.*;
+
+/**
+ * Unit test for {@code FlightRecorderEvents}.
+ *
+ * @author Clifford Errickson
+ * @since 1.1
+ */
+public class FlightRecorderEventsTest {
+
+    final String font = "src/test/resources/calibri.ttf";
+    final int size = 9;
+    final String src_sample2 = "src/test/resources/samples/sample2.pdf";
+
+    public FlightRecorderEventsTest() {
+    }
+
+    /**
+     * Test that editing is recorded as Flight Recorder events.
+     *
+     * @throws IOException on I/O error
+     */
+    @org.junit.Test
+    public void testFlightRecorderEvents()
+            throws IOException {
+        assertTrue(FlightRecorderEvents.isAvailable());
+
+        Map<String, Double> amounts = new LinkedHashMap();
+
+        amounts.put("BOOK", 3245.04);
+        amounts.put("32-55R32", 9.18);
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+
+        Path recordingFile = Files.createTempFile("invoice-editor", ".jfr");
+
+        try {
+            try (Recording recording = new Recording()) {
+                for (String name : Arrays.asList("DocumentOpen", "PageParse", "TextLocate", "PageStamp", "DocumentWrite")) {
+                    recording.enable("com.cyberninjas." + name);
+                }
+
+                recording.start();
+
+                PdfInvoiceEditor pdfInvoiceEditor = new PdfInvoiceEditor(src_sample2);
+
+                pdfInvoiceEditor.setFontAndSize(font, size);
+                pdfInvoiceEditor.writeAmounts(amounts, 6514.71, null);
+                pdfInvoiceEditor.writeTextAtOffsets(Collections.singleton(new TextAtOffset("X", "BOOK", 10, Alignment.LEFT)));
+                pdfInvoiceEditor.writeTo(baos);
+
+                recording.stop();
+                recording.dump(recordingFile);
+            }
+
+            Map<String, List<RecordedEvent>> events = new HashMap();
+
+            for (RecordedEvent event : RecordingFile.readAllEvents(recordingFile)) {
+                events.computeIfAbsent(event.getEventType().getName(), (name) -> new ArrayList()).add(event);
+            }
+
+            String source = Paths.get(src_sample2).toString();
+
+            RecordedEvent open = events.get("com.cyberninjas.DocumentOpen").get(0);
+
+            assertEquals(source, open.getString("source"));
+            assertEquals(2, open.getInt("pages"));
+            assertEquals(Files.size(Paths.get(src_sample2)), open.getLong("bytes"));
+
+            assertEquals(2, events.get("com.cyberninjas.PageParse").size());
+
+            for (RecordedEvent parse : events.get("com.cyberninjas.PageParse")) {
+                assertEquals(source, parse.getString("source"));
+                assertTrue(parse.getInt("textChunks") > 0);
+            }
+
+            // the labels on each page when parsing, then the reference text on each page
+            assertEquals(4, events.get("com.cyberninjas.TextLocate").size());
+            assertEquals(3, events.get("com.cyberninjas.PageStamp").size());
+
+            RecordedEvent write = events.get("com.cyberninjas.DocumentWrite").get(0);
+
+            assertEquals(source, write.getString("source"));
+            assertEquals(baos.size(), write.getLong("bytes"));
+        } finally {
+            Files.delete(recordingFile);
+        }
+    }
+}